@@ -0,0 +1,91 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.cache.SearchResultCache;
+import com.github.joonasvali.demo.cache.SemanticJokeCache;
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.concurrency.SingleFlight;
+import com.github.joonasvali.demo.dedup.JokeDeduplicator;
+import com.github.joonasvali.demo.ingest.WriteBehindIngester;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.pool.JokePool;
+import com.github.joonasvali.demo.resilience.CircuitBreaker;
+import com.github.joonasvali.demo.resilience.Hedge;
+import com.github.joonasvali.demo.search.JokeKeywordIndex;
+import com.github.joonasvali.demo.search.SearchMode;
+import com.github.joonasvali.demo.stub.HashingEmbeddingModel;
+import com.github.joonasvali.demo.stub.ScriptedChatModel;
+import com.github.joonasvali.demo.tools.RandomNumberTools;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import com.github.joonasvali.demo.tools.ToolPreResolver;
+import com.github.joonasvali.demo.vectorstore.HnswVectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Wires the services used by the benchmarks against deterministic local stubs.
+ */
+final class BenchmarkFixtures {
+
+  static final String JOKE_JSON = """
+      {"title": "The Programmer's Life", "content": "Why do programmers prefer dark mode? Because light attracts bugs!", "topic": "Programming Humor"}""";
+
+  static final Joke JOKE = new Joke(
+      "The Programmer's Life",
+      "Why do programmers prefer dark mode? Because light attracts bugs!",
+      "Programming Humor"
+  );
+
+  private BenchmarkFixtures() {
+  }
+
+  static EmbeddingModel embeddingModel() {
+    return new HashingEmbeddingModel(256);
+  }
+
+  static ChatService chatService() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SemanticJokeCache cache = new SemanticJokeCache(embeddingModel(), meterRegistry,
+        false, 0.92, Duration.ofMinutes(30), 1000, 3);
+    Bulkhead llmBulkhead = new Bulkhead("llm", 1024, Duration.ofSeconds(1), meterRegistry);
+
+    SingleFlight<Joke> jokeSingleFlight = new SingleFlight<>("joke", true, Duration.ZERO, meterRegistry);
+
+    RandomNumberTools randomNumberTools = new RandomNumberTools();
+    RandomTopicTools randomTopicTools = new RandomTopicTools();
+    ToolPreResolver toolPreResolver = new ToolPreResolver(randomNumberTools, randomTopicTools, meterRegistry, true);
+
+    ChatService chatService = new ChatService(ChatClient.builder(new ScriptedChatModel(JOKE_JSON)), cache, llmBulkhead,
+        jokeSingleFlight, toolPreResolver, new JokePool(meterRegistry, false, 1, Duration.ofMinutes(10)),
+        Schedulers.immediate(),
+        // Circuit breaking, hedging and the stored joke fallback are off, every invocation reaches the stub model
+        new CircuitBreaker("llm", false, 20, 10, 0.5, Duration.ofSeconds(30), 3, meterRegistry),
+        new Hedge("llm", false, Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(15), 0.95, 0.1, meterRegistry),
+        vectorDatabaseService(HnswVectorStore.builder(embeddingModel()).build()), false, meterRegistry);
+    ReflectionTestUtils.setField(chatService, "randomNumberTools", randomNumberTools);
+    ReflectionTestUtils.setField(chatService, "randomTopicTools", randomTopicTools);
+    ReflectionTestUtils.invokeMethod(chatService, "initToolCallbacks");
+    return chatService;
+  }
+
+  static VectorDatabaseService vectorDatabaseService(VectorStore vectorStore) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    Bulkhead vectorStoreBulkhead = new Bulkhead("vector-store", 1024, Duration.ofSeconds(1), meterRegistry);
+    WriteBehindIngester ingester = new WriteBehindIngester(vectorStore, vectorStoreBulkhead, meterRegistry,
+        1000, 32, Duration.ofMillis(500), Duration.ofMillis(100), Duration.ofSeconds(5), 3, Duration.ofMillis(200));
+    // Coalescing and result caching are disabled so that every benchmark invocation reaches the store
+    SingleFlight<List<Document>> searchSingleFlight = new SingleFlight<>("search", false, Duration.ZERO, meterRegistry);
+    SearchResultCache searchResultCache = new SearchResultCache(meterRegistry, false, 0);
+    JokeDeduplicator deduplicator = new JokeDeduplicator(embeddingModel(), meterRegistry, false, 1, 3, 10, 0.95);
+    JokeKeywordIndex keywordIndex = new JokeKeywordIndex(meterRegistry, 0, 3, 1.0);
+    return new VectorDatabaseService(vectorStore, ingester, vectorStoreBulkhead, searchSingleFlight, searchResultCache,
+        deduplicator, keywordIndex, SearchMode.VECTOR, Schedulers.immediate(), meterRegistry);
+  }
+}
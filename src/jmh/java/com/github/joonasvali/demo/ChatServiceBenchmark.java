@@ -0,0 +1,41 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.model.Joke;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ChatService#generateJoke(String)} against a scripted chat model, covering
+ * prompt building, the ChatClient advisor chain, tool registration and structured output parsing.
+ * The semantic cache is disabled so that every call takes the full path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatServiceBenchmark {
+
+  private ChatService chatService;
+
+  @Setup
+  public void setUp() {
+    chatService = BenchmarkFixtures.chatService();
+  }
+
+  @Benchmark
+  public Joke generateJoke() {
+    return chatService.generateJoke("programming");
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.joonasvali.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response rendering of {@code /search-jokes} for a full page of five results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+  private List<Document> results;
+
+  @Setup
+  public void setUp() {
+    results = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      results.add(Document.builder()
+          .text(BenchmarkFixtures.JOKE.content())
+          .metadata(Map.of("title", BenchmarkFixtures.JOKE.title(), "topic", BenchmarkFixtures.JOKE.topic(), "type", "joke"))
+          .score(0.9 - i * 0.01)
+          .build());
+    }
+  }
+
+  @Benchmark
+  public String renderSearchResults() {
+    return JokeController.renderSearchResults("programming", results);
+  }
+}
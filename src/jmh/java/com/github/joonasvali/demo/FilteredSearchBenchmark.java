@@ -0,0 +1,106 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.stub.HashingEmbeddingModel;
+import com.github.joonasvali.demo.vectorstore.HnswVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtered search latency of the in-process store with the joke {@code type} and {@code topic} read from
+ * the metadata maps through SpEL ({@code METADATA}, as before) or from scalar columns ({@code SCALAR}).
+ * The Milvus side of the change, scalar fields with a partition key, needs a running server and is not covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilteredSearchBenchmark {
+
+  private static final int DIMENSIONS = 256;
+  private static final int TOPICS = 20;
+  private static final int QUERIES = 64;
+
+  @Param({"METADATA", "SCALAR"})
+  public String fields;
+
+  @Param({"10000"})
+  public int documents;
+
+  private HnswVectorStore store;
+  private float[][] queries;
+  private SearchRequest jokes;
+  private SearchRequest jokesAboutTopic;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel(DIMENSIONS);
+    store = HnswVectorStore.builder(embeddingModel)
+        .scalarFields("SCALAR".equals(fields) ? List.of("type", "topic") : List.of())
+        .build();
+
+    SplittableRandom random = new SplittableRandom(11);
+    List<Document> batch = new ArrayList<>();
+    for (int i = 0; i < documents; i++) {
+      // One in ten documents is not a joke, so that the type filter rejects some nodes
+      batch.add(new Document("document " + i + " about topic " + random.nextInt(TOPICS),
+          Map.of("title", "title " + i, "topic", "topic " + random.nextInt(TOPICS), "type", i % 10 == 0 ? "note" : "joke")));
+      if (batch.size() == 500) {
+        store.add(batch, embeddingModel.embed(batch.stream().map(Document::getText).toList()));
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      store.add(batch, embeddingModel.embed(batch.stream().map(Document::getText).toList()));
+    }
+
+    queries = new float[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = embeddingModel.embed("joke about topic " + random.nextInt(TOPICS));
+    }
+    FilterExpressionBuilder filter = new FilterExpressionBuilder();
+    jokes = SearchRequest.builder().topK(5).similarityThresholdAll()
+        .filterExpression(filter.eq("type", "joke").build())
+        .build();
+    jokesAboutTopic = SearchRequest.builder().topK(5).similarityThresholdAll()
+        .filterExpression(filter.and(filter.eq("type", "joke"), filter.eq("topic", "topic 3")).build())
+        .build();
+  }
+
+  @Benchmark
+  public List<Document> searchJokes() {
+    return store.similaritySearch(nextQuery(), jokes);
+  }
+
+  @Benchmark
+  public List<Document> searchJokesAboutTopic() {
+    return store.similaritySearch(nextQuery(), jokesAboutTopic);
+  }
+
+  private float[] nextQuery() {
+    float[] query = queries[next];
+    next = (next + 1) % QUERIES;
+    return query;
+  }
+}
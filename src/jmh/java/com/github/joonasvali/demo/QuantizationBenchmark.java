@@ -0,0 +1,160 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.vectorstore.HnswIndex;
+import com.github.joonasvali.demo.vectorstore.VectorQuantization;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HNSW search latency per {@link VectorQuantization}, on clustered random vectors shaped like text embeddings.
+ * The setup prints the compression of the vectors scanned during searches and recall@K against an exact scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizationBenchmark {
+
+  private static final int CLUSTERS = 64;
+  private static final int QUERIES = 200;
+  private static final int TOP_K = 10;
+  private static final int EF_SEARCH = 64;
+
+  @Param({"NONE", "INT8", "BINARY"})
+  public VectorQuantization quantization;
+
+  @Param({"384"})
+  public int dimensions;
+
+  @Param({"10000"})
+  public int documents;
+
+  @Param({"4"})
+  public int rerankFactor;
+
+  private HnswIndex index;
+  private float[][] vectors;
+  private float[][] queries;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(7);
+    float[][] centroids = new float[CLUSTERS][];
+    for (int i = 0; i < CLUSTERS; i++) {
+      centroids[i] = gaussian(random, 1);
+    }
+    vectors = new float[documents][];
+    index = new HnswIndex(dimensions, 16, 100, 42, quantization, rerankFactor, null);
+    for (int i = 0; i < documents; i++) {
+      vectors[i] = around(centroids[random.nextInt(CLUSTERS)], random);
+      index.add(vectors[i]);
+    }
+    queries = new float[QUERIES][];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = around(centroids[random.nextInt(CLUSTERS)], random);
+    }
+
+    System.out.printf("%n%s: %d bytes per vector scanned (%.1fx compression), recall@%d %.3f%n",
+        quantization, index.searchBytesPerVector(),
+        (double) dimensions * Float.BYTES / index.searchBytesPerVector(), TOP_K, recall());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    index.close();
+  }
+
+  @Benchmark
+  public HnswIndex.Match[] search() {
+    float[] query = queries[next];
+    next = (next + 1) % QUERIES;
+    return index.search(query, TOP_K, EF_SEARCH, null);
+  }
+
+  /**
+   * Share of the exact top K that the index returns, averaged over the queries
+   */
+  private double recall() {
+    double found = 0;
+    for (float[] query : queries) {
+      int[] exact = exactTopK(query);
+      for (HnswIndex.Match match : index.search(query, TOP_K, EF_SEARCH, null)) {
+        for (int node : exact) {
+          if (node == match.node()) {
+            found++;
+            break;
+          }
+        }
+      }
+    }
+    return found / (QUERIES * TOP_K);
+  }
+
+  private int[] exactTopK(float[] query) {
+    float[] q = normalized(query);
+    Integer[] order = new Integer[documents];
+    float[] scores = new float[documents];
+    for (int i = 0; i < documents; i++) {
+      order[i] = i;
+      float[] v = normalized(vectors[i]);
+      for (int d = 0; d < dimensions; d++) {
+        scores[i] += q[d] * v[d];
+      }
+    }
+    Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+    int[] top = new int[TOP_K];
+    for (int i = 0; i < TOP_K; i++) {
+      top[i] = order[i];
+    }
+    return top;
+  }
+
+  private float[] around(float[] centroid, SplittableRandom random) {
+    float[] noise = gaussian(random, 0.6);
+    for (int d = 0; d < dimensions; d++) {
+      noise[d] += centroid[d];
+    }
+    return noise;
+  }
+
+  private float[] gaussian(SplittableRandom random, double sigma) {
+    float[] vector = new float[dimensions];
+    for (int d = 0; d < dimensions; d++) {
+      // Box-Muller, SplittableRandom has no nextGaussian
+      double u = 1 - random.nextDouble();
+      vector[d] = (float) (sigma * Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble()));
+    }
+    return vector;
+  }
+
+  private static float[] normalized(float[] vector) {
+    double norm = 0;
+    for (float value : vector) {
+      norm += value * value;
+    }
+    float scale = (float) (1 / Math.sqrt(norm));
+    float[] copy = new float[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      copy[i] = vector[i] * scale;
+    }
+    return copy;
+  }
+}
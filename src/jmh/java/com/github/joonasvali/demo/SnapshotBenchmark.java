@@ -0,0 +1,108 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.snapshot.VectorSnapshot;
+import com.github.joonasvali.demo.stub.HashingEmbeddingModel;
+import com.github.joonasvali.demo.vectorstore.HnswVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cold start of the in-process store: restoring it from a {@link VectorSnapshot} against adding the same
+ * documents through an embedding model with a fixed latency per request, as after a restart without a snapshot.
+ * {@code read} only maps, verifies and decodes the snapshot, the part bound by disk throughput; both
+ * {@code restore} and {@code reembed} also pay for building the HNSW graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SnapshotBenchmark {
+
+  private static final int DIMENSIONS = 384;
+  private static final int TOPICS = 20;
+
+  @Param({"2000"})
+  public int documents;
+
+  @Param({"200"})
+  public int embeddingLatencyMillis;
+
+  private HashingEmbeddingModel embeddingModel;
+  private List<Document> jokes;
+  private Path snapshot;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    embeddingModel = new HashingEmbeddingModel(DIMENSIONS);
+    SplittableRandom random = new SplittableRandom(3);
+    jokes = new ArrayList<>(documents);
+    for (int i = 0; i < documents; i++) {
+      int topic = random.nextInt(TOPICS);
+      jokes.add(new Document("joke " + i + " about topic " + topic + " with a punchline " + random.nextInt(),
+          Map.of("title", "title " + i, "topic", "topic " + topic, "type", "joke")));
+    }
+    List<float[]> embeddings = embeddingModel.embed(jokes.stream().map(Document::getText).toList());
+    snapshot = Files.createTempFile("jokes", ".snapshot");
+    VectorSnapshot.Summary summary = VectorSnapshot.write(snapshot, batch -> batch.accept(jokes, embeddings));
+    System.out.printf("%nSnapshot of %d document(s): %d bytes%n", summary.documents(), summary.bytes());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(snapshot);
+  }
+
+  @Benchmark
+  public void read(Blackhole blackhole) throws IOException {
+    VectorSnapshot.read(snapshot, 2000, (batch, embeddings) -> blackhole.consume(embeddings));
+  }
+
+  @Benchmark
+  public int restore() throws IOException {
+    HnswVectorStore store = HnswVectorStore.builder(embeddingModel).build();
+    VectorSnapshot.read(snapshot, 2000, store::add);
+    return store.size();
+  }
+
+  @Benchmark
+  public int reembed() {
+    long latency = TimeUnit.MILLISECONDS.toNanos(embeddingLatencyMillis);
+    HashingEmbeddingModel remoteModel = new HashingEmbeddingModel(DIMENSIONS) {
+      @Override
+      public EmbeddingResponse call(EmbeddingRequest request) {
+        LockSupport.parkNanos(latency);
+        return super.call(request);
+      }
+    };
+    HnswVectorStore store = HnswVectorStore.builder(remoteModel).build();
+    store.add(jokes);
+    return store.size();
+  }
+}
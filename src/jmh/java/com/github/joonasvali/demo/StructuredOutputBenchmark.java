@@ -0,0 +1,53 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.model.Joke;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structured output handling for {@link Joke}: building the converter with its JSON schema
+ * (done on every {@code entity(Joke.class)} call) and parsing a model answer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructuredOutputBenchmark {
+
+  private static final String FENCED_JOKE_JSON = "```json\n" + BenchmarkFixtures.JOKE_JSON + "\n```";
+
+  private BeanOutputConverter<Joke> converter;
+
+  @Setup
+  public void setUp() {
+    converter = new BeanOutputConverter<>(Joke.class);
+  }
+
+  @Benchmark
+  public BeanOutputConverter<Joke> createConverter() {
+    return new BeanOutputConverter<>(Joke.class);
+  }
+
+  @Benchmark
+  public Joke parseJoke() {
+    return converter.convert(BenchmarkFixtures.JOKE_JSON);
+  }
+
+  @Benchmark
+  public Joke parseFencedJoke() {
+    return converter.convert(FENCED_JOKE_JSON);
+  }
+}
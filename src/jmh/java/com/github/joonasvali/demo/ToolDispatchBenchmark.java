@@ -0,0 +1,62 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.tools.RandomNumberTools;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tool dispatch the way the model triggers it: JSON arguments in, JSON result out,
+ * through the callbacks Spring AI builds from the {@code @Tool} methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolDispatchBenchmark {
+
+  private ToolCallback randomTopic;
+  private ToolCallback randomNumber;
+
+  @Setup
+  public void setUp() {
+    ToolCallback[] callbacks = MethodToolCallbackProvider.builder()
+        .toolObjects(new RandomTopicTools(), new RandomNumberTools())
+        .build()
+        .getToolCallbacks();
+    randomTopic = find(callbacks, "generateRandomTopic");
+    randomNumber = find(callbacks, "generateRandomNumber");
+  }
+
+  @Benchmark
+  public String generateRandomTopic() {
+    return randomTopic.call("{}");
+  }
+
+  @Benchmark
+  public String generateRandomNumber() {
+    return randomNumber.call("{\"min\": 1, \"max\": 100}");
+  }
+
+  private static ToolCallback find(ToolCallback[] callbacks, String name) {
+    return Arrays.stream(callbacks)
+        .filter(callback -> callback.getToolDefinition().name().equals(name))
+        .findFirst()
+        .orElseThrow();
+  }
+}
@@ -0,0 +1,61 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.vectorstore.HnswVectorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document construction on the {@code addJoke} path and a filtered joke search
+ * against the in-process vector store with a deterministic embedding model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorDatabaseBenchmark {
+
+  private static final String[] WORDS = {
+      "programmer", "bug", "coffee", "cat", "dog", "space", "light", "dark", "mode", "java",
+      "witcher", "pizza", "robot", "garden", "music", "server", "cloud", "keyboard", "monday", "meeting"
+  };
+
+  private VectorDatabaseService vectorDatabaseService;
+
+  @Setup
+  public void setUp() {
+    HnswVectorStore vectorStore = HnswVectorStore.builder(BenchmarkFixtures.embeddingModel()).build();
+    List<Document> documents = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      String content = WORDS[i % WORDS.length] + " " + WORDS[(i * 7) % WORDS.length] + " " + WORDS[(i * 13) % WORDS.length] + " " + i;
+      documents.add(VectorDatabaseService.toDocument(new Joke("Joke " + i, content, WORDS[i % WORDS.length])));
+    }
+    vectorStore.add(documents);
+    vectorDatabaseService = BenchmarkFixtures.vectorDatabaseService(vectorStore);
+  }
+
+  @Benchmark
+  public Document documentConstruction() {
+    return VectorDatabaseService.toDocument(BenchmarkFixtures.JOKE);
+  }
+
+  @Benchmark
+  public List<Document> searchJokes() {
+    return vectorDatabaseService.searchJokes("programmer coffee bug", 5, 0.1);
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.joonasvali.demo.stub;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic offline embedding model: every lower-cased word is hashed into one of
+ * {@code dimensions} buckets, so texts sharing words get similar vectors.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+  private final int dimensions;
+
+  public HashingEmbeddingModel(int dimensions) {
+    this.dimensions = dimensions;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<Embedding> embeddings = new ArrayList<>(request.getInstructions().size());
+    for (int i = 0; i < request.getInstructions().size(); i++) {
+      embeddings.add(new Embedding(vectorOf(request.getInstructions().get(i)), i));
+    }
+    return new EmbeddingResponse(embeddings);
+  }
+
+  @Override
+  public float[] embed(Document document) {
+    return vectorOf(document.getText());
+  }
+
+  @Override
+  public int dimensions() {
+    return dimensions;
+  }
+
+  private float[] vectorOf(String text) {
+    float[] vector = new float[dimensions];
+    for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+      if (word.isEmpty()) {
+        continue;
+      }
+      int hash = word.hashCode() * 0x9E3779B9;
+      vector[Math.floorMod(hash, dimensions)] += (hash & 1) == 0 ? 1 : -1;
+    }
+    // Keep the vector non-zero so that cosine similarity stays defined
+    vector[0] += 0.01f;
+    return vector;
+  }
+}
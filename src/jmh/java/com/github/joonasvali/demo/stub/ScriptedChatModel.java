@@ -0,0 +1,33 @@
+package com.github.joonasvali.demo.stub;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+
+import java.util.List;
+
+/**
+ * Offline chat model that answers every prompt with the same assistant message.
+ */
+public class ScriptedChatModel implements ChatModel {
+
+  private final String answer;
+
+  public ScriptedChatModel(String answer) {
+    this.answer = answer;
+  }
+
+  @Override
+  public ChatResponse call(Prompt prompt) {
+    return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+  }
+
+  @Override
+  public ChatOptions getDefaultOptions() {
+    return ToolCallingChatOptions.builder().build();
+  }
+}
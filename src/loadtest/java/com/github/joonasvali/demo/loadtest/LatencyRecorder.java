@@ -0,0 +1,72 @@
+package com.github.joonasvali.demo.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one endpoint. Every sample is kept so that the tail percentiles are exact.
+ */
+class LatencyRecorder {
+
+  private long[] latencies = new long[1024];
+  private int count;
+  private final Map<String, Integer> failures = new TreeMap<>();
+
+  synchronized void success(long latencyNanos) {
+    if (count == latencies.length) {
+      latencies = Arrays.copyOf(latencies, count * 2);
+    }
+    latencies[count++] = latencyNanos;
+  }
+
+  /**
+   * @param reason HTTP status or exception name
+   */
+  synchronized void failure(String reason) {
+    failures.merge(reason, 1, Integer::sum);
+  }
+
+  synchronized Snapshot snapshot() {
+    long[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    return new Snapshot(sorted, new TreeMap<>(failures));
+  }
+
+  record Snapshot(long[] sorted, Map<String, Integer> failures) {
+
+    int successes() {
+      return sorted.length;
+    }
+
+    /**
+     * @return successful requests that took at most the given latency
+     */
+    int within(long latencyNanos) {
+      int index = Arrays.binarySearch(sorted, latencyNanos);
+      if (index < 0) {
+        return -index - 1;
+      }
+      while (index < sorted.length && sorted[index] == latencyNanos) {
+        index++;
+      }
+      return index;
+    }
+
+    int failureCount() {
+      return failures.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return latency in milliseconds, nearest-rank
+     */
+    double percentileMillis(double quantile) {
+      if (sorted.length == 0) {
+        return Double.NaN;
+      }
+      int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+      return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1e6;
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package com.github.joonasvali.demo.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * HTTP load generator with two workload models:
+ * <ul>
+ *   <li>closed: a fixed number of users, each sending its next request when the previous one completes</li>
+ *   <li>open: requests arrive as a Poisson process at a fixed rate regardless of how fast they complete,
+ *   and latency is measured from the scheduled arrival so that queueing delay is not hidden</li>
+ * </ul>
+ * Every request picks an endpoint by weight and is sent as one of {@code clients} clients in an {@code X-Client-Id}
+ * header, for per-client rate limits. Requests completing during the warm-up are not recorded. Goodput counts the
+ * successful requests that completed within the SLO.
+ */
+class LoadGenerator {
+
+  /**
+   * @param name name in the report
+   * @param path supplies the path and query of the next request
+   * @param weight relative share of the requests
+   */
+  record Endpoint(String name, Supplier<String> path, int weight) {
+  }
+
+  enum Model { CLOSED, OPEN }
+
+  static final String CLIENT_HEADER = "X-Client-Id";
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .executor(Executors.newVirtualThreadPerTaskExecutor())
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  private final String baseUrl;
+  private final List<Endpoint> endpoints;
+  private final int totalWeight;
+  private final Duration requestTimeout;
+  private final int clients;
+  private final Duration slo;
+  private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+  private volatile long recordFrom;
+
+  /**
+   * @param clients distinct client ids, closed users keep theirs and open arrivals pick one at random
+   * @param slo latency up to which a successful request counts as goodput
+   */
+  LoadGenerator(String baseUrl, List<Endpoint> endpoints, Duration requestTimeout, int clients, Duration slo) {
+    this.baseUrl = baseUrl;
+    this.endpoints = List.copyOf(endpoints);
+    this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+    this.requestTimeout = requestTimeout;
+    this.clients = Math.max(1, clients);
+    this.slo = slo;
+    if (totalWeight <= 0) {
+      throw new IllegalArgumentException("At least one endpoint needs a positive weight");
+    }
+    endpoints.forEach(endpoint -> recorders.put(endpoint.name(), new LatencyRecorder()));
+  }
+
+  /**
+   * @param users number of concurrent users
+   * @return seconds during which requests were recorded
+   */
+  double runClosed(int users, Duration warmup, Duration duration) throws InterruptedException {
+    long start = System.nanoTime();
+    recordFrom = start + warmup.toNanos();
+    long end = recordFrom + duration.toNanos();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < users; i++) {
+        String client = "client-" + i % clients;
+        executor.submit(() -> {
+          while (System.nanoTime() < end) {
+            send(pick(), System.nanoTime(), client);
+          }
+        });
+      }
+    }
+    return duration.toNanos() / 1e9;
+  }
+
+  /**
+   * @param rate mean arrivals per second
+   * @param maxOutstanding requests in flight before new arrivals are dropped and counted as failures
+   * @return seconds during which requests were recorded
+   */
+  double runOpen(double rate, int maxOutstanding, Duration warmup, Duration duration) throws InterruptedException {
+    long start = System.nanoTime();
+    recordFrom = start + warmup.toNanos();
+    long end = recordFrom + duration.toNanos();
+    Semaphore outstanding = new Semaphore(maxOutstanding);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      long arrival = start;
+      while (arrival < end) {
+        long wait = arrival - System.nanoTime();
+        if (wait > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        Endpoint endpoint = pick();
+        long scheduled = arrival;
+        String client = "client-" + ThreadLocalRandom.current().nextInt(clients);
+        if (outstanding.tryAcquire()) {
+          executor.submit(() -> {
+            try {
+              send(endpoint, scheduled, client);
+            } finally {
+              outstanding.release();
+            }
+          });
+        } else if (scheduled >= recordFrom) {
+          recorders.get(endpoint.name()).failure("dropped");
+        }
+        arrival += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / rate * 1e9);
+      }
+    }
+    return duration.toNanos() / 1e9;
+  }
+
+  void report(PrintStream out, double seconds) {
+    out.printf("%-14s %9s %9s %10s %10s %10s %10s %10s %10s  %s%n",
+        "endpoint", "ok", "failed", "req/s", "good/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "failures");
+    recorders.forEach((name, recorder) -> {
+      LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+      out.printf("%-14s %9d %9d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f  %s%n",
+          name,
+          snapshot.successes(),
+          snapshot.failureCount(),
+          snapshot.successes() / seconds,
+          snapshot.within(slo.toNanos()) / seconds,
+          snapshot.percentileMillis(0.5),
+          snapshot.percentileMillis(0.99),
+          snapshot.percentileMillis(0.999),
+          snapshot.percentileMillis(1),
+          snapshot.failures().isEmpty() ? "" : snapshot.failures());
+    });
+  }
+
+  private void send(Endpoint endpoint, long scheduled, String clientId) {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path().get()))
+        .timeout(requestTimeout)
+        .header(CLIENT_HEADER, clientId)
+        .GET()
+        .build();
+    String failure = null;
+    try {
+      HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+      if (response.statusCode() >= 400) {
+        failure = String.valueOf(response.statusCode());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    } catch (Exception e) {
+      failure = e.getClass().getSimpleName();
+    }
+    long completed = System.nanoTime();
+    if (completed < recordFrom) {
+      return;
+    }
+    LatencyRecorder recorder = recorders.get(endpoint.name());
+    if (failure == null) {
+      recorder.success(completed - scheduled);
+    } else {
+      recorder.failure(failure);
+    }
+  }
+
+  private Endpoint pick() {
+    int target = ThreadLocalRandom.current().nextInt(totalWeight);
+    for (Endpoint endpoint : endpoints) {
+      target -= endpoint.weight();
+      if (target < 0) {
+        return endpoint;
+      }
+    }
+    return endpoints.get(endpoints.size() - 1);
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.joonasvali.demo.loadtest;
+
+import com.github.joonasvali.demo.DemoApplication;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offline load test of the joke endpoints. Starts the OpenAI stub, starts the application on the
+ * {@code offline} profile (in-memory vector store) against it, drives it with {@link LoadGenerator}
+ * and prints throughput and latency percentiles per endpoint.
+ *
+ * <p>Options, all {@code key=value}:
+ * <ul>
+ *   <li>{@code model} closed or open (closed), {@code users} for closed (32), {@code rate} arrivals per second for open (50),
+ *   {@code max-outstanding} for open (2000)</li>
+ *   <li>{@code warmup} (10s), {@code duration} (30s), {@code timeout} per request (30s),
+ *   {@code slo} latency counted as goodput (2s), {@code clients} distinct {@code X-Client-Id} values (100)</li>
+ *   <li>{@code mix} endpoint weights, e.g. {@code joke:1,search:4,stream:0} (joke:1,search:4)</li>
+ *   <li>{@code chat-latency} (800ms), {@code embedding-latency} (60ms), {@code latency-sigma} (0.5),
+ *   {@code tool-call-ratio} (0.5), {@code embedding-dimensions} (1536), {@code prompt-tokens} (120),
+ *   {@code completion-tokens} (60), {@code stream-chunks} (16), {@code stub-port} (0 picks a free port)</li>
+ *   <li>{@code target} base URL of an already running application, skips starting one; it must use the stub
+ *   printed on startup (e.g. {@code --spring.profiles.active=offline} with {@code OPENAI_STUB_URL})</li>
+ * </ul>
+ * Any other option starting with {@code --} is passed to the application, e.g. {@code --demo.pool.enabled=false}.
+ */
+public class LoadTest {
+
+  public static void main(String[] args) throws Exception {
+    LoadTestOptions options = new LoadTestOptions(withoutApplicationArguments(args));
+
+    OpenAiStubServer.Settings settings = new OpenAiStubServer.Settings(
+        options.duration("chat-latency", Duration.ofMillis(800)),
+        options.duration("embedding-latency", Duration.ofMillis(60)),
+        options.decimal("latency-sigma", 0.5),
+        options.decimal("tool-call-ratio", 0.5),
+        options.integer("embedding-dimensions", 1536),
+        options.integer("prompt-tokens", 120),
+        options.integer("completion-tokens", 60),
+        options.integer("stream-chunks", 16));
+
+    try (OpenAiStubServer stub = new OpenAiStubServer(options.integer("stub-port", 0), settings)) {
+      System.out.println("OpenAI stub listening on " + stub.baseUrl());
+      String target = options.string("target", null);
+      ConfigurableApplicationContext application = null;
+      if (target == null) {
+        application = startApplication(stub.baseUrl(), settings.embeddingDimensions(), applicationArguments(args));
+        target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+      }
+
+      try {
+        LoadGenerator generator = new LoadGenerator(target, endpoints(options.string("mix", "joke:1,search:4")),
+            options.duration("timeout", Duration.ofSeconds(30)), options.integer("clients", 100),
+            options.duration("slo", Duration.ofSeconds(2)));
+        Duration warmup = options.duration("warmup", Duration.ofSeconds(10));
+        Duration duration = options.duration("duration", Duration.ofSeconds(30));
+        String model = options.string("model", "closed");
+
+        double seconds;
+        if (LoadGenerator.Model.OPEN.name().equalsIgnoreCase(model)) {
+          double rate = options.decimal("rate", 50);
+          System.out.printf("Open model, %.1f requests/s for %s after %s warm-up against %s%n", rate, duration, warmup, target);
+          seconds = generator.runOpen(rate, options.integer("max-outstanding", 2000), warmup, duration);
+        } else {
+          int users = options.integer("users", 32);
+          System.out.printf("Closed model, %d users for %s after %s warm-up against %s%n", users, duration, warmup, target);
+          seconds = generator.runClosed(users, warmup, duration);
+        }
+        generator.report(System.out, seconds);
+        System.out.println("OpenAI stub answered " + stub.responses() + " request(s)");
+      } finally {
+        if (application != null) {
+          application.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * The stub settings are passed as command line arguments, which take precedence over the offline profile.
+   * Clients are told apart by the header the generator sends, they all share the loopback address.
+   */
+  private static ConfigurableApplicationContext startApplication(String stubUrl, int embeddingDimensions, String[] args) {
+    List<String> arguments = new ArrayList<>(List.of(
+        "--spring.ai.openai.base-url=" + stubUrl,
+        "--server.port=0",
+        "--demo.embedding-cache.dimensions=" + embeddingDimensions,
+        "--logging.level.root=WARN",
+        "--demo.admission.client.header=" + LoadGenerator.CLIENT_HEADER));
+    arguments.addAll(List.of(args));
+    return new SpringApplicationBuilder(DemoApplication.class)
+        .profiles("offline")
+        .run(arguments.toArray(String[]::new));
+  }
+
+  private static List<LoadGenerator.Endpoint> endpoints(String mix) {
+    List<String> topics = RandomTopicTools.topics();
+    List<LoadGenerator.Endpoint> endpoints = new ArrayList<>();
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.split(":");
+      int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+      switch (parts[0]) {
+        case "joke" -> endpoints.add(new LoadGenerator.Endpoint("joke", () -> jokePath("/joke", topics), weight));
+        case "stream" -> endpoints.add(new LoadGenerator.Endpoint("stream", () -> jokePath("/joke/stream", topics), weight));
+        case "search" -> endpoints.add(new LoadGenerator.Endpoint("search",
+            () -> "/search-jokes?query=" + encode(topics.get(ThreadLocalRandom.current().nextInt(topics.size()))), weight));
+        default -> throw new IllegalArgumentException("Unknown endpoint in mix: " + parts[0]);
+      }
+    }
+    return endpoints;
+  }
+
+  /**
+   * Half of the requests use the default subject, the rest a catalog topic
+   */
+  private static String jokePath(String path, List<String> topics) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return random.nextBoolean() ? path : path + "?subject=" + encode(topics.get(random.nextInt(topics.size())));
+  }
+
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  private static String[] withoutApplicationArguments(String[] args) {
+    return splitArguments(args).stream().filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+  }
+
+  private static String[] applicationArguments(String[] args) {
+    return splitArguments(args).stream().filter(arg -> arg.startsWith("--")).toArray(String[]::new);
+  }
+
+  private static List<String> splitArguments(String[] args) {
+    List<String> split = new ArrayList<>();
+    for (String arg : args) {
+      for (String part : arg.trim().split("\\s+")) {
+        if (!part.isEmpty()) {
+          split.add(part);
+        }
+      }
+    }
+    return split;
+  }
+}
@@ -0,0 +1,60 @@
+package com.github.joonasvali.demo.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code key=value} command line options of the load test, see {@link LoadTest} for the keys.
+ */
+class LoadTestOptions {
+
+  private final Map<String, String> values = new HashMap<>();
+
+  LoadTestOptions(String[] args) {
+    for (String arg : args) {
+      for (String option : arg.trim().split("\\s+")) {
+        if (option.isEmpty()) {
+          continue;
+        }
+        int separator = option.indexOf('=');
+        if (separator <= 0) {
+          throw new IllegalArgumentException("Expected key=value but got: " + option);
+        }
+        values.put(option.substring(0, separator), option.substring(separator + 1));
+      }
+    }
+  }
+
+  String string(String key, String defaultValue) {
+    return values.getOrDefault(key, defaultValue);
+  }
+
+  int integer(String key, int defaultValue) {
+    return values.containsKey(key) ? Integer.parseInt(values.get(key)) : defaultValue;
+  }
+
+  double decimal(String key, double defaultValue) {
+    return values.containsKey(key) ? Double.parseDouble(values.get(key)) : defaultValue;
+  }
+
+  /**
+   * Durations are written as a number with an {@code ms}, {@code s} or {@code m} suffix
+   */
+  Duration duration(String key, Duration defaultValue) {
+    String value = values.get(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    if (value.endsWith("ms")) {
+      return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+    }
+    if (value.endsWith("s")) {
+      return Duration.ofMillis(Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * 1000));
+    }
+    if (value.endsWith("m")) {
+      return Duration.ofSeconds(Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * 60));
+    }
+    throw new IllegalArgumentException("Duration " + key + "=" + value + " needs an ms, s or m suffix");
+  }
+}
@@ -0,0 +1,286 @@
+package com.github.joonasvali.demo.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenAI chat completion and embedding endpoints. Answers are generated
+ * jokes in the structured output format, optionally preceded by a tool call round, and every
+ * response waits for a log-normally distributed latency before it is sent.
+ */
+class OpenAiStubServer implements AutoCloseable {
+
+  private static final String[] WORDS = {
+      "cat", "dog", "robot", "pirate", "wizard", "banana", "keyboard", "compiler", "penguin", "teacher",
+      "astronaut", "chef", "dragon", "bicycle", "coffee", "cloud", "server", "tomato", "ghost", "lawyer",
+      "giraffe", "printer", "unicorn", "farmer", "octopus", "library", "violin", "detective", "rocket", "sandwich",
+      "walked", "tripped", "argued", "danced", "forgot", "debugged", "borrowed", "painted", "whispered", "sneezed",
+      "into", "across", "behind", "under", "with", "without", "because", "until", "after", "before"
+  };
+
+  private final Settings settings;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final AtomicLong responses = new AtomicLong();
+  private final HttpServer server;
+
+  /**
+   * @param chatLatency median time until a chat completion is answered
+   * @param embeddingLatency median time until an embedding request is answered
+   * @param sigma standard deviation of the log of the latency, 0 makes every call take the median
+   * @param toolCallRatio share of chat requests offering tools that are answered with a tool call first
+   * @param embeddingDimensions length of the returned embeddings
+   * @param promptTokens prompt tokens reported in the usage of every response
+   * @param completionTokens completion tokens reported in the usage of every response
+   * @param streamChunks number of content chunks of a streamed answer
+   */
+  record Settings(Duration chatLatency, Duration embeddingLatency, double sigma, double toolCallRatio,
+                  int embeddingDimensions, int promptTokens, int completionTokens, int streamChunks) {
+  }
+
+  OpenAiStubServer(int port, Settings settings) throws IOException {
+    this.settings = settings;
+    this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+    server.setExecutor(executor);
+    server.createContext("/v1/chat/completions", exchange -> handle(exchange, this::chat));
+    server.createContext("/v1/embeddings", exchange -> handle(exchange, this::embeddings));
+    server.start();
+  }
+
+  String baseUrl() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  long responses() {
+    return responses.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private interface Handler {
+    void handle(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException;
+  }
+
+  private void handle(HttpExchange exchange, Handler handler) {
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+      handler.handle(request, exchange);
+      responses.incrementAndGet();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      try {
+        sendJson(exchange, 500, objectMapper.createObjectNode().put("error", String.valueOf(e.getMessage())));
+      } catch (IOException ignored) {
+        // The client has gone away
+      }
+    }
+  }
+
+  private void chat(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException {
+    String model = request.path("model").asText("stub");
+    boolean toolAnswered = false;
+    for (JsonNode message : request.path("messages")) {
+      toolAnswered |= "tool".equals(message.path("role").asText());
+    }
+    JsonNode tools = request.path("tools");
+    boolean stream = request.path("stream").asBoolean(false);
+
+    if (stream) {
+      streamChat(model, exchange);
+      return;
+    }
+    Thread.sleep(sample(settings.chatLatency()));
+    ObjectNode message = objectMapper.createObjectNode().put("role", "assistant");
+    String finishReason = "stop";
+    if (tools.isArray() && !tools.isEmpty() && !toolAnswered && ThreadLocalRandom.current().nextDouble() < settings.toolCallRatio()) {
+      message.putNull("content");
+      message.putArray("tool_calls").add(toolCall(tools.get(ThreadLocalRandom.current().nextInt(tools.size()))));
+      finishReason = "tool_calls";
+    } else {
+      message.put("content", jokeJson());
+    }
+
+    ObjectNode response = completion(model, "chat.completion");
+    ObjectNode choice = response.putArray("choices").addObject();
+    choice.put("index", 0);
+    choice.set("message", message);
+    choice.put("finish_reason", finishReason);
+    response.set("usage", usage(settings.promptTokens(), settings.completionTokens()));
+    sendJson(exchange, 200, response);
+  }
+
+  /**
+   * Half of the sampled latency passes before the first chunk, the rest is spread between the chunks
+   */
+  private void streamChat(String model, HttpExchange exchange) throws IOException, InterruptedException {
+    long latency = sample(settings.chatLatency());
+    Thread.sleep(latency / 2);
+    exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+    exchange.sendResponseHeaders(200, 0);
+
+    String content = jokeJson();
+    int chunks = Math.max(1, Math.min(settings.streamChunks(), content.length()));
+    long pause = latency / 2 / chunks;
+    try (OutputStream body = exchange.getResponseBody()) {
+      for (int i = 0; i < chunks; i++) {
+        ObjectNode chunk = completion(model, "chat.completion.chunk");
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode delta = choice.putObject("delta");
+        if (i == 0) {
+          delta.put("role", "assistant");
+        }
+        delta.put("content", content.substring(i * content.length() / chunks, (i + 1) * content.length() / chunks));
+        if (i == chunks - 1) {
+          choice.put("finish_reason", "stop");
+          chunk.set("usage", usage(settings.promptTokens(), settings.completionTokens()));
+        } else {
+          choice.putNull("finish_reason");
+        }
+        body.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+        Thread.sleep(pause);
+      }
+      body.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private void embeddings(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException {
+    List<String> inputs = new ArrayList<>();
+    JsonNode input = request.path("input");
+    if (input.isArray()) {
+      input.forEach(text -> inputs.add(text.asText()));
+    } else {
+      inputs.add(input.asText());
+    }
+    Thread.sleep(sample(settings.embeddingLatency()));
+
+    ObjectNode response = objectMapper.createObjectNode();
+    response.put("object", "list");
+    response.put("model", request.path("model").asText("stub"));
+    ArrayNode data = response.putArray("data");
+    for (int i = 0; i < inputs.size(); i++) {
+      ObjectNode embedding = data.addObject();
+      embedding.put("object", "embedding");
+      embedding.put("index", i);
+      ArrayNode values = embedding.putArray("embedding");
+      for (float value : vectorOf(inputs.get(i))) {
+        values.add(value);
+      }
+    }
+    response.set("usage", usage(settings.promptTokens() * inputs.size(), 0));
+    sendJson(exchange, 200, response);
+  }
+
+  /**
+   * A call of the given tool with arguments made up from its JSON schema
+   */
+  private ObjectNode toolCall(JsonNode tool) throws IOException {
+    JsonNode function = tool.path("function");
+    ObjectNode arguments = objectMapper.createObjectNode();
+    Iterator<Map.Entry<String, JsonNode>> properties = function.path("parameters").path("properties").fields();
+    while (properties.hasNext()) {
+      Map.Entry<String, JsonNode> property = properties.next();
+      switch (property.getValue().path("type").asText()) {
+        case "integer", "number" -> arguments.put(property.getKey(), property.getKey().toLowerCase(Locale.ROOT).contains("max") ? 100 : 1);
+        case "boolean" -> arguments.put(property.getKey(), true);
+        default -> arguments.put(property.getKey(), WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)]);
+      }
+    }
+    ObjectNode call = objectMapper.createObjectNode();
+    call.put("id", "call_" + responses.get() + "_" + ThreadLocalRandom.current().nextInt(1_000_000));
+    call.put("type", "function");
+    call.putObject("function")
+        .put("name", function.path("name").asText())
+        .put("arguments", objectMapper.writeValueAsString(arguments));
+    return call;
+  }
+
+  /**
+   * A joke of random words, so that the deduplicator and the search indexes see distinct documents
+   */
+  private String jokeJson() throws IOException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder content = new StringBuilder("Why did the");
+    for (int i = 0; i < 14; i++) {
+      content.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    content.append("? Because it was load tested.");
+    ObjectNode joke = objectMapper.createObjectNode();
+    joke.put("title", "The " + WORDS[random.nextInt(WORDS.length)] + " incident");
+    joke.put("content", content.toString());
+    joke.put("topic", WORDS[random.nextInt(30)]);
+    return objectMapper.writeValueAsString(joke);
+  }
+
+  private float[] vectorOf(String text) {
+    float[] vector = new float[settings.embeddingDimensions()];
+    for (String word : text.toLowerCase(Locale.ROOT).split("\\W+")) {
+      if (word.isEmpty()) {
+        continue;
+      }
+      int hash = word.hashCode() * 0x9E3779B9;
+      vector[Math.floorMod(hash, vector.length)] += (hash & 1) == 0 ? 1 : -1;
+    }
+    vector[0] += 0.01f;
+    return vector;
+  }
+
+  private ObjectNode completion(String model, String object) {
+    ObjectNode response = objectMapper.createObjectNode();
+    response.put("id", "chatcmpl-stub-" + responses.get());
+    response.put("object", object);
+    response.put("created", System.currentTimeMillis() / 1000);
+    response.put("model", model);
+    return response;
+  }
+
+  private ObjectNode usage(int promptTokens, int completionTokens) {
+    return objectMapper.createObjectNode()
+        .put("prompt_tokens", promptTokens)
+        .put("completion_tokens", completionTokens)
+        .put("total_tokens", promptTokens + completionTokens);
+  }
+
+  private long sample(Duration median) {
+    double factor = Math.exp(settings.sigma() * ThreadLocalRandom.current().nextGaussian());
+    return Math.round(median.toMillis() * factor);
+  }
+
+  private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+    byte[] bytes = objectMapper.writeValueAsBytes(body);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+}
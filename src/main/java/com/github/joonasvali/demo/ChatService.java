@@ -1,15 +1,52 @@
 package com.github.joonasvali.demo;
 
+import com.github.joonasvali.demo.cache.SemanticJokeCache;
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.concurrency.SingleFlight;
+import com.github.joonasvali.demo.metrics.RoundTripCounter;
+import com.github.joonasvali.demo.metrics.TimedToolCallback;
 import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.model.JokeStreamEvent;
+import com.github.joonasvali.demo.pool.JokePool;
+import com.github.joonasvali.demo.resilience.CircuitBreaker;
+import com.github.joonasvali.demo.resilience.CircuitOpenException;
+import com.github.joonasvali.demo.resilience.Deadline;
+import com.github.joonasvali.demo.resilience.DeadlineExceededException;
+import com.github.joonasvali.demo.resilience.Hedge;
+import com.github.joonasvali.demo.streaming.StreamingJokeParser;
 import com.github.joonasvali.demo.tools.RandomNumberTools;
 import com.github.joonasvali.demo.tools.RandomTopicTools;
+import com.github.joonasvali.demo.tools.ToolPreResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.method.MethodToolCallbackProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 public class ChatService {
@@ -18,6 +55,21 @@ public class ChatService {
   private static final String DEFAULT_JOKE_SUBJECT = "random topic";
 
   private final ChatClient chatClient;
+  private final SemanticJokeCache jokeCache;
+  private final Bulkhead llmBulkhead;
+  private final SingleFlight<Joke> jokeSingleFlight;
+  private final ToolPreResolver toolPreResolver;
+  private final JokePool jokePool;
+  private final Scheduler blockingScheduler;
+  private final CircuitBreaker llmCircuitBreaker;
+  private final Hedge llmHedge;
+  private final VectorDatabaseService vectorDatabaseService;
+  private final boolean fallbackToStored;
+  private final MeterRegistry meterRegistry;
+  private final BeanOutputConverter<Joke> jokeConverter = new BeanOutputConverter<>(Joke.class);
+  private final DistributionSummary promptTokens;
+  private final DistributionSummary completionTokens;
+  private ToolCallback[] toolCallbacks;
 
   @Autowired
   private RandomNumberTools randomNumberTools;
@@ -25,20 +77,119 @@ public class ChatService {
   @Autowired
   private RandomTopicTools randomTopicTools;
 
-  public ChatService(ChatClient.Builder chatClientBuilder) {
+  public ChatService(ChatClient.Builder chatClientBuilder, SemanticJokeCache jokeCache,
+                     @Qualifier("llmBulkhead") Bulkhead llmBulkhead,
+                     @Qualifier("jokeSingleFlight") SingleFlight<Joke> jokeSingleFlight,
+                     ToolPreResolver toolPreResolver,
+                     JokePool jokePool,
+                     @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                     @Qualifier("llmCircuitBreaker") CircuitBreaker llmCircuitBreaker,
+                     @Qualifier("llmHedge") Hedge llmHedge,
+                     VectorDatabaseService vectorDatabaseService,
+                     @Value("${demo.resilience.llm.fallback-to-stored:true}") boolean fallbackToStored,
+                     MeterRegistry meterRegistry) {
     this.chatClient = chatClientBuilder.build();
+    this.jokeCache = jokeCache;
+    this.llmBulkhead = llmBulkhead;
+    this.jokeSingleFlight = jokeSingleFlight;
+    this.toolPreResolver = toolPreResolver;
+    this.jokePool = jokePool;
+    this.blockingScheduler = blockingScheduler;
+    this.llmCircuitBreaker = llmCircuitBreaker;
+    this.llmHedge = llmHedge;
+    this.vectorDatabaseService = vectorDatabaseService;
+    this.fallbackToStored = fallbackToStored;
+    this.meterRegistry = meterRegistry;
+    this.promptTokens = DistributionSummary.builder("joke.llm.tokens").tag("type", "prompt").register(meterRegistry);
+    this.completionTokens = DistributionSummary.builder("joke.llm.tokens").tag("type", "completion").register(meterRegistry);
+  }
+
+  @PostConstruct
+  void initToolCallbacks() {
+    // Every tool invocation made by the model is timed per tool
+    this.toolCallbacks = Arrays.stream(MethodToolCallbackProvider.builder()
+            .toolObjects(randomNumberTools, randomTopicTools)
+            .build()
+            .getToolCallbacks())
+        .map(callback -> new TimedToolCallback(callback, meterRegistry))
+        .toArray(ToolCallback[]::new);
   }
 
+  /**
+   * Generate a joke, from the pool, the cache or the model. When the model cannot answer, because its circuit is open,
+   * the request deadline passed or the call failed, a stored joke about the subject is served instead.
+   * @param subject the joke subject, a random topic is used when empty
+   */
   public Joke generateJoke(String subject) {
     try {
-      String jokeSubject = StringUtils.hasText(subject) ? subject.trim() : DEFAULT_JOKE_SUBJECT;
+      return generateRequestedJoke(subject);
+    } catch (ChatServiceException e) {
+      return storedJoke(resolveSubject(subject), e);
+    }
+  }
+
+  private Joke generateRequestedJoke(String subject) {
+    String requestedSubject = resolveSubject(subject);
+    // Popular topics usually have a joke generated ahead of time
+    Optional<Joke> pooled = jokePool.poll(requestedSubject);
+    if (pooled.isPresent()) {
+      logger.debug("Serving pooled joke about: {}", requestedSubject);
+      return pooled.get();
+    }
+
+    // A subject a local tool can resolve is answered without the model's tool call round trip
+    Optional<String> preResolved = toolPreResolver.resolve(requestedSubject);
+    String jokeSubject = preResolved.orElse(requestedSubject);
+    boolean useTools = preResolved.isEmpty();
+
+    // The default subject asks the model to pick a random topic, caching or sharing it would defeat the purpose
+    boolean cacheable = !DEFAULT_JOKE_SUBJECT.equals(jokeSubject);
+    if (!cacheable) {
+      return generateJoke(subject, jokeSubject, false, useTools);
+    }
+    // Concurrent requests for the same subject share one generation
+    return jokeSingleFlight.execute(SemanticJokeCache.normalize(jokeSubject), () -> generateJoke(subject, jokeSubject, true, useTools));
+  }
+
+  /**
+   * Generate a new joke about a concrete subject, bypassing the pool, the cache and request coalescing
+   * @param subject the joke subject
+   * @return a freshly generated joke
+   */
+  public Joke generateFreshJoke(String subject) {
+    return generateJoke(subject, subject, false, false);
+  }
+
+  private Joke generateJoke(String subject, String jokeSubject, boolean cacheable, boolean useTools) {
+    try {
+      if (cacheable) {
+        Optional<Joke> cached = jokeCache.lookup(jokeSubject);
+        if (cached.isPresent()) {
+          logger.debug("Serving cached joke about: {}", jokeSubject);
+          return cached.get();
+        }
+      }
+
       logger.debug("Generating joke about: {}", jokeSubject);
 
-      Prompt prompt = new Prompt("Tell a funny joke about " + jokeSubject + ".");
-      Joke joke = chatClient.prompt(prompt).tools(randomNumberTools, randomTopicTools).call().entity(Joke.class);
+      Prompt prompt = new Prompt("Tell a funny joke about " + jokeSubject + ".\n" + jokeConverter.getFormat());
+      // Slow calls are hedged, every attempt holds its own bulkhead permit and counts its own round trips
+      Attempt attempt = llmCircuitBreaker.execute(() -> llmHedge.execute(() -> llmBulkhead.execute(() -> {
+        RoundTripCounter roundTrips = new RoundTripCounter();
+        return new Attempt(timed("joke.llm.call", "generate", () -> prompt(prompt, useTools, roundTrips).call().chatResponse()), roundTrips);
+      })));
+      ChatResponse response = attempt.response();
+      recordUsage(response);
+      recordRoundTrips(attempt.roundTrips(), useTools);
+
+      Joke joke = timed("joke.llm.parse", "generate", () -> jokeConverter.convert(response.getResult().getOutput().getText()));
 
       logger.debug("Successfully generated joke about: {}", jokeSubject);
 
+      if (cacheable) {
+        jokeCache.put(jokeSubject, joke);
+      }
+
       return joke;
 
     } catch (Exception e) {
@@ -46,4 +197,267 @@ public class ChatService {
       throw new ChatServiceException("Failed to generate joke: " + e.getMessage(), e);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Non-blocking variant of {@link #generateJoke(String)} for the reactive stack. The model is called
+   * through the streaming API, the semantic cache lookup runs on the blocking scheduler, and the
+   * language model bulkhead rejects immediately instead of waiting for a permit.
+   * Concurrent requests for the same subject are not coalesced on this path.
+   * @param subject the joke subject, a random topic is used when empty
+   * @return a cold publisher of the joke
+   */
+  public Mono<Joke> generateJokeReactive(String subject) {
+    String requestedSubject = resolveSubject(subject);
+    return Mono.defer(() -> {
+      Optional<Joke> pooled = jokePool.poll(requestedSubject);
+      if (pooled.isPresent()) {
+        logger.debug("Serving pooled joke about: {}", requestedSubject);
+        return Mono.just(pooled.get());
+      }
+
+      Optional<String> preResolved = toolPreResolver.resolve(requestedSubject);
+      String jokeSubject = preResolved.orElse(requestedSubject);
+      boolean useTools = preResolved.isEmpty();
+      if (DEFAULT_JOKE_SUBJECT.equals(jokeSubject)) {
+        return generateJokeReactive(jokeSubject, false, useTools);
+      }
+      return Mono.fromCallable(() -> jokeCache.lookup(jokeSubject))
+          .subscribeOn(blockingScheduler)
+          .flatMap(cached -> cached.map(Mono::just).orElseGet(() -> generateJokeReactive(jokeSubject, true, useTools)));
+    }).onErrorMap(e -> !(e instanceof ChatServiceException), e -> {
+      logger.error("Error generating joke about '{}': {}", subject, e.getMessage(), e);
+      return new ChatServiceException("Failed to generate joke: " + e.getMessage(), e);
+    }).onErrorResume(ChatServiceException.class, e -> Mono.fromCallable(() -> storedJoke(requestedSubject, e)));
+  }
+
+  private Mono<Joke> generateJokeReactive(String jokeSubject, boolean cacheable, boolean useTools) {
+    return Mono.defer(() -> {
+      logger.debug("Generating joke about: {}", jokeSubject);
+
+      Prompt prompt = new Prompt("Tell a funny joke about " + jokeSubject + ".\n" + jokeConverter.getFormat());
+      RoundTripCounter roundTrips = new RoundTripCounter();
+      Timer.Sample sample = Timer.start(meterRegistry);
+
+      Mono<List<ChatResponse>> call = Flux.using(
+          llmBulkhead::tryAcquire,
+          permit -> prompt(prompt, useTools, roundTrips).stream().chatResponse(),
+          Bulkhead.Permit::close
+      ).collectList();
+
+      // Not hedged, the reactive path holds no thread while waiting; the deadline comes from the Reactor context
+      return Mono.deferContextual(context -> llmCircuitBreaker.execute(context.<Deadline>getOrEmpty(Deadline.CONTEXT_KEY)
+              .map(deadline -> call.timeout(deadline.remaining(), Mono.error(() -> new DeadlineExceededException("llm"))))
+              .orElse(call)))
+          .doOnSuccess(responses -> {
+            sample.stop(stageTimer("joke.llm.call", "generate", "success"));
+            recordRoundTrips(roundTrips, useTools);
+          })
+          .doOnError(e -> sample.stop(stageTimer("joke.llm.call", "generate", "error")))
+          .map(responses -> {
+            responses.stream().map(ChatResponse::getMetadata).filter(Objects::nonNull)
+                .filter(metadata -> metadata.getUsage() != null && metadata.getUsage().getTotalTokens() != null
+                    && metadata.getUsage().getTotalTokens() > 0)
+                .reduce((first, second) -> second)
+                .ifPresent(metadata -> recordUsage(metadata.getUsage()));
+            String text = streamedText(responses);
+            return timed("joke.llm.parse", "generate", () -> jokeConverter.convert(text));
+          })
+          .flatMap(joke -> {
+            logger.debug("Successfully generated joke about: {}", jokeSubject);
+            if (!cacheable) {
+              return Mono.just(joke);
+            }
+            return Mono.fromRunnable(() -> jokeCache.put(jokeSubject, joke))
+                .subscribeOn(blockingScheduler)
+                .thenReturn(joke);
+          });
+    });
+  }
+
+  /**
+   * Stream a joke as it is generated. Title, content and topic characters are emitted as deltas
+   * while the model produces them, and the last event carries the fully parsed joke.
+   * Tools remain available to the model during the stream unless the subject was resolved locally.
+   * @param subject the joke subject, a random topic is used when empty
+   * @return a cold stream of joke events
+   */
+  public Flux<JokeStreamEvent> streamJoke(String subject) {
+    return streamJoke(subject, llmBulkhead::acquire);
+  }
+
+  /**
+   * Non-blocking variant of {@link #streamJoke(String)} for the reactive stack, the language model bulkhead
+   * rejects immediately instead of waiting for a permit and the cache update runs on the blocking scheduler
+   */
+  public Flux<JokeStreamEvent> streamJokeReactive(String subject) {
+    return streamJoke(subject, llmBulkhead::tryAcquire);
+  }
+
+  private Flux<JokeStreamEvent> streamJoke(String subject, Supplier<Bulkhead.Permit> permits) {
+    String requestedSubject = resolveSubject(subject);
+    Optional<String> preResolved = toolPreResolver.resolve(requestedSubject);
+    String jokeSubject = preResolved.orElse(requestedSubject);
+    boolean useTools = preResolved.isEmpty();
+
+    return Flux.defer(() -> {
+      logger.debug("Streaming joke about: {}", jokeSubject);
+
+      StreamingJokeParser parser = new StreamingJokeParser();
+      StringBuilder output = new StringBuilder();
+
+      Prompt prompt = new Prompt("Tell a funny joke about " + jokeSubject + ".\n" + jokeConverter.getFormat());
+      RoundTripCounter roundTrips = new RoundTripCounter();
+      Timer.Sample sample = Timer.start(meterRegistry);
+
+      // The permit is held for as long as the model is streaming
+      Flux<JokeStreamEvent> deltas = Flux.using(
+          permits::get,
+          permit -> prompt(prompt, useTools, roundTrips).stream().content(),
+          Bulkhead.Permit::close
+      )
+          .doOnComplete(() -> {
+            sample.stop(stageTimer("joke.llm.call", "stream", "success"));
+            recordRoundTrips(roundTrips, useTools);
+          })
+          .doOnError(e -> sample.stop(stageTimer("joke.llm.call", "stream", "error")))
+          .concatMapIterable(chunk -> {
+            output.append(chunk);
+            return parser.accept(chunk);
+          });
+
+      Mono<JokeStreamEvent> completion = Mono.fromCallable(() -> {
+        Joke joke = timed("joke.llm.parse", "stream", () -> jokeConverter.convert(output.toString()));
+        logger.debug("Successfully streamed joke about: {}", jokeSubject);
+        if (!DEFAULT_JOKE_SUBJECT.equals(jokeSubject)) {
+          jokeCache.put(jokeSubject, joke);
+        }
+        return JokeStreamEvent.complete(joke);
+      }).subscribeOn(blockingScheduler);
+
+      return deltas.concatWith(completion);
+    }).onErrorMap(e -> !(e instanceof ChatServiceException), e -> {
+      logger.error("Error streaming joke about '{}': {}", subject, e.getMessage(), e);
+      return new ChatServiceException("Failed to stream joke: " + e.getMessage(), e);
+    });
+  }
+
+  /**
+   * Answer with a stored joke about the subject when enabled, otherwise rethrow the failure. The default subject
+   * tries the catalog topics in random order. Stored jokes are found by keyword, which needs no model call.
+   */
+  private Joke storedJoke(String subject, ChatServiceException failure) {
+    String reason = reason(failure);
+    if (!fallbackToStored) {
+      fallbackCounter(reason, "disabled").increment();
+      throw failure;
+    }
+    List<String> candidates = DEFAULT_JOKE_SUBJECT.equals(subject) ? shuffledTopics() : List.of(subject);
+    for (String candidate : candidates) {
+      Optional<Joke> stored = vectorDatabaseService.findStoredJoke(candidate);
+      if (stored.isPresent()) {
+        fallbackCounter(reason, "served").increment();
+        logger.warn("⚠️ Serving a stored joke about '{}', the model could not answer: {}", subject, failure.getMessage());
+        return stored.get();
+      }
+    }
+    fallbackCounter(reason, "not-found").increment();
+    throw failure;
+  }
+
+  private Counter fallbackCounter(String reason, String outcome) {
+    return Counter.builder("joke.fallback").tag("reason", reason).tag("outcome", outcome).register(meterRegistry);
+  }
+
+  private static String reason(Throwable failure) {
+    for (Throwable t = failure; t != null; t = t.getCause()) {
+      if (t instanceof CircuitOpenException) {
+        return "circuit-open";
+      }
+      if (t instanceof DeadlineExceededException) {
+        return "deadline";
+      }
+    }
+    return "error";
+  }
+
+  private static List<String> shuffledTopics() {
+    List<String> topics = new ArrayList<>(RandomTopicTools.topics());
+    Collections.shuffle(topics);
+    return topics;
+  }
+
+  /**
+   * Prepare a model request, with the tools and a round trip counter in the tool context unless
+   * the tools were already resolved locally
+   */
+  private ChatClient.ChatClientRequestSpec prompt(Prompt prompt, boolean useTools, RoundTripCounter roundTrips) {
+    ChatClient.ChatClientRequestSpec request = chatClient.prompt(prompt);
+    return useTools ? request.toolCallbacks(toolCallbacks).toolContext(roundTrips.toolContext()) : request;
+  }
+
+  private void recordRoundTrips(RoundTripCounter roundTrips, boolean useTools) {
+    DistributionSummary.builder("joke.llm.round.trips")
+        .tag("tools", useTools ? "model" : "pre-resolved")
+        .register(meterRegistry)
+        .record(roundTrips.roundTrips());
+  }
+
+  private <T> T timed(String name, String operation, Supplier<T> stage) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return stage.get();
+    } catch (RuntimeException e) {
+      outcome = "error";
+      throw e;
+    } finally {
+      sample.stop(stageTimer(name, operation, outcome));
+    }
+  }
+
+  private Timer stageTimer(String name, String operation, String outcome) {
+    return Timer.builder(name)
+        .tag("operation", operation)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  private void recordUsage(ChatResponse response) {
+    recordUsage(response.getMetadata() != null ? response.getMetadata().getUsage() : null);
+  }
+
+  private void recordUsage(Usage usage) {
+    if (usage == null) {
+      return;
+    }
+    if (usage.getPromptTokens() != null) {
+      promptTokens.record(usage.getPromptTokens());
+    }
+    if (usage.getCompletionTokens() != null) {
+      completionTokens.record(usage.getCompletionTokens());
+    }
+  }
+
+  /**
+   * Text of a streamed answer, the last chunk may carry only usage metadata and no generation
+   */
+  private static String streamedText(List<ChatResponse> responses) {
+    StringBuilder text = new StringBuilder();
+    for (ChatResponse response : responses) {
+      if (response.getResult() != null && response.getResult().getOutput().getText() != null) {
+        text.append(response.getResult().getOutput().getText());
+      }
+    }
+    return text.toString();
+  }
+
+  private static String resolveSubject(String subject) {
+    return StringUtils.hasText(subject) ? subject.trim() : DEFAULT_JOKE_SUBJECT;
+  }
+
+  /**
+   * Response of the hedged attempt that answered, with the round trips it made
+   */
+  private record Attempt(ChatResponse response, RoundTripCounter roundTrips) {
+  }
+}
@@ -1,27 +1,67 @@
 package com.github.joonasvali.demo;
 
+import com.github.joonasvali.demo.batch.JokeBatchService;
+import com.github.joonasvali.demo.concurrency.BulkheadFullException;
+import com.github.joonasvali.demo.health.VectorStoreHealth;
+import com.github.joonasvali.demo.health.VectorStoreHealthProbe;
+import com.github.joonasvali.demo.ingest.StoreOutcome;
 import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.model.JokeBatchRequest;
+import com.github.joonasvali.demo.model.JokeBatchResult;
+import com.github.joonasvali.demo.model.JokeStreamEvent;
+import com.github.joonasvali.demo.resilience.CircuitOpenException;
+import com.github.joonasvali.demo.resilience.DeadlineExceededException;
+import com.github.joonasvali.demo.search.SearchMode;
+import com.github.joonasvali.demo.seed.SeedLoader;
+import com.github.joonasvali.demo.seed.SeedProgress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Servlet stack endpoints, see {@link ReactiveJokeController} for the same API on the reactive stack
+ */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class JokeController {
 
   private static final Logger logger = LoggerFactory.getLogger(JokeController.class);
   private final ChatService chatService;
   private final VectorDatabaseService vectorDatabaseService;
+  private final JokeBatchService jokeBatchService;
+  private final VectorStoreHealthProbe vectorStoreHealthProbe;
+  private final SeedLoader seedLoader;
+  private final Duration streamTimeout;
 
-  public JokeController(ChatService chatService, VectorDatabaseService vectorDatabaseService) {
+  public JokeController(ChatService chatService, VectorDatabaseService vectorDatabaseService,
+                        JokeBatchService jokeBatchService, VectorStoreHealthProbe vectorStoreHealthProbe,
+                        SeedLoader seedLoader,
+                        @Value("${demo.stream.timeout:2m}") Duration streamTimeout) {
     this.chatService = chatService;
     this.vectorDatabaseService = vectorDatabaseService;
+    this.jokeBatchService = jokeBatchService;
+    this.vectorStoreHealthProbe = vectorStoreHealthProbe;
+    this.seedLoader = seedLoader;
+    this.streamTimeout = streamTimeout;
   }
 
   @GetMapping("/")
@@ -29,14 +69,28 @@ public class JokeController {
     return ResponseEntity.ok("Service is running");
   }
 
+  /**
+   * Reports the last background probe of the vector store, it does not query the store itself
+   */
   @GetMapping("/vector-health")
   public ResponseEntity<String> vectorHealthCheck() {
+    return renderHealth(vectorStoreHealthProbe.last());
+  }
+
+  @GetMapping("/seed-status")
+  public ResponseEntity<SeedProgress> seedStatus() {
+    return ResponseEntity.ok(seedLoader.progress());
+  }
+
+  /**
+   * Writes the stored documents and their embeddings to the snapshot file that is restored on a cold start
+   */
+  @PostMapping("/snapshot")
+  public ResponseEntity<?> writeSnapshot() {
     try {
-      String healthInfo = vectorDatabaseService.performHealthCheck();
-      return ResponseEntity.ok(healthInfo);
+      return ResponseEntity.ok(seedLoader.writeSnapshot());
     } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-          .body("❌ Vector database connection failed: " + e.getMessage());
+      return ResponseEntity.status(statusFor(e)).body("Failed to write snapshot: " + e.getMessage());
     }
   }
 
@@ -45,71 +99,214 @@ public class JokeController {
     try {
       Joke joke = chatService.generateJoke(subject);
 
-      // Store the joke in the vector database for later search
+      // Queue the joke for storage in the vector database, the insert happens in the background
       try {
-        boolean success = vectorDatabaseService.addJoke(joke);
-
-        if (success) {
-          return ResponseEntity.ok("Title: " + joke.title() + "<br/>" +
-              "Content: " + joke.content() + "<br/>" +
-              "Topic: " + joke.topic() + "<br/>" +
-              "✅ Joke stored in vector database for future search");
-        } else {
-          return ResponseEntity.ok("Title: " + joke.title() + "<br/>" +
-              "Content: " + joke.content() + "<br/>" +
-              "Topic: " + joke.topic() + "<br/>" +
-              "⚠️ Joke generated but failed to store in database");
-        }
+        return ResponseEntity.ok(renderJoke(joke, vectorDatabaseService.addJoke(joke)));
       } catch (Exception storageException) {
         // If storage fails, still return the joke but log the storage error
         logger.error("Failed to store joke in vector database: {}", storageException.getMessage());
-        return ResponseEntity.ok("Title: " + joke.title() + "<br/>" +
-            "Content: " + joke.content() + "<br/>" +
-            "Topic: " + joke.topic() + "<br/>" +
-            "⚠️ Joke generated but failed to store in database: " + storageException.getMessage());
+        return ResponseEntity.ok(renderJoke(joke, storageException));
       }
     } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+      return ResponseEntity.status(statusFor(e))
           .body("Failed to generate joke: " + e.getMessage());
     }
   }
 
-  @GetMapping("/search-jokes")
-  public ResponseEntity<String> searchJokes(@RequestParam String query) {
+  /**
+   * Streams a joke over Server-Sent Events. Events named after the joke fields ("title", "content", "topic")
+   * carry text deltas, a final "joke" event carries the parsed joke and a "stored" event reports whether
+   * it was queued for the vector database ("queued"), skipped as a duplicate ("duplicate") or not stored ("rejected").
+   */
+  @GetMapping(value = "/joke/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJoke(@RequestParam(required = false) String subject) {
+    SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
 
+    var subscription = chatService.streamJoke(subject).subscribe(
+        event -> sendStreamEvent(emitter, event),
+        error -> {
+          try {
+            emitter.send(SseEmitter.event().name("error").data("Failed to generate joke: " + error.getMessage()));
+            emitter.complete();
+          } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(error);
+          }
+        },
+        emitter::complete
+    );
+
+    emitter.onTimeout(subscription::dispose);
+    emitter.onError(e -> subscription.dispose());
+    return emitter;
+  }
+
+  private void sendStreamEvent(SseEmitter emitter, JokeStreamEvent event) {
     try {
-      // Perform the search using the service
-      List<Document> results = vectorDatabaseService.searchJokes(query);
+      if (!event.isComplete()) {
+        emitter.send(SseEmitter.event().name(event.field()).data(event.text()));
+        return;
+      }
 
-      if (results.isEmpty()) {
-        return ResponseEntity.ok("🔍 No jokes found matching your search criteria.<br/>" +
-            "Query: '" + query + "'<br/>" +
-            "Try different keywords or check your filters.");
+      Joke joke = event.joke();
+      emitter.send(SseEmitter.event().name("joke").data(joke, MediaType.APPLICATION_JSON));
+
+      StoreOutcome outcome;
+      try {
+        outcome = vectorDatabaseService.addJoke(joke);
+      } catch (Exception storageException) {
+        logger.error("Failed to store streamed joke in vector database: {}", storageException.getMessage());
+        outcome = StoreOutcome.FAILED;
       }
+      emitter.send(SseEmitter.event().name("stored").data(outcome.name().toLowerCase(Locale.ROOT)));
+    } catch (IOException e) {
+      // The client went away, the subscription is disposed through the emitter error callback
+      logger.debug("Could not send joke stream event: {}", e.getMessage());
+      throw new IllegalStateException("Client disconnected", e);
+    }
+  }
+
+  /**
+   * Generates jokes for a list of subjects, or {@code count} jokes across the topic catalog, concurrently.
+   * Failed items are reported in the result and do not abort the batch.
+   */
+  @PostMapping("/jokes/batch")
+  public ResponseEntity<?> generateBatch(@RequestBody JokeBatchRequest request) {
+    List<String> subjects;
+    if (request.subjects() != null && !request.subjects().isEmpty()) {
+      subjects = request.subjects();
+    } else if (request.count() != null && request.count() > 0) {
+      subjects = jokeBatchService.topicSubjects(Math.min(request.count(), jokeBatchService.getMaxItems()));
+    } else {
+      return ResponseEntity.badRequest().body("Either a non-empty 'subjects' list or a positive 'count' is required");
+    }
+    if (subjects.size() > jokeBatchService.getMaxItems()) {
+      return ResponseEntity.badRequest().body("A batch can hold at most " + jokeBatchService.getMaxItems() + " subjects");
+    }
+
+    JokeBatchResult result = jokeBatchService.generate(subjects);
+    return ResponseEntity.ok(result);
+  }
+
+  @GetMapping("/search-jokes")
+  public ResponseEntity<String> searchJokes(@RequestParam String query,
+                                            @RequestParam(required = false) String mode,
+                                            @RequestParam(required = false) String topic) {
+    if (mode != null && searchMode(mode) == null) {
+      return ResponseEntity.badRequest().body(unknownSearchMode(mode));
+    }
+
+    try {
+      // Perform the search using the service, in the configured default mode unless one is requested
+      List<Document> results = mode == null && topic == null
+          ? vectorDatabaseService.searchJokes(query)
+          : vectorDatabaseService.searchJokes(query, 5, 0.8, searchMode(mode), topic);
 
-      // Build the response
-      StringBuilder response = new StringBuilder();
-      response.append("🔍 Found ").append(results.size()).append(" joke(s) matching '").append(query).append("':<br/><br/>");
-
-      for (int i = 0; i < results.size(); i++) {
-        var result = results.get(i);
-        var metadata = result.getMetadata();
-
-        response.append("<strong>Joke ").append(i + 1).append(":</strong><br/>");
-        response.append("<strong>Title:</strong> ").append(metadata.get("title")).append("<br/>");
-        response.append("<strong>Content:</strong> ").append(result.getText()).append("<br/>");
-        response.append("<strong>Topic:</strong> ").append(metadata.get("topic")).append("<br/>");
-        response.append("<strong>Subject:</strong> ").append(metadata.get("subject")).append("<br/>");
-        response.append("<strong>Similarity Score:</strong> ").append(String.format("%.3f", result.getScore())).append("<br/>");
-        response.append("<br/>");
+      if (results.isEmpty()) {
+        return ResponseEntity.ok(renderNoResults(query));
       }
 
-      return ResponseEntity.ok(response.toString());
+      return ResponseEntity.ok(renderSearchResults(query, results));
 
     } catch (Exception e) {
       logger.error("Error searching jokes: {}", e.getMessage(), e);
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+      return ResponseEntity.status(statusFor(e))
           .body("❌ Failed to search jokes: " + e.getMessage());
     }
   }
+  /**
+   * @param mode search mode in any case
+   * @return the requested search mode, null for the configured default or for a mode that does not exist
+   */
+  static SearchMode searchMode(String mode) {
+    if (mode == null) {
+      return null;
+    }
+    for (SearchMode value : SearchMode.values()) {
+      if (value.name().equalsIgnoreCase(mode.strip())) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  static String unknownSearchMode(String mode) {
+    return "Unknown search mode '" + mode + "', expected one of "
+        + Arrays.stream(SearchMode.values()).map(value -> value.name().toLowerCase(Locale.ROOT)).toList();
+  }
+
+
+  static ResponseEntity<String> renderHealth(VectorStoreHealth health) {
+    if (health == null) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .body("⏳ Vector database has not been checked yet");
+    }
+
+    StringBuilder response = new StringBuilder();
+    response.append(health.up() ? "✅ Vector database is accessible and working!" : "❌ Vector database connection failed: " + health.error())
+        .append("<br/>");
+    health.details().forEach((name, value) -> response.append(name).append(": ").append(value).append("<br/>"));
+    response.append("Checked ").append(health.age().toSeconds()).append(" s ago");
+    return ResponseEntity.status(health.up() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response.toString());
+  }
+
+  static String renderJoke(Joke joke, StoreOutcome outcome) {
+    return renderJoke(joke) + switch (outcome) {
+      case QUEUED -> "✅ Joke queued for storage in vector database for future search";
+      case DUPLICATE -> "ℹ️ A near-identical joke is already stored, joke was not stored again";
+      case REJECTED -> "⚠️ Joke generated but storage queue is full, joke was not stored";
+      case FAILED -> "⚠️ Joke generated but could not be queued for storage, joke was not stored";
+    };
+  }
+
+  static String renderJoke(Joke joke, Exception storageException) {
+    return renderJoke(joke) + "⚠️ Joke generated but failed to store in database: " + storageException.getMessage();
+  }
+
+  private static String renderJoke(Joke joke) {
+    return "Title: " + joke.title() + "<br/>" +
+        "Content: " + joke.content() + "<br/>" +
+        "Topic: " + joke.topic() + "<br/>";
+  }
+
+  static String renderNoResults(String query) {
+    return "🔍 No jokes found matching your search criteria.<br/>" +
+        "Query: '" + query + "'<br/>" +
+        "Try different keywords or check your filters.";
+  }
+
+  static String renderSearchResults(String query, List<Document> results) {
+    StringBuilder response = new StringBuilder();
+    response.append("🔍 Found ").append(results.size()).append(" joke(s) matching '").append(query).append("':<br/><br/>");
+
+    for (int i = 0; i < results.size(); i++) {
+      var result = results.get(i);
+      var metadata = result.getMetadata();
+
+      response.append("<strong>Joke ").append(i + 1).append(":</strong><br/>");
+      response.append("<strong>Title:</strong> ").append(metadata.get("title")).append("<br/>");
+      response.append("<strong>Content:</strong> ").append(result.getText()).append("<br/>");
+      response.append("<strong>Topic:</strong> ").append(metadata.get("topic")).append("<br/>");
+      response.append("<strong>Subject:</strong> ").append(metadata.get("subject")).append("<br/>");
+      response.append("<strong>Similarity Score:</strong> ").append(String.format("%.3f", result.getScore())).append("<br/>");
+      response.append("<br/>");
+    }
+
+    return response.toString();
+  }
+
+  /**
+   * Calls rejected by a bulkhead, the blocking scheduler or an open circuit are reported as 503 so that clients
+   * can retry later, calls abandoned at the request deadline as 504, everything else is an internal error.
+   */
+  static HttpStatus statusFor(Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof BulkheadFullException || t instanceof RejectedExecutionException || t instanceof CircuitOpenException) {
+        return HttpStatus.SERVICE_UNAVAILABLE;
+      }
+      if (t instanceof DeadlineExceededException) {
+        return HttpStatus.GATEWAY_TIMEOUT;
+      }
+    }
+    return HttpStatus.INTERNAL_SERVER_ERROR;
+  }
 }
\ No newline at end of file
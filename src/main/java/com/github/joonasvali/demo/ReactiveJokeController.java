@@ -0,0 +1,186 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.batch.JokeBatchService;
+import com.github.joonasvali.demo.health.VectorStoreHealthProbe;
+import com.github.joonasvali.demo.ingest.StoreOutcome;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.model.JokeBatchRequest;
+import com.github.joonasvali.demo.model.JokeStreamEvent;
+import com.github.joonasvali.demo.resilience.Deadline;
+import com.github.joonasvali.demo.seed.SeedProgress;
+import com.github.joonasvali.demo.seed.SeedLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reactive stack endpoints ({@code spring.main.web-application-type=reactive}), with the same API as
+ * {@link JokeController}. Model calls use the streaming client and do not hold a thread while waiting,
+ * blocking vector store and embedding calls run on the bounded blocking scheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveJokeController {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveJokeController.class);
+  private final ChatService chatService;
+  private final VectorDatabaseService vectorDatabaseService;
+  private final JokeBatchService jokeBatchService;
+  private final VectorStoreHealthProbe vectorStoreHealthProbe;
+  private final SeedLoader seedLoader;
+  private final Scheduler blockingScheduler;
+  private final Scheduler batchScheduler;
+  private final Duration streamTimeout;
+
+  public ReactiveJokeController(ChatService chatService, VectorDatabaseService vectorDatabaseService,
+                                JokeBatchService jokeBatchService, VectorStoreHealthProbe vectorStoreHealthProbe,
+                                SeedLoader seedLoader,
+                                @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                                @Qualifier("batchScheduler") Scheduler batchScheduler,
+                                @Value("${demo.stream.timeout:2m}") Duration streamTimeout) {
+    this.chatService = chatService;
+    this.vectorDatabaseService = vectorDatabaseService;
+    this.jokeBatchService = jokeBatchService;
+    this.vectorStoreHealthProbe = vectorStoreHealthProbe;
+    this.seedLoader = seedLoader;
+    this.blockingScheduler = blockingScheduler;
+    this.batchScheduler = batchScheduler;
+    this.streamTimeout = streamTimeout;
+  }
+
+  @GetMapping("/")
+  public Mono<String> healthCheck() {
+    return Mono.just("Service is running");
+  }
+
+  @GetMapping("/vector-health")
+  public Mono<ResponseEntity<String>> vectorHealthCheck() {
+    return Mono.fromSupplier(() -> JokeController.renderHealth(vectorStoreHealthProbe.last()));
+  }
+
+  @GetMapping("/seed-status")
+  public Mono<SeedProgress> seedStatus() {
+    return Mono.fromSupplier(seedLoader::progress);
+  }
+
+  @PostMapping("/snapshot")
+  public Mono<ResponseEntity<?>> writeSnapshot() {
+    return Mono.fromCallable(seedLoader::writeSnapshot)
+        .subscribeOn(blockingScheduler)
+        .<ResponseEntity<?>>map(ResponseEntity::ok)
+        .onErrorResume(e -> Mono.just(ResponseEntity.status(JokeController.statusFor(e))
+            .body("Failed to write snapshot: " + e.getMessage())));
+  }
+
+  @GetMapping("/joke")
+  public Mono<ResponseEntity<String>> getJoke(@RequestParam(required = false) String subject) {
+    return chatService.generateJokeReactive(subject)
+        .flatMap(joke -> vectorDatabaseService.addJokeReactive(joke)
+            .map(outcome -> ResponseEntity.ok(JokeController.renderJoke(joke, outcome)))
+            .onErrorResume(Exception.class, storageException -> {
+              // If storage fails, still return the joke but log the storage error
+              logger.error("Failed to store joke in vector database: {}", storageException.getMessage());
+              return Mono.just(ResponseEntity.ok(JokeController.renderJoke(joke, storageException)));
+            }))
+        .onErrorResume(e -> Mono.just(ResponseEntity.status(JokeController.statusFor(e))
+            .body("Failed to generate joke: " + e.getMessage())));
+  }
+
+  /**
+   * Same events as {@link JokeController#streamJoke(String)}. Deltas are written as the model produces them
+   * and the model stream is only pulled as fast as the client reads.
+   */
+  @GetMapping(value = "/joke/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public Flux<ServerSentEvent<Object>> streamJoke(@RequestParam(required = false) String subject) {
+    return chatService.streamJokeReactive(subject)
+        .concatMap(this::toEvents)
+        .timeout(streamTimeout)
+        .onErrorResume(error -> Mono.just(event("error", "Failed to generate joke: " + error.getMessage())));
+  }
+
+  private Flux<ServerSentEvent<Object>> toEvents(JokeStreamEvent event) {
+    if (!event.isComplete()) {
+      return Flux.just(event(event.field(), event.text()));
+    }
+    Joke joke = event.joke();
+    Mono<ServerSentEvent<Object>> stored = vectorDatabaseService.addJokeReactive(joke)
+        .onErrorResume(storageException -> {
+          logger.error("Failed to store streamed joke in vector database: {}", storageException.getMessage());
+          return Mono.just(StoreOutcome.FAILED);
+        })
+        .map(outcome -> event("stored", outcome.name().toLowerCase(Locale.ROOT)));
+    return Flux.concat(Mono.just(event("joke", joke)), stored);
+  }
+
+  private static ServerSentEvent<Object> event(String name, Object data) {
+    return ServerSentEvent.builder(data).event(name).build();
+  }
+
+  /**
+   * Batches run on their own scheduler and fan out on their own virtual threads, bound by the request deadline
+   */
+  @PostMapping("/jokes/batch")
+  public Mono<ResponseEntity<?>> generateBatch(@RequestBody JokeBatchRequest request) {
+    List<String> subjects;
+    if (request.subjects() != null && !request.subjects().isEmpty()) {
+      subjects = request.subjects();
+    } else if (request.count() != null && request.count() > 0) {
+      subjects = jokeBatchService.topicSubjects(Math.min(request.count(), jokeBatchService.getMaxItems()));
+    } else {
+      return Mono.just(ResponseEntity.badRequest().body("Either a non-empty 'subjects' list or a positive 'count' is required"));
+    }
+    if (subjects.size() > jokeBatchService.getMaxItems()) {
+      return Mono.just(ResponseEntity.badRequest().body("A batch can hold at most " + jokeBatchService.getMaxItems() + " subjects"));
+    }
+
+    return Mono.deferContextual(context -> Mono.fromCallable(() -> {
+          Optional<Deadline> deadline = context.getOrEmpty(Deadline.CONTEXT_KEY);
+          try (Deadline.Scope scope = deadline.map(Deadline::bind).orElse(() -> { })) {
+            return jokeBatchService.generate(subjects);
+          }
+        }))
+        .subscribeOn(batchScheduler)
+        .<ResponseEntity<?>>map(ResponseEntity::ok)
+        .onErrorResume(RejectedExecutionException.class, e -> Mono.just(ResponseEntity.status(JokeController.statusFor(e))
+            .body("❌ Too many batches in progress: " + e.getMessage())));
+  }
+
+  @GetMapping("/search-jokes")
+  public Mono<ResponseEntity<String>> searchJokes(@RequestParam String query,
+                                                  @RequestParam(required = false) String mode,
+                                                  @RequestParam(required = false) String topic) {
+    if (mode != null && JokeController.searchMode(mode) == null) {
+      return Mono.just(ResponseEntity.badRequest().body(JokeController.unknownSearchMode(mode)));
+    }
+    return Mono.defer(() -> mode == null && topic == null
+            ? vectorDatabaseService.searchJokesReactive(query)
+            : vectorDatabaseService.searchJokesReactive(query, 5, 0.8, JokeController.searchMode(mode), topic))
+        .map(results -> ResponseEntity.ok(results.isEmpty()
+            ? JokeController.renderNoResults(query)
+            : JokeController.renderSearchResults(query, results)))
+        .onErrorResume(e -> {
+          logger.error("Error searching jokes: {}", e.getMessage(), e);
+          return Mono.just(ResponseEntity.status(JokeController.statusFor(e))
+              .body("❌ Failed to search jokes: " + e.getMessage()));
+        });
+  }
+}
@@ -1,92 +1,376 @@
 package com.github.joonasvali.demo;
 
+import com.github.joonasvali.demo.cache.SearchResultCache;
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.concurrency.SingleFlight;
+import com.github.joonasvali.demo.dedup.JokeDeduplicator;
+import com.github.joonasvali.demo.ingest.StoreOutcome;
+import com.github.joonasvali.demo.ingest.WriteBehindIngester;
 import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.search.Bm25Index;
+import com.github.joonasvali.demo.search.JokeKeywordIndex;
+import com.github.joonasvali.demo.search.ReciprocalRankFusion;
+import com.github.joonasvali.demo.search.SearchMode;
+import com.github.joonasvali.demo.snapshot.VectorSnapshot;
+import com.github.joonasvali.demo.vectorstore.EmbeddedDocumentStore;
+import com.github.joonasvali.demo.vectorstore.ShardedMilvusVectorStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.milvus.MilvusSearchRequest;
-import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongConsumer;
 
 @Service
 public class VectorDatabaseService {
 
   private static final Logger logger = LoggerFactory.getLogger(VectorDatabaseService.class);
-  private final MilvusVectorStore vectorStore;
+  private static final int RRF_RANK_CONSTANT = 60;
+  // Keyword hits fetched per requested result when they are filtered by topic afterwards
+  private static final int TOPIC_KEYWORD_OVERFETCH = 10;
+  private static final int STORED_JOKE_CANDIDATES = 5;
+  private final VectorStore vectorStore;
+  private final WriteBehindIngester ingester;
+  private final Bulkhead vectorStoreBulkhead;
+  private final SingleFlight<List<Document>> searchSingleFlight;
+  private final SearchResultCache searchResultCache;
+  private final JokeDeduplicator deduplicator;
+  private final JokeKeywordIndex keywordIndex;
+  private final SearchMode defaultSearchMode;
+  private final Scheduler blockingScheduler;
+  private final MeterRegistry meterRegistry;
+  private final DistributionSummary resultCounts;
+  private final DistributionSummary scores;
+  private final Counter keywordAnswers;
+  private final Counter fusedAnswers;
+  private final Counter vectorAnswers;
 
-  public VectorDatabaseService(MilvusVectorStore vectorStore) {
+  public VectorDatabaseService(VectorStore vectorStore, WriteBehindIngester ingester,
+                               @Qualifier("vectorStoreBulkhead") Bulkhead vectorStoreBulkhead,
+                               @Qualifier("searchSingleFlight") SingleFlight<List<Document>> searchSingleFlight,
+                               SearchResultCache searchResultCache,
+                               JokeDeduplicator deduplicator,
+                               JokeKeywordIndex keywordIndex,
+                               @Value("${demo.search.default-mode:HYBRID}") SearchMode defaultSearchMode,
+                               @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+                               MeterRegistry meterRegistry) {
     this.vectorStore = vectorStore;
+    this.ingester = ingester;
+    this.vectorStoreBulkhead = vectorStoreBulkhead;
+    this.searchSingleFlight = searchSingleFlight;
+    this.searchResultCache = searchResultCache;
+    this.deduplicator = deduplicator;
+    this.keywordIndex = keywordIndex;
+    this.defaultSearchMode = defaultSearchMode;
+    this.blockingScheduler = blockingScheduler;
+    this.meterRegistry = meterRegistry;
+    this.resultCounts = DistributionSummary.builder("vector.search.results").register(meterRegistry);
+    this.scores = DistributionSummary.builder("vector.search.score").register(meterRegistry);
+    this.keywordAnswers = Counter.builder("joke.search.path").tag("path", "keyword").register(meterRegistry);
+    this.fusedAnswers = Counter.builder("joke.search.path").tag("path", "fused").register(meterRegistry);
+    this.vectorAnswers = Counter.builder("joke.search.path").tag("path", "vector").register(meterRegistry);
+
+    // Queued documents become searchable, by keyword too, and cached search results go stale once they are stored
+    ingester.addFlushListener(documents -> {
+      documents.forEach(keywordIndex::add);
+      searchResultCache.bumpVersion();
+    });
+    // A joke that was given up on may be submitted again, it must not count as a duplicate then
+    ingester.addFailureListener(documents -> documents.stream()
+        .filter(document -> "joke".equals(document.getMetadata().get("type")))
+        .forEach(document -> deduplicator.forget(document.getText())));
   }
 
   /**
-   * Add a joke document to the vector database
-   * @param joke the joke to store     *
-   * @return true if successful, false otherwise
+   * Queue a joke document for asynchronous storage in the vector database, unless a near-identical
+   * joke has been stored before
+   * @param joke the joke to store
+   * @return whether the joke was queued, skipped as a duplicate, rejected by a full queue or failed to queue
    */
-  public boolean addJoke(Joke joke) {
+  public StoreOutcome addJoke(Joke joke) {
+    boolean accepted = false;
     try {
-      Document jokeDocument = new Document(
-          joke.content(),
-          Map.of(
-              "title", joke.title(),
-              "topic", joke.topic(),
-              "type", "joke"
-          )
-      );
-
-      vectorStore.add(List.of(jokeDocument));
-      logger.info("✅ Successfully stored joke '{}' in vector database", joke.title());
-      return true;
+      if (!deduplicator.accept(joke.content())) {
+        logger.debug("Skipped joke '{}', a near-identical joke is already stored", joke.title());
+        return StoreOutcome.DUPLICATE;
+      }
+      accepted = true;
+      Document jokeDocument = toDocument(joke);
+      if (!ingester.submit(jokeDocument)) {
+        logger.warn("⚠️ Could not queue joke '{}' for vector database, ingest queue is full", joke.title());
+        deduplicator.forget(joke.content());
+        return StoreOutcome.REJECTED;
+      }
+      logger.debug("Queued joke '{}' for vector database", joke.title());
+      return StoreOutcome.QUEUED;
     } catch (Exception e) {
-      logger.error("❌ Failed to store joke '{}' in vector database: {}", joke.title(), e.getMessage(), e);
-      return false;
+      logger.error("❌ Failed to queue joke '{}' for vector database: {}", joke.title(), e.getMessage(), e);
+      if (accepted) {
+        deduplicator.forget(joke.content());
+      }
+      return StoreOutcome.FAILED;
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #addJoke(Joke)}, the deduplication check and the enqueue run on the blocking scheduler
+   */
+  public Mono<StoreOutcome> addJokeReactive(Joke joke) {
+    return Mono.fromCallable(() -> addJoke(joke)).subscribeOn(blockingScheduler);
+  }
+
+  /**
+   * Store jokes right away with a single vector store insert, bypassing the write-behind queue.
+   * Near-duplicates of stored jokes, or of earlier jokes in the list, are skipped.
+   * @param jokes the jokes to store
+   * @return number of jokes stored
+   */
+  public int storeJokes(List<Joke> jokes) {
+    List<Document> documents = jokes.stream()
+        .filter(joke -> deduplicator.accept(joke.content()))
+        .map(VectorDatabaseService::toDocument)
+        .toList();
+    if (documents.isEmpty()) {
+      return 0;
+    }
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      vectorStoreBulkhead.run(() -> vectorStore.add(documents));
+      documents.forEach(keywordIndex::add);
+      searchResultCache.bumpVersion();
+      logger.info("✅ Stored {} joke(s) in vector database, skipped {} duplicate(s)", documents.size(), jokes.size() - documents.size());
+      return documents.size();
+    } catch (Exception e) {
+      outcome = "error";
+      logger.error("❌ Failed to store {} joke(s) in vector database: {}", documents.size(), e.getMessage(), e);
+      // None of them were stored, a retry (e.g. the seed loader resuming from its checkpoint) must not see them as duplicates
+      documents.forEach(document -> deduplicator.forget(document.getText()));
+      throw new RuntimeException("Failed to store jokes", e);
+    } finally {
+      sample.stop(Timer.builder("vector.store.call")
+          .tag("operation", "add")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
     }
   }
 
+  static Document toDocument(Joke joke) {
+    return new Document(
+        joke.content(),
+        Map.of(
+            "title", joke.title(),
+            "topic", joke.topic(),
+            "type", "joke",
+            // Routes the joke when the vector store is sharded by time bucket
+            "created", System.currentTimeMillis()
+        )
+    );
+  }
+
   /**
-   * Add a generic document to the vector database
+   * Queue a generic document for asynchronous storage in the vector database
    * @param content the document content
    * @param metadata the document metadata
-   * @return true if successful, false otherwise
+   * @return true if the document was queued, false otherwise
    */
   public boolean addDocument(String content, Map<String, Object> metadata) {
     try {
       Document document = new Document(content, metadata);
-      vectorStore.add(List.of(document));
-      logger.info("✅ Successfully stored document in vector database");
+      if (!ingester.submit(document)) {
+        logger.warn("⚠️ Could not queue document for vector database, ingest queue is full");
+        return false;
+      }
+      logger.debug("Queued document for vector database");
       return true;
     } catch (Exception e) {
-      logger.error("❌ Failed to store document in vector database: {}", e.getMessage(), e);
+      logger.error("❌ Failed to queue document for vector database: {}", e.getMessage(), e);
       return false;
     }
   }
 
   /**
-   * Search for jokes using similarity search
+   * Search for jokes using the default search mode
    * @param query the search query
    * @param topK maximum number of results to return
-   * @param similarityThreshold minimum similarity score threshold
+   * @param similarityThreshold minimum similarity score threshold for vector hits
    * @return list of search results
    */
   public List<Document> searchJokes(String query, int topK, double similarityThreshold) {
-    try {
-      MilvusSearchRequest request = MilvusSearchRequest.milvusBuilder()
-          .query(query)
-          .topK(topK)
-          .similarityThreshold(similarityThreshold)
-          .nativeExpression("metadata['type'] == 'joke'")
-          .build();
+    return searchJokes(query, topK, similarityThreshold, defaultSearchMode);
+  }
 
-      return vectorStore.similaritySearch(request);
+  /**
+   * Search for jokes
+   * @param query the search query
+   * @param topK maximum number of results to return
+   * @param similarityThreshold minimum similarity score threshold for vector hits
+   * @param mode vector only, keyword only, or keyword with a vector fallback fused by reciprocal rank
+   * @return list of search results
+   */
+  public List<Document> searchJokes(String query, int topK, double similarityThreshold, SearchMode mode) {
+    return searchJokes(query, topK, similarityThreshold, mode, null);
+  }
+
+  /**
+   * Search for jokes about one topic. The topic is matched exactly against the stored {@code topic} field,
+   * which the vector stores keep as a scalar field.
+   * @param mode search mode, or null for the configured default
+   * @param topic topic the results must have, or null for any
+   */
+  public List<Document> searchJokes(String query, int topK, double similarityThreshold, SearchMode mode, String topic) {
+    try {
+      SearchPlan plan = plan(query, topK, similarityThreshold, mode, topic);
+      return plan.answer() != null ? plan.answer() : vectorSearch(plan);
     } catch (Exception e) {
       logger.error("❌ Failed to search jokes: {}", e.getMessage(), e);
       throw new RuntimeException("Failed to search jokes", e);
     }
   }
 
+  /**
+   * Non-blocking variant of {@link #searchJokes(String, int, double, SearchMode)}. Cached results and conclusive
+   * keyword hits are answered on the calling thread, vector searches run on the blocking scheduler.
+   */
+  public Mono<List<Document>> searchJokesReactive(String query, int topK, double similarityThreshold, SearchMode mode,
+                                                  String topic) {
+    return Mono.defer(() -> {
+      SearchPlan plan = plan(query, topK, similarityThreshold, mode, topic);
+      if (plan.answer() != null) {
+        return Mono.just(plan.answer());
+      }
+      return Mono.fromCallable(() -> vectorSearch(plan)).subscribeOn(blockingScheduler);
+    }).onErrorMap(e -> {
+      logger.error("❌ Failed to search jokes: {}", e.getMessage(), e);
+      return new RuntimeException("Failed to search jokes", e);
+    });
+  }
+
+  public Mono<List<Document>> searchJokesReactive(String query, int topK, double similarityThreshold, SearchMode mode) {
+    return searchJokesReactive(query, topK, similarityThreshold, mode, null);
+  }
+
+  public Mono<List<Document>> searchJokesReactive(String query) {
+    return searchJokesReactive(query, 5, 0.8, defaultSearchMode);
+  }
+
+  /**
+   * Answer a search from the result cache or the keyword index when possible,
+   * otherwise prepare the vector search
+   */
+  private SearchPlan plan(String query, int topK, double similarityThreshold, SearchMode mode, String topic) {
+    if (mode == null) {
+      mode = defaultSearchMode;
+    }
+    String requiredTopic = topic == null || topic.isBlank() ? null : topic.strip();
+    Filter.Expression filter = jokeFilter(requiredTopic);
+    String key = mode + ":" + topK + ":" + similarityThreshold + ":" + filter + ":" + query.strip().toLowerCase(Locale.ROOT);
+    Optional<List<Document>> cached = searchResultCache.get(key);
+    if (cached.isPresent()) {
+      return new SearchPlan(key, null, topK, List.of(), cached.get());
+    }
+
+    List<Bm25Index.Hit> keywordHits = mode == SearchMode.VECTOR ? List.of() : keywordHits(query, topK, requiredTopic);
+    if (mode == SearchMode.KEYWORD || (mode == SearchMode.HYBRID && keywordIndex.isConclusive(query, keywordHits))) {
+      // Keyword hits answer the query on their own, no embedding call is needed
+      keywordAnswers.increment();
+      return new SearchPlan(key, null, topK, keywordHits, JokeKeywordIndex.toDocuments(keywordHits));
+    }
+
+    SearchRequest request = SearchRequest.builder()
+        .query(query)
+        .topK(topK)
+        .similarityThreshold(similarityThreshold)
+        .filterExpression(filter)
+        .build();
+    return new SearchPlan(key, request, topK, keywordHits, null);
+  }
+
+  /**
+   * Jokes only, optionally of one topic. Both are scalar fields of the stores, {@code type} is the Milvus partition key.
+   */
+  private static Filter.Expression jokeFilter(String topic) {
+    FilterExpressionBuilder filter = new FilterExpressionBuilder();
+    return topic == null
+        ? filter.eq("type", "joke").build()
+        : filter.and(filter.eq("type", "joke"), filter.eq("topic", topic)).build();
+  }
+
+  private List<Bm25Index.Hit> keywordHits(String query, int topK, String topic) {
+    if (topic == null) {
+      return keywordIndex.search(query, topK);
+    }
+    return keywordIndex.search(query, topK * TOPIC_KEYWORD_OVERFETCH).stream()
+        .filter(hit -> topic.equals(hit.document().getMetadata().get("topic")))
+        .limit(topK)
+        .toList();
+  }
+
+  private List<Document> vectorSearch(SearchPlan plan) {
+    // Identical concurrent searches share one embedding and one vector store query. The key carries the collection
+    // version, so a search started after a write never joins, or reuses within the window, one that read before it.
+    long version = searchResultCache.version();
+    return searchSingleFlight.execute(plan.key() + "@" + version, () -> {
+      List<Document> results = List.copyOf(search("search-jokes", plan.request()));
+      // Not all shards answered, or nothing was found, which may also be because a shard did not answer
+      boolean cacheable = !results.isEmpty()
+          && results.stream().noneMatch(document -> document.getMetadata().containsKey(ShardedMilvusVectorStore.PARTIAL_RESULTS_KEY));
+      if (!plan.keywordHits().isEmpty()) {
+        fusedAnswers.increment();
+        results = ReciprocalRankFusion.fuse(RRF_RANK_CONSTANT, plan.topK(), results, JokeKeywordIndex.toDocuments(plan.keywordHits()));
+      } else {
+        vectorAnswers.increment();
+      }
+      if (cacheable) {
+        searchResultCache.put(plan.key(), version, results);
+      }
+      return results;
+    });
+  }
+
+  /**
+   * A search either answered without the vector store ({@code answer} set) or still needing the vector search
+   */
+  private record SearchPlan(String key, SearchRequest request, int topK, List<Bm25Index.Hit> keywordHits,
+                            List<Document> answer) {
+  }
+
+  /**
+   * Find a stored joke about a subject by keyword, without calling the embedding model, e.g. to answer
+   * when the language model cannot
+   * @param subject the joke subject
+   * @return one of the best keyword matches, empty when no stored joke matches
+   */
+  public Optional<Joke> findStoredJoke(String subject) {
+    List<Bm25Index.Hit> hits = keywordIndex.search(subject, STORED_JOKE_CANDIDATES);
+    if (hits.isEmpty()) {
+      return Optional.empty();
+    }
+    // Vary the answer among the best matches, a client retrying during an outage should not get the same joke
+    Document document = hits.get(ThreadLocalRandom.current().nextInt(hits.size())).document();
+    Map<String, Object> metadata = document.getMetadata();
+    return Optional.of(new Joke(String.valueOf(metadata.getOrDefault("title", "")), document.getText(),
+        String.valueOf(metadata.getOrDefault("topic", subject))));
+  }
+
   /**
    * Search for jokes using default parameters
    * @param query the search query
@@ -104,12 +388,12 @@ public class VectorDatabaseService {
    */
   public List<Document> similaritySearch(String query, int topK) {
     try {
-      MilvusSearchRequest request = MilvusSearchRequest.milvusBuilder()
+      SearchRequest request = SearchRequest.builder()
           .query(query)
           .topK(topK)
           .build();
 
-      return vectorStore.similaritySearch(request);
+      return search("similarity", request);
     } catch (Exception e) {
       logger.error("❌ Failed to perform similarity search: {}", e.getMessage(), e);
       throw new RuntimeException("Failed to perform similarity search", e);
@@ -117,48 +401,133 @@ public class VectorDatabaseService {
   }
 
   /**
-   * Check if the database is already initialized by looking for existing documents
-   * @return true if documents already exist, false otherwise
+   * Write every stored document with its embedding to a snapshot file
+   * @param file the snapshot file, replaced once the snapshot is complete
+   * @return what was written
    */
-  public boolean isDatabaseInitialized() {
+  public VectorSnapshot.Summary exportSnapshot(Path file) {
+    EmbeddedDocumentStore store = embeddedDocumentStore();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
     try {
-      MilvusSearchRequest searchRequest = MilvusSearchRequest.milvusBuilder()
-          .query("programming")
-          .topK(1)
-          .build();
-
-      var results = vectorStore.similaritySearch(searchRequest);
-      return !results.isEmpty();
+      VectorSnapshot.Summary summary = VectorSnapshot.write(file, store::forEachEmbedded);
+      logger.info("✅ Wrote snapshot of {} document(s) to {}, {} bytes", summary.documents(), file, summary.bytes());
+      return summary;
     } catch (Exception e) {
-      logger.warn("Could not check if database is already initialized: {}", e.getMessage());
-      return false;
+      outcome = "error";
+      logger.error("❌ Failed to write snapshot to {}: {}", file, e.getMessage(), e);
+      throw new RuntimeException("Failed to write snapshot", e);
+    } finally {
+      sample.stop(Timer.builder("vector.store.call")
+          .tag("operation", "snapshot-export")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
     }
   }
 
   /**
-   * Perform a health check on the vector database
-   * @return health check information
+   * Restore documents from a snapshot file with their stored embeddings, the embedding model is not called.
+   * The keyword index and the deduplicator learn the restored jokes as well.
+   * @param file the snapshot file
+   * @param batchSize documents per vector store insert
+   * @return what was read
+   */
+  public VectorSnapshot.Summary importSnapshot(Path file, int batchSize) {
+    return importSnapshot(file, batchSize, 0, restored -> {
+    });
+  }
+
+  /**
+   * Restore documents from a snapshot file, starting after the documents a previous, interrupted restore stored
+   * @param skip documents at the start of the snapshot that are already stored
+   * @param onBatch receives the number of documents of the snapshot stored so far after every stored batch
+   * @return what was read
    */
-  public String performHealthCheck() {
+  public VectorSnapshot.Summary importSnapshot(Path file, int batchSize, long skip, LongConsumer onBatch) {
+    EmbeddedDocumentStore store = embeddedDocumentStore();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
     try {
-      MilvusSearchRequest request = MilvusSearchRequest.milvusBuilder()
-          .query("sample query")
-          .topK(1)
-          .nativeExpression("metadata['category'] == 'science'")
-          .build();
+      long[] restored = {skip};
+      VectorSnapshot.Summary summary = VectorSnapshot.read(file, batchSize, skip, (documents, embeddings) -> {
+        vectorStoreBulkhead.run(() -> store.add(documents, embeddings));
+        documents.forEach(this::indexStored);
+        restored[0] += documents.size();
+        onBatch.accept(restored[0]);
+      });
+      searchResultCache.bumpVersion();
+      logger.info("✅ Restored {} document(s) from snapshot {}", summary.documents(), file);
+      return summary;
+    } catch (Exception e) {
+      outcome = "error";
+      logger.error("❌ Failed to restore snapshot {}: {}", file, e.getMessage(), e);
+      throw new RuntimeException("Failed to restore snapshot", e);
+    } finally {
+      sample.stop(Timer.builder("vector.store.call")
+          .tag("operation", "snapshot-import")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+    }
+  }
 
-      var results = vectorStore.similaritySearch(request);
+  /**
+   * Teach the keyword index and the deduplicator the documents already in the vector store, which were stored
+   * before this instance started. Stores whose documents cannot be read back are left unindexed.
+   * @return number of documents indexed
+   */
+  public long indexStoredDocuments() {
+    if (!(vectorStore instanceof EmbeddedDocumentStore store)) {
+      logger.warn("⚠️ Vector store {} cannot be read back, keyword search and deduplication only know new jokes", vectorStore.getName());
+      return 0;
+    }
+    long[] indexed = new long[1];
+    store.forEachEmbedded((documents, embeddings) -> {
+      documents.forEach(this::indexStored);
+      indexed[0] += documents.size();
+    });
+    searchResultCache.bumpVersion();
+    logger.info("✅ Indexed {} stored document(s) for keyword search and deduplication", indexed[0]);
+    return indexed[0];
+  }
 
-      return "✅ Vector database is accessible and working!<br/>" +
-          "Milvus connection: SUCCESS<br/>" +
-          "Collection: vector_store<br/>" +
-          "Embedding dimension: 1536<br/>" +
-          "Index type: IVF_FLAT<br/>" +
-          "Metric type: COSINE<br/>" +
-          "Test document stored and retrieved successfully<br/>" +
-          "Search results count: " + results.size();
-    } catch (Exception e) {
-      throw new RuntimeException("Vector database health check failed: " + e.getMessage(), e);
+  private void indexStored(Document document) {
+    keywordIndex.add(document);
+    if ("joke".equals(document.getMetadata().get("type"))) {
+      deduplicator.remember(document.getText());
+    }
+  }
+
+  private EmbeddedDocumentStore embeddedDocumentStore() {
+    if (!(vectorStore instanceof EmbeddedDocumentStore store)) {
+      throw new UnsupportedOperationException("Vector store " + vectorStore.getName() + " does not support snapshots");
+    }
+    return store;
+  }
+
+  /**
+   * Run a similarity search inside the vector store bulkhead, timing it and recording
+   * the number of results and their similarity scores
+   */
+  private List<Document> search(String operation, SearchRequest request) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      List<Document> results = vectorStoreBulkhead.execute(() -> vectorStore.similaritySearch(request));
+      resultCounts.record(results.size());
+      for (Document result : results) {
+        if (result.getScore() != null) {
+          scores.record(result.getScore());
+        }
+      }
+      return results;
+    } catch (RuntimeException e) {
+      outcome = "error";
+      throw e;
+    } finally {
+      sample.stop(Timer.builder("vector.store.call")
+          .tag("operation", operation)
+          .tag("outcome", outcome)
+          .register(meterRegistry));
     }
   }
 
@@ -0,0 +1,102 @@
+package com.github.joonasvali.demo.admission;
+
+/**
+ * Concurrency limit that follows the latency of admitted requests, after the gradient algorithm of Netflix'
+ * concurrency-limits. Every {@code window} samples the average latency of the window is compared to the baseline,
+ * a slow moving average over about {@value #BASELINE_WINDOWS} windows. While requests are not slower than
+ * {@code tolerance} times the baseline the limit grows by about its square root, once they queue up downstream it
+ * shrinks in proportion. Requests that were shed downstream (a full bulkhead, an open circuit or a passed deadline)
+ * end their window with a multiplicative cut instead, as in AIMD.
+ *
+ * <p>The baseline is learned from the traffic itself, so the initial limit should be one the dependency handles
+ * without queueing; it is raised from there while latency allows.
+ *
+ * <p>Not thread safe, {@link AdmissionController} calls it under its lock.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  private static final int BASELINE_WINDOWS = 30;
+
+  private final double minLimit;
+  private final double maxLimit;
+  private final double tolerance;
+  private final double backoff;
+  private final int window;
+  private final double smoothing;
+
+  private volatile double limit;
+  private double baseline;
+  private int windows;
+
+  private int samples;
+  private double latencySum;
+  private int maxInFlight;
+  private int drops;
+
+  /**
+   * @param tolerance latency over the baseline up to which the limit keeps growing, e.g. 1.5
+   * @param backoff factor the limit is multiplied with after a window with dropped requests
+   * @param window samples per limit update
+   * @param smoothing share of a computed limit increase that is applied, between 0 and 1; decreases apply in full
+   */
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff,
+                                  int window, double smoothing) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.tolerance = tolerance;
+    this.backoff = backoff;
+    this.window = Math.max(1, window);
+    this.smoothing = smoothing;
+    this.limit = clamp(initialLimit);
+  }
+
+  /**
+   * @param inFlight admitted requests of the lane including this one
+   * @param dropped whether the request was shed downstream
+   */
+  void onSample(long latencyNanos, int inFlight, boolean dropped) {
+    samples++;
+    latencySum += latencyNanos;
+    maxInFlight = Math.max(maxInFlight, inFlight);
+    if (dropped) {
+      drops++;
+    }
+    if (samples < window) {
+      return;
+    }
+
+    double average = Math.max(1, latencySum / samples);
+    windows++;
+    // A plain average until enough windows were seen, then a moving one
+    baseline += (average - baseline) / Math.min(windows, BASELINE_WINDOWS);
+    if (baseline > 2 * average) {
+      // Latency dropped well below the baseline, e.g. once a slow dependency recovered
+      baseline *= 0.95;
+    }
+
+    double current = limit;
+    if (drops > 0) {
+      limit = clamp(current * backoff);
+    } else if (maxInFlight >= current / 2) {
+      // A limit that was not approached says nothing about how many requests can be served, it is left as it is
+      double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / average));
+      double next = current * gradient + Math.sqrt(current);
+      limit = clamp(next < current ? next : current + (next - current) * smoothing);
+    }
+    samples = 0;
+    latencySum = 0;
+    maxInFlight = 0;
+    drops = 0;
+  }
+
+  /**
+   * @return the number of requests that may run at once
+   */
+  public int get() {
+    return (int) limit;
+  }
+
+  private double clamp(double value) {
+    return Math.max(minLimit, Math.min(maxLimit, value));
+  }
+}
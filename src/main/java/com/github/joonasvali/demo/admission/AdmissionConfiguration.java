@@ -0,0 +1,63 @@
+package com.github.joonasvali.demo.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Admission control of the search, joke and batch endpoints, configured under {@code demo.admission}.
+ */
+@Configuration
+public class AdmissionConfiguration {
+
+  @Bean
+  public Lane searchLane(@Value("${demo.admission.lanes.search.priority:0}") int priority,
+                         @Value("${demo.admission.lanes.search.paths:/search-jokes}") List<String> paths,
+                         @Value("${demo.admission.lanes.search.queue-capacity:200}") int queueCapacity,
+                         @Value("${demo.admission.lanes.search.max-wait:500ms}") Duration maxWait,
+                         @Value("${demo.admission.lanes.search.cost:1}") double cost) {
+    return new Lane("search", priority, paths, queueCapacity, maxWait, cost);
+  }
+
+  @Bean
+  public Lane jokeLane(@Value("${demo.admission.lanes.joke.priority:1}") int priority,
+                       @Value("${demo.admission.lanes.joke.paths:/joke,/joke/stream}") List<String> paths,
+                       @Value("${demo.admission.lanes.joke.queue-capacity:32}") int queueCapacity,
+                       @Value("${demo.admission.lanes.joke.max-wait:1s}") Duration maxWait,
+                       @Value("${demo.admission.lanes.joke.cost:1}") double cost) {
+    return new Lane("joke", priority, paths, queueCapacity, maxWait, cost);
+  }
+
+  @Bean
+  public Lane batchLane(@Value("${demo.admission.lanes.batch.priority:2}") int priority,
+                        @Value("${demo.admission.lanes.batch.paths:/jokes/batch}") List<String> paths,
+                        @Value("${demo.admission.lanes.batch.queue-capacity:4}") int queueCapacity,
+                        @Value("${demo.admission.lanes.batch.max-wait:2s}") Duration maxWait,
+                        @Value("${demo.admission.lanes.batch.cost:10}") double cost) {
+    return new Lane("batch", priority, paths, queueCapacity, maxWait, cost);
+  }
+
+  @Bean
+  public AdmissionController admissionController(MeterRegistry meterRegistry, List<Lane> lanes,
+                                                 @Value("${demo.admission.enabled:true}") boolean enabled,
+                                                 @Value("${demo.admission.max-concurrent:128}") int maxConcurrent,
+                                                 @Value("${demo.admission.limit.initial:16}") int initialLimit,
+                                                 @Value("${demo.admission.limit.min:4}") int minLimit,
+                                                 @Value("${demo.admission.limit.max:256}") int maxLimit,
+                                                 @Value("${demo.admission.limit.tolerance:1.5}") double tolerance,
+                                                 @Value("${demo.admission.limit.backoff:0.9}") double backoff,
+                                                 @Value("${demo.admission.limit.window:20}") int window,
+                                                 @Value("${demo.admission.limit.smoothing:0.2}") double smoothing,
+                                                 @Value("${demo.admission.client.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                                                 @Value("${demo.admission.client.rate-limit.rate:20}") double rate,
+                                                 @Value("${demo.admission.client.rate-limit.burst:40}") double burst,
+                                                 @Value("${demo.admission.client.rate-limit.max-clients:10000}") int maxClients) {
+    return new AdmissionController(enabled, lanes,
+        () -> new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, backoff, window, smoothing),
+        maxConcurrent, new ClientRateLimiter(rateLimitEnabled, rate, burst, maxClients), meterRegistry);
+  }
+}
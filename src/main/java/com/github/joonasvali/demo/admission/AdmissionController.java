@@ -0,0 +1,323 @@
+package com.github.joonasvali.demo.admission;
+
+import com.github.joonasvali.demo.resilience.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the model backed endpoints. A request first takes tokens from the rate limit of its
+ * client (429 when it has none left). It then runs when its {@link Lane} has fewer requests in flight than the
+ * lane's {@link AdaptiveConcurrencyLimit}, and the server fewer than {@code maxConcurrent}. Otherwise it waits in
+ * the bounded queue of its lane. Every lane learns its limit from its own latency, so that slow joke generations do
+ * not hide behind fast searches; slots freed under the shared cap go to waiting requests by lane priority, first come
+ * first served within a lane. A full queue and a wait that outlasts the lane maximum or the request deadline are
+ * answered with 503, so that overload turns into quick rejections instead of every caller timing out.
+ */
+public class AdmissionController {
+
+  private static final int LATENCY_WINDOW = 100;
+  private static final int STATUS_CANCELLED = -1;
+
+  private final boolean enabled;
+  private final int maxConcurrent;
+  private final ClientRateLimiter rateLimiter;
+  private final List<LaneState> lanes;
+  private final Map<String, LaneState> lanesByPath = new HashMap<>();
+  private final Map<String, LaneState> lanesByName = new HashMap<>();
+
+  private int inFlight;
+
+  /**
+   * @param limits creates the adaptive limit of each lane
+   * @param maxConcurrent requests in flight over all lanes
+   */
+  public AdmissionController(boolean enabled, List<Lane> lanes, Supplier<AdaptiveConcurrencyLimit> limits,
+                             int maxConcurrent, ClientRateLimiter rateLimiter, MeterRegistry meterRegistry) {
+    this.enabled = enabled;
+    this.maxConcurrent = maxConcurrent;
+    this.rateLimiter = rateLimiter;
+    List<LaneState> states = new ArrayList<>();
+    for (Lane lane : lanes) {
+      LaneState state = new LaneState(lane, limits.get(), meterRegistry);
+      states.add(state);
+      lanesByName.put(lane.name(), state);
+      lane.paths().forEach(path -> lanesByPath.put(path, state));
+      Gauge.builder("admission.limit", state.limit, AdaptiveConcurrencyLimit::get).tag("lane", lane.name()).register(meterRegistry);
+      Gauge.builder("admission.in.flight", this, controller -> controller.inFlight(state)).tag("lane", lane.name()).register(meterRegistry);
+      Gauge.builder("admission.queue.size", this, controller -> controller.queued(state)).tag("lane", lane.name()).register(meterRegistry);
+    }
+    states.sort(Comparator.comparingInt(state -> state.lane.priority()));
+    this.lanes = List.copyOf(states);
+
+    Gauge.builder("admission.clients", rateLimiter, ClientRateLimiter::trackedClients).register(meterRegistry);
+  }
+
+  /**
+   * @return the lane of a request path, empty for paths that are not admission controlled or when disabled
+   */
+  public Optional<Lane> laneFor(String path) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    LaneState state = lanesByPath.get(path);
+    return state == null ? Optional.empty() : Optional.of(state.lane);
+  }
+
+  /**
+   * Wait for admission on the calling thread, at most the lane maximum or until the deadline of the thread
+   * @return a permit that must be released once the request has been answered
+   * @throws AdmissionRejectedException if the request is not admitted
+   */
+  public Permit acquire(Lane lane, String client) {
+    Ticket ticket = enqueue(lane, client);
+    try {
+      return ticket.future.get(maxWait(lane, Deadline.current()).toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      expire(ticket, false);
+      return join(ticket);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      expire(ticket, true);
+      return join(ticket);
+    } catch (ExecutionException e) {
+      throw (AdmissionRejectedException) e.getCause();
+    }
+  }
+
+  /**
+   * Wait for admission without blocking, bounded by the lane maximum and the deadline in the Reactor context.
+   * A subscriber that cancels while waiting gives up its place in the queue.
+   */
+  public Mono<Permit> acquireReactive(Lane lane, String client) {
+    return Mono.deferContextual(context -> {
+      Ticket ticket = enqueue(lane, client);
+      if (ticket.future.isDone()) {
+        return Mono.fromFuture(ticket.future);
+      }
+      Duration wait = maxWait(lane, context.<Deadline>getOrEmpty(Deadline.CONTEXT_KEY));
+      return Mono.fromFuture(ticket.future, true)
+          .timeout(wait)
+          .onErrorResume(TimeoutException.class, e -> {
+            expire(ticket, false);
+            return Mono.fromFuture(ticket.future, true);
+          })
+          .doOnCancel(() -> {
+            expire(ticket, true);
+            // Admitted just before the cancel, nobody will use the permit
+            ticket.future.thenAccept(Permit::cancel);
+          });
+    });
+  }
+
+  /**
+   * @return requests in flight over all lanes
+   */
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  private synchronized int inFlight(LaneState state) {
+    return state.inFlight;
+  }
+
+  private synchronized int queued(LaneState state) {
+    return state.waiting.size();
+  }
+
+  private Ticket enqueue(Lane lane, String client) {
+    LaneState state = lanesByName.get(lane.name());
+    Duration rateLimitWait = rateLimiter.tryAcquire(client, lane.cost());
+    if (!rateLimitWait.isZero()) {
+      state.rateLimited.increment();
+      throw AdmissionRejectedException.rateLimited(rateLimitWait);
+    }
+
+    Ticket ticket = new Ticket(state);
+    synchronized (this) {
+      // Waiting requests are admitted whenever a slot frees up, so requests only wait here while their lane or the server is full
+      if (state.waiting.isEmpty() && fits(state)) {
+        admit(state);
+        state.admitted.increment();
+        ticket.future.complete(new Permit(state));
+        return ticket;
+      }
+      if (state.waiting.size() >= lane.queueCapacity()) {
+        state.queueFull.increment();
+        throw AdmissionRejectedException.overloaded(drainTime(state));
+      }
+      state.waiting.addLast(ticket);
+    }
+    return ticket;
+  }
+
+  /**
+   * Stop waiting for admission; a ticket that was admitted in the meantime keeps its permit
+   */
+  private void expire(Ticket ticket, boolean cancelled) {
+    AdmissionRejectedException rejection;
+    synchronized (this) {
+      if (!ticket.state.waiting.remove(ticket)) {
+        return;
+      }
+      (cancelled ? ticket.state.cancelled : ticket.state.timedOut).increment();
+      rejection = AdmissionRejectedException.overloaded(drainTime(ticket.state));
+    }
+    ticket.future.completeExceptionally(rejection);
+  }
+
+  private void release(Permit permit, int status) {
+    long latency = System.nanoTime() - permit.admittedAt;
+    LaneState state = permit.state;
+    List<Ticket> admitted = new ArrayList<>();
+    synchronized (this) {
+      if (status != STATUS_CANCELLED) {
+        state.limit.onSample(latency, state.inFlight, status == 503 || status == 504);
+        state.recordLatency(latency);
+      }
+      state.inFlight--;
+      inFlight--;
+      for (LaneState lane : lanes) {
+        while (!lane.waiting.isEmpty() && fits(lane)) {
+          admit(lane);
+          admitted.add(lane.waiting.pollFirst());
+        }
+        if (inFlight >= maxConcurrent) {
+          break;
+        }
+      }
+    }
+    for (Ticket ticket : admitted) {
+      ticket.state.admitted.increment();
+      ticket.state.queueWait.record(System.nanoTime() - ticket.enqueuedAt, TimeUnit.NANOSECONDS);
+      ticket.future.complete(new Permit(ticket.state));
+    }
+  }
+
+  private boolean fits(LaneState state) {
+    return inFlight < maxConcurrent && state.inFlight < state.limit.get();
+  }
+
+  private void admit(LaneState state) {
+    state.inFlight++;
+    inFlight++;
+  }
+
+  /**
+   * @return estimated time until the queue of a lane has been worked off, the Retry-After of a rejection
+   */
+  private Duration drainTime(LaneState state) {
+    return Duration.ofNanos((long) ((state.waiting.size() + 1) * state.averageLatency / Math.max(1, state.limit.get())));
+  }
+
+  private static Duration maxWait(Lane lane, Optional<Deadline> deadline) {
+    return deadline.map(value -> value.cap(lane.maxWait())).orElse(lane.maxWait());
+  }
+
+  private static Permit join(Ticket ticket) {
+    try {
+      return ticket.future.join();
+    } catch (CompletionException e) {
+      throw (AdmissionRejectedException) e.getCause();
+    }
+  }
+
+  /**
+   * Right to run one request, release it with the response status once the request has been answered.
+   * Releasing more than once has no effect.
+   */
+  public final class Permit {
+    private final LaneState state;
+    private final long admittedAt = System.nanoTime();
+    private boolean released;
+
+    private Permit(LaneState state) {
+      this.state = state;
+    }
+
+    /**
+     * @param status HTTP status of the response, 503 and 504 tell the limit that the request was shed downstream
+     */
+    public void release(int status) {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      AdmissionController.this.release(this, status);
+    }
+
+    /**
+     * Release a permit of a request that ended without a response, its latency is not sampled
+     */
+    public void cancel() {
+      release(STATUS_CANCELLED);
+    }
+  }
+
+  private static final class Ticket {
+    private final LaneState state;
+    private final long enqueuedAt = System.nanoTime();
+    private final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+    private Ticket(LaneState state) {
+      this.state = state;
+    }
+  }
+
+  private static final class LaneState {
+    private final Lane lane;
+    private final AdaptiveConcurrencyLimit limit;
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private int inFlight;
+    // In flight count and average latency over roughly the last LATENCY_WINDOW requests are guarded by the controller
+    private double averageLatency;
+    private long samples;
+
+    private final Counter admitted;
+    private final Counter rateLimited;
+    private final Counter queueFull;
+    private final Counter timedOut;
+    private final Counter cancelled;
+    private final Timer queueWait;
+
+    private LaneState(Lane lane, AdaptiveConcurrencyLimit limit, MeterRegistry meterRegistry) {
+      this.lane = lane;
+      this.limit = limit;
+      this.admitted = outcome(meterRegistry, "admitted");
+      this.rateLimited = outcome(meterRegistry, "rate-limited");
+      this.queueFull = outcome(meterRegistry, "queue-full");
+      this.timedOut = outcome(meterRegistry, "timed-out");
+      this.cancelled = outcome(meterRegistry, "cancelled");
+      this.queueWait = Timer.builder("admission.queue.wait").tag("lane", lane.name()).register(meterRegistry);
+    }
+
+    private Counter outcome(MeterRegistry meterRegistry, String outcome) {
+      return Counter.builder("admission.requests").tag("lane", lane.name()).tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private void recordLatency(long latency) {
+      samples++;
+      // A plain average until the window has filled, so that the first requests do not stand for the average
+      averageLatency += (latency - averageLatency) / Math.min(samples, LATENCY_WINDOW);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.github.joonasvali.demo.admission;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Runs requests to admission controlled paths only once {@link AdmissionController} admits them, and answers
+ * rejected ones with 429 or 503 and a Retry-After header. Ordered after the deadline filter, so that the wait for
+ * admission counts against the request deadline. A streamed response keeps its permit until the stream has ended.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+  private final AdmissionController admissionController;
+  private final String clientHeader;
+
+  public AdmissionFilter(AdmissionController admissionController,
+                         @Value("${demo.admission.client.header:}") String clientHeader) {
+    this.admissionController = admissionController;
+    this.clientHeader = clientHeader;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Optional<Lane> lane = admissionController.laneFor(request.getRequestURI().substring(request.getContextPath().length()));
+    if (lane.isEmpty()) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    AdmissionController.Permit permit;
+    try {
+      permit = admissionController.acquire(lane.get(), client(clientHeader, request.getHeader(clientHeader), request.getRemoteAddr()));
+    } catch (AdmissionRejectedException e) {
+      response.setStatus(e.getStatus().value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+      response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+      response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+      response.getWriter().write(e.getMessage());
+      return;
+    }
+
+    boolean async = false;
+    try {
+      chain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(new PermitReleasingListener(permit, response));
+        async = true;
+      }
+    } catch (IOException | ServletException | RuntimeException e) {
+      permit.release(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+      throw e;
+    } finally {
+      if (!async) {
+        permit.release(response.getStatus());
+      }
+    }
+  }
+
+  /**
+   * @return the client a request is rate limited as: the configured header when set and present, otherwise the remote address
+   */
+  static String client(String clientHeader, String headerValue, String remoteAddress) {
+    if (!clientHeader.isBlank() && headerValue != null && !headerValue.isBlank()) {
+      return headerValue.strip();
+    }
+    return remoteAddress == null ? "unknown" : remoteAddress;
+  }
+
+  private record PermitReleasingListener(AdmissionController.Permit permit, HttpServletResponse response) implements AsyncListener {
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      permit.release(response.getStatus());
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      permit.release(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      permit.cancel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package com.github.joonasvali.demo.admission;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is not admitted: 429 when its client is over its rate limit, 503 when the service is
+ * at capacity. The message is the response body.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+  private final HttpStatus status;
+  private final Duration retryAfter;
+
+  public AdmissionRejectedException(HttpStatus status, Duration retryAfter, String message) {
+    super(message);
+    this.status = status;
+    this.retryAfter = retryAfter;
+  }
+
+  static AdmissionRejectedException rateLimited(Duration retryAfter) {
+    return new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter,
+        "⚠️ Too many requests from this client, retry in " + retryAfterSeconds(retryAfter) + " s");
+  }
+
+  static AdmissionRejectedException overloaded(Duration retryAfter) {
+    return new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter,
+        "⚠️ Service is at capacity, retry in " + retryAfterSeconds(retryAfter) + " s");
+  }
+
+  public HttpStatus getStatus() {
+    return status;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+
+  /**
+   * @return value of the Retry-After header, whole seconds rounded up and at least 1
+   */
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds(retryAfter);
+  }
+
+  private static long retryAfterSeconds(Duration retryAfter) {
+    return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+  }
+}
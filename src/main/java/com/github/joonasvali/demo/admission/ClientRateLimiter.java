@@ -0,0 +1,76 @@
+package com.github.joonasvali.demo.admission;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket rate limit per client. Every client may burst up to {@code burst} tokens and earns {@code rate}
+ * tokens per second. Once more than {@code maxClients} clients are tracked, the buckets of idle clients
+ * (that have refilled completely) are dropped, a dropped client starts over with a full bucket.
+ */
+public class ClientRateLimiter {
+
+  private final boolean enabled;
+  private final double ratePerNano;
+  private final double burst;
+  private final int maxClients;
+  private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  public ClientRateLimiter(boolean enabled, double ratePerSecond, double burst, int maxClients) {
+    this.enabled = enabled && ratePerSecond > 0;
+    this.ratePerNano = ratePerSecond / 1e9;
+    this.burst = Math.max(1, burst);
+    this.maxClients = maxClients;
+  }
+
+  /**
+   * Take tokens from the bucket of a client
+   * @param cost tokens needed, a cost above the burst is capped to it
+   * @return zero when the tokens were taken, otherwise the time until the client has enough tokens
+   */
+  public Duration tryAcquire(String client, double cost) {
+    if (!enabled) {
+      return Duration.ZERO;
+    }
+    long now = System.nanoTime();
+    if (buckets.size() > maxClients) {
+      buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+    long waitNanos = buckets.computeIfAbsent(client, ignored -> new Bucket(burst, now))
+        .take(Math.min(cost, burst), now);
+    return Duration.ofNanos(waitNanos);
+  }
+
+  public int trackedClients() {
+    return buckets.size();
+  }
+
+  private final class Bucket {
+    private double tokens;
+    private long refilledAt;
+
+    private Bucket(double tokens, long now) {
+      this.tokens = tokens;
+      this.refilledAt = now;
+    }
+
+    synchronized long take(double cost, long now) {
+      refill(now);
+      if (tokens >= cost) {
+        tokens -= cost;
+        return 0;
+      }
+      return (long) Math.ceil((cost - tokens) / ratePerNano);
+    }
+
+    synchronized boolean isFull(long now) {
+      refill(now);
+      return tokens >= burst;
+    }
+
+    private void refill(long now) {
+      tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerNano);
+      refilledAt = now;
+    }
+  }
+}
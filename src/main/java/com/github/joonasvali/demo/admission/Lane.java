@@ -0,0 +1,20 @@
+package com.github.joonasvali.demo.admission;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Requests to a group of endpoints that share a wait queue. When requests wait for admission, lanes with a lower
+ * {@code priority} value are served first, so cheap searches are not stuck behind expensive joke generations.
+ *
+ * @param paths request paths of the lane, matched exactly
+ * @param queueCapacity requests that may wait for admission, further requests are rejected right away
+ * @param maxWait longest wait for admission, less when the request deadline is nearer
+ * @param cost tokens taken from the rate limit of the client per request
+ */
+public record Lane(String name, int priority, List<String> paths, int queueCapacity, Duration maxWait, double cost) {
+
+  public Lane {
+    paths = List.copyOf(paths);
+  }
+}
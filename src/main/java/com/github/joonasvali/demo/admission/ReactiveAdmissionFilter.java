@@ -0,0 +1,69 @@
+package com.github.joonasvali.demo.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Reactive counterpart of {@link AdmissionFilter}, a request waiting for admission does not hold a thread.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAdmissionFilter implements WebFilter {
+
+  private final AdmissionController admissionController;
+  private final String clientHeader;
+
+  public ReactiveAdmissionFilter(AdmissionController admissionController,
+                                 @Value("${demo.admission.client.header:}") String clientHeader) {
+    this.admissionController = admissionController;
+    this.clientHeader = clientHeader;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpRequest request = exchange.getRequest();
+    Optional<Lane> lane = admissionController.laneFor(request.getPath().pathWithinApplication().value());
+    if (lane.isEmpty()) {
+      return chain.filter(exchange);
+    }
+
+    InetSocketAddress remoteAddress = request.getRemoteAddress();
+    String client = AdmissionFilter.client(clientHeader, clientHeader.isBlank() ? null : request.getHeaders().getFirst(clientHeader),
+        remoteAddress == null || remoteAddress.getAddress() == null ? null : remoteAddress.getAddress().getHostAddress());
+    return admissionController.acquireReactive(lane.get(), client)
+        .onErrorResume(AdmissionRejectedException.class, e -> reject(exchange.getResponse(), e).then(Mono.empty()))
+        .flatMap(permit -> chain.filter(exchange).doFinally(signal -> {
+          if (signal == SignalType.CANCEL) {
+            permit.cancel();
+          } else {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            permit.release(signal == SignalType.ON_ERROR ? 500 : status == null ? 200 : status.value());
+          }
+        }));
+  }
+
+  private static Mono<Void> reject(ServerHttpResponse response, AdmissionRejectedException e) {
+    response.setStatusCode(e.getStatus());
+    response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+    response.getHeaders().setContentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8));
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(e.getMessage().getBytes(StandardCharsets.UTF_8))));
+  }
+}
@@ -0,0 +1,148 @@
+package com.github.joonasvali.demo.batch;
+
+import com.github.joonasvali.demo.ChatService;
+import com.github.joonasvali.demo.VectorDatabaseService;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.model.JokeBatchResult;
+import com.github.joonasvali.demo.resilience.Deadline;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates many jokes in one call. Subjects are fanned out over a bounded pool of virtual threads,
+ * failures are recorded per item without aborting the batch and all generated jokes are stored
+ * with a single vector store insert. Every item is a fresh model generation, a subject the model
+ * cannot answer fails instead of falling back to a stored joke. The deadline of the calling request is
+ * bound to every item, so that items still generating when it passes give up.
+ */
+@Service
+public class JokeBatchService {
+
+  private static final Logger logger = LoggerFactory.getLogger(JokeBatchService.class);
+
+  private final ChatService chatService;
+  private final VectorDatabaseService vectorDatabaseService;
+  private final int parallelism;
+  private final int maxItems;
+
+  private final Counter succeededItems;
+  private final Counter failedItems;
+
+  public JokeBatchService(ChatService chatService, VectorDatabaseService vectorDatabaseService,
+                          MeterRegistry meterRegistry,
+                          @Value("${demo.batch.parallelism:8}") int parallelism,
+                          @Value("${demo.batch.max-items:500}") int maxItems) {
+    this.chatService = chatService;
+    this.vectorDatabaseService = vectorDatabaseService;
+    this.parallelism = Math.max(1, parallelism);
+    this.maxItems = maxItems;
+
+    this.succeededItems = Counter.builder("joke.batch.items").tag("outcome", "ok").register(meterRegistry);
+    this.failedItems = Counter.builder("joke.batch.items").tag("outcome", "failed").register(meterRegistry);
+  }
+
+  public int getMaxItems() {
+    return maxItems;
+  }
+
+  /**
+   * Subjects for a "generate N across all topics" batch: the topic catalog in random order,
+   * repeated when more jokes than topics are requested
+   * @param count number of subjects
+   */
+  public List<String> topicSubjects(int count) {
+    List<String> topics = new ArrayList<>(RandomTopicTools.topics());
+    Collections.shuffle(topics);
+    List<String> subjects = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      subjects.add(topics.get(i % topics.size()));
+    }
+    return subjects;
+  }
+
+  /**
+   * Generate one joke per subject and store the successful ones
+   * @param subjects joke subjects, at most {@link #getMaxItems()}
+   * @return per item status and batch totals
+   */
+  public JokeBatchResult generate(List<String> subjects) {
+    if (subjects.size() > maxItems) {
+      throw new IllegalArgumentException("A batch can hold at most " + maxItems + " subjects, got " + subjects.size());
+    }
+    long start = System.nanoTime();
+
+    Optional<Deadline> deadline = Deadline.current();
+    List<Future<JokeBatchResult.Item>> futures = new ArrayList<>(subjects.size());
+    try (ExecutorService executor = Executors.newFixedThreadPool(parallelism, Thread.ofVirtual().name("joke-batch-", 0).factory())) {
+      for (int i = 0; i < subjects.size(); i++) {
+        int index = i;
+        String subject = subjects.get(i);
+        futures.add(executor.submit(() -> generateItem(index, subject, deadline)));
+      }
+    }
+
+    List<JokeBatchResult.Item> items = new ArrayList<>(futures.size());
+    List<Joke> jokes = new ArrayList<>(futures.size());
+    for (int i = 0; i < futures.size(); i++) {
+      JokeBatchResult.Item item = resultOf(futures.get(i), i, subjects.get(i));
+      items.add(item);
+      if (item.joke() != null) {
+        jokes.add(item.joke());
+      }
+    }
+
+    int stored = 0;
+    try {
+      stored = vectorDatabaseService.storeJokes(jokes);
+    } catch (Exception e) {
+      // The generated jokes are still returned to the caller
+      logger.error("Could not store batch of {} joke(s): {}", jokes.size(), e.getMessage());
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    double jokesPerSecond = elapsedNanos > 0 ? jokes.size() * 1e9 / elapsedNanos : 0;
+    int failed = subjects.size() - jokes.size();
+
+    logger.info("Generated batch of {} joke(s) in {} ms ({} failed, {} stored, {} jokes/s)",
+        subjects.size(), elapsedNanos / 1_000_000, failed, stored, String.format("%.2f", jokesPerSecond));
+    return new JokeBatchResult(items, jokes.size(), failed, stored, elapsedNanos / 1_000_000, jokesPerSecond);
+  }
+
+  private JokeBatchResult.Item generateItem(int index, String subject, Optional<Deadline> deadline) {
+    long start = System.nanoTime();
+    try (Deadline.Scope scope = deadline.map(Deadline::bind).orElse(() -> { })) {
+      // Pooled, cached or stored jokes would be stored again as new ones, and a stored fallback joke is not a success
+      Joke joke = chatService.generateFreshJoke(subject);
+      succeededItems.increment();
+      return new JokeBatchResult.Item(index, subject, "ok", joke, null, (System.nanoTime() - start) / 1_000_000);
+    } catch (Exception e) {
+      failedItems.increment();
+      logger.warn("Batch item {} ('{}') failed: {}", index, subject, e.getMessage());
+      return new JokeBatchResult.Item(index, subject, "failed", null, e.getMessage(), (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+
+  private static JokeBatchResult.Item resultOf(Future<JokeBatchResult.Item> future, int index, String subject) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new JokeBatchResult.Item(index, subject, "failed", null, "Interrupted", 0);
+    } catch (ExecutionException e) {
+      return new JokeBatchResult.Item(index, subject, "failed", null, e.getCause().getMessage(), 0);
+    }
+  }
+}
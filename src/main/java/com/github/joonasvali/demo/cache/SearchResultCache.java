@@ -0,0 +1,120 @@
+package com.github.joonasvali.demo.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of vector search results stamped with the collection version they were read at.
+ * Writes to the collection bump the version; entries from an older version are dropped when they
+ * are next looked up instead of being purged eagerly.
+ */
+@Component
+public class SearchResultCache {
+
+  private final boolean enabled;
+  private final int maxEntries;
+  private final AtomicLong version = new AtomicLong();
+
+  // Access-ordered so that iteration starts from the least recently used query
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  public SearchResultCache(MeterRegistry meterRegistry,
+                           @Value("${demo.search-cache.enabled:true}") boolean enabled,
+                           @Value("${demo.search-cache.max-entries:1000}") int maxEntries) {
+    this.enabled = enabled;
+    this.maxEntries = maxEntries;
+
+    this.hits = Counter.builder("vector.search.cache").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("vector.search.cache").tag("result", "miss").register(meterRegistry);
+    this.evictions = Counter.builder("vector.search.cache.evictions").register(meterRegistry);
+    Gauge.builder("vector.search.cache.size", this, SearchResultCache::size).register(meterRegistry);
+  }
+
+  /**
+   * @return the current collection version, read it before searching and pass it to {@link #put}
+   */
+  public long version() {
+    return version.get();
+  }
+
+  /**
+   * Mark every cached result as stale, called whenever documents are added to the collection
+   */
+  public void bumpVersion() {
+    version.incrementAndGet();
+  }
+
+  /**
+   * @param key normalized query, top-K, threshold and filter
+   * @return results cached at the current collection version
+   */
+  public Optional<List<Document>> get(String key) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    long current = version.get();
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.version == current) {
+        hits.increment();
+        return Optional.of(entry.results);
+      }
+      if (entry != null) {
+        entries.remove(key);
+        evictions.increment();
+      }
+    }
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @param key normalized query, top-K, threshold and filter
+   * @param readVersion the collection version read before the search was started
+   * @param results the search results
+   */
+  public void put(String key, long readVersion, List<Document> results) {
+    // A write that landed during the search makes these results stale already
+    if (!enabled || readVersion != version.get()) {
+      return;
+    }
+    synchronized (entries) {
+      entries.put(key, new Entry(readVersion, List.copyOf(results)));
+      while (entries.size() > maxEntries) {
+        Iterator<String> eldest = entries.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private record Entry(long version, List<Document> results) {
+  }
+}
@@ -0,0 +1,255 @@
+package com.github.joonasvali.demo.cache;
+
+import com.github.joonasvali.demo.model.Joke;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process cache of generated jokes keyed by the meaning of the requested subject.
+ * Subjects are normalized and embedded; a lookup is a hit when a cached subject is within the
+ * configured cosine similarity threshold and already holds enough jokes to satisfy the variety quota.
+ */
+@Component
+public class SemanticJokeCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(SemanticJokeCache.class);
+
+  private final EmbeddingModel embeddingModel;
+  private final boolean enabled;
+  private final double similarityThreshold;
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final int variety;
+
+  // Access-ordered so that iteration starts from the least recently used subject
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter evictions;
+
+  public SemanticJokeCache(EmbeddingModel embeddingModel,
+                           MeterRegistry meterRegistry,
+                           @Value("${demo.semantic-cache.enabled:true}") boolean enabled,
+                           @Value("${demo.semantic-cache.similarity-threshold:0.92}") double similarityThreshold,
+                           @Value("${demo.semantic-cache.ttl:30m}") Duration ttl,
+                           @Value("${demo.semantic-cache.max-entries:1000}") int maxEntries,
+                           @Value("${demo.semantic-cache.variety:3}") int variety) {
+    this.embeddingModel = embeddingModel;
+    this.enabled = enabled;
+    this.similarityThreshold = similarityThreshold;
+    this.ttlNanos = ttl.toNanos();
+    this.maxEntries = maxEntries;
+    this.variety = Math.max(1, variety);
+
+    this.hits = Counter.builder("joke.cache.semantic").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("joke.cache.semantic").tag("result", "miss").register(meterRegistry);
+    this.evictions = Counter.builder("joke.cache.semantic.evictions").register(meterRegistry);
+    Gauge.builder("joke.cache.semantic.size", this, SemanticJokeCache::size).register(meterRegistry);
+  }
+
+  /**
+   * Looks up a cached joke for a subject
+   * @param subject the requested joke subject
+   * @return a cached joke if a semantically equivalent subject has a full variety quota
+   */
+  public Optional<Joke> lookup(String subject) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    String key = normalize(subject);
+    long now = System.nanoTime();
+
+    synchronized (entries) {
+      Entry exact = entries.get(key);
+      if (exact != null && !exact.isExpired(now, ttlNanos)) {
+        return serve(exact, key);
+      }
+    }
+
+    float[] vector = embed(key);
+    if (vector == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    synchronized (entries) {
+      Map.Entry<String, Entry> closest = closest(vector, now);
+      if (closest != null) {
+        // Touch the matched entry so that it counts as recently used
+        entries.get(closest.getKey());
+        logger.debug("Semantic cache matched '{}' to '{}'", key, closest.getKey());
+        return serve(closest.getValue(), closest.getKey());
+      }
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * Stores a freshly generated joke for a subject
+   * @param subject the requested joke subject
+   * @param joke the generated joke
+   */
+  public void put(String subject, Joke joke) {
+    if (!enabled || joke == null) {
+      return;
+    }
+    String key = normalize(subject);
+    long now = System.nanoTime();
+
+    synchronized (entries) {
+      Entry existing = entries.get(key);
+      if (existing != null && !existing.isExpired(now, ttlNanos)) {
+        if (existing.jokes.size() < variety) {
+          existing.jokes.add(joke);
+        }
+        return;
+      }
+    }
+
+    float[] vector = embed(key);
+    if (vector == null) {
+      return;
+    }
+
+    synchronized (entries) {
+      // A joke for a subject that matched another one counts towards that subject's quota, which its lookups serve from
+      Map.Entry<String, Entry> closest = closest(vector, now);
+      if (closest != null) {
+        if (closest.getValue().jokes.size() < variety) {
+          closest.getValue().jokes.add(joke);
+        }
+        return;
+      }
+      Entry entry = new Entry(vector, now);
+      entry.jokes.add(joke);
+      entries.put(key, entry);
+      while (entries.size() > maxEntries) {
+        Iterator<String> eldest = entries.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * Find the live subject most similar to a vector, dropping expired entries on the way. Called holding the lock.
+   * @return the subject and its entry, or null when none reaches the similarity threshold
+   */
+  private Map.Entry<String, Entry> closest(float[] vector, long now) {
+    Map.Entry<String, Entry> best = null;
+    double bestScore = similarityThreshold;
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Entry> candidate = iterator.next();
+      if (candidate.getValue().isExpired(now, ttlNanos)) {
+        iterator.remove();
+        evictions.increment();
+        continue;
+      }
+      double score = dot(vector, candidate.getValue().vector);
+      if (score >= bestScore) {
+        bestScore = score;
+        best = candidate;
+      }
+    }
+    return best;
+  }
+
+  private Optional<Joke> serve(Entry entry, String key) {
+    // Until the quota is filled every request generates a fresh joke for this subject
+    if (entry.jokes.size() < variety) {
+      misses.increment();
+      return Optional.empty();
+    }
+    hits.increment();
+    logger.debug("Semantic cache hit for '{}'", key);
+    return Optional.of(entry.jokes.get(ThreadLocalRandom.current().nextInt(entry.jokes.size())));
+  }
+
+  private float[] embed(String text) {
+    try {
+      float[] vector = embeddingModel.embed(text);
+      double norm = Math.sqrt(dot(vector, vector));
+      if (norm > 0) {
+        for (int i = 0; i < vector.length; i++) {
+          vector[i] /= (float) norm;
+        }
+      }
+      return vector;
+    } catch (Exception e) {
+      logger.warn("Could not embed subject '{}' for semantic cache: {}", text, e.getMessage());
+      return null;
+    }
+  }
+
+  private static double dot(float[] a, float[] b) {
+    if (a.length != b.length) {
+      return 0;
+    }
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Normalizes a subject so that trivially different spellings share a cache key
+   * @param subject the raw subject
+   * @return lower-cased subject without surrounding articles, punctuation and extra whitespace
+   */
+  public static String normalize(String subject) {
+    String normalized = subject == null ? "" : subject.toLowerCase(Locale.ROOT)
+        .replaceAll("[^\\p{L}\\p{N}\\s]", " ")
+        .replaceAll("\\s+", " ")
+        .trim();
+    return normalized.replaceFirst("^(a|an|the) ", "");
+  }
+
+  private static final class Entry {
+    private final float[] vector;
+    private final long createdAt;
+    private final List<Joke> jokes = new ArrayList<>();
+
+    private Entry(float[] vector, long createdAt) {
+      this.vector = vector;
+      this.createdAt = createdAt;
+    }
+
+    private boolean isExpired(long now, long ttlNanos) {
+      return now - createdAt > ttlNanos;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.github.joonasvali.demo.concurrency;
+
+import com.github.joonasvali.demo.resilience.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Semaphore based concurrency limit for calls to a single downstream dependency.
+ * Callers wait at most {@code maxWait} for a permit and are rejected afterwards,
+ * so a slow dependency cannot hold every request thread.
+ */
+public class Bulkhead {
+
+  private final String name;
+  private final int maxConcurrent;
+  private final Duration maxWait;
+  private final Semaphore semaphore;
+  private final Counter rejections;
+
+  public Bulkhead(String name, int maxConcurrent, Duration maxWait, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.maxConcurrent = maxConcurrent;
+    this.maxWait = maxWait;
+    this.semaphore = new Semaphore(maxConcurrent, true);
+
+    Gauge.builder("bulkhead.permits.in.use", this, Bulkhead::inUse).tag("name", name).register(meterRegistry);
+    Gauge.builder("bulkhead.permits.max", this, Bulkhead::getMaxConcurrent).tag("name", name).register(meterRegistry);
+    this.rejections = Counter.builder("bulkhead.rejections").tag("name", name).register(meterRegistry);
+  }
+
+  /**
+   * Acquire a permit, waiting up to the configured maximum wait or until the request deadline, whichever is sooner
+   * @return a permit that must be closed once the call has finished
+   * @throws BulkheadFullException if no permit became available in time
+   */
+  public Permit acquire() {
+    try {
+      Duration wait = Deadline.current().map(deadline -> deadline.cap(maxWait)).orElse(maxWait);
+      if (!semaphore.tryAcquire(wait.toNanos(), TimeUnit.NANOSECONDS)) {
+        rejections.increment();
+        throw new BulkheadFullException(name);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BulkheadFullException(name);
+    }
+    return new Permit(semaphore);
+  }
+
+  /**
+   * Acquire a permit without waiting, for callers that must not block such as event loop threads
+   * @return a permit that must be closed once the call has finished
+   * @throws BulkheadFullException if no permit is available
+   */
+  public Permit tryAcquire() {
+    if (!semaphore.tryAcquire()) {
+      rejections.increment();
+      throw new BulkheadFullException(name);
+    }
+    return new Permit(semaphore);
+  }
+
+  /**
+   * Run a call inside the bulkhead
+   * @param call the call to run
+   * @return the result of the call
+   */
+  public <T> T execute(Supplier<T> call) {
+    try (Permit ignored = acquire()) {
+      return call.get();
+    }
+  }
+
+  public void run(Runnable call) {
+    try (Permit ignored = acquire()) {
+      call.run();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  public int inUse() {
+    return maxConcurrent - semaphore.availablePermits();
+  }
+
+  /**
+   * A held bulkhead permit, releasing it more than once has no effect.
+   */
+  public static final class Permit implements AutoCloseable {
+    private final Semaphore semaphore;
+    private boolean released;
+
+    private Permit(Semaphore semaphore) {
+      this.semaphore = semaphore;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!released) {
+        released = true;
+        semaphore.release();
+      }
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.github.joonasvali.demo.concurrency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Separate concurrency limits for the language model, the embedding model and the vector store,
+ * so that a slow dependency only exhausts its own permits.
+ */
+@Configuration
+public class BulkheadConfiguration {
+
+  @Bean
+  public Bulkhead llmBulkhead(MeterRegistry meterRegistry,
+                              @Value("${demo.bulkhead.llm.max-concurrent:16}") int maxConcurrent,
+                              @Value("${demo.bulkhead.llm.max-wait:2s}") Duration maxWait) {
+    return new Bulkhead("llm", maxConcurrent, maxWait, meterRegistry);
+  }
+
+  @Bean
+  public Bulkhead embeddingBulkhead(MeterRegistry meterRegistry,
+                                    @Value("${demo.bulkhead.embedding.max-concurrent:32}") int maxConcurrent,
+                                    @Value("${demo.bulkhead.embedding.max-wait:1s}") Duration maxWait) {
+    return new Bulkhead("embedding", maxConcurrent, maxWait, meterRegistry);
+  }
+
+  @Bean
+  public Bulkhead vectorStoreBulkhead(MeterRegistry meterRegistry,
+                                      @Value("${demo.bulkhead.vector-store.max-concurrent:32}") int maxConcurrent,
+                                      @Value("${demo.bulkhead.vector-store.max-wait:1s}") Duration maxWait) {
+    return new Bulkhead("vector-store", maxConcurrent, maxWait, meterRegistry);
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.joonasvali.demo.concurrency;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embedding model decorator that runs every call to the delegate inside a bulkhead.
+ */
+public class BulkheadEmbeddingModel implements EmbeddingModel {
+
+  private final EmbeddingModel delegate;
+  private final Bulkhead bulkhead;
+
+  public BulkheadEmbeddingModel(EmbeddingModel delegate, Bulkhead bulkhead) {
+    this.delegate = delegate;
+    this.bulkhead = bulkhead;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    return bulkhead.execute(() -> delegate.call(request));
+  }
+
+  @Override
+  public float[] embed(Document document) {
+    return bulkhead.execute(() -> delegate.embed(document));
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+}
@@ -0,0 +1,23 @@
+package com.github.joonasvali.demo.concurrency;
+
+/**
+ * Thrown when a call is rejected because its bulkhead has no free permits.
+ */
+public class BulkheadFullException extends RuntimeException {
+
+  private final String bulkheadName;
+
+  /**
+   * Constructs a BulkheadFullException for the named bulkhead.
+   *
+   * @param bulkheadName the name of the bulkhead that rejected the call
+   */
+  public BulkheadFullException(String bulkheadName) {
+    super("Too many concurrent " + bulkheadName + " calls");
+    this.bulkheadName = bulkheadName;
+  }
+
+  public String getBulkheadName() {
+    return bulkheadName;
+  }
+}
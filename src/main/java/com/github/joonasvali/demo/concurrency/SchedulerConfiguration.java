@@ -0,0 +1,29 @@
+package com.github.joonasvali.demo.concurrency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Bounded scheduler for the blocking calls of the reactive request path (Milvus SDK, embedding lookups),
+ * so that they never run on event loop threads. Tasks beyond the queue capacity are rejected
+ * instead of piling up. Batches get a scheduler of their own, a long batch waiting for its items must not
+ * take threads from request path calls.
+ */
+@Configuration
+public class SchedulerConfiguration {
+
+  @Bean(destroyMethod = "dispose")
+  public Scheduler blockingScheduler(@Value("${demo.reactive.blocking.thread-cap:32}") int threadCap,
+                                     @Value("${demo.reactive.blocking.queued-task-cap:1000}") int queuedTaskCap) {
+    return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "blocking-io");
+  }
+
+  @Bean(destroyMethod = "dispose")
+  public Scheduler batchScheduler(@Value("${demo.reactive.batch.thread-cap:4}") int threadCap,
+                                  @Value("${demo.reactive.batch.queued-task-cap:16}") int queuedTaskCap) {
+    return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, "joke-batch");
+  }
+}
@@ -0,0 +1,122 @@
+package com.github.joonasvali.demo.concurrency;
+
+import com.github.joonasvali.demo.resilience.Deadline;
+import com.github.joonasvali.demo.resilience.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one. The first caller runs the call,
+ * callers arriving while it is in flight wait for and share its result or exception.
+ * A successful result keeps being shared for the configured window after it completed,
+ * a failure is forgotten immediately so that the next caller retries. A waiting caller gives up
+ * at the deadline of its own request, the leader's call keeps running for the others.
+ */
+public class SingleFlight<V> {
+
+  private final String name;
+  private final boolean enabled;
+  private final Duration window;
+  private final ConcurrentHashMap<String, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+  private final Counter collapsed;
+  private final Counter deadlineExceeded;
+
+  public SingleFlight(String name, boolean enabled, Duration window, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.enabled = enabled;
+    this.window = window;
+
+    Gauge.builder("singleflight.in.flight", flights, ConcurrentHashMap::size).tag("name", name).register(meterRegistry);
+    this.collapsed = Counter.builder("singleflight.collapsed").tag("name", name).register(meterRegistry);
+    this.deadlineExceeded = Counter.builder("deadline.exceeded").tag("name", "singleflight-" + name).register(meterRegistry);
+  }
+
+  /**
+   * Run a call, or join the identical call already in flight
+   * @param key normalized key identifying identical calls
+   * @param call the call to run when no identical call is in flight
+   * @return the result of the call
+   * @throws DeadlineExceededException if the deadline of the calling thread passed while waiting for an identical call
+   */
+  public V execute(String key, Supplier<V> call) {
+    if (!enabled) {
+      return call.get();
+    }
+    CompletableFuture<V> flight = new CompletableFuture<>();
+    CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+    if (existing != null) {
+      collapsed.increment();
+      return await(existing);
+    }
+
+    boolean succeeded = false;
+    try {
+      V value = call.get();
+      flight.complete(value);
+      succeeded = true;
+      return value;
+    } catch (RuntimeException | Error e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      release(key, flight, succeeded);
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  private void release(String key, CompletableFuture<V> flight, boolean succeeded) {
+    if (!succeeded || window.isZero() || window.isNegative()) {
+      flights.remove(key, flight);
+    } else {
+      CompletableFuture.delayedExecutor(window.toNanos(), TimeUnit.NANOSECONDS)
+          .execute(() -> flights.remove(key, flight));
+    }
+  }
+
+  private V await(CompletableFuture<V> flight) {
+    Optional<Deadline> deadline = Deadline.current();
+    if (deadline.isEmpty()) {
+      return join(flight);
+    }
+    try {
+      return flight.get(Math.max(0, deadline.get().remainingNanos()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      deadlineExceeded.increment();
+      throw new DeadlineExceededException("singleflight " + name);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DeadlineExceededException("singleflight " + name);
+    } catch (ExecutionException e) {
+      return join(flight);
+    }
+  }
+
+  private static <V> V join(CompletableFuture<V> flight) {
+    try {
+      return flight.join();
+    } catch (CompletionException e) {
+      // Rethrow the leader's exception as is so that waiters see the same failure
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.github.joonasvali.demo.concurrency;
+
+import com.github.joonasvali.demo.model.Joke;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Request coalescing for joke generation and joke search, so that a burst of identical
+ * requests costs one model call or one vector store query.
+ */
+@Configuration
+public class SingleFlightConfiguration {
+
+  @Bean
+  public SingleFlight<Joke> jokeSingleFlight(MeterRegistry meterRegistry,
+                                             @Value("${demo.single-flight.enabled:true}") boolean enabled,
+                                             @Value("${demo.single-flight.joke.window:0ms}") Duration window) {
+    return new SingleFlight<>("joke", enabled, window, meterRegistry);
+  }
+
+  @Bean
+  public SingleFlight<List<Document>> searchSingleFlight(MeterRegistry meterRegistry,
+                                                         @Value("${demo.single-flight.enabled:true}") boolean enabled,
+                                                         @Value("${demo.single-flight.search.window:200ms}") Duration window) {
+    return new SingleFlight<>("search", enabled, window, meterRegistry);
+  }
+}
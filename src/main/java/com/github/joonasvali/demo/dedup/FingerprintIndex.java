@@ -0,0 +1,165 @@
+package com.github.joonasvali.demo.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Bounded index of 64-bit fingerprints answering "which stored fingerprints are within a small
+ * Hamming distance". Fingerprints are split into {@code maxDistance + 1} bands (at least four, so that
+ * no band is wider than 16 bits); two fingerprints at most {@code maxDistance} bits apart always agree
+ * on at least one band, so only entries sharing a band are compared. Every band narrows the candidates
+ * less as the distance grows, hence the cap of {@value #MAX_DISTANCE} bits, at which a lookup compares
+ * about every stored fingerprint. Each band maps its values directly to the head of a doubly linked
+ * list of slots, all in primitive arrays. When full, the oldest slot is reused; a removed slot stays
+ * empty until its turn comes.
+ *
+ * <p>The index is not thread safe, callers coordinate access.
+ */
+class FingerprintIndex {
+
+  static final int MAX_DISTANCE = 15;
+  private static final int MIN_BANDS = 4;
+  private static final int NONE = -1;
+
+  private final int maxDistance;
+  private final int bands;
+  private final int[] shifts;
+  private final int[] masks;
+  private final int capacity;
+  private final long[] fingerprints;
+  private final String[] texts;
+  private final int[][] heads;
+  private final int[][] next;
+  private final int[][] prev;
+  private final boolean[] removed;
+  private int size;
+  private int holes;
+  private int cursor;
+
+  /**
+   * @param maxDistance largest distance {@link #nearest(long, int)} is guaranteed to find, at most {@value #MAX_DISTANCE}
+   */
+  FingerprintIndex(int capacity, int maxDistance) {
+    if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+      throw new IllegalArgumentException("Distance must be between 0 and " + MAX_DISTANCE + ", got " + maxDistance);
+    }
+    this.maxDistance = maxDistance;
+    this.bands = Math.max(MIN_BANDS, maxDistance + 1);
+    this.shifts = new int[bands];
+    this.masks = new int[bands];
+    this.heads = new int[bands][];
+    // The first 64 % bands bands are one bit wider
+    int shift = 0;
+    for (int band = 0; band < bands; band++) {
+      int width = Long.SIZE / bands + (band < Long.SIZE % bands ? 1 : 0);
+      shifts[band] = shift;
+      masks[band] = (1 << width) - 1;
+      heads[band] = new int[1 << width];
+      Arrays.fill(heads[band], NONE);
+      shift += width;
+    }
+    this.capacity = Math.max(1, capacity);
+    this.fingerprints = new long[this.capacity];
+    this.texts = new String[this.capacity];
+    this.removed = new boolean[this.capacity];
+    this.next = new int[bands][this.capacity];
+    this.prev = new int[bands][this.capacity];
+  }
+
+  /**
+   * @param maxDistance at most the distance the index was built for
+   * @return slot of the stored fingerprint closest to {@code fingerprint} within {@code maxDistance},
+   *     or -1 when there is none
+   */
+  int nearest(long fingerprint, int maxDistance) {
+    if (maxDistance > this.maxDistance) {
+      throw new IllegalArgumentException("Index was built for distances up to " + this.maxDistance + ", got " + maxDistance);
+    }
+    int best = NONE;
+    int bestDistance = maxDistance + 1;
+    for (int band = 0; band < bands; band++) {
+      for (int slot = heads[band][bandValue(fingerprint, band)]; slot != NONE; slot = next[band][slot]) {
+        int distance = SimHash.distance(fingerprint, fingerprints[slot]);
+        if (distance < bestDistance) {
+          bestDistance = distance;
+          best = slot;
+        }
+      }
+    }
+    return best;
+  }
+
+  void add(long fingerprint, String text) {
+    int slot;
+    if (size < capacity) {
+      slot = size++;
+    } else {
+      slot = cursor;
+      cursor = (cursor + 1) % capacity;
+      if (removed[slot]) {
+        removed[slot] = false;
+        holes--;
+      } else {
+        for (int band = 0; band < bands; band++) {
+          unlink(band, slot);
+        }
+      }
+    }
+    fingerprints[slot] = fingerprint;
+    texts[slot] = text;
+    for (int band = 0; band < bands; band++) {
+      int head = heads[band][bandValue(fingerprint, band)];
+      prev[band][slot] = NONE;
+      next[band][slot] = head;
+      if (head != NONE) {
+        prev[band][head] = slot;
+      }
+      heads[band][bandValue(fingerprint, band)] = slot;
+    }
+  }
+
+  /**
+   * Remove the most recently added entry with this fingerprint and text
+   * @return whether an entry was removed
+   */
+  boolean remove(long fingerprint, String text) {
+    for (int slot = heads[0][bandValue(fingerprint, 0)]; slot != NONE; slot = next[0][slot]) {
+      if (fingerprints[slot] == fingerprint && text.equals(texts[slot])) {
+        for (int band = 0; band < bands; band++) {
+          unlink(band, slot);
+        }
+        texts[slot] = null;
+        removed[slot] = true;
+        holes++;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  long fingerprint(int slot) {
+    return fingerprints[slot];
+  }
+
+  String text(int slot) {
+    return texts[slot];
+  }
+
+  int size() {
+    return size - holes;
+  }
+
+  private void unlink(int band, int slot) {
+    if (prev[band][slot] != NONE) {
+      next[band][prev[band][slot]] = next[band][slot];
+    } else {
+      heads[band][bandValue(fingerprints[slot], band)] = next[band][slot];
+    }
+    if (next[band][slot] != NONE) {
+      prev[band][next[band][slot]] = prev[band][slot];
+    }
+  }
+
+  private int bandValue(long fingerprint, int band) {
+    return (int) (fingerprint >>> shifts[band]) & masks[band];
+  }
+}
@@ -0,0 +1,161 @@
+package com.github.joonasvali.demo.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Near-duplicate filter in front of the vector store. Joke texts are fingerprinted with {@link SimHash};
+ * a stored fingerprint within the duplicate distance rejects the joke outright, one within the
+ * uncertain distance is confirmed by comparing the embeddings of both texts. Only accepted jokes
+ * are remembered, so the filter never pays for an insert it later rejects. An accepted joke that
+ * then fails to be stored must be given back with {@link #forget(String)}, otherwise a retry of it
+ * would be turned away as a duplicate.
+ */
+@Component
+public class JokeDeduplicator {
+
+  private static final Logger logger = LoggerFactory.getLogger(JokeDeduplicator.class);
+
+  private final EmbeddingModel embeddingModel;
+  private final boolean enabled;
+  private final int duplicateDistance;
+  private final int uncertainDistance;
+  private final double similarityThreshold;
+  private final FingerprintIndex index;
+
+  private final Counter unique;
+  private final Counter lexicalDuplicates;
+  private final Counter confirmedDuplicates;
+  private final Counter confirmedUnique;
+
+  public JokeDeduplicator(EmbeddingModel embeddingModel,
+                          MeterRegistry meterRegistry,
+                          @Value("${demo.dedup.enabled:true}") boolean enabled,
+                          @Value("${demo.dedup.max-entries:50000}") int maxEntries,
+                          @Value("${demo.dedup.duplicate-distance:3}") int duplicateDistance,
+                          @Value("${demo.dedup.uncertain-distance:10}") int uncertainDistance,
+                          @Value("${demo.dedup.similarity-threshold:0.95}") double similarityThreshold) {
+    this.embeddingModel = embeddingModel;
+    this.enabled = enabled;
+    if (Math.max(duplicateDistance, uncertainDistance) > FingerprintIndex.MAX_DISTANCE) {
+      logger.warn("⚠️ Dedup distances above {} bits are not supported, using {}", FingerprintIndex.MAX_DISTANCE, FingerprintIndex.MAX_DISTANCE);
+    }
+    this.duplicateDistance = Math.min(duplicateDistance, FingerprintIndex.MAX_DISTANCE);
+    this.uncertainDistance = Math.min(Math.max(duplicateDistance, uncertainDistance), FingerprintIndex.MAX_DISTANCE);
+    this.similarityThreshold = similarityThreshold;
+    this.index = new FingerprintIndex(maxEntries, this.uncertainDistance);
+
+    this.unique = Counter.builder("joke.dedup").tag("decision", "unique").register(meterRegistry);
+    this.lexicalDuplicates = Counter.builder("joke.dedup").tag("decision", "lexical-duplicate").register(meterRegistry);
+    this.confirmedDuplicates = Counter.builder("joke.dedup").tag("decision", "vector-duplicate").register(meterRegistry);
+    this.confirmedUnique = Counter.builder("joke.dedup").tag("decision", "vector-unique").register(meterRegistry);
+    Gauge.builder("joke.dedup.fingerprints", this, JokeDeduplicator::size).register(meterRegistry);
+  }
+
+  /**
+   * Check a joke against the jokes accepted so far and remember it when it is new
+   * @param content the joke text
+   * @return true if the joke is new, false if it is a near-duplicate of an accepted joke
+   */
+  public boolean accept(String content) {
+    if (!enabled) {
+      return true;
+    }
+    long fingerprint = SimHash.fingerprint(content);
+
+    String candidate;
+    int distance;
+    synchronized (index) {
+      int slot = index.nearest(fingerprint, uncertainDistance);
+      if (slot < 0) {
+        index.add(fingerprint, content);
+        unique.increment();
+        return true;
+      }
+      distance = SimHash.distance(fingerprint, index.fingerprint(slot));
+      if (distance <= duplicateDistance) {
+        lexicalDuplicates.increment();
+        logger.debug("Rejected joke as lexical near-duplicate at distance {}", distance);
+        return false;
+      }
+      candidate = index.text(slot);
+    }
+
+    // Lexically close but not conclusive, let the embeddings decide
+    if (isSemanticDuplicate(content, candidate)) {
+      confirmedDuplicates.increment();
+      logger.debug("Rejected joke as semantic duplicate at distance {}", distance);
+      return false;
+    }
+    synchronized (index) {
+      index.add(fingerprint, content);
+    }
+    confirmedUnique.increment();
+    return true;
+  }
+
+  /**
+   * Remember a joke that is known to be stored, e.g. restored from a snapshot, without checking it
+   * @param content the joke text
+   */
+  public void remember(String content) {
+    if (!enabled) {
+      return;
+    }
+    long fingerprint = SimHash.fingerprint(content);
+    synchronized (index) {
+      index.add(fingerprint, content);
+    }
+  }
+
+  /**
+   * Undo {@link #accept(String)} for a joke that was accepted but could not be stored
+   * @param content the joke text
+   */
+  public void forget(String content) {
+    if (!enabled) {
+      return;
+    }
+    long fingerprint = SimHash.fingerprint(content);
+    synchronized (index) {
+      index.remove(fingerprint, content);
+    }
+  }
+
+  public int size() {
+    synchronized (index) {
+      return index.size();
+    }
+  }
+
+  private boolean isSemanticDuplicate(String content, String candidate) {
+    try {
+      List<float[]> vectors = embeddingModel.embed(List.of(content, candidate));
+      return cosine(vectors.get(0), vectors.get(1)) >= similarityThreshold;
+    } catch (Exception e) {
+      // Without a confirmation keep the joke, a duplicate costs less than a lost joke
+      logger.warn("Could not confirm near-duplicate with embeddings: {}", e.getMessage());
+      return false;
+    }
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.joonasvali.demo.dedup;
+
+import java.util.Locale;
+
+/**
+ * 64-bit SimHash fingerprints of short texts. Texts are normalized to lower-case words, word unigrams
+ * and bigrams are hashed and every bit of the fingerprint takes the majority vote of the feature hashes,
+ * so texts that share most of their words end up a small Hamming distance apart.
+ */
+public final class SimHash {
+
+  private SimHash() {
+  }
+
+  public static long fingerprint(String text) {
+    String[] words = normalize(text);
+    int[] votes = new int[64];
+    for (int i = 0; i < words.length; i++) {
+      vote(votes, hash(words[i]));
+      if (i > 0) {
+        vote(votes, hash(words[i - 1] + ' ' + words[i]));
+      }
+    }
+    long fingerprint = 0;
+    for (int bit = 0; bit < 64; bit++) {
+      if (votes[bit] > 0) {
+        fingerprint |= 1L << bit;
+      }
+    }
+    return fingerprint;
+  }
+
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+  static String[] normalize(String text) {
+    String normalized = text == null ? "" : text.toLowerCase(Locale.ROOT)
+        .replaceAll("[^\\p{L}\\p{N}]+", " ")
+        .trim();
+    return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+  }
+
+  private static void vote(int[] votes, long hash) {
+    for (int bit = 0; bit < 64; bit++) {
+      votes[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+    }
+  }
+
+  /**
+   * FNV-1a over the characters followed by the MurmurHash3 finalizer to spread the bits
+   */
+  private static long hash(String feature) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < feature.length(); i++) {
+      h ^= feature.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
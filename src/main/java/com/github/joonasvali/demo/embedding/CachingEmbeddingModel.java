@@ -0,0 +1,109 @@
+package com.github.joonasvali.demo.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Embedding model decorator that answers repeated texts from an {@link EmbeddingCacheStore}.
+ * Entries are keyed by a SHA-256 hash of the model id and the text, only the texts missing from
+ * the cache are sent to the delegate, in a single request.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+  private final EmbeddingModel delegate;
+  private final EmbeddingCacheStore store;
+  private final String modelId;
+  private final Counter hits;
+  private final Counter misses;
+
+  public CachingEmbeddingModel(EmbeddingModel delegate, EmbeddingCacheStore store, String modelId, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.store = store;
+    this.modelId = modelId;
+    this.hits = Counter.builder("embedding.cache").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("embedding.cache").tag("result", "miss").register(meterRegistry);
+    Gauge.builder("embedding.cache.size", store, EmbeddingCacheStore::size).register(meterRegistry);
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    List<String> texts = request.getInstructions();
+    String model = request.getOptions() != null && request.getOptions().getModel() != null
+        ? request.getOptions().getModel() : modelId;
+
+    float[][] vectors = new float[texts.size()][];
+    long[][] cacheKeys = new long[texts.size()][];
+    List<String> missingTexts = new ArrayList<>();
+    List<Integer> missingIndexes = new ArrayList<>();
+
+    for (int i = 0; i < texts.size(); i++) {
+      cacheKeys[i] = key(model, texts.get(i));
+      vectors[i] = store.get(cacheKeys[i][0], cacheKeys[i][1]);
+      if (vectors[i] == null) {
+        missingTexts.add(texts.get(i));
+        missingIndexes.add(i);
+      }
+    }
+    hits.increment(texts.size() - missingTexts.size());
+    misses.increment(missingTexts.size());
+
+    EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+    if (!missingTexts.isEmpty()) {
+      EmbeddingResponse response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+      metadata = response.getMetadata();
+      List<Embedding> results = response.getResults();
+      for (int i = 0; i < results.size(); i++) {
+        Embedding embedding = results.get(i);
+        int position = embedding.getIndex() != null ? embedding.getIndex() : i;
+        int index = missingIndexes.get(position);
+        vectors[index] = embedding.getOutput();
+        store.put(cacheKeys[index][0], cacheKeys[index][1], vectors[index]);
+      }
+    }
+
+    List<Embedding> embeddings = new ArrayList<>(texts.size());
+    for (int i = 0; i < texts.size(); i++) {
+      embeddings.add(new Embedding(vectors[i], i));
+    }
+    return new EmbeddingResponse(embeddings, metadata);
+  }
+
+  @Override
+  public float[] embed(Document document) {
+    return embed(document.getFormattedContent());
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+
+  /**
+   * Content address of a text: the first 128 bits of SHA-256 over model id and text
+   */
+  static long[] key(String model, String text) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(model.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+      return new long[]{hash.getLong(), hash.getLong()};
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,319 @@
+package com.github.joonasvali.demo.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Fixed-capacity LRU store of embedding vectors addressed by a 128-bit content hash.
+ * Keys and vectors live in a single buffer outside the Java heap: a direct buffer,
+ * or a memory-mapped file when a path is given so that the entries survive a restart.
+ * The hash index and LRU links are primitive arrays rebuilt from the buffer on startup.
+ *
+ * <p>File layout: a header ({@code magic, version, dimensions, capacity, size}), then {@code capacity}
+ * key pairs as longs, then {@code capacity} CRC32C checksums over key and vector, then
+ * {@code capacity * dimensions} floats. Slots {@code 0..size-1} are in use.
+ *
+ * <p>An entry is written vector first, then its checksum, then its key, and the size last, so that a slot only
+ * counts once it is complete. The operating system may still write the mapped pages back in any order when the
+ * process dies, so entries whose checksum does not match are dropped on startup.
+ */
+public class EmbeddingCacheStore implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(EmbeddingCacheStore.class);
+
+  private static final int MAGIC = 0x454D4243; // "EMBC"
+  private static final int VERSION = 2;
+  private static final int HEADER_BYTES = 32;
+  private static final int SIZE_OFFSET = 16;
+  private static final int NONE = -1;
+
+  private final int dimensions;
+  private final int capacity;
+  private final ByteBuffer buffer;
+  private final LongBuffer keys;
+  private final IntBuffer checksums;
+  private final FloatBuffer vectors;
+  private final int vectorsOffset;
+  private final CRC32C crc = new CRC32C();
+  private final FileChannel channel;
+
+  // Open addressing table holding slot + 1, zero marks an empty bucket
+  private final int[] table;
+  private final int tableMask;
+
+  // Doubly linked LRU list over slots, head is the most recently used
+  private final int[] prev;
+  private final int[] next;
+  private int head = NONE;
+  private int tail = NONE;
+  private int size;
+
+  /**
+   * @param dimensions length of every stored vector
+   * @param capacity maximum number of vectors
+   * @param file optional file to memory-map, {@code null} keeps the store in a direct buffer
+   */
+  public EmbeddingCacheStore(int dimensions, int capacity, Path file) throws IOException {
+    long bytes = HEADER_BYTES + (long) capacity * (Long.BYTES * 2 + Integer.BYTES) + (long) capacity * dimensions * Float.BYTES;
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Embedding cache of " + capacity + " x " + dimensions + " does not fit in one buffer");
+    }
+    this.dimensions = dimensions;
+    this.capacity = capacity;
+
+    if (file != null) {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+      this.buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+    } else {
+      this.channel = null;
+      this.buffer = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    this.keys = buffer.slice(HEADER_BYTES, capacity * Long.BYTES * 2).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    this.checksums = buffer.slice(HEADER_BYTES + capacity * Long.BYTES * 2, capacity * Integer.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    this.vectorsOffset = HEADER_BYTES + capacity * (Long.BYTES * 2 + Integer.BYTES);
+    this.vectors = buffer.slice(vectorsOffset, capacity * dimensions * Float.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+
+    int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+    this.table = new int[tableSize];
+    this.tableMask = tableSize - 1;
+    this.prev = new int[capacity];
+    this.next = new int[capacity];
+
+    if (file != null && hasValidHeader()) {
+      int dropped = restore();
+      if (dropped > 0) {
+        logger.warn("⚠️ Dropped {} cached embedding(s) with a bad checksum from {}", dropped, file);
+      }
+      logger.info("Restored {} cached embedding(s) from {}", size, file);
+    } else {
+      writeHeader();
+    }
+  }
+
+  /**
+   * Look up a vector and mark it as recently used
+   * @return a copy of the stored vector or null when absent
+   */
+  public synchronized float[] get(long keyHi, long keyLo) {
+    int slot = find(keyHi, keyLo);
+    if (slot == NONE) {
+      return null;
+    }
+    moveToHead(slot);
+    float[] vector = new float[dimensions];
+    vectors.get(slot * dimensions, vector);
+    return vector;
+  }
+
+  /**
+   * Store a vector, evicting the least recently used entry when the store is full.
+   * Vectors with a different length than the store dimensions are ignored.
+   */
+  public synchronized void put(long keyHi, long keyLo, float[] vector) {
+    if (vector.length != dimensions) {
+      return;
+    }
+    int slot = find(keyHi, keyLo);
+    if (slot != NONE) {
+      moveToHead(slot);
+      vectors.put(slot * dimensions, vector);
+      checksums.put(slot, checksum(keyHi, keyLo, slot));
+      return;
+    }
+
+    boolean appended = size < capacity;
+    if (appended) {
+      slot = size;
+    } else {
+      slot = tail;
+      unlink(slot);
+      removeFromTable(slot);
+    }
+    vectors.put(slot * dimensions, vector);
+    checksums.put(slot, checksum(keyHi, keyLo, slot));
+    keys.put(slot * 2, keyHi);
+    keys.put(slot * 2 + 1, keyLo);
+    insertIntoTable(slot);
+    linkAtHead(slot);
+    if (appended) {
+      buffer.putInt(SIZE_OFFSET, ++size);
+    }
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  public int dimensions() {
+    return dimensions;
+  }
+
+  public synchronized void clear() {
+    Arrays.fill(table, 0);
+    head = NONE;
+    tail = NONE;
+    size = 0;
+    buffer.putInt(SIZE_OFFSET, 0);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel != null) {
+      ((MappedByteBuffer) buffer).force();
+      channel.close();
+    }
+  }
+
+  private int find(long keyHi, long keyLo) {
+    int bucket = bucket(keyLo);
+    while (table[bucket] != 0) {
+      int slot = table[bucket] - 1;
+      if (keys.get(slot * 2) == keyHi && keys.get(slot * 2 + 1) == keyLo) {
+        return slot;
+      }
+      bucket = (bucket + 1) & tableMask;
+    }
+    return NONE;
+  }
+
+  private void insertIntoTable(int slot) {
+    int bucket = bucket(keys.get(slot * 2 + 1));
+    while (table[bucket] != 0) {
+      bucket = (bucket + 1) & tableMask;
+    }
+    table[bucket] = slot + 1;
+  }
+
+  private void removeFromTable(int slot) {
+    int bucket = bucket(keys.get(slot * 2 + 1));
+    while (table[bucket] != slot + 1) {
+      bucket = (bucket + 1) & tableMask;
+    }
+    // Backward shift deletion keeps probe sequences intact without tombstones
+    int hole = bucket;
+    int current = (hole + 1) & tableMask;
+    while (table[current] != 0) {
+      int home = bucket(keys.get((table[current] - 1) * 2 + 1));
+      if (((current - home) & tableMask) >= ((current - hole) & tableMask)) {
+        table[hole] = table[current];
+        hole = current;
+      }
+      current = (current + 1) & tableMask;
+    }
+    table[hole] = 0;
+  }
+
+  private int bucket(long keyLo) {
+    return (int) (keyLo ^ (keyLo >>> 32)) & tableMask;
+  }
+
+  private void moveToHead(int slot) {
+    if (slot != head) {
+      unlink(slot);
+      linkAtHead(slot);
+    }
+  }
+
+  private void linkAtHead(int slot) {
+    prev[slot] = NONE;
+    next[slot] = head;
+    if (head != NONE) {
+      prev[head] = slot;
+    }
+    head = slot;
+    if (tail == NONE) {
+      tail = slot;
+    }
+  }
+
+  private void unlink(int slot) {
+    if (prev[slot] != NONE) {
+      next[prev[slot]] = next[slot];
+    } else {
+      head = next[slot];
+    }
+    if (next[slot] != NONE) {
+      prev[next[slot]] = prev[slot];
+    } else {
+      tail = prev[slot];
+    }
+  }
+
+  private boolean hasValidHeader() {
+    return buffer.getInt(0) == MAGIC
+        && buffer.getInt(4) == VERSION
+        && buffer.getInt(8) == dimensions
+        && buffer.getInt(12) == capacity
+        && buffer.getInt(SIZE_OFFSET) >= 0
+        && buffer.getInt(SIZE_OFFSET) <= capacity;
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, dimensions);
+    buffer.putInt(12, capacity);
+    buffer.putInt(SIZE_OFFSET, 0);
+  }
+
+  /**
+   * Rebuild the index from the slots in use, moving valid entries down over the ones with a bad checksum
+   * @return the number of dropped entries
+   */
+  private int restore() {
+    int stored = buffer.getInt(SIZE_OFFSET);
+    int valid = 0;
+    for (int slot = 0; slot < stored; slot++) {
+      long keyHi = keys.get(slot * 2);
+      long keyLo = keys.get(slot * 2 + 1);
+      if (checksums.get(slot) != checksum(keyHi, keyLo, slot) || find(keyHi, keyLo) != NONE) {
+        continue;
+      }
+      if (valid != slot) {
+        buffer.put(vectorsOffset + valid * dimensions * Float.BYTES, buffer,
+            vectorsOffset + slot * dimensions * Float.BYTES, dimensions * Float.BYTES);
+        checksums.put(valid, checksums.get(slot));
+        keys.put(valid * 2, keyHi);
+        keys.put(valid * 2 + 1, keyLo);
+      }
+      insertIntoTable(valid);
+      linkAtHead(valid);
+      valid++;
+    }
+    size = valid;
+    buffer.putInt(SIZE_OFFSET, size);
+    return stored - valid;
+  }
+
+  private int checksum(long keyHi, long keyLo, int slot) {
+    crc.reset();
+    crc.update(ByteBuffer.allocate(Long.BYTES * 2).putLong(keyHi).putLong(keyLo).flip());
+    crc.update(buffer.slice(vectorsOffset + slot * dimensions * Float.BYTES, dimensions * Float.BYTES));
+    return (int) crc.getValue();
+  }
+}
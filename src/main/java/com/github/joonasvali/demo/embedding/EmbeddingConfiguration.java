@@ -0,0 +1,54 @@
+package com.github.joonasvali.demo.embedding;
+
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.concurrency.BulkheadEmbeddingModel;
+import com.github.joonasvali.demo.metrics.TimedEmbeddingModel;
+import com.github.joonasvali.demo.resilience.CircuitBreaker;
+import com.github.joonasvali.demo.resilience.Hedge;
+import com.github.joonasvali.demo.resilience.ResilientEmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Builds the embedding model used by the application and the vector store:
+ * the timed OpenAI model behind the embedding bulkhead, hedged and circuit broken, with the embedding cache
+ * in front when enabled so that cache hits never reach the breaker.
+ */
+@Configuration
+public class EmbeddingConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public EmbeddingCacheStore embeddingCacheStore(@Value("${demo.embedding-cache.dimensions:1536}") int dimensions,
+                                                 @Value("${demo.embedding-cache.capacity:10000}") int capacity,
+                                                 @Value("${demo.embedding-cache.file:}") String file) throws IOException {
+    return new EmbeddingCacheStore(dimensions, capacity, StringUtils.hasText(file) ? Path.of(file) : null);
+  }
+
+  @Bean
+  @Primary
+  public EmbeddingModel embeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel,
+                                       @Qualifier("embeddingBulkhead") Bulkhead embeddingBulkhead,
+                                       @Qualifier("embeddingCircuitBreaker") CircuitBreaker embeddingCircuitBreaker,
+                                       @Qualifier("embeddingHedge") Hedge embeddingHedge,
+                                       EmbeddingCacheStore embeddingCacheStore,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${demo.embedding-cache.enabled:true}") boolean cacheEnabled,
+                                       @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}") String modelId) {
+    EmbeddingModel embeddingModel = new ResilientEmbeddingModel(new BulkheadEmbeddingModel(
+        new TimedEmbeddingModel(openAiEmbeddingModel, meterRegistry), embeddingBulkhead), embeddingCircuitBreaker, embeddingHedge);
+    if (!cacheEnabled) {
+      return embeddingModel;
+    }
+    return new CachingEmbeddingModel(embeddingModel, embeddingCacheStore, modelId, meterRegistry);
+  }
+}
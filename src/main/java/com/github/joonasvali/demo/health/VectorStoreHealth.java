@@ -0,0 +1,19 @@
+package com.github.joonasvali.demo.health;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Result of one vector store probe.
+ * @param up whether the store was reachable and the collection present
+ * @param details store type, configuration and collection statistics
+ * @param error failure message, null when up
+ * @param checkedAt when the probe finished
+ */
+public record VectorStoreHealth(boolean up, Map<String, Object> details, String error, Instant checkedAt) {
+
+  public Duration age() {
+    return Duration.between(checkedAt, Instant.now());
+  }
+}
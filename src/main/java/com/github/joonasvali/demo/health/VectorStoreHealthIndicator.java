@@ -0,0 +1,45 @@
+package com.github.joonasvali.demo.health;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Actuator view of the last background vector store probe, registered as the {@code vectorStore}
+ * health contributor. A result older than the stale threshold is reported as down because the
+ * refresher itself has stopped.
+ */
+@Component
+public class VectorStoreHealthIndicator implements HealthIndicator {
+
+  private final VectorStoreHealthProbe probe;
+  private final Duration staleAfter;
+
+  public VectorStoreHealthIndicator(VectorStoreHealthProbe probe,
+                                    @Value("${demo.vector-health.stale-after:2m}") Duration staleAfter) {
+    this.probe = probe;
+    this.staleAfter = staleAfter;
+  }
+
+  @Override
+  public Health health() {
+    VectorStoreHealth last = probe.last();
+    if (last == null) {
+      return Health.unknown().withDetail("reason", "No probe has finished yet").build();
+    }
+    Duration age = last.age();
+    Health.Builder builder = last.up() && age.compareTo(staleAfter) <= 0 ? Health.up() : Health.down();
+    builder.withDetails(last.details())
+        .withDetail("checkedAt", last.checkedAt().toString())
+        .withDetail("ageSeconds", age.toSeconds());
+    if (last.error() != null) {
+      builder.withDetail("error", last.error());
+    } else if (age.compareTo(staleAfter) > 0) {
+      builder.withDetail("error", "Last probe is older than " + staleAfter);
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,193 @@
+package com.github.joonasvali.demo.health;
+
+import com.github.joonasvali.demo.vectorstore.HnswVectorStore;
+import com.github.joonasvali.demo.vectorstore.ScalarFieldMilvusVectorStore;
+import com.github.joonasvali.demo.vectorstore.ShardedMilvusVectorStore;
+import com.github.joonasvali.demo.vectorstore.TieredVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.CheckHealthResponse;
+import io.milvus.grpc.GetCollectionStatisticsResponse;
+import io.milvus.param.R;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.param.collection.HasCollectionParam;
+import io.milvus.response.GetCollStatResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Checks the vector store in the background and keeps the last result, so that health endpoints and
+ * orchestrator probes never touch the store or the embedding model on the request path.
+ * Milvus is checked through its native client (server health, collection presence and row count),
+ * the in-process store by its document count. Neither check embeds anything.
+ */
+@Component
+public class VectorStoreHealthProbe {
+
+  private static final Logger logger = LoggerFactory.getLogger(VectorStoreHealthProbe.class);
+
+  private final VectorStore vectorStore;
+  private final MeterRegistry meterRegistry;
+  private final String databaseName;
+  private final String collectionName;
+  private final int embeddingDimension;
+  private final String indexType;
+  private final String metricType;
+
+  private volatile VectorStoreHealth last;
+
+  public VectorStoreHealthProbe(VectorStore vectorStore, MeterRegistry meterRegistry,
+                                @Value("${spring.ai.vectorstore.milvus.databaseName:default}") String databaseName,
+                                @Value("${spring.ai.vectorstore.milvus.collectionName:vector_store}") String collectionName,
+                                @Value("${spring.ai.vectorstore.milvus.embeddingDimension:1536}") int embeddingDimension,
+                                @Value("${spring.ai.vectorstore.milvus.indexType:IVF_FLAT}") String indexType,
+                                @Value("${spring.ai.vectorstore.milvus.metricType:COSINE}") String metricType,
+                                @Value("${demo.vector-store.milvus.scalar-fields.enabled:true}") boolean scalarFields,
+                                @Value("${demo.vector-store.milvus.scalar-fields.collection-name:jokes}") String scalarFieldCollectionName) {
+    this.vectorStore = vectorStore;
+    this.meterRegistry = meterRegistry;
+    this.databaseName = databaseName;
+    this.collectionName = scalarFields ? scalarFieldCollectionName : collectionName;
+    this.embeddingDimension = embeddingDimension;
+    this.indexType = indexType;
+    this.metricType = metricType;
+  }
+
+  /**
+   * @return the last probe result, null until the first probe has finished
+   */
+  public VectorStoreHealth last() {
+    return last;
+  }
+
+  @Scheduled(initialDelayString = "${demo.vector-health.initial-delay:0s}",
+      fixedDelayString = "${demo.vector-health.refresh-interval:30s}")
+  public VectorStoreHealth refresh() {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    VectorStoreHealth health;
+    try {
+      health = new VectorStoreHealth(true, probe(), null, Instant.now());
+    } catch (Exception e) {
+      logger.warn("Vector store health probe failed: {}", e.getMessage());
+      health = new VectorStoreHealth(false, Map.of("store", vectorStore.getName()), e.getMessage(), Instant.now());
+    }
+    sample.stop(Timer.builder("vector.store.call")
+        .tag("operation", "health")
+        .tag("outcome", health.up() ? "success" : "error")
+        .register(meterRegistry));
+    last = health;
+    return health;
+  }
+
+  /**
+   * Count the documents in the store directly, without going through the cached result
+   * @return number of stored documents, or rows in the Milvus collection
+   */
+  public long documentCount() {
+    if (vectorStore instanceof HnswVectorStore local) {
+      return local.size();
+    }
+    MilvusClient client = milvusClient();
+    long rows = 0;
+    for (String collection : collectionNames()) {
+      GetCollectionStatisticsResponse statistics = require(client.getCollectionStatistics(GetCollectionStatisticsParam.newBuilder()
+          .withDatabaseName(databaseName)
+          .withCollectionName(collection)
+          .withFlush(false)
+          .build()), "read collection statistics");
+      rows += new GetCollStatResponseWrapper(statistics).getRowCount();
+    }
+    return rows;
+  }
+
+  /**
+   * @return the background copy of documents from an old collection into the Milvus store, completed when there is none
+   */
+  public CompletableFuture<Long> migration() {
+    VectorStore milvus = vectorStore instanceof TieredVectorStore tiered ? tiered.getRemote() : vectorStore;
+    if (milvus instanceof ShardedMilvusVectorStore sharded) {
+      return sharded.migration();
+    }
+    if (milvus instanceof ScalarFieldMilvusVectorStore scalarFields) {
+      return scalarFields.migration();
+    }
+    return CompletableFuture.completedFuture(0L);
+  }
+
+  /**
+   * @return the collections of the Milvus store, one per shard when sharded
+   */
+  private List<String> collectionNames() {
+    VectorStore milvus = vectorStore instanceof TieredVectorStore tiered ? tiered.getRemote() : vectorStore;
+    if (milvus instanceof ShardedMilvusVectorStore sharded) {
+      return sharded.getShards().stream().map(ScalarFieldMilvusVectorStore::getCollectionName).toList();
+    }
+    return List.of(collectionName);
+  }
+
+  private Map<String, Object> probe() {
+    Map<String, Object> details = new LinkedHashMap<>();
+    details.put("store", vectorStore.getName());
+
+    if (vectorStore instanceof HnswVectorStore local) {
+      details.put("documents", local.size());
+      return details;
+    }
+    if (vectorStore instanceof TieredVectorStore tiered) {
+      details.put("hotTierDocuments", tiered.getHotTier().size());
+    }
+
+    MilvusClient client = milvusClient();
+    CheckHealthResponse server = require(client.checkHealth(), "check server health");
+    if (!server.getIsHealthy()) {
+      throw new IllegalStateException("Milvus reports unhealthy: " + String.join(", ", server.getReasonsList()));
+    }
+    List<String> collections = collectionNames();
+    for (String collection : collections) {
+      Boolean exists = require(client.hasCollection(HasCollectionParam.newBuilder()
+          .withDatabaseName(databaseName)
+          .withCollectionName(collection)
+          .build()), "look up collection");
+      if (!Boolean.TRUE.equals(exists)) {
+        throw new IllegalStateException("Collection '" + collection + "' does not exist");
+      }
+    }
+
+    details.put("database", databaseName);
+    details.put("collection", collections.size() == 1 ? collections.get(0) : collections);
+    details.put("embeddingDimension", embeddingDimension);
+    details.put("indexType", indexType);
+    details.put("metricType", metricType);
+    details.put("rowCount", documentCount());
+    if (!migration().isDone()) {
+      details.put("migrating", true);
+    }
+    return details;
+  }
+
+  private MilvusClient milvusClient() {
+    Object nativeClient = vectorStore.getNativeClient().orElse(null);
+    if (!(nativeClient instanceof MilvusClient client)) {
+      throw new IllegalStateException("No native client available for " + vectorStore.getName());
+    }
+    return client;
+  }
+
+  private static <T> T require(R<T> response, String action) {
+    if (response.getStatus() != R.Status.Success.getCode()) {
+      throw new IllegalStateException("Could not " + action + ": " + response.getMessage(), response.getException());
+    }
+    return response.getData();
+  }
+}
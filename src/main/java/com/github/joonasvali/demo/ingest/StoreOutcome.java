@@ -0,0 +1,15 @@
+package com.github.joonasvali.demo.ingest;
+
+/**
+ * What happened to a document handed to the ingest path.
+ */
+public enum StoreOutcome {
+  /** Queued for the next write-behind batch */
+  QUEUED,
+  /** Not stored because a near-identical document was stored before */
+  DUPLICATE,
+  /** Not stored because the ingest queue stayed full */
+  REJECTED,
+  /** Not stored because queuing failed with an error */
+  FAILED
+}
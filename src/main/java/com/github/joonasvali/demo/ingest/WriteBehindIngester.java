@@ -0,0 +1,259 @@
+package com.github.joonasvali.demo.ingest;
+
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous write-behind pipeline in front of the vector store.
+ * Documents are queued by request threads and a background flusher inserts them in batches,
+ * so that one embedding request and one insert cover many documents. A failed insert is retried
+ * with exponential backoff up to {@code max-attempts} times, the queue fills up meanwhile and pushes
+ * back on submitters. Listeners learn which documents were stored and which were given up on.
+ */
+@Component
+public class WriteBehindIngester {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteBehindIngester.class);
+
+  private final VectorStore vectorStore;
+  private final Bulkhead vectorStoreBulkhead;
+  private final MeterRegistry meterRegistry;
+  private final BlockingQueue<Document> queue;
+  private final int batchSize;
+  private final long maxDelayNanos;
+  private final long offerTimeoutNanos;
+  private final Duration shutdownTimeout;
+  private final int maxAttempts;
+  private final long retryBackoffNanos;
+
+  private final DistributionSummary batchSizes;
+  private final Counter storedDocuments;
+  private final Counter failedDocuments;
+  private final Counter rejectedDocuments;
+  private final Counter retries;
+  private final List<Consumer<List<Document>>> flushListeners = new CopyOnWriteArrayList<>();
+  private final List<Consumer<List<Document>>> failureListeners = new CopyOnWriteArrayList<>();
+
+  private volatile boolean running;
+  private Thread flusher;
+
+  public WriteBehindIngester(VectorStore vectorStore,
+                             @Qualifier("vectorStoreBulkhead") Bulkhead vectorStoreBulkhead,
+                             MeterRegistry meterRegistry,
+                             @Value("${demo.ingest.queue-capacity:1000}") int queueCapacity,
+                             @Value("${demo.ingest.batch-size:32}") int batchSize,
+                             @Value("${demo.ingest.max-delay:500ms}") Duration maxDelay,
+                             @Value("${demo.ingest.offer-timeout:100ms}") Duration offerTimeout,
+                             @Value("${demo.ingest.shutdown-timeout:30s}") Duration shutdownTimeout,
+                             @Value("${demo.ingest.max-attempts:3}") int maxAttempts,
+                             @Value("${demo.ingest.retry-backoff:200ms}") Duration retryBackoff) {
+    this.vectorStore = vectorStore;
+    this.vectorStoreBulkhead = vectorStoreBulkhead;
+    this.meterRegistry = meterRegistry;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.batchSize = Math.max(1, batchSize);
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.offerTimeoutNanos = offerTimeout.toNanos();
+    this.shutdownTimeout = shutdownTimeout;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.retryBackoffNanos = retryBackoff.toNanos();
+
+    Gauge.builder("vector.ingest.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+    this.batchSizes = DistributionSummary.builder("vector.ingest.batch.size").register(meterRegistry);
+    this.storedDocuments = Counter.builder("vector.ingest.documents").tag("outcome", "stored").register(meterRegistry);
+    this.failedDocuments = Counter.builder("vector.ingest.documents").tag("outcome", "failed").register(meterRegistry);
+    this.rejectedDocuments = Counter.builder("vector.ingest.documents").tag("outcome", "rejected").register(meterRegistry);
+    this.retries = Counter.builder("vector.ingest.retries").register(meterRegistry);
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    flusher = new Thread(this::runFlusher, "vector-ingest-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Queue a document for insertion, waiting up to the offer timeout when the queue is full
+   * @param document the document to store
+   * @return true if the document was queued, false if the queue stayed full or the ingester is stopped
+   */
+  public boolean submit(Document document) {
+    return submitAll(List.of(document)) == 1;
+  }
+
+  /**
+   * Queue several documents for insertion
+   * @param documents the documents to store
+   * @return number of documents that were accepted
+   */
+  public int submitAll(List<Document> documents) {
+    if (!running) {
+      rejectedDocuments.increment(documents.size());
+      return 0;
+    }
+    int accepted = 0;
+    try {
+      for (Document document : documents) {
+        if (!queue.offer(document, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+        accepted++;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (accepted < documents.size()) {
+      logger.warn("Ingest queue is full, rejected {} document(s)", documents.size() - accepted);
+      rejectedDocuments.increment(documents.size() - accepted);
+    }
+    return accepted;
+  }
+
+  /**
+   * Register a callback that receives every batch once it has been stored
+   */
+  public void addFlushListener(Consumer<List<Document>> listener) {
+    flushListeners.add(listener);
+  }
+
+  /**
+   * Register a callback that receives every batch that could not be stored within the retry attempts
+   */
+  public void addFailureListener(Consumer<List<Document>> listener) {
+    failureListeners.add(listener);
+  }
+
+  public int queueDepth() {
+    return queue.size();
+  }
+
+  private void runFlusher() {
+    List<Document> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Document first = queue.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < batchSize) {
+          long remaining = deadline - System.nanoTime();
+          Document next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        // Stop waiting but still drain whatever is left in the queue
+        running = false;
+        queue.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<Document> batch) {
+    List<Document> documents = List.copyOf(batch);
+    for (int attempt = 1; ; attempt++) {
+      if (store(documents)) {
+        batchSizes.record(documents.size());
+        storedDocuments.increment(documents.size());
+        logger.info("✅ Stored batch of {} document(s) in vector database", documents.size());
+        notify(flushListeners, documents);
+        return;
+      }
+      if (attempt >= maxAttempts || !backOff(attempt)) {
+        break;
+      }
+      retries.increment();
+    }
+    failedDocuments.increment(documents.size());
+    logger.error("❌ Gave up storing batch of {} document(s) in vector database", documents.size());
+    notify(failureListeners, documents);
+  }
+
+  /**
+   * @return whether the batch was stored
+   */
+  private boolean store(List<Document> documents) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      vectorStoreBulkhead.run(() -> vectorStore.add(documents));
+      return true;
+    } catch (Exception e) {
+      outcome = "error";
+      logger.warn("⚠️ Failed to store batch of {} document(s) in vector database: {}", documents.size(), e.getMessage(), e);
+      return false;
+    } finally {
+      sample.stop(Timer.builder("vector.store.call")
+          .tag("operation", "add")
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+    }
+  }
+
+  /**
+   * Wait before the next attempt, twice as long after every failed one
+   * @return false if interrupted, e.g. on shutdown
+   */
+  private boolean backOff(int attempt) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(retryBackoffNanos << Math.min(attempt - 1, 16));
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static void notify(List<Consumer<List<Document>>> listeners, List<Document> documents) {
+    for (Consumer<List<Document>> listener : listeners) {
+      try {
+        listener.accept(documents);
+      } catch (Exception e) {
+        logger.warn("Ingest listener failed: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    logger.info("Flushing {} queued document(s) before shutdown", queue.size());
+    running = false;
+    flusher.join(shutdownTimeout.toMillis());
+    if (flusher.isAlive()) {
+      logger.warn("Ingest flusher did not finish within {}, {} document(s) were not stored", shutdownTimeout, queue.size());
+      flusher.interrupt();
+    }
+  }
+}
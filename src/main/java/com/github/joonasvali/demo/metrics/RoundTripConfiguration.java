@@ -0,0 +1,26 @@
+package com.github.joonasvali.demo.metrics;
+
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wraps the auto-configured tool calling manager so that tool call rounds can be attributed to requests.
+ */
+@Configuration
+public class RoundTripConfiguration {
+
+  @Bean
+  public static BeanPostProcessor roundTripCountingPostProcessor() {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ToolCallingManager manager && !(bean instanceof RoundTripCountingToolCallingManager)) {
+          return new RoundTripCountingToolCallingManager(manager);
+        }
+        return bean;
+      }
+    };
+  }
+}
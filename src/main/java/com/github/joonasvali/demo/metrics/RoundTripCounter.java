@@ -0,0 +1,30 @@
+package com.github.joonasvali.demo.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the model round trips of one chat request. It travels in the tool context of the request,
+ * every tool call round executed by the model adds one round trip to the initial call.
+ */
+public final class RoundTripCounter {
+
+  static final String TOOL_CONTEXT_KEY = "demo.roundTrips";
+
+  private final AtomicInteger roundTrips = new AtomicInteger(1);
+
+  /**
+   * @return a tool context carrying this counter
+   */
+  public Map<String, Object> toolContext() {
+    return Map.of(TOOL_CONTEXT_KEY, this);
+  }
+
+  public int roundTrips() {
+    return roundTrips.get();
+  }
+
+  void toolRound() {
+    roundTrips.incrementAndGet();
+  }
+}
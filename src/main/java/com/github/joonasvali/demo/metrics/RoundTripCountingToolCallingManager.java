@@ -0,0 +1,38 @@
+package com.github.joonasvali.demo.metrics;
+
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.model.tool.ToolCallingManager;
+import org.springframework.ai.model.tool.ToolExecutionResult;
+import org.springframework.ai.tool.definition.ToolDefinition;
+
+import java.util.List;
+
+/**
+ * Tool calling manager decorator that adds a round trip to the request's {@link RoundTripCounter}
+ * every time the model answers with tool calls, since the tool results are sent back in another call.
+ */
+public class RoundTripCountingToolCallingManager implements ToolCallingManager {
+
+  private final ToolCallingManager delegate;
+
+  public RoundTripCountingToolCallingManager(ToolCallingManager delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public List<ToolDefinition> resolveToolDefinitions(ToolCallingChatOptions chatOptions) {
+    return delegate.resolveToolDefinitions(chatOptions);
+  }
+
+  @Override
+  public ToolExecutionResult executeToolCalls(Prompt prompt, ChatResponse chatResponse) {
+    if (prompt.getOptions() instanceof ToolCallingChatOptions options
+        && options.getToolContext() != null
+        && options.getToolContext().get(RoundTripCounter.TOOL_CONTEXT_KEY) instanceof RoundTripCounter counter) {
+      counter.toolRound();
+    }
+    return delegate.executeToolCalls(prompt, chatResponse);
+  }
+}
@@ -0,0 +1,51 @@
+package com.github.joonasvali.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embedding model decorator recording every upstream call in the {@code embedding.call} timer,
+ * tagged with the outcome, and the number of texts per call in {@code embedding.batch.size}.
+ */
+public class TimedEmbeddingModel implements EmbeddingModel {
+
+  private final EmbeddingModel delegate;
+  private final MeterRegistry meterRegistry;
+  private final DistributionSummary batchSizes;
+
+  public TimedEmbeddingModel(EmbeddingModel delegate, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.meterRegistry = meterRegistry;
+    this.batchSizes = DistributionSummary.builder("embedding.batch.size").register(meterRegistry);
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    batchSizes.record(request.getInstructions().size());
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return delegate.call(request);
+    } catch (RuntimeException e) {
+      outcome = "error";
+      throw e;
+    } finally {
+      sample.stop(Timer.builder("embedding.call").tag("outcome", outcome).register(meterRegistry));
+    }
+  }
+
+  @Override
+  public float[] embed(Document document) {
+    return embed(document.getFormattedContent());
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.joonasvali.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+/**
+ * Tool callback decorator recording every invocation in the {@code joke.tool.invocation} timer,
+ * tagged with the tool name and outcome.
+ */
+public class TimedToolCallback implements ToolCallback {
+
+  private final ToolCallback delegate;
+  private final MeterRegistry meterRegistry;
+
+  public TimedToolCallback(ToolCallback delegate, MeterRegistry meterRegistry) {
+    this.delegate = delegate;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public ToolDefinition getToolDefinition() {
+    return delegate.getToolDefinition();
+  }
+
+  @Override
+  public ToolMetadata getToolMetadata() {
+    return delegate.getToolMetadata();
+  }
+
+  @Override
+  public String call(String toolInput) {
+    return call(toolInput, null);
+  }
+
+  @Override
+  public String call(String toolInput, ToolContext toolContext) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return toolContext == null ? delegate.call(toolInput) : delegate.call(toolInput, toolContext);
+    } catch (RuntimeException e) {
+      outcome = "error";
+      throw e;
+    } finally {
+      sample.stop(Timer.builder("joke.tool.invocation")
+          .tag("tool", delegate.getToolDefinition().name())
+          .tag("outcome", outcome)
+          .register(meterRegistry));
+    }
+  }
+}
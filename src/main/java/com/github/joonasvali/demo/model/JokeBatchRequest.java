@@ -0,0 +1,10 @@
+package com.github.joonasvali.demo.model;
+
+import java.util.List;
+
+/**
+ * Request body of the batch endpoint. Either lists the subjects explicitly or asks for
+ * {@code count} jokes spread over the built-in topic catalog.
+ */
+public record JokeBatchRequest(List<String> subjects, Integer count) {
+}
@@ -0,0 +1,19 @@
+package com.github.joonasvali.demo.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch generation: one item per requested subject in request order,
+ * plus totals for the whole batch.
+ */
+public record JokeBatchResult(List<Item> items, int succeeded, int failed, int stored,
+                              long elapsedMillis, double jokesPerSecond) {
+
+  /**
+   * @param status "ok" or "failed"
+   * @param joke the generated joke, null when generation failed
+   * @param error failure message, null on success
+   */
+  public record Item(int index, String subject, String status, Joke joke, String error, long elapsedMillis) {
+  }
+}
@@ -0,0 +1,20 @@
+package com.github.joonasvali.demo.model;
+
+/**
+ * A single event of a streamed joke: either a text delta for one of the joke fields
+ * or the final, fully parsed joke.
+ */
+public record JokeStreamEvent(String field, String text, Joke joke) {
+
+  public static JokeStreamEvent delta(String field, String text) {
+    return new JokeStreamEvent(field, text, null);
+  }
+
+  public static JokeStreamEvent complete(Joke joke) {
+    return new JokeStreamEvent(null, null, joke);
+  }
+
+  public boolean isComplete() {
+    return joke != null;
+  }
+}
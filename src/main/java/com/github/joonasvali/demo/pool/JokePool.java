@@ -0,0 +1,147 @@
+package com.github.joonasvali.demo.pool;
+
+import com.github.joonasvali.demo.cache.SemanticJokeCache;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded pools of ready jokes, one per catalog topic plus one for the default random subject.
+ * Requests poll a pool and record demand for it; {@link JokePoolRefiller} keeps the pools topped up,
+ * most demanded first. Subjects outside the catalog are never pooled.
+ */
+@Component
+public class JokePool {
+
+  /** Pool key of the default subject, filled with jokes about random catalog topics */
+  public static final String RANDOM_TOPIC = "random topic";
+
+  private final boolean enabled;
+  private final int depth;
+  private final double halfLifeNanos;
+  private final Map<String, Slot> slots = new LinkedHashMap<>();
+
+  private final Counter hits;
+  private final Counter misses;
+
+  public JokePool(MeterRegistry meterRegistry,
+                  @Value("${demo.pool.enabled:true}") boolean enabled,
+                  @Value("${demo.pool.depth:2}") int depth,
+                  @Value("${demo.pool.demand-half-life:10m}") Duration demandHalfLife) {
+    this.enabled = enabled;
+    this.depth = Math.max(1, depth);
+    this.halfLifeNanos = demandHalfLife.toNanos();
+
+    slots.put(RANDOM_TOPIC, new Slot());
+    for (String topic : RandomTopicTools.topics()) {
+      slots.putIfAbsent(SemanticJokeCache.normalize(topic), new Slot());
+    }
+
+    this.hits = Counter.builder("joke.pool.requests").tag("result", "hit").register(meterRegistry);
+    this.misses = Counter.builder("joke.pool.requests").tag("result", "miss").register(meterRegistry);
+    Gauge.builder("joke.pool.depth", this, JokePool::totalDepth).register(meterRegistry);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Take a ready joke for a subject and count the request as demand for its pool
+   * @param subject the requested subject
+   * @return a pooled joke, empty when the subject is not pooled or its pool is empty
+   */
+  public Optional<Joke> poll(String subject) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+    long now = System.nanoTime();
+    synchronized (slots) {
+      Slot slot = slots.get(SemanticJokeCache.normalize(subject));
+      if (slot == null) {
+        return Optional.empty();
+      }
+      slot.recordDemand(now, halfLifeNanos);
+      Joke joke = slot.jokes.poll();
+      (joke != null ? hits : misses).increment();
+      return Optional.ofNullable(joke);
+    }
+  }
+
+  /**
+   * Add a joke to a pool unless it is full
+   * @return true if the joke was added
+   */
+  public boolean offer(String key, Joke joke) {
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      if (slot == null || slot.jokes.size() >= depth) {
+        return false;
+      }
+      slot.jokes.add(joke);
+      return true;
+    }
+  }
+
+  /**
+   * @return keys of pools below the target depth that have seen demand, most demanded first
+   */
+  public List<String> refillOrder() {
+    long now = System.nanoTime();
+    synchronized (slots) {
+      List<Map.Entry<String, Slot>> candidates = new ArrayList<>();
+      for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+        Slot slot = entry.getValue();
+        if (slot.jokes.size() < depth && slot.demand(now, halfLifeNanos) > 0.01) {
+          candidates.add(entry);
+        }
+      }
+      candidates.sort(Comparator.comparingDouble((Map.Entry<String, Slot> entry) -> entry.getValue().demand(now, halfLifeNanos)).reversed());
+      return candidates.stream().map(Map.Entry::getKey).toList();
+    }
+  }
+
+  public int depth(String key) {
+    synchronized (slots) {
+      Slot slot = slots.get(key);
+      return slot == null ? 0 : slot.jokes.size();
+    }
+  }
+
+  public int totalDepth() {
+    synchronized (slots) {
+      return slots.values().stream().mapToInt(slot -> slot.jokes.size()).sum();
+    }
+  }
+
+  /**
+   * Jokes of one pool and the exponentially decayed number of requests for it
+   */
+  private static final class Slot {
+    private final ArrayDeque<Joke> jokes = new ArrayDeque<>();
+    private double demand;
+    private long demandUpdatedAt = System.nanoTime();
+
+    private void recordDemand(long now, double halfLifeNanos) {
+      demand = demand(now, halfLifeNanos) + 1;
+      demandUpdatedAt = now;
+    }
+
+    private double demand(long now, double halfLifeNanos) {
+      return demand * Math.pow(0.5, (now - demandUpdatedAt) / halfLifeNanos);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.github.joonasvali.demo.pool;
+
+import com.github.joonasvali.demo.ChatService;
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.tools.RandomTopicTools;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tops up the joke pools in the background. Generation is limited by a token bucket
+ * ({@code refill-per-minute}) and an hourly budget of model calls, and backs off while user requests
+ * hold most of the language model bulkhead.
+ */
+@Component
+public class JokePoolRefiller {
+
+  private static final Logger logger = LoggerFactory.getLogger(JokePoolRefiller.class);
+  private static final long HOUR_NANOS = 3_600_000_000_000L;
+
+  private final JokePool pool;
+  private final ChatService chatService;
+  private final Bulkhead llmBulkhead;
+  private final double tokensPerNano;
+  private final double burst;
+  private final int hourlyBudget;
+
+  private final Counter refilled;
+  private final Counter failed;
+
+  private double tokens;
+  private long tokensUpdatedAt = System.nanoTime();
+  private long hourStartedAt = System.nanoTime();
+  private int spentThisHour;
+
+  public JokePoolRefiller(JokePool pool, ChatService chatService,
+                          @Qualifier("llmBulkhead") Bulkhead llmBulkhead,
+                          MeterRegistry meterRegistry,
+                          @Value("${demo.pool.refill-per-minute:12}") double refillPerMinute,
+                          @Value("${demo.pool.hourly-budget:300}") int hourlyBudget) {
+    this.pool = pool;
+    this.chatService = chatService;
+    this.llmBulkhead = llmBulkhead;
+    this.tokensPerNano = refillPerMinute / 60e9;
+    this.burst = Math.max(1, refillPerMinute / 6);
+    this.hourlyBudget = hourlyBudget;
+
+    this.refilled = Counter.builder("joke.pool.refills").tag("outcome", "success").register(meterRegistry);
+    this.failed = Counter.builder("joke.pool.refills").tag("outcome", "error").register(meterRegistry);
+  }
+
+  @Scheduled(initialDelayString = "${demo.pool.refill-interval:5s}", fixedDelayString = "${demo.pool.refill-interval:5s}")
+  void refill() {
+    if (!pool.isEnabled()) {
+      return;
+    }
+    List<String> order = pool.refillOrder();
+    for (String key : order) {
+      if (llmBulkhead.inUse() * 2 > llmBulkhead.getMaxConcurrent()) {
+        logger.debug("Language model is busy, postponing pool refill");
+        return;
+      }
+      if (!takeToken()) {
+        return;
+      }
+      String subject = JokePool.RANDOM_TOPIC.equals(key) ? randomTopic() : key;
+      try {
+        Joke joke = chatService.generateFreshJoke(subject);
+        pool.offer(key, joke);
+        refilled.increment();
+      } catch (Exception e) {
+        failed.increment();
+        logger.warn("Could not refill joke pool '{}': {}", key, e.getMessage());
+        return;
+      }
+    }
+  }
+
+  private boolean takeToken() {
+    long now = System.nanoTime();
+    if (now - hourStartedAt >= HOUR_NANOS) {
+      hourStartedAt = now;
+      spentThisHour = 0;
+    }
+    tokens = Math.min(burst, tokens + (now - tokensUpdatedAt) * tokensPerNano);
+    tokensUpdatedAt = now;
+    if (tokens < 1 || spentThisHour >= hourlyBudget) {
+      return false;
+    }
+    tokens--;
+    spentThisHour++;
+    return true;
+  }
+
+  private static String randomTopic() {
+    List<String> topics = RandomTopicTools.topics();
+    return topics.get(ThreadLocalRandom.current().nextInt(topics.size()));
+  }
+}
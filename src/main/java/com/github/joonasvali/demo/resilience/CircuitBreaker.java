@@ -0,0 +1,220 @@
+package com.github.joonasvali.demo.resilience;
+
+import com.github.joonasvali.demo.concurrency.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Count based circuit breaker for calls to one upstream dependency. The outcomes of the last {@code window}
+ * calls are kept; once at least {@code minCalls} were made and the share of failures reaches the threshold,
+ * the circuit opens and calls fail fast with {@link CircuitOpenException}. After the open duration a few
+ * trial calls are let through: the circuit closes when they all succeed and opens again on the first failure.
+ * Rejections by a local bulkhead and calls abandoned at the deadline of their request say nothing about the
+ * upstream and are not recorded, a client asking for a very short deadline cannot open the circuit for everyone.
+ */
+public class CircuitBreaker {
+
+  private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private final String name;
+  private final boolean enabled;
+  private final int minCalls;
+  private final double failureRateThreshold;
+  private final long openNanos;
+  private final int halfOpenCalls;
+
+  // Ring of the latest outcomes, true marks a failure
+  private final boolean[] outcomes;
+  private int recorded;
+  private int next;
+  private int failures;
+
+  private State state = State.CLOSED;
+  private long openedAt;
+  private int trialsStarted;
+  private int trialsSucceeded;
+
+  private final Counter successes;
+  private final Counter failed;
+  private final Counter rejected;
+
+  public CircuitBreaker(String name, boolean enabled, int window, int minCalls, double failureRateThreshold,
+                        Duration openDuration, int halfOpenCalls, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.enabled = enabled;
+    this.outcomes = new boolean[Math.max(1, window)];
+    this.minCalls = Math.max(1, Math.min(minCalls, outcomes.length));
+    this.failureRateThreshold = failureRateThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.halfOpenCalls = Math.max(1, halfOpenCalls);
+
+    Gauge.builder("circuit.breaker.state", this, breaker -> breaker.getState().ordinal())
+        .description("0 closed, 1 open, 2 half open")
+        .tag("name", name)
+        .register(meterRegistry);
+    Gauge.builder("circuit.breaker.failure.rate", this, CircuitBreaker::failureRate).tag("name", name).register(meterRegistry);
+    this.successes = Counter.builder("circuit.breaker.calls").tag("name", name).tag("outcome", "success").register(meterRegistry);
+    this.failed = Counter.builder("circuit.breaker.calls").tag("name", name).tag("outcome", "failure").register(meterRegistry);
+    this.rejected = Counter.builder("circuit.breaker.calls").tag("name", name).tag("outcome", "rejected").register(meterRegistry);
+  }
+
+  /**
+   * Run a call through the breaker
+   * @throws CircuitOpenException if the circuit is open
+   */
+  public <T> T execute(Supplier<T> call) {
+    acquirePermission();
+    try {
+      T result = call.get();
+      onSuccess();
+      return result;
+    } catch (RuntimeException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Subscribe to a call through the breaker, a cancelled call is not recorded
+   */
+  public <T> Mono<T> execute(Mono<T> call) {
+    return Mono.defer(() -> {
+      acquirePermission();
+      return call
+          .doOnSuccess(result -> onSuccess())
+          .doOnError(this::onError)
+          .doOnCancel(this::onCancel);
+    });
+  }
+
+  /**
+   * @throws CircuitOpenException if the circuit is open, or half open with all trial calls taken
+   */
+  public synchronized void acquirePermission() {
+    if (!enabled) {
+      return;
+    }
+    if (state == State.OPEN) {
+      long waited = System.nanoTime() - openedAt;
+      if (waited < openNanos) {
+        rejected.increment();
+        throw new CircuitOpenException(name, Duration.ofNanos(openNanos - waited));
+      }
+      transition(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialsStarted >= halfOpenCalls) {
+        rejected.increment();
+        throw new CircuitOpenException(name, Duration.ZERO);
+      }
+      trialsStarted++;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    successes.increment();
+    if (!enabled) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      if (++trialsSucceeded >= halfOpenCalls) {
+        transition(State.CLOSED);
+      }
+      return;
+    }
+    record(false);
+  }
+
+  public void onError(Throwable error) {
+    if (error instanceof BulkheadFullException || error instanceof CircuitOpenException
+        || error instanceof DeadlineExceededException) {
+      onCancel();
+      return;
+    }
+    onFailure();
+  }
+
+  public synchronized void onFailure() {
+    failed.increment();
+    if (!enabled) {
+      return;
+    }
+    if (state == State.HALF_OPEN) {
+      transition(State.OPEN);
+      return;
+    }
+    record(true);
+    if (state == State.CLOSED && recorded >= minCalls && failureRate() >= failureRateThreshold) {
+      transition(State.OPEN);
+    }
+  }
+
+  /**
+   * A call that ended without an outcome, it frees its trial slot when half open
+   */
+  private synchronized void onCancel() {
+    if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+      trialsStarted--;
+    }
+  }
+
+  public synchronized State getState() {
+    // An open circuit whose open duration has passed lets the next call through
+    return state == State.OPEN && System.nanoTime() - openedAt >= openNanos ? State.HALF_OPEN : state;
+  }
+
+  public synchronized double failureRate() {
+    return recorded == 0 ? 0 : (double) failures / recorded;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  private void record(boolean failure) {
+    if (recorded == outcomes.length) {
+      if (outcomes[next]) {
+        failures--;
+      }
+    } else {
+      recorded++;
+    }
+    outcomes[next] = failure;
+    if (failure) {
+      failures++;
+    }
+    next = (next + 1) % outcomes.length;
+  }
+
+  private void transition(State to) {
+    if (to == State.OPEN) {
+      openedAt = System.nanoTime();
+    }
+    if (to == State.OPEN && state == State.HALF_OPEN) {
+      logger.warn("⚠️ Circuit '{}' opened again after a failed trial call, failing fast for {} ms", name, openNanos / 1_000_000);
+    } else if (to == State.OPEN) {
+      logger.warn("⚠️ Circuit '{}' opened at a failure rate of {}, failing fast for {} ms", name,
+          String.format("%.2f", failureRate()), openNanos / 1_000_000);
+    } else if (to == State.CLOSED) {
+      logger.info("✅ Circuit '{}' closed after {} successful trial call(s)", name, trialsSucceeded);
+    }
+    if (to != State.HALF_OPEN) {
+      // Start the next window from scratch, failures from before the circuit opened no longer count
+      recorded = 0;
+      next = 0;
+      failures = 0;
+    }
+    state = to;
+    trialsStarted = 0;
+    trialsSucceeded = 0;
+  }
+}
@@ -0,0 +1,29 @@
+package com.github.joonasvali.demo.resilience;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call is rejected without being made because its circuit breaker is open.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+  private final String circuitName;
+  private final Duration retryAfter;
+
+  public CircuitOpenException(String circuitName, Duration retryAfter) {
+    super("Circuit " + circuitName + " is open, calls are rejected for another " + retryAfter.toSeconds() + "s");
+    this.circuitName = circuitName;
+    this.retryAfter = retryAfter;
+  }
+
+  public String getCircuitName() {
+    return circuitName;
+  }
+
+  /**
+   * @return time until the circuit lets trial calls through again
+   */
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
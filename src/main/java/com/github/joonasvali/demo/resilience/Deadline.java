@@ -0,0 +1,80 @@
+package com.github.joonasvali.demo.resilience;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Point in time by which a request must be answered. The deadline of the current request is bound to the
+ * handling thread (or put in the Reactor context on the reactive stack), so that the model calls made on its
+ * behalf give up once the caller has stopped waiting.
+ */
+public final class Deadline {
+
+  /**
+   * Reactor context key of the deadline on the reactive stack
+   */
+  public static final Class<Deadline> CONTEXT_KEY = Deadline.class;
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private final long nanos;
+
+  private Deadline(long nanos) {
+    this.nanos = nanos;
+  }
+
+  public static Deadline after(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos());
+  }
+
+  /**
+   * @return the deadline bound to the calling thread, empty outside of a request
+   */
+  public static Optional<Deadline> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  /**
+   * Bind this deadline to the calling thread until the returned scope is closed
+   */
+  public Scope bind() {
+    Deadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, remainingNanos()));
+  }
+
+  public long remainingNanos() {
+    return nanos - System.nanoTime();
+  }
+
+  public boolean isExpired() {
+    return remainingNanos() <= 0;
+  }
+
+  /**
+   * @return the shorter of a wait and the time left
+   */
+  public Duration cap(Duration wait) {
+    Duration remaining = remaining();
+    return remaining.compareTo(wait) < 0 ? remaining : wait;
+  }
+
+  /**
+   * A bound deadline, closing it restores the deadline bound before
+   */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
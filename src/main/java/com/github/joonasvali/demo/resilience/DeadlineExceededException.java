@@ -0,0 +1,11 @@
+package com.github.joonasvali.demo.resilience;
+
+/**
+ * Thrown when a call is abandoned because the deadline of its request has passed.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+  public DeadlineExceededException(String call) {
+    super("Deadline exceeded while waiting for " + call);
+  }
+}
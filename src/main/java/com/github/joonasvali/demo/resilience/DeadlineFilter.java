@@ -0,0 +1,64 @@
+package com.github.joonasvali.demo.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Binds a {@link Deadline} to the thread handling a request: the configured budget, or less when the client
+ * sends a shorter {@code X-Request-Timeout} in milliseconds. Requested timeouts below {@code demo.resilience.min-deadline}
+ * are raised to it.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+  static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+  private final Duration budget;
+  private final Duration minBudget;
+
+  public DeadlineFilter(@Value("${demo.resilience.deadline:20s}") Duration budget,
+                        @Value("${demo.resilience.min-deadline:1s}") Duration minBudget) {
+    this.budget = budget;
+    this.minBudget = minBudget;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    try (Deadline.Scope ignored = Deadline.after(budget(request.getHeader(TIMEOUT_HEADER), budget, minBudget)).bind()) {
+      chain.doFilter(request, response);
+    }
+  }
+
+  /**
+   * @return the budget a client asked for, between the minimum and the configured one; a missing or invalid header
+   * gets the configured one
+   */
+  static Duration budget(String header, Duration configured, Duration minimum) {
+    if (header == null || header.isBlank()) {
+      return configured;
+    }
+    try {
+      long millis = Long.parseLong(header.strip());
+      if (millis <= 0 || millis >= configured.toMillis()) {
+        return configured;
+      }
+      return Duration.ofMillis(Math.max(millis, Math.min(minimum.toMillis(), configured.toMillis())));
+    } catch (NumberFormatException e) {
+      return configured;
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package com.github.joonasvali.demo.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hedged, deadline bounded calls to one upstream dependency. A call that has not answered after the hedge delay
+ * is sent a second time and whichever attempt answers first wins, the other one is cancelled. The delay tracks
+ * a percentile (p95 by default) of recent call latencies, so that only the slow tail is hedged, and a budget caps
+ * the share of calls that are hedged so that an overloaded upstream is not sent twice the load. A failed call is
+ * retried once out of the same budget.
+ *
+ * <p>Attempts run on virtual threads with the deadline of the caller bound, the caller stops waiting once the
+ * deadline has passed. Without a deadline and with hedging disabled the call runs on the calling thread.
+ */
+public class Hedge implements AutoCloseable {
+
+  private static final int SAMPLES = 256;
+  private static final int MIN_SAMPLES = 20;
+  private static final int RECOMPUTE_EVERY = 16;
+  private static final double MAX_BUDGET = 10;
+
+  private final String name;
+  private final boolean enabled;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final long maxDelayNanos;
+  private final double maxRatio;
+  private final ExecutorService executor;
+
+  private final long[] latencies = new long[SAMPLES];
+  private int recorded;
+  private int next;
+  private volatile long delayNanos;
+  private double budget = 1;
+
+  private final Counter hedged;
+  private final Counter hedgeWins;
+  private final Counter retried;
+  private final Counter skipped;
+  private final Counter deadlineExceeded;
+
+  /**
+   * @param initialDelay hedge delay until enough latencies have been observed
+   * @param percentile latency percentile after which a call is hedged, e.g. 0.95
+   * @param maxRatio largest share of calls that may be hedged
+   */
+  public Hedge(String name, boolean enabled, Duration initialDelay, Duration minDelay, Duration maxDelay,
+               double percentile, double maxRatio, MeterRegistry meterRegistry) {
+    this.name = name;
+    this.enabled = enabled;
+    this.percentile = percentile;
+    this.minDelayNanos = minDelay.toNanos();
+    this.maxDelayNanos = Math.max(minDelayNanos, maxDelay.toNanos());
+    this.maxRatio = maxRatio;
+    this.delayNanos = clamp(initialDelay.toNanos());
+    this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-call-", 0).factory());
+
+    Gauge.builder("hedge.delay", this, hedge -> hedge.delay().toNanos() / 1e6)
+        .baseUnit("milliseconds")
+        .tag("name", name)
+        .register(meterRegistry);
+    this.hedged = Counter.builder("hedge.calls").tag("name", name).tag("outcome", "hedged").register(meterRegistry);
+    this.hedgeWins = Counter.builder("hedge.calls").tag("name", name).tag("outcome", "hedge-won").register(meterRegistry);
+    this.retried = Counter.builder("hedge.calls").tag("name", name).tag("outcome", "retried").register(meterRegistry);
+    this.skipped = Counter.builder("hedge.calls").tag("name", name).tag("outcome", "over-budget").register(meterRegistry);
+    this.deadlineExceeded = Counter.builder("deadline.exceeded").tag("name", name).register(meterRegistry);
+  }
+
+  /**
+   * Run a call, hedged when it is slow and bounded by the deadline of the calling thread
+   * @throws DeadlineExceededException if the deadline passed before any attempt answered
+   */
+  public <T> T execute(Supplier<T> call) {
+    Optional<Deadline> deadline = Deadline.current();
+    if (deadline.isPresent() && deadline.get().isExpired()) {
+      deadlineExceeded.increment();
+      throw new DeadlineExceededException(name);
+    }
+    if (!enabled && deadline.isEmpty()) {
+      long start = System.nanoTime();
+      T result = call.get();
+      record(System.nanoTime() - start);
+      return result;
+    }
+    earnBudget();
+
+    CompletionService<T> attempts = new ExecutorCompletionService<>(executor);
+    List<Future<T>> started = new ArrayList<>(2);
+    started.add(attempts.submit(() -> attempt(call, deadline.orElse(null))));
+    int pending = 1;
+    boolean hedgeSent = !enabled;
+    try {
+      while (true) {
+        long wait = hedgeSent ? Long.MAX_VALUE : delayNanos;
+        if (deadline.isPresent()) {
+          wait = Math.min(wait, deadline.get().remainingNanos());
+        }
+        Future<T> done = wait == Long.MAX_VALUE ? attempts.take() : attempts.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+        if (done != null) {
+          try {
+            T result = done.get();
+            if (done != started.get(0)) {
+              hedgeWins.increment();
+            }
+            return result;
+          } catch (ExecutionException e) {
+            RuntimeException failure = e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+            if (--pending > 0) {
+              continue;
+            }
+            // A failed first attempt is retried once, out of the same budget as the hedges
+            if (hedgeSent || !tryHedge()) {
+              throw failure;
+            }
+            hedgeSent = true;
+            retried.increment();
+            started.add(attempts.submit(() -> attempt(call, deadline.orElse(null))));
+            pending++;
+            continue;
+          }
+        }
+        if (deadline.isPresent() && deadline.get().isExpired()) {
+          deadlineExceeded.increment();
+          throw new DeadlineExceededException(name);
+        }
+        hedgeSent = true;
+        if (tryHedge()) {
+          hedged.increment();
+          started.add(attempts.submit(() -> attempt(call, deadline.orElse(null))));
+          pending++;
+        } else {
+          skipped.increment();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DeadlineExceededException(name);
+    } finally {
+      started.forEach(attempt -> attempt.cancel(true));
+    }
+  }
+
+  /**
+   * @return the current hedge delay
+   */
+  public Duration delay() {
+    return Duration.ofNanos(delayNanos);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private <T> T attempt(Supplier<T> call, Deadline deadline) {
+    long start = System.nanoTime();
+    T result;
+    if (deadline == null) {
+      result = call.get();
+    } else {
+      try (Deadline.Scope ignored = deadline.bind()) {
+        result = call.get();
+      }
+    }
+    record(System.nanoTime() - start);
+    return result;
+  }
+
+  private synchronized void earnBudget() {
+    budget = Math.min(MAX_BUDGET, budget + maxRatio);
+  }
+
+  private synchronized boolean tryHedge() {
+    if (budget < 1) {
+      return false;
+    }
+    budget--;
+    return true;
+  }
+
+  private void record(long latencyNanos) {
+    long[] snapshot = null;
+    synchronized (latencies) {
+      latencies[next] = latencyNanos;
+      next = (next + 1) % SAMPLES;
+      recorded++;
+      if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0) {
+        snapshot = Arrays.copyOf(latencies, Math.min(recorded, SAMPLES));
+      }
+    }
+    if (snapshot != null) {
+      Arrays.sort(snapshot);
+      delayNanos = clamp(snapshot[(int) Math.min(snapshot.length - 1, Math.floor(percentile * snapshot.length))]);
+    }
+  }
+
+  private long clamp(long nanos) {
+    return Math.max(minDelayNanos, Math.min(maxDelayNanos, nanos));
+  }
+}
@@ -0,0 +1,37 @@
+package com.github.joonasvali.demo.resilience;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Reactive counterpart of {@link DeadlineFilter}, the deadline is put in the Reactor context under {@link Deadline#CONTEXT_KEY}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDeadlineFilter implements WebFilter {
+
+  private final Duration budget;
+  private final Duration minBudget;
+
+  public ReactiveDeadlineFilter(@Value("${demo.resilience.deadline:20s}") Duration budget,
+                                @Value("${demo.resilience.min-deadline:1s}") Duration minBudget) {
+    this.budget = budget;
+    this.minBudget = minBudget;
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    Duration requested = DeadlineFilter.budget(exchange.getRequest().getHeaders().getFirst(DeadlineFilter.TIMEOUT_HEADER), budget, minBudget);
+    return chain.filter(exchange).contextWrite(context -> context.put(Deadline.CONTEXT_KEY, Deadline.after(requested)));
+  }
+}
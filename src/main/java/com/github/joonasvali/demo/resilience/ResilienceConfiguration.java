@@ -0,0 +1,60 @@
+package com.github.joonasvali.demo.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Hedging and circuit breakers for the language model and the embedding model, configured separately
+ * under {@code demo.resilience.llm} and {@code demo.resilience.embedding}.
+ */
+@Configuration
+public class ResilienceConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public Hedge llmHedge(MeterRegistry meterRegistry,
+                        @Value("${demo.resilience.llm.hedge.enabled:true}") boolean enabled,
+                        @Value("${demo.resilience.llm.hedge.initial-delay:5s}") Duration initialDelay,
+                        @Value("${demo.resilience.llm.hedge.min-delay:1s}") Duration minDelay,
+                        @Value("${demo.resilience.llm.hedge.max-delay:15s}") Duration maxDelay,
+                        @Value("${demo.resilience.llm.hedge.percentile:0.95}") double percentile,
+                        @Value("${demo.resilience.llm.hedge.max-ratio:0.1}") double maxRatio) {
+    return new Hedge("llm", enabled, initialDelay, minDelay, maxDelay, percentile, maxRatio, meterRegistry);
+  }
+
+  @Bean
+  public CircuitBreaker llmCircuitBreaker(MeterRegistry meterRegistry,
+                                          @Value("${demo.resilience.llm.circuit-breaker.enabled:true}") boolean enabled,
+                                          @Value("${demo.resilience.llm.circuit-breaker.window:20}") int window,
+                                          @Value("${demo.resilience.llm.circuit-breaker.min-calls:10}") int minCalls,
+                                          @Value("${demo.resilience.llm.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                          @Value("${demo.resilience.llm.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                          @Value("${demo.resilience.llm.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+    return new CircuitBreaker("llm", enabled, window, minCalls, failureRateThreshold, openDuration, halfOpenCalls, meterRegistry);
+  }
+
+  @Bean(destroyMethod = "close")
+  public Hedge embeddingHedge(MeterRegistry meterRegistry,
+                              @Value("${demo.resilience.embedding.hedge.enabled:true}") boolean enabled,
+                              @Value("${demo.resilience.embedding.hedge.initial-delay:1s}") Duration initialDelay,
+                              @Value("${demo.resilience.embedding.hedge.min-delay:100ms}") Duration minDelay,
+                              @Value("${demo.resilience.embedding.hedge.max-delay:3s}") Duration maxDelay,
+                              @Value("${demo.resilience.embedding.hedge.percentile:0.95}") double percentile,
+                              @Value("${demo.resilience.embedding.hedge.max-ratio:0.1}") double maxRatio) {
+    return new Hedge("embedding", enabled, initialDelay, minDelay, maxDelay, percentile, maxRatio, meterRegistry);
+  }
+
+  @Bean
+  public CircuitBreaker embeddingCircuitBreaker(MeterRegistry meterRegistry,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.enabled:true}") boolean enabled,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.window:50}") int window,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.min-calls:20}") int minCalls,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.open-duration:15s}") Duration openDuration,
+                                                @Value("${demo.resilience.embedding.circuit-breaker.half-open-calls:3}") int halfOpenCalls) {
+    return new CircuitBreaker("embedding", enabled, window, minCalls, failureRateThreshold, openDuration, halfOpenCalls, meterRegistry);
+  }
+}
@@ -0,0 +1,38 @@
+package com.github.joonasvali.demo.resilience;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embedding model decorator that runs every call to the delegate through a circuit breaker and a hedge,
+ * bounded by the deadline of the current request.
+ */
+public class ResilientEmbeddingModel implements EmbeddingModel {
+
+  private final EmbeddingModel delegate;
+  private final CircuitBreaker circuitBreaker;
+  private final Hedge hedge;
+
+  public ResilientEmbeddingModel(EmbeddingModel delegate, CircuitBreaker circuitBreaker, Hedge hedge) {
+    this.delegate = delegate;
+    this.circuitBreaker = circuitBreaker;
+    this.hedge = hedge;
+  }
+
+  @Override
+  public EmbeddingResponse call(EmbeddingRequest request) {
+    return circuitBreaker.execute(() -> hedge.execute(() -> delegate.call(request)));
+  }
+
+  @Override
+  public float[] embed(Document document) {
+    return circuitBreaker.execute(() -> hedge.execute(() -> delegate.embed(document)));
+  }
+
+  @Override
+  public int dimensions() {
+    return delegate.dimensions();
+  }
+}
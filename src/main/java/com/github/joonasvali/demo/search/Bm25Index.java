@@ -0,0 +1,297 @@
+package com.github.joonasvali.demo.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index ranking documents with Okapi BM25 over their text and the
+ * {@code title} and {@code topic} metadata. Postings are kept in primitive arrays per term.
+ * The index can be bounded in which case the oldest documents are evicted first, evicted documents
+ * are skipped while scoring and dropped from the postings once they outnumber the live ones.
+ */
+public class Bm25Index {
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final int MIN_DELETED_BEFORE_COMPACTION = 64;
+  private static final Set<String> STOP_WORDS = Set.of(
+      "a", "an", "and", "are", "as", "at", "be", "by", "do", "does", "for", "from", "how", "in", "is", "it",
+      "its", "of", "on", "or", "that", "the", "to", "was", "what", "when", "why", "with", "you");
+
+  private final int maxDocuments;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final Map<String, Integer> termIds = new HashMap<>();
+  private int[][] postingDocs = new int[16][];
+  private int[][] postingFreqs = new int[16][];
+  private int[] postingSizes = new int[16];
+  private int[] documentFrequency = new int[16];
+
+  private Document[] documents = new Document[16];
+  private int[] lengths = new int[16];
+  private int[][] documentTerms = new int[16][];
+  private final BitSet deleted = new BitSet();
+  private final Map<String, Integer> docsById = new HashMap<>();
+  private int size;
+  private int deletedCount;
+  private long totalLength;
+  private int oldestLive;
+
+  /**
+   * @param maxDocuments maximum number of indexed documents, zero means unbounded
+   */
+  public Bm25Index(int maxDocuments) {
+    this.maxDocuments = maxDocuments;
+  }
+
+  /**
+   * Index a document, replacing an earlier document with the same id
+   */
+  public void add(Document document) {
+    List<String> tokens = tokenize(indexedText(document));
+    lock.writeLock().lock();
+    try {
+      Integer previous = docsById.get(document.getId());
+      if (previous != null) {
+        delete(previous);
+      }
+      insert(document, tokens);
+      while (maxDocuments > 0 && size - deletedCount > maxDocuments && oldestLive < size) {
+        if (!deleted.get(oldestLive)) {
+          delete(oldestLive);
+        }
+        oldestLive++;
+      }
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(String id) {
+    lock.writeLock().lock();
+    try {
+      Integer doc = docsById.get(id);
+      if (doc != null) {
+        delete(doc);
+        compactIfNeeded();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param query free text query
+   * @param k maximum number of hits
+   * @return hits ordered by descending BM25 score
+   */
+  public List<Hit> search(String query, int k) {
+    List<String> terms = queryTerms(query);
+    if (terms.isEmpty() || k <= 0) {
+      return List.of();
+    }
+    lock.readLock().lock();
+    try {
+      int live = size - deletedCount;
+      if (live == 0) {
+        return List.of();
+      }
+      double averageLength = (double) totalLength / live;
+      double[] scores = new double[size];
+      int[] matched = new int[size];
+      int[] touched = new int[size];
+      int touchedCount = 0;
+
+      for (String term : terms) {
+        Integer termId = termIds.get(term);
+        if (termId == null || documentFrequency[termId] == 0) {
+          continue;
+        }
+        int df = documentFrequency[termId];
+        double idf = Math.log(1 + (live - df + 0.5) / (df + 0.5));
+        int[] docs = postingDocs[termId];
+        int[] freqs = postingFreqs[termId];
+        for (int i = 0; i < postingSizes[termId]; i++) {
+          int doc = docs[i];
+          if (deleted.get(doc)) {
+            continue;
+          }
+          double tf = freqs[i];
+          scores[doc] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * lengths[doc] / averageLength));
+          if (matched[doc]++ == 0) {
+            touched[touchedCount++] = doc;
+          }
+        }
+      }
+
+      Integer[] order = new Integer[touchedCount];
+      for (int i = 0; i < touchedCount; i++) {
+        order[i] = touched[i];
+      }
+      Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+      List<Hit> hits = new ArrayList<>(Math.min(k, touchedCount));
+      for (int i = 0; i < order.length && i < k; i++) {
+        int doc = order[i];
+        hits.add(new Hit(documents[doc], scores[doc], (double) matched[doc] / terms.size()));
+      }
+      return hits;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size - deletedCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return distinct searchable terms of a query, stop words removed
+   */
+  public static List<String> queryTerms(String query) {
+    return new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+  }
+
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null) {
+      return tokens;
+    }
+    for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+        tokens.add(token);
+      }
+    }
+    return tokens;
+  }
+
+  private static String indexedText(Document document) {
+    Map<String, Object> metadata = document.getMetadata();
+    return metadata.getOrDefault("title", "") + " " + metadata.getOrDefault("topic", "") + " " + document.getText();
+  }
+
+  private void insert(Document document, List<String> tokens) {
+    int doc = size++;
+    if (doc == documents.length) {
+      int capacity = documents.length * 2;
+      documents = Arrays.copyOf(documents, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      documentTerms = Arrays.copyOf(documentTerms, capacity);
+    }
+    documents[doc] = document;
+    lengths[doc] = tokens.size();
+    totalLength += tokens.size();
+    docsById.put(document.getId(), doc);
+
+    Map<Integer, Integer> frequencies = new HashMap<>();
+    for (String token : tokens) {
+      frequencies.merge(termId(token), 1, Integer::sum);
+    }
+    int[] terms = new int[frequencies.size()];
+    int t = 0;
+    for (Map.Entry<Integer, Integer> entry : frequencies.entrySet()) {
+      int termId = entry.getKey();
+      terms[t++] = termId;
+      int position = postingSizes[termId]++;
+      if (position == postingDocs[termId].length) {
+        postingDocs[termId] = Arrays.copyOf(postingDocs[termId], position * 2);
+        postingFreqs[termId] = Arrays.copyOf(postingFreqs[termId], position * 2);
+      }
+      postingDocs[termId][position] = doc;
+      postingFreqs[termId][position] = entry.getValue();
+      documentFrequency[termId]++;
+    }
+    documentTerms[doc] = terms;
+  }
+
+  private int termId(String term) {
+    Integer existing = termIds.get(term);
+    if (existing != null) {
+      return existing;
+    }
+    int termId = termIds.size();
+    if (termId == postingDocs.length) {
+      int capacity = termId * 2;
+      postingDocs = Arrays.copyOf(postingDocs, capacity);
+      postingFreqs = Arrays.copyOf(postingFreqs, capacity);
+      postingSizes = Arrays.copyOf(postingSizes, capacity);
+      documentFrequency = Arrays.copyOf(documentFrequency, capacity);
+    }
+    postingDocs[termId] = new int[4];
+    postingFreqs[termId] = new int[4];
+    termIds.put(term, termId);
+    return termId;
+  }
+
+  private void delete(int doc) {
+    if (deleted.get(doc)) {
+      return;
+    }
+    deleted.set(doc);
+    deletedCount++;
+    totalLength -= lengths[doc];
+    docsById.remove(documents[doc].getId(), doc);
+    for (int termId : documentTerms[doc]) {
+      documentFrequency[termId]--;
+    }
+  }
+
+  /**
+   * Rebuild the postings from the live documents once deleted documents outnumber them
+   */
+  private void compactIfNeeded() {
+    if (deletedCount < MIN_DELETED_BEFORE_COMPACTION || deletedCount < size - deletedCount) {
+      return;
+    }
+    Document[] live = new Document[size - deletedCount];
+    int count = 0;
+    for (int doc = 0; doc < size; doc++) {
+      if (!deleted.get(doc)) {
+        live[count++] = documents[doc];
+      }
+    }
+
+    termIds.clear();
+    postingDocs = new int[16][];
+    postingFreqs = new int[16][];
+    postingSizes = new int[16];
+    documentFrequency = new int[16];
+    documents = new Document[Math.max(16, count)];
+    lengths = new int[documents.length];
+    documentTerms = new int[documents.length][];
+    deleted.clear();
+    docsById.clear();
+    size = 0;
+    deletedCount = 0;
+    totalLength = 0;
+    oldestLive = 0;
+
+    for (Document document : live) {
+      insert(document, tokenize(indexedText(document)));
+    }
+  }
+
+  /**
+   * A lexical match.
+   * @param score BM25 score
+   * @param coverage fraction of the distinct query terms found in the document
+   */
+  public record Hit(Document document, double score, double coverage) {
+  }
+}
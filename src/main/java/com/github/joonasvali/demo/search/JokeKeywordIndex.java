@@ -0,0 +1,87 @@
+package com.github.joonasvali.demo.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BM25 index of the stored jokes, kept next to the vector store so that keyword queries can be answered
+ * without an embedding call. It lives in memory; jokes stored before a restart are read back on startup.
+ */
+@Component
+public class JokeKeywordIndex {
+
+  private final Bm25Index index;
+  private final int maxConclusiveTerms;
+  private final double minConclusiveCoverage;
+
+  public JokeKeywordIndex(MeterRegistry meterRegistry,
+                          @Value("${demo.search.keyword.max-documents:100000}") int maxDocuments,
+                          @Value("${demo.search.keyword.max-conclusive-terms:3}") int maxConclusiveTerms,
+                          @Value("${demo.search.keyword.min-conclusive-coverage:1.0}") double minConclusiveCoverage) {
+    this.index = new Bm25Index(maxDocuments);
+    this.maxConclusiveTerms = maxConclusiveTerms;
+    this.minConclusiveCoverage = minConclusiveCoverage;
+    Gauge.builder("joke.keyword.index.size", index, Bm25Index::size).register(meterRegistry);
+  }
+
+  /**
+   * Index a stored document. Only jokes are indexed, so that keyword answers of a joke search never include
+   * other documents stored next to them.
+   */
+  public void add(Document document) {
+    if ("joke".equals(document.getMetadata().get("type"))) {
+      index.add(document);
+    }
+  }
+
+  /**
+   * @return keyword hits ordered by descending BM25 score
+   */
+  public List<Bm25Index.Hit> search(String query, int topK) {
+    return index.search(query, topK);
+  }
+
+  /**
+   * Keyword hits are conclusive for short, keyword-like queries whose best hit contains all the query terms
+   */
+  public boolean isConclusive(String query, List<Bm25Index.Hit> hits) {
+    if (hits.isEmpty()) {
+      return false;
+    }
+    int terms = Bm25Index.queryTerms(query).size();
+    return terms <= maxConclusiveTerms && hits.get(0).coverage() >= minConclusiveCoverage;
+  }
+
+  /**
+   * Convert hits into result documents scored relative to the best hit, so that scores stay in [0, 1]
+   */
+  public static List<Document> toDocuments(List<Bm25Index.Hit> hits) {
+    if (hits.isEmpty()) {
+      return List.of();
+    }
+    double best = hits.get(0).score();
+    return hits.stream()
+        .map(hit -> {
+          Map<String, Object> metadata = new HashMap<>(hit.document().getMetadata());
+          metadata.put("match", "keyword");
+          return Document.builder()
+              .id(hit.document().getId())
+              .text(hit.document().getText())
+              .metadata(metadata)
+              .score(best > 0 ? hit.score() / best : 0)
+              .build();
+        })
+        .toList();
+  }
+
+  public int size() {
+    return index.size();
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.joonasvali.demo.search;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges ranked result lists by summing {@code 1 / (k + rank)} for every list a document appears in,
+ * which needs no calibration between the BM25 and cosine score scales.
+ */
+public final class ReciprocalRankFusion {
+
+  private ReciprocalRankFusion() {
+  }
+
+  /**
+   * @param k rank constant, 60 in the original paper
+   * @param topK maximum number of fused results
+   * @param rankings result lists ordered best first, documents are matched by id
+   * @return fused results, each keeping the document from the first list it appeared in
+   */
+  @SafeVarargs
+  public static List<Document> fuse(int k, int topK, List<Document>... rankings) {
+    Map<String, Document> documents = new LinkedHashMap<>();
+    Map<String, Double> scores = new HashMap<>();
+    for (List<Document> ranking : rankings) {
+      for (int rank = 0; rank < ranking.size(); rank++) {
+        Document document = ranking.get(rank);
+        documents.putIfAbsent(document.getId(), document);
+        scores.merge(document.getId(), 1.0 / (k + rank + 1), Double::sum);
+      }
+    }
+    List<Document> fused = new ArrayList<>(documents.values());
+    fused.sort((a, b) -> Double.compare(scores.get(b.getId()), scores.get(a.getId())));
+    return fused.size() > topK ? List.copyOf(fused.subList(0, topK)) : fused;
+  }
+}
@@ -0,0 +1,13 @@
+package com.github.joonasvali.demo.search;
+
+/**
+ * How joke searches are answered.
+ */
+public enum SearchMode {
+  /** Embedding similarity search in the vector store only */
+  VECTOR,
+  /** BM25 over the local inverted index only, no embedding call */
+  KEYWORD,
+  /** Keyword hits alone when they are conclusive, otherwise keyword and vector hits fused by reciprocal rank */
+  HYBRID
+}
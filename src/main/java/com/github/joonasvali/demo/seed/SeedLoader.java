@@ -0,0 +1,337 @@
+package com.github.joonasvali.demo.seed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.joonasvali.demo.VectorDatabaseService;
+import com.github.joonasvali.demo.health.VectorStoreHealthProbe;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.snapshot.VectorSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Seeds the vector store with jokes from a JSON Lines file once the application is ready.
+ * The file is streamed line by line and stored in bounded batches on a background thread, so startup
+ * time does not depend on its size. After every stored batch the number of consumed lines is written
+ * to a checkpoint file, an interrupted run resumes from there on the next start.
+ *
+ * <p>A migration of documents from an old collection is awaited first, so that they are not seeded a second time.
+ * Documents already in the store are then read back into the keyword index and the deduplicator, which only live
+ * in memory, before seeding is skipped or resumed.
+ * When the vector store is empty and a {@link VectorSnapshot} exists, the store is restored from it instead,
+ * with the stored embeddings, so that a cold start is bound by disk throughput rather than the embedding API.
+ * A restore is checkpointed like seeding and resumes where it failed.
+ */
+@Component
+public class SeedLoader {
+
+  private static final Logger logger = LoggerFactory.getLogger(SeedLoader.class);
+
+  private final VectorDatabaseService vectorDatabaseService;
+  private final VectorStoreHealthProbe vectorStoreHealthProbe;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final Resource seedFile;
+  private final Path checkpointFile;
+  private final int batchSize;
+  private final Path snapshotFile;
+  private final Path snapshotCheckpointFile;
+  private final boolean restoreSnapshot;
+  private final int snapshotBatchSize;
+
+  private final Counter storedJokes;
+  private final Counter invalidLines;
+
+  private volatile SeedProgress progress = SeedProgress.idle();
+
+  public SeedLoader(VectorDatabaseService vectorDatabaseService,
+                    VectorStoreHealthProbe vectorStoreHealthProbe,
+                    ObjectMapper objectMapper,
+                    MeterRegistry meterRegistry,
+                    @Value("${demo.seed.enabled:true}") boolean enabled,
+                    @Value("${demo.seed.file:classpath:seed/jokes.jsonl}") Resource seedFile,
+                    @Value("${demo.seed.checkpoint:data/seed.checkpoint}") Path checkpointFile,
+                    @Value("${demo.seed.batch-size:64}") int batchSize,
+                    @Value("${demo.snapshot.file:data/jokes.snapshot}") Path snapshotFile,
+                    @Value("${demo.snapshot.checkpoint:data/snapshot.checkpoint}") Path snapshotCheckpointFile,
+                    @Value("${demo.snapshot.restore-on-startup:true}") boolean restoreSnapshot,
+                    @Value("${demo.snapshot.batch-size:2000}") int snapshotBatchSize) {
+    this.vectorDatabaseService = vectorDatabaseService;
+    this.vectorStoreHealthProbe = vectorStoreHealthProbe;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.seedFile = seedFile;
+    this.checkpointFile = checkpointFile;
+    this.batchSize = Math.max(1, batchSize);
+    this.snapshotFile = snapshotFile;
+    this.snapshotCheckpointFile = snapshotCheckpointFile;
+    this.restoreSnapshot = restoreSnapshot;
+    this.snapshotBatchSize = Math.max(1, snapshotBatchSize);
+
+    this.storedJokes = Counter.builder("vector.seed.jokes").tag("outcome", "stored").register(meterRegistry);
+    this.invalidLines = Counter.builder("vector.seed.jokes").tag("outcome", "invalid").register(meterRegistry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void onApplicationReady() {
+    if (!enabled) {
+      progress = new SeedProgress("SKIPPED", 0, 0, 0, null, "Seeding is disabled");
+      return;
+    }
+    Thread.ofVirtual().name("vector-seed-loader").start(this::load);
+  }
+
+  public SeedProgress progress() {
+    return progress;
+  }
+
+  /**
+   * Write the stored documents and their embeddings to the snapshot file restored on the next cold start
+   */
+  public VectorSnapshot.Summary writeSnapshot() {
+    return vectorDatabaseService.exportSnapshot(snapshotFile);
+  }
+
+  void load() {
+    Instant startedAt = Instant.now();
+    awaitMigration(startedAt);
+    if (restoreSnapshot && restore(startedAt)) {
+      return;
+    }
+    try {
+      long documents = vectorStoreHealthProbe.documentCount();
+      if (documents > 0) {
+        indexStoredDocuments(documents, startedAt);
+      }
+      Checkpoint checkpoint = readCheckpoint();
+      if (checkpoint != null && checkpoint.complete()) {
+        progress = new SeedProgress("SKIPPED", checkpoint.lines(), 0, 0, startedAt, "Seed file was already loaded");
+        logger.info("Seed file {} was already loaded, skipping seeding", seedFile.getDescription());
+        return;
+      }
+      if (checkpoint == null && documents > 0) {
+        progress = new SeedProgress("SKIPPED", 0, 0, 0, startedAt, "Vector store already holds " + documents + " document(s)");
+        logger.info("Vector store already holds {} document(s), skipping seeding", documents);
+        return;
+      }
+      long resumeAt = checkpoint == null ? 0 : checkpoint.lines();
+      if (resumeAt > 0) {
+        logger.info("Resuming seeding of {} after line {}", seedFile.getDescription(), resumeAt);
+      }
+      seed(resumeAt, startedAt);
+    } catch (Exception e) {
+      SeedProgress current = progress;
+      progress = new SeedProgress("FAILED", current.linesRead(), current.stored(), current.invalid(), startedAt, e.getMessage());
+      logger.error("❌ Seeding the vector database failed after line {}: {}", current.linesRead(), e.getMessage(), e);
+    }
+  }
+
+  private void awaitMigration(Instant startedAt) {
+    if (vectorStoreHealthProbe.migration().isDone()) {
+      return;
+    }
+    progress = new SeedProgress("WAITING", 0, 0, 0, startedAt, "Waiting for the vector store migration");
+    logger.info("Waiting for the vector store migration before seeding");
+    try {
+      vectorStoreHealthProbe.migration().join();
+    } catch (CompletionException e) {
+      // Logged by the store, seeding goes on with whatever was copied
+    }
+  }
+
+  /**
+   * A failure only leaves keyword search and deduplication without the stored jokes, seeding goes on
+   */
+  private void indexStoredDocuments(long documents, Instant startedAt) {
+    progress = new SeedProgress("INDEXING", 0, 0, 0, startedAt, "Indexing " + documents + " stored document(s)");
+    try {
+      vectorDatabaseService.indexStoredDocuments();
+    } catch (Exception e) {
+      logger.warn("⚠️ Could not index the stored documents for keyword search and deduplication: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Restore the snapshot into an empty store, or resume a restore that was interrupted. The number of restored
+   * documents is checkpointed after every batch, so that a failed restore continues on the next start instead of
+   * leaving a partly restored store that would then count as seeded. Only a restore that stored nothing falls back
+   * to seeding from the seed file.
+   * @return true if seeding is settled by the restore: the store was restored or will be on the next start
+   */
+  private boolean restore(Instant startedAt) {
+    long restored = 0;
+    try {
+      if (!Files.exists(snapshotFile)) {
+        return false;
+      }
+      String source = snapshotSource();
+      Checkpoint checkpoint = readCheckpoint(snapshotCheckpointFile, source);
+      boolean resuming = checkpoint != null && !checkpoint.complete();
+      if (!resuming && vectorStoreHealthProbe.documentCount() > 0) {
+        return false;
+      }
+      restored = resuming ? checkpoint.lines() : 0;
+      if (resuming) {
+        logger.info("Resuming restore of snapshot {} after {} document(s)", snapshotFile, restored);
+        indexStoredDocuments(restored, startedAt);
+      }
+      progress = new SeedProgress("RESTORING", 0, restored, 0, startedAt, null);
+      long[] stored = {restored};
+      VectorSnapshot.Summary summary = vectorDatabaseService.importSnapshot(snapshotFile, snapshotBatchSize, restored, documents -> {
+        stored[0] = documents;
+        writeCheckpoint(snapshotCheckpointFile, source, new Checkpoint(documents, false));
+        progress = new SeedProgress("RESTORING", 0, documents, 0, startedAt, null);
+      });
+      restored = stored[0];
+      writeCheckpoint(snapshotCheckpointFile, source, new Checkpoint(summary.documents(), true));
+      storedJokes.increment(summary.documents());
+      progress = new SeedProgress("RESTORED", 0, summary.documents(), 0, startedAt, "Restored from snapshot " + snapshotFile);
+      logger.info("✅ Restored vector database with {} document(s) from {} in {} ms", summary.documents(), snapshotFile,
+          System.currentTimeMillis() - startedAt.toEpochMilli());
+      return true;
+    } catch (Exception e) {
+      long stored = progress.stored();
+      if (Math.max(restored, stored) == 0) {
+        logger.warn("⚠️ Could not restore snapshot {}, seeding from {} instead: {}", snapshotFile, seedFile.getDescription(), e.getMessage());
+        return false;
+      }
+      progress = new SeedProgress("FAILED", 0, stored, 0, startedAt,
+          "Restoring snapshot " + snapshotFile + " failed, it is resumed on the next start: " + e.getMessage());
+      logger.error("❌ Restoring snapshot {} failed after {} document(s), it is resumed on the next start: {}",
+          snapshotFile, stored, e.getMessage(), e);
+      return true;
+    }
+  }
+
+  /**
+   * A rewritten snapshot does not continue the restore of the previous one
+   */
+  private String snapshotSource() throws IOException {
+    return snapshotFile.toAbsolutePath() + ":" + Files.size(snapshotFile) + ":" + Files.getLastModifiedTime(snapshotFile).toMillis();
+  }
+
+  private void seed(long resumeAt, Instant startedAt) throws IOException {
+    long line = 0;
+    long stored = 0;
+    long invalid = 0;
+    List<Joke> batch = new ArrayList<>(batchSize);
+    progress = new SeedProgress("RUNNING", resumeAt, 0, 0, startedAt, null);
+
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(seedFile.getInputStream(), StandardCharsets.UTF_8))) {
+      String text;
+      while ((text = reader.readLine()) != null) {
+        line++;
+        if (line <= resumeAt || text.isBlank()) {
+          continue;
+        }
+        try {
+          batch.add(objectMapper.readValue(text, Joke.class));
+        } catch (IOException e) {
+          invalid++;
+          invalidLines.increment();
+          logger.warn("Skipping invalid seed line {}: {}", line, e.getMessage());
+        }
+        if (batch.size() >= batchSize) {
+          stored += store(batch, line);
+          progress = new SeedProgress("RUNNING", line, stored, invalid, startedAt, null);
+        }
+      }
+    }
+    stored += store(batch, line);
+    writeCheckpoint(new Checkpoint(line, true));
+    progress = new SeedProgress("COMPLETED", line, stored, invalid, startedAt, null);
+    logger.info("✅ Seeded vector database with {} joke(s) from {} in {} ms", stored, seedFile.getDescription(),
+        System.currentTimeMillis() - startedAt.toEpochMilli());
+  }
+
+  /**
+   * Store a batch and checkpoint the line it ends at, a failed insert stops the run so that
+   * the next start resumes from the last stored batch
+   */
+  private int store(List<Joke> batch, long line) throws IOException {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    int stored = vectorDatabaseService.storeJokes(batch);
+    storedJokes.increment(stored);
+    batch.clear();
+    writeCheckpoint(new Checkpoint(line, false));
+    logger.info("Seeded {} joke(s), up to line {}", stored, line);
+    return stored;
+  }
+
+  private Checkpoint readCheckpoint() throws IOException {
+    return readCheckpoint(checkpointFile, seedFile.getDescription());
+  }
+
+  private void writeCheckpoint(Checkpoint checkpoint) throws IOException {
+    writeCheckpoint(checkpointFile, seedFile.getDescription(), checkpoint);
+  }
+
+  private static Checkpoint readCheckpoint(Path file, String source) throws IOException {
+    if (!Files.exists(file)) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file)) {
+      properties.load(reader);
+    }
+    // A checkpoint written for another seed file or snapshot does not apply
+    if (!source.equals(properties.getProperty("source"))) {
+      return null;
+    }
+    return new Checkpoint(Long.parseLong(properties.getProperty("lines", "0")),
+        Boolean.parseBoolean(properties.getProperty("complete")));
+  }
+
+  /**
+   * @throws UncheckedIOException so that it can be called from a batch callback
+   */
+  private static void writeCheckpoint(Path file, String source, Checkpoint checkpoint) {
+    try {
+      writeCheckpointFile(file, source, checkpoint);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write checkpoint " + file, e);
+    }
+  }
+
+  private static void writeCheckpointFile(Path file, String source, Checkpoint checkpoint) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("source", source);
+    properties.setProperty("lines", Long.toString(checkpoint.lines()));
+    properties.setProperty("complete", Boolean.toString(checkpoint.complete()));
+
+    Path absolute = file.toAbsolutePath();
+    Files.createDirectories(absolute.getParent());
+    Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+    try (Writer writer = Files.newBufferedWriter(temporary)) {
+      properties.store(writer, "Vector database seed or restore progress");
+    }
+    Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private record Checkpoint(long lines, boolean complete) {
+  }
+}
@@ -0,0 +1,19 @@
+package com.github.joonasvali.demo.seed;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the seed loader.
+ * @param state IDLE, WAITING, RESTORING, RESTORED, INDEXING, RUNNING, COMPLETED, SKIPPED or FAILED
+ * @param linesRead lines of the seed file consumed so far, including lines skipped on resume
+ * @param stored jokes stored during this run, or documents restored from a snapshot
+ * @param invalid lines that could not be parsed as a joke
+ * @param startedAt when this run started, null while idle
+ * @param message reason for waiting, indexing, skipping or failing, or the restored snapshot, null otherwise
+ */
+public record SeedProgress(String state, long linesRead, long stored, long invalid, Instant startedAt, String message) {
+
+  static SeedProgress idle() {
+    return new SeedProgress("IDLE", 0, 0, 0, null, null);
+  }
+}
@@ -0,0 +1,15 @@
+package com.github.joonasvali.demo.snapshot;
+
+/**
+ * A snapshot file that cannot be written or read, e.g. because it is truncated or fails its checksum
+ */
+public class SnapshotException extends RuntimeException {
+
+  public SnapshotException(String message) {
+    super(message);
+  }
+
+  public SnapshotException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
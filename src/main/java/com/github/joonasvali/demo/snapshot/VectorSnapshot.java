@@ -0,0 +1,339 @@
+package com.github.joonasvali.demo.snapshot;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary snapshot of documents with their embeddings, read back without calling the embedding model.
+ *
+ * <p>File layout, little endian: a header ({@code magic, version, dimensions, reserved, count, recordBytes,
+ * recordsChecksum, vectorsChecksum}), then one record per document ({@code id, text, metadata JSON}, each
+ * as a length-prefixed UTF-8 string), then, at an 8-byte aligned offset, the {@code count * dimensions}
+ * embedding floats in document order. The CRC32C checksums cover the record and the vector section.
+ *
+ * <p>Records and vectors are written to separate files while streaming and joined at the end, so a snapshot
+ * of any size is written with a fixed amount of memory. Reading memory-maps the file.
+ */
+public final class VectorSnapshot {
+
+  private static final int MAGIC = 0x504E534A; // "JSNP"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 48;
+  private static final int BUFFER_BYTES = 1 << 20;
+  private static final ObjectMapper JSON = new ObjectMapper();
+  private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+  };
+
+  private VectorSnapshot() {
+  }
+
+  /**
+   * Description of a written or read snapshot
+   * @param documents number of documents
+   * @param dimensions length of every embedding, zero for an empty snapshot
+   * @param bytes size of the snapshot file
+   */
+  public record Summary(long documents, int dimensions, long bytes) {
+  }
+
+  /**
+   * Write a snapshot from batches of documents and embeddings. The file is replaced atomically once complete.
+   * @param file the snapshot file
+   * @param source calls the given consumer with every batch to write
+   */
+  public static Summary write(Path file, Consumer<BiConsumer<List<Document>, List<float[]>>> source)
+      throws IOException {
+    Path absolute = file.toAbsolutePath();
+    Files.createDirectories(absolute.getParent());
+    Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+    Path vectorsFile = absolute.resolveSibling(absolute.getFileName() + ".vectors.tmp");
+
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE, StandardOpenOption.READ);
+         FileChannel vectorsOut = FileChannel.open(vectorsFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+             StandardOpenOption.WRITE, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE)) {
+      out.position(HEADER_BYTES);
+      SectionWriter records = new SectionWriter(out);
+      SectionWriter vectors = new SectionWriter(vectorsOut);
+      long[] count = new long[1];
+      int[] dimensions = new int[1];
+
+      source.accept((documents, embeddings) -> {
+        try {
+          for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            float[] embedding = embeddings.get(i);
+            if (count[0] == 0) {
+              dimensions[0] = embedding.length;
+            } else if (embedding.length != dimensions[0]) {
+              throw new IllegalArgumentException("Document " + document.getId() + " has " + embedding.length
+                  + " dimensions, expected " + dimensions[0]);
+            }
+            records.putString(document.getId());
+            records.putString(document.getText());
+            records.putBytes(JSON.writeValueAsBytes(document.getMetadata()));
+            vectors.putFloats(embedding);
+            count[0]++;
+          }
+        } catch (IOException e) {
+          throw new SnapshotException("Could not write snapshot " + file, e);
+        }
+      });
+      records.flush();
+      vectors.flush();
+
+      long recordBytes = out.position() - HEADER_BYTES;
+      long vectorsOffset = vectorsOffset(recordBytes);
+      out.write(ByteBuffer.allocate((int) (vectorsOffset - out.position())), out.position());
+      long vectorBytes = vectorsOut.size();
+      long copied = 0;
+      while (copied < vectorBytes) {
+        copied += vectorsOut.transferTo(copied, vectorBytes - copied, out.position(vectorsOffset + copied));
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(MAGIC)
+          .putInt(VERSION)
+          .putInt(dimensions[0])
+          .putInt(0)
+          .putLong(count[0])
+          .putLong(recordBytes)
+          .putLong(records.checksum())
+          .putLong(vectors.checksum())
+          .flip();
+      out.write(header, 0);
+      out.force(true);
+    } catch (RuntimeException | IOException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return summary(absolute);
+  }
+
+  /**
+   * Read a snapshot, verifying both checksums before the first batch is handed out
+   * @param file the snapshot file
+   * @param batchSize documents per batch
+   * @param consumer receives batches of documents and their embeddings, in the order they were written
+   * @throws SnapshotException if the file is not a snapshot, of another version, truncated or corrupt
+   */
+  public static Summary read(Path file, int batchSize, BiConsumer<List<Document>, List<float[]>> consumer) throws IOException {
+    return read(file, batchSize, 0, consumer);
+  }
+
+  /**
+   * Read a snapshot from its {@code skip + 1}th document on, e.g. to resume an interrupted restore
+   * @param skip documents at the start that are not handed out
+   * @return the summary of the whole snapshot
+   */
+  public static Summary read(Path file, int batchSize, long skip, BiConsumer<List<Document>, List<float[]>> consumer)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Header header = header(file, channel);
+      if (header.recordBytes() > Integer.MAX_VALUE) {
+        throw new SnapshotException("Snapshot " + file + " holds more than 2 GB of document text");
+      }
+      MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, header.recordBytes());
+      records.order(ByteOrder.LITTLE_ENDIAN);
+      long rowBytes = (long) header.dimensions() * Float.BYTES;
+      int rowsPerWindow = rowBytes == 0 ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE / rowBytes, 1 << 16);
+      verify(file, header, records, channel, rowsPerWindow);
+
+      for (long skipped = 0; skipped < Math.min(skip, header.count()); skipped++) {
+        for (int field = 0; field < 3; field++) {
+          skipBytes(records);
+        }
+      }
+      int batch = Math.max(1, batchSize);
+      for (long first = Math.max(0, skip); first < header.count(); first += batch) {
+        int rows = (int) Math.min(batch, header.count() - first);
+        FloatBuffer vectors = channel.map(FileChannel.MapMode.READ_ONLY, header.vectorsOffset() + first * rowBytes, rows * rowBytes)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .asFloatBuffer();
+        List<Document> documents = new ArrayList<>(rows);
+        List<float[]> embeddings = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+          String id = getString(records);
+          String text = getString(records);
+          Map<String, Object> metadata = JSON.readValue(getBytes(records), METADATA_TYPE);
+          documents.add(new Document(id, text, metadata));
+          float[] embedding = new float[header.dimensions()];
+          vectors.get(i * header.dimensions(), embedding);
+          embeddings.add(embedding);
+        }
+        consumer.accept(documents, embeddings);
+      }
+      return new Summary(header.count(), header.dimensions(), channel.size());
+    }
+  }
+
+  /**
+   * Read the header of a snapshot without loading it
+   */
+  public static Summary summary(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Header header = header(file, channel);
+      return new Summary(header.count(), header.dimensions(), channel.size());
+    }
+  }
+
+  private static Header header(Path file, FileChannel channel) throws IOException {
+    if (channel.size() < HEADER_BYTES) {
+      throw new SnapshotException("Snapshot " + file + " is truncated");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    channel.read(buffer, 0);
+    buffer.flip();
+    if (buffer.getInt() != MAGIC) {
+      throw new SnapshotException(file + " is not a vector snapshot");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new SnapshotException("Snapshot " + file + " has version " + version + ", only version " + VERSION + " can be read");
+    }
+    int dimensions = buffer.getInt();
+    buffer.getInt();
+    Header header = new Header(dimensions, buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    long expectedSize = header.vectorsOffset() + header.count() * dimensions * Float.BYTES;
+    if (dimensions < 0 || header.count() < 0 || header.recordBytes() < 0 || channel.size() != expectedSize) {
+      throw new SnapshotException("Snapshot " + file + " is truncated or corrupt, expected " + expectedSize
+          + " bytes but found " + channel.size());
+    }
+    return header;
+  }
+
+  private static void verify(Path file, Header header, ByteBuffer records, FileChannel channel, int rowsPerWindow) throws IOException {
+    CRC32C checksum = new CRC32C();
+    checksum.update(records.duplicate());
+    if (checksum.getValue() != header.recordsChecksum()) {
+      throw new SnapshotException("Snapshot " + file + " is corrupt, the document section does not match its checksum");
+    }
+
+    checksum.reset();
+    long rowBytes = (long) header.dimensions() * Float.BYTES;
+    for (long first = 0; first < header.count(); first += rowsPerWindow) {
+      long rows = Math.min(rowsPerWindow, header.count() - first);
+      checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, header.vectorsOffset() + first * rowBytes, rows * rowBytes));
+    }
+    if (checksum.getValue() != header.vectorsChecksum()) {
+      throw new SnapshotException("Snapshot " + file + " is corrupt, the embedding section does not match its checksum");
+    }
+  }
+
+  /**
+   * The vector section starts at the first 8-byte boundary after the records, so that it can be viewed as floats in place
+   */
+  private static long vectorsOffset(long recordBytes) {
+    return (HEADER_BYTES + recordBytes + 7) & ~7L;
+  }
+
+  private static String getString(ByteBuffer buffer) {
+    return new String(getBytes(buffer), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] getBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[length(buffer)];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static void skipBytes(ByteBuffer buffer) {
+    int length = length(buffer);
+    buffer.position(buffer.position() + length);
+  }
+
+  private static int length(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new SnapshotException("Snapshot record of " + length + " bytes runs past the document section");
+    }
+    return length;
+  }
+
+  private record Header(int dimensions, long count, long recordBytes, long recordsChecksum, long vectorsChecksum) {
+
+    long vectorsOffset() {
+      return VectorSnapshot.vectorsOffset(recordBytes);
+    }
+  }
+
+  /**
+   * Buffered, checksummed writer of one section of the snapshot
+   */
+  private static final class SectionWriter {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C checksum = new CRC32C();
+
+    private SectionWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void putString(String value) throws IOException {
+      putBytes((value == null ? "" : value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    void putBytes(byte[] bytes) throws IOException {
+      ensure(Integer.BYTES);
+      buffer.putInt(bytes.length);
+      int offset = 0;
+      while (offset < bytes.length) {
+        ensure(1);
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    void putFloats(float[] values) throws IOException {
+      int offset = 0;
+      while (offset < values.length) {
+        ensure(Float.BYTES);
+        int length = Math.min(buffer.remaining() / Float.BYTES, values.length - offset);
+        buffer.asFloatBuffer().put(values, offset, length);
+        buffer.position(buffer.position() + length * Float.BYTES);
+        offset += length;
+      }
+    }
+
+    long checksum() {
+      return checksum.getValue();
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      checksum.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.github.joonasvali.demo.streaming;
+
+import com.github.joonasvali.demo.model.JokeStreamEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental scanner for the JSON object the model streams back for a {@code Joke}.
+ * It emits the decoded text of top-level string values as soon as the characters arrive,
+ * so the client can render the title and content before the object is complete.
+ * The final object is still parsed by the structured output converter once the stream ends.
+ */
+public class StreamingJokeParser {
+
+  private int depth;
+  private boolean inString;
+  private boolean escape;
+  private boolean readingKey;
+  private StringBuilder unicode;
+  private final StringBuilder key = new StringBuilder();
+  private String currentField;
+
+  /**
+   * Feed the next chunk of model output
+   * @param chunk raw text as produced by the model
+   * @return deltas for any string value characters contained in the chunk
+   */
+  public List<JokeStreamEvent> accept(String chunk) {
+    List<JokeStreamEvent> events = new ArrayList<>(1);
+    StringBuilder delta = new StringBuilder();
+
+    for (int i = 0; i < chunk.length(); i++) {
+      char c = chunk.charAt(i);
+
+      if (!inString) {
+        switch (c) {
+          case '{' -> {
+            depth++;
+            readingKey = depth == 1;
+          }
+          case '}' -> depth--;
+          // Array elements are nested values like the fields of nested objects, brackets in text around the object are not
+          case '[' -> {
+            if (depth >= 1) {
+              depth++;
+            }
+          }
+          case ']' -> {
+            if (depth > 1) {
+              depth--;
+            }
+          }
+          case ',' -> readingKey = depth == 1;
+          case ':' -> readingKey = false;
+          case '"' -> {
+            // Strings of nested values are scanned too, so that braces and quotes inside them are not counted
+            inString = depth >= 1;
+            if (depth == 1) {
+              if (readingKey) {
+                key.setLength(0);
+                currentField = null;
+              } else {
+                currentField = key.toString();
+              }
+            }
+          }
+          default -> {
+          }
+        }
+        continue;
+      }
+
+      char decoded;
+      if (unicode != null) {
+        if (Character.digit(c, 16) < 0) {
+          // Not a valid escape, keep it as written and read this character again
+          StringBuilder target = target(delta);
+          if (target != null) {
+            target.append("\\u").append(unicode);
+          }
+          unicode = null;
+          i--;
+          continue;
+        }
+        unicode.append(c);
+        if (unicode.length() < 4) {
+          continue;
+        }
+        decoded = (char) Integer.parseInt(unicode.toString(), 16);
+        unicode = null;
+      } else if (escape) {
+        escape = false;
+        if (c == 'u') {
+          unicode = new StringBuilder(4);
+          continue;
+        }
+        decoded = switch (c) {
+          case 'n' -> '\n';
+          case 't' -> '\t';
+          case 'r' -> '\r';
+          case 'b' -> '\b';
+          case 'f' -> '\f';
+          default -> c;
+        };
+      } else if (c == '\\') {
+        escape = true;
+        continue;
+      } else if (c == '"') {
+        inString = false;
+        flush(events, delta);
+        continue;
+      } else {
+        decoded = c;
+      }
+
+      StringBuilder target = target(delta);
+      if (target != null) {
+        target.append(decoded);
+      }
+    }
+
+    flush(events, delta);
+    return events;
+  }
+
+  /**
+   * @return where the characters of the current string go, null for strings of nested values
+   */
+  private StringBuilder target(StringBuilder delta) {
+    if (depth > 1) {
+      return null;
+    }
+    return readingKey ? key : delta;
+  }
+
+  private void flush(List<JokeStreamEvent> events, StringBuilder delta) {
+    if (delta.length() > 0 && currentField != null) {
+      events.add(JokeStreamEvent.delta(currentField, delta.toString()));
+    }
+    delta.setLength(0);
+  }
+}
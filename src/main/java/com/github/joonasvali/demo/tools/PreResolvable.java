@@ -0,0 +1,23 @@
+package com.github.joonasvali.demo.tools;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a side-effect free tool method without parameters that can be run locally before the model
+ * is called. When a joke is requested for {@link #subject()} the tool result replaces the subject,
+ * so the model does not need a tool call and a second round trip to obtain it.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PreResolvable {
+
+  /**
+   * The requested subject that the tool resolves, compared case-insensitively
+   */
+  String subject();
+}
@@ -6,10 +6,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class RandomTopicTools {
   private static final Logger logger = LoggerFactory.getLogger(RandomNumberTools.class);
 
+  // Jokes about the default "random topic" subject get their topic from here without asking the model
+  @PreResolvable(subject = "random topic")
   @Tool(name = "generateRandomTopic", description = "Generates a random topic for any purpose.")
   public String generateRandomTopic() {
     int index = (int) (Math.random() * TOPICS.length);
@@ -17,6 +21,13 @@ public class RandomTopicTools {
     return TOPICS[index];
   }
 
+  /**
+   * @return every topic the tool can pick from
+   */
+  public static List<String> topics() {
+    return List.of(TOPICS);
+  }
+
   private static final String[] TOPICS = {
       "Technology",
       "Science",
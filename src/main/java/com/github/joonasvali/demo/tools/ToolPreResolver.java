@@ -0,0 +1,75 @@
+package com.github.joonasvali.demo.tools;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs {@link PreResolvable} tools locally in place of a model tool call.
+ */
+@Component
+public class ToolPreResolver {
+
+  private static final Logger logger = LoggerFactory.getLogger(ToolPreResolver.class);
+
+  private final boolean enabled;
+  private final Map<String, Resolver> resolvers = new HashMap<>();
+
+  public ToolPreResolver(RandomNumberTools randomNumberTools, RandomTopicTools randomTopicTools,
+                         MeterRegistry meterRegistry,
+                         @Value("${demo.tools.pre-resolve.enabled:true}") boolean enabled) {
+    this.enabled = enabled;
+    for (Object tools : List.of(randomNumberTools, randomTopicTools)) {
+      for (Method method : AopUtils.getTargetClass(tools).getMethods()) {
+        PreResolvable annotation = method.getAnnotation(PreResolvable.class);
+        if (annotation == null) {
+          continue;
+        }
+        if (method.getParameterCount() > 0) {
+          throw new IllegalStateException("@PreResolvable tool " + method + " must not take parameters");
+        }
+        Counter counter = Counter.builder("joke.tools.pre.resolved").tag("tool", method.getName()).register(meterRegistry);
+        resolvers.put(annotation.subject().toLowerCase(Locale.ROOT), new Resolver(tools, method, counter));
+      }
+    }
+  }
+
+  /**
+   * @param subject the requested joke subject
+   * @return the result of the tool resolving this subject, empty when no tool applies
+   */
+  public Optional<String> resolve(String subject) {
+    if (!enabled || subject == null) {
+      return Optional.empty();
+    }
+    Resolver resolver = resolvers.get(subject.toLowerCase(Locale.ROOT));
+    if (resolver == null) {
+      return Optional.empty();
+    }
+    try {
+      String result = String.valueOf(resolver.method().invoke(resolver.target()));
+      resolver.counter().increment();
+      logger.debug("Pre-resolved subject '{}' with tool {} to '{}'", subject, resolver.method().getName(), result);
+      return Optional.of(result);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      // The model can still call the tool itself
+      logger.warn("Could not pre-resolve subject '{}' with tool {}: {}", subject, resolver.method().getName(), e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  private record Resolver(Object target, Method method, Counter counter) {
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A vector store whose documents can be read, written and searched together with their embeddings,
+ * so that they can be copied, and a query searched in several stores, without calling the embedding model again.
+ */
+public interface EmbeddedDocumentStore {
+
+  /**
+   * Add documents whose embeddings are already known, without calling the embedding model
+   * @param documents the documents
+   * @param embeddings one embedding per document, in the same order
+   */
+  void add(List<Document> documents, List<float[]> embeddings);
+
+  /**
+   * Read every stored document with its embedding, in batches
+   * @param consumer receives a batch of documents and their embeddings, in the same order
+   */
+  void forEachEmbedded(BiConsumer<List<Document>, List<float[]>> consumer);
+
+  /**
+   * Search with an already computed query embedding, the query text of the request is ignored
+   * @param query the query embedding
+   * @param request top-K, similarity threshold and filter
+   * @return matching documents ordered by descending similarity
+   */
+  List<Document> similaritySearch(float[] query, SearchRequest request);
+}
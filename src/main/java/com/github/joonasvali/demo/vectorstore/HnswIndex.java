@@ -0,0 +1,543 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over unit-length float vectors, scored by inner product
+ * (equal to cosine similarity for normalized vectors). Vectors and adjacency lists are kept in
+ * primitive arrays; nodes are numbered in insertion order and can be marked deleted, in which case
+ * they still route searches but are never returned.
+ *
+ * <p>With {@link VectorQuantization quantization} searches traverse the graph scoring quantized codes,
+ * then re-rank {@code rerankFactor * k} candidates by exact similarity. The full-precision vectors are
+ * then kept in a memory-mapped file and only read for graph construction and re-ranking.
+ *
+ * <p>The index is not thread safe, callers coordinate access.
+ */
+public class HnswIndex implements AutoCloseable {
+
+  private final int dimensions;
+  private final int m;
+  private final int maxM0;
+  private final int efConstruction;
+  private final double levelMultiplier;
+  private final SplittableRandom random;
+  private final int rerankFactor;
+  private final QuantizedVectors codes;
+  private final MappedVectors mappedVectors;
+
+  // Full-precision vectors when not quantized
+  private float[] vectors;
+  // links[node][level] = {count, neighbour...}
+  private int[][][] links;
+  private final BitSet deleted = new BitSet();
+
+  private int size;
+  private int deletedCount;
+  private int entryPoint = -1;
+  private int maxLevel = -1;
+
+  public HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+    this(dimensions, m, efConstruction, seed, VectorQuantization.NONE, 1, null);
+  }
+
+  /**
+   * @param quantization representation scanned during searches
+   * @param rerankFactor with quantization, candidates re-ranked exactly per requested result
+   * @param vectorDirectory with quantization, directory of the full-precision vector file, {@code null} for the temporary directory
+   */
+  public HnswIndex(int dimensions, int m, int efConstruction, long seed,
+                   VectorQuantization quantization, int rerankFactor, Path vectorDirectory) {
+    this.dimensions = dimensions;
+    this.m = m;
+    this.maxM0 = m * 2;
+    this.efConstruction = Math.max(efConstruction, m);
+    this.levelMultiplier = 1 / Math.log(m);
+    this.random = new SplittableRandom(seed);
+    this.rerankFactor = Math.max(1, rerankFactor);
+    this.links = new int[16][][];
+    if (quantization == VectorQuantization.NONE) {
+      this.codes = null;
+      this.mappedVectors = null;
+      this.vectors = new float[16 * dimensions];
+    } else {
+      this.codes = new QuantizedVectors(quantization, dimensions);
+      this.mappedVectors = new MappedVectors(dimensions, vectorDirectory);
+      this.vectors = new float[0];
+    }
+  }
+
+  /**
+   * Insert a vector, normalizing a copy of it
+   * @return the node id of the vector
+   */
+  public int add(float[] vector) {
+    if (vector.length != dimensions) {
+      throw new IllegalArgumentException("Expected vector of dimension " + dimensions + " but got " + vector.length);
+    }
+    float[] q = Arrays.copyOf(vector, dimensions);
+    normalize(q);
+    int node = size;
+    ensureCapacity(node + 1);
+    if (codes == null) {
+      System.arraycopy(q, 0, vectors, node * dimensions, dimensions);
+    } else {
+      codes.set(node, q);
+      mappedVectors.set(node, q);
+    }
+
+    int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    links[node] = new int[level + 1][];
+    for (int l = 0; l <= level; l++) {
+      links[node][l] = new int[(l == 0 ? maxM0 : m) + 1];
+    }
+    size++;
+
+    if (entryPoint < 0) {
+      entryPoint = node;
+      maxLevel = level;
+      return node;
+    }
+
+    // The graph is built on exact similarities also when searches use quantized codes
+    Scorer exact = candidate -> similarity(q, candidate);
+    int current = entryPoint;
+    for (int l = maxLevel; l > level; l--) {
+      current = greedyClosest(exact, current, l);
+    }
+
+    for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+      NodeHeap candidates = searchLayer(exact, current, efConstruction, l, null);
+      int[] neighbours = selectNeighbours(node, candidates, m);
+      for (int neighbour : neighbours) {
+        connect(node, neighbour, l);
+        connect(neighbour, node, l);
+      }
+      current = candidates.best();
+    }
+
+    if (level > maxLevel) {
+      maxLevel = level;
+      entryPoint = node;
+    }
+    return node;
+  }
+
+  /**
+   * Approximate nearest neighbour search
+   * @param query the query vector, does not need to be normalized
+   * @param k number of results
+   * @param ef size of the dynamic candidate list, raised to {@code k} when smaller
+   * @param accept optional predicate over node ids restricting the result set
+   * @return matches ordered by descending similarity
+   */
+  public Match[] search(float[] query, int k, int ef, IntPredicate accept) {
+    if (entryPoint < 0 || k <= 0) {
+      return new Match[0];
+    }
+    float[] q = Arrays.copyOf(query, dimensions);
+    normalize(q);
+    Scorer scorer;
+    if (codes == null) {
+      scorer = node -> similarity(q, node);
+    } else {
+      QuantizedVectors.Query code = codes.encode(q);
+      scorer = node -> codes.score(code, node);
+    }
+
+    int current = entryPoint;
+    for (int l = maxLevel; l > 0; l--) {
+      current = greedyClosest(scorer, current, l);
+    }
+
+    IntPredicate filter = node -> !deleted.get(node) && (accept == null || accept.test(node));
+    if (codes != null) {
+      return rerank(q, searchLayer(scorer, current, Math.max(ef, k * rerankFactor), 0, filter), k);
+    }
+    NodeHeap results = searchLayer(scorer, current, Math.max(ef, k), 0, filter);
+    while (results.size() > k) {
+      results.pop();
+    }
+    Match[] matches = new Match[results.size()];
+    for (int i = matches.length - 1; i >= 0; i--) {
+      matches[i] = new Match(results.topNode(), results.topScore());
+      results.pop();
+    }
+    return matches;
+  }
+
+  /**
+   * Re-score quantized candidates by exact similarity
+   * @return the best {@code k} candidates ordered by descending exact similarity
+   */
+  private Match[] rerank(float[] query, NodeHeap candidates, int k) {
+    NodeHeap exact = new NodeHeap(k + 1, false);
+    while (candidates.size() > 0) {
+      int node = candidates.topNode();
+      candidates.pop();
+      exact.push(node, similarity(query, node));
+      if (exact.size() > k) {
+        exact.pop();
+      }
+    }
+    Match[] matches = new Match[exact.size()];
+    for (int i = matches.length - 1; i >= 0; i--) {
+      matches[i] = new Match(exact.topNode(), exact.topScore());
+      exact.pop();
+    }
+    return matches;
+  }
+
+  public void markDeleted(int node) {
+    if (node >= 0 && node < size && !deleted.get(node)) {
+      deleted.set(node);
+      deletedCount++;
+    }
+  }
+
+  public boolean isDeleted(int node) {
+    return deleted.get(node);
+  }
+
+  /**
+   * Copy of the normalized vector stored for a node
+   */
+  public float[] vector(int node) {
+    return codes == null ? Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions) : mappedVectors.get(node);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int liveCount() {
+    return size - deletedCount;
+  }
+
+  public int deletedCount() {
+    return deletedCount;
+  }
+
+  public int dimensions() {
+    return dimensions;
+  }
+
+  /**
+   * @return heap bytes scanned per vector during searches, the quantized code size when quantized
+   */
+  public int searchBytesPerVector() {
+    return codes == null ? dimensions * Float.BYTES : codes.bytesPerVector();
+  }
+
+  /**
+   * Release the full-precision vector file of a quantized index
+   */
+  @Override
+  public void close() {
+    if (mappedVectors != null) {
+      mappedVectors.close();
+    }
+  }
+
+  private int greedyClosest(Scorer scorer, int start, int level) {
+    int current = start;
+    float best = scorer.score(current);
+    boolean improved = true;
+    while (improved) {
+      improved = false;
+      int[] neighbours = links[current][level];
+      for (int i = 1; i <= neighbours[0]; i++) {
+        float score = scorer.score(neighbours[i]);
+        if (score > best) {
+          best = score;
+          current = neighbours[i];
+          improved = true;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Best-first search of one layer. Candidates are explored regardless of the filter so that
+   * filtered out nodes still route the search, only accepted nodes enter the result heap.
+   */
+  private NodeHeap searchLayer(Scorer scorer, int entry, int ef, int level, IntPredicate accept) {
+    BitSet visited = new BitSet(size);
+    NodeHeap candidates = new NodeHeap(ef * 2, true);
+    NodeHeap results = new NodeHeap(ef + 1, false);
+
+    float entryScore = scorer.score(entry);
+    visited.set(entry);
+    candidates.push(entry, entryScore);
+    if (accept == null || accept.test(entry)) {
+      results.push(entry, entryScore);
+    }
+
+    while (candidates.size() > 0) {
+      int candidate = candidates.topNode();
+      float candidateScore = candidates.topScore();
+      candidates.pop();
+      if (results.size() >= ef && candidateScore < results.topScore()) {
+        break;
+      }
+      if (level >= links[candidate].length) {
+        continue;
+      }
+      int[] neighbours = links[candidate][level];
+      for (int i = 1; i <= neighbours[0]; i++) {
+        int neighbour = neighbours[i];
+        if (visited.get(neighbour)) {
+          continue;
+        }
+        visited.set(neighbour);
+        float score = scorer.score(neighbour);
+        if (results.size() < ef || score > results.topScore()) {
+          candidates.push(neighbour, score);
+          if (accept == null || accept.test(neighbour)) {
+            results.push(neighbour, score);
+            if (results.size() > ef) {
+              results.pop();
+            }
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Neighbour selection heuristic from the HNSW paper: a candidate is kept only when it is closer
+   * to the new node than to any neighbour already selected, which keeps the graph navigable across clusters.
+   * Remaining slots are filled with the closest pruned candidates.
+   */
+  private int[] selectNeighbours(int node, NodeHeap candidates, int max) {
+    int count = candidates.size();
+    int[] ordered = new int[count];
+    for (int i = count - 1; i >= 0; i--) {
+      ordered[i] = candidates.topNode();
+      candidates.pop();
+    }
+    // Refill the heap so that the caller can still read the best candidate
+    for (int candidate : ordered) {
+      candidates.push(candidate, similarity(node, candidate));
+    }
+
+    int[] selected = new int[Math.min(max, count)];
+    int[] pruned = new int[count];
+    int selectedCount = 0;
+    int prunedCount = 0;
+    for (int i = 0; i < count && selectedCount < selected.length; i++) {
+      int candidate = ordered[i];
+      if (candidate == node) {
+        continue;
+      }
+      float toNode = similarity(node, candidate);
+      boolean keep = true;
+      for (int j = 0; j < selectedCount; j++) {
+        if (similarity(candidate, selected[j]) > toNode) {
+          keep = false;
+          break;
+        }
+      }
+      if (keep) {
+        selected[selectedCount++] = candidate;
+      } else {
+        pruned[prunedCount++] = candidate;
+      }
+    }
+    for (int i = 0; i < prunedCount && selectedCount < selected.length; i++) {
+      selected[selectedCount++] = pruned[i];
+    }
+    return Arrays.copyOf(selected, selectedCount);
+  }
+
+  private void connect(int from, int to, int level) {
+    int[] neighbours = links[from][level];
+    int max = neighbours.length - 1;
+    int count = neighbours[0];
+    for (int i = 1; i <= count; i++) {
+      if (neighbours[i] == to) {
+        return;
+      }
+    }
+    if (count < max) {
+      neighbours[count + 1] = to;
+      neighbours[0] = count + 1;
+      return;
+    }
+
+    NodeHeap pool = new NodeHeap(max + 1, false);
+    for (int i = 1; i <= count; i++) {
+      pool.push(neighbours[i], similarity(from, neighbours[i]));
+    }
+    pool.push(to, similarity(from, to));
+    int[] kept = selectNeighbours(from, pool, max);
+    System.arraycopy(kept, 0, neighbours, 1, kept.length);
+    neighbours[0] = kept.length;
+  }
+
+  private float similarity(float[] q, int node) {
+    if (mappedVectors != null) {
+      return mappedVectors.dot(q, node);
+    }
+    int offset = node * dimensions;
+    float sum = 0;
+    for (int i = 0; i < dimensions; i++) {
+      sum += q[i] * vectors[offset + i];
+    }
+    return sum;
+  }
+
+  private float similarity(int a, int b) {
+    if (mappedVectors != null) {
+      return mappedVectors.dot(a, b);
+    }
+    int offsetA = a * dimensions;
+    int offsetB = b * dimensions;
+    float sum = 0;
+    for (int i = 0; i < dimensions; i++) {
+      sum += vectors[offsetA + i] * vectors[offsetB + i];
+    }
+    return sum;
+  }
+
+  private static void normalize(float[] vector) {
+    double norm = 0;
+    for (float v : vector) {
+      norm += v * v;
+    }
+    if (norm > 0) {
+      float scale = (float) (1 / Math.sqrt(norm));
+      for (int i = 0; i < vector.length; i++) {
+        vector[i] *= scale;
+      }
+    }
+  }
+
+  private void ensureCapacity(int nodes) {
+    if (nodes <= links.length) {
+      return;
+    }
+    long capacity = Math.max(nodes, links.length * 2L);
+    if (codes == null) {
+      // Full-precision vectors share one array, its offsets must stay within an int
+      long maxNodes = (Integer.MAX_VALUE - 8) / dimensions;
+      if (nodes > maxNodes) {
+        throw new IllegalStateException("An index of " + dimensions + " dimensions holds at most " + maxNodes
+            + " vectors without quantization, set demo.vector-store.hnsw.quantization to INT8 or BINARY for more");
+      }
+      capacity = Math.min(capacity, maxNodes);
+      vectors = Arrays.copyOf(vectors, (int) capacity * dimensions);
+    }
+    links = Arrays.copyOf(links, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+  }
+
+  /**
+   * Similarity of the query of a search to a node
+   */
+  private interface Scorer {
+    float score(int node);
+  }
+
+  /**
+   * A search hit: node id and its similarity to the query.
+   */
+  public record Match(int node, float score) {
+  }
+
+  /**
+   * Binary heap of (node, score) pairs in parallel primitive arrays.
+   */
+  private static final class NodeHeap {
+    private int[] nodes;
+    private float[] scores;
+    private final boolean maxHeap;
+    private int size;
+
+    private NodeHeap(int initialCapacity, boolean maxHeap) {
+      this.nodes = new int[Math.max(4, initialCapacity)];
+      this.scores = new float[nodes.length];
+      this.maxHeap = maxHeap;
+    }
+
+    int size() {
+      return size;
+    }
+
+    int topNode() {
+      return nodes[0];
+    }
+
+    float topScore() {
+      return scores[0];
+    }
+
+    int best() {
+      if (maxHeap) {
+        return nodes[0];
+      }
+      int best = 0;
+      for (int i = 1; i < size; i++) {
+        if (scores[i] > scores[best]) {
+          best = i;
+        }
+      }
+      return nodes[best];
+    }
+
+    void push(int node, float score) {
+      if (size == nodes.length) {
+        nodes = Arrays.copyOf(nodes, size * 2);
+        scores = Arrays.copyOf(scores, size * 2);
+      }
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (!before(score, scores[parent])) {
+          break;
+        }
+        nodes[i] = nodes[parent];
+        scores[i] = scores[parent];
+        i = parent;
+      }
+      nodes[i] = node;
+      scores[i] = score;
+    }
+
+    void pop() {
+      size--;
+      if (size == 0) {
+        return;
+      }
+      int node = nodes[size];
+      float score = scores[size];
+      int i = 0;
+      while (true) {
+        int child = i * 2 + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && before(scores[child + 1], scores[child])) {
+          child++;
+        }
+        if (!before(scores[child], score)) {
+          break;
+        }
+        nodes[i] = nodes[child];
+        scores[i] = scores[child];
+        i = child;
+      }
+      nodes[i] = node;
+      scores[i] = score;
+    }
+
+    private boolean before(float a, float b) {
+      return maxHeap ? a > b : a < b;
+    }
+  }
+}
@@ -0,0 +1,553 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Pure Java vector store backed by an {@link HnswIndex}. Supports metadata filter expressions,
+ * top-K and similarity threshold like the other Spring AI stores, and can be bounded to a maximum
+ * number of documents in which case the oldest documents are evicted first.
+ *
+ * <p>With {@link VectorQuantization} other than {@code NONE} only the quantized codes stay on the heap,
+ * the full-precision vectors used for re-ranking live in a memory-mapped file.
+ *
+ * <p>Metadata keys configured as {@link Builder#scalarFields(List) scalar fields} are also kept in columns,
+ * and filters made of equality and membership tests on them are evaluated on the columns instead of
+ * through a SpEL expression over the metadata map of every visited node.
+ *
+ * <p>Deleted and evicted documents stay in the graph until they outnumber the live ones. The graph is then
+ * rebuilt from the live documents on a background thread while searches and writes go on; only the writes
+ * made in the meantime are replayed on the new graph under the write lock before it replaces the old one.
+ */
+public class HnswVectorStore extends AbstractObservationVectorStore implements EmbeddedDocumentStore, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(HnswVectorStore.class);
+  private static final String DATABASE_SYSTEM = "hnsw";
+  private static final int MIN_DELETED_BEFORE_COMPACTION = 64;
+  private static final int EXPORT_BATCH_SIZE = 512;
+
+  private final SimpleVectorStoreFilterExpressionConverter filterConverter = new SimpleVectorStoreFilterExpressionConverter();
+  private final ExpressionParser expressionParser = new SpelExpressionParser();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private final int m;
+  private final int efConstruction;
+  private final int efSearch;
+  private final int maxDocuments;
+  private final VectorQuantization quantization;
+  private final int rerankFactor;
+  private final Path vectorDirectory;
+  private final Map<String, Object[]> scalarColumns = new HashMap<>();
+
+  private HnswIndex index;
+  private StoredDocument[] documents = new StoredDocument[16];
+  private final Map<String, Integer> nodesById = new HashMap<>();
+  private int oldestLive;
+  private boolean compacting;
+
+  protected HnswVectorStore(Builder builder) {
+    super(builder);
+    this.m = builder.m;
+    this.efConstruction = builder.efConstruction;
+    this.efSearch = builder.efSearch;
+    this.maxDocuments = builder.maxDocuments;
+    this.quantization = builder.quantization;
+    this.rerankFactor = builder.rerankFactor;
+    this.vectorDirectory = builder.vectorDirectory;
+    builder.scalarFields.forEach(field -> scalarColumns.put(field, new Object[16]));
+  }
+
+  public static Builder builder(EmbeddingModel embeddingModel) {
+    return new Builder(embeddingModel);
+  }
+
+  @Override
+  public void doAdd(List<Document> documents) {
+    List<float[]> embeddings = embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy);
+    add(documents, embeddings);
+  }
+
+  @Override
+  public void add(List<Document> documents, List<float[]> embeddings) {
+    if (documents.size() != embeddings.size()) {
+      throw new IllegalArgumentException("Got " + documents.size() + " documents but " + embeddings.size() + " embeddings");
+    }
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < documents.size(); i++) {
+        Document document = documents.get(i);
+        float[] embedding = embeddings.get(i);
+        if (index == null) {
+          index = newIndex(embedding.length);
+        }
+        Integer previous = nodesById.get(document.getId());
+        if (previous != null) {
+          index.markDeleted(previous);
+        }
+        int node = index.add(embedding);
+        ensureCapacity(node + 1);
+        this.documents[node] = new StoredDocument(document.getId(), document.getText(), Map.copyOf(document.getMetadata()));
+        scalarColumns.forEach((field, column) -> column[node] = document.getMetadata().get(field));
+        nodesById.put(document.getId(), node);
+      }
+      evictOverflow();
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Read the live documents in insertion order with their normalized embeddings. Writers wait until the
+   * export is done, so the batches form a consistent copy of the store.
+   */
+  @Override
+  public void forEachEmbedded(BiConsumer<List<Document>, List<float[]>> consumer) {
+    lock.readLock().lock();
+    try {
+      if (index == null) {
+        return;
+      }
+      List<Document> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+      List<float[]> embeddings = new ArrayList<>(EXPORT_BATCH_SIZE);
+      for (int node = 0; node < index.size(); node++) {
+        if (index.isDeleted(node)) {
+          continue;
+        }
+        StoredDocument document = documents[node];
+        batch.add(new Document(document.id(), document.text(), document.metadata()));
+        embeddings.add(index.vector(node));
+        if (batch.size() == EXPORT_BATCH_SIZE) {
+          consumer.accept(List.copyOf(batch), List.copyOf(embeddings));
+          batch.clear();
+          embeddings.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        consumer.accept(batch, embeddings);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void doDelete(List<String> idList) {
+    lock.writeLock().lock();
+    try {
+      for (String id : idList) {
+        Integer node = nodesById.remove(id);
+        if (node != null) {
+          index.markDeleted(node);
+        }
+      }
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  protected void doDelete(Filter.Expression filterExpression) {
+    lock.writeLock().lock();
+    try {
+      if (index == null) {
+        return;
+      }
+      IntPredicate matches = filterPredicate(filterExpression);
+      for (int node = 0; node < index.size(); node++) {
+        if (!index.isDeleted(node) && matches.test(node)) {
+          nodesById.remove(documents[node].id());
+          index.markDeleted(node);
+        }
+      }
+      compactIfNeeded();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<Document> doSimilaritySearch(SearchRequest request) {
+    float[] query = embeddingModel.embed(request.getQuery());
+    return similaritySearch(query, request);
+  }
+
+  /**
+   * Search with an already computed query embedding, the query text of the request is ignored
+   * @param query the query embedding
+   * @param request top-K, similarity threshold and filter
+   * @return matching documents ordered by descending similarity
+   */
+  @Override
+  public List<Document> similaritySearch(float[] query, SearchRequest request) {
+    lock.readLock().lock();
+    try {
+      if (index == null) {
+        return List.of();
+      }
+      IntPredicate accept = request.hasFilterExpression() ? filterPredicate(request.getFilterExpression()) : null;
+      HnswIndex.Match[] matches = index.search(query, request.getTopK(), Math.max(efSearch, request.getTopK()), accept);
+
+      List<Document> results = new ArrayList<>(matches.length);
+      for (HnswIndex.Match match : matches) {
+        if (match.score() < request.getSimilarityThreshold()) {
+          break;
+        }
+        results.add(toDocument(match.node(), match.score()));
+      }
+      return results;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return number of documents currently searchable
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return index == null ? 0 : index.liveCount();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+    return VectorStoreObservationContext.builder(DATABASE_SYSTEM, operationName)
+        .dimensions(index != null ? index.dimensions() : null)
+        .similarityMetric("cosine");
+  }
+
+  private Document toDocument(int node, float score) {
+    StoredDocument document = documents[node];
+    Map<String, Object> documentMetadata = new HashMap<>(document.metadata());
+    documentMetadata.put(DocumentMetadata.DISTANCE.value(), 1 - score);
+    return Document.builder()
+        .id(document.id())
+        .text(document.text())
+        .metadata(documentMetadata)
+        .score((double) score)
+        .build();
+  }
+
+  private IntPredicate filterPredicate(Filter.Expression filterExpression) {
+    IntPredicate scalar = scalarPredicate(filterExpression);
+    if (scalar != null) {
+      return scalar;
+    }
+    Expression expression = expressionParser.parseExpression(filterConverter.convertExpression(filterExpression));
+    StandardEvaluationContext context = new StandardEvaluationContext();
+    return node -> {
+      context.setVariable("metadata", documents[node].metadata());
+      return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+    };
+  }
+
+  /**
+   * Compile a filter on scalar fields into column lookups
+   * @return the predicate, or null if the filter uses other keys or operators
+   */
+  private IntPredicate scalarPredicate(Filter.Operand operand) {
+    if (operand instanceof Filter.Group group) {
+      return scalarPredicate(group.content());
+    }
+    if (!(operand instanceof Filter.Expression expression)) {
+      return null;
+    }
+    return switch (expression.type()) {
+      case AND, OR -> {
+        IntPredicate left = scalarPredicate(expression.left());
+        IntPredicate right = scalarPredicate(expression.right());
+        if (left == null || right == null) {
+          yield null;
+        }
+        yield expression.type() == Filter.ExpressionType.AND ? left.and(right) : left.or(right);
+      }
+      case NOT -> {
+        IntPredicate negated = scalarPredicate(expression.left());
+        yield negated == null ? null : negated.negate();
+      }
+      case EQ, NE, IN, NIN -> {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+          yield null;
+        }
+        Object[] column = scalarColumns.get(key.key());
+        if (column == null) {
+          yield null;
+        }
+        Set<?> values = value.value() instanceof List<?> list ? Set.copyOf(list) : Set.of(value.value());
+        // Immutable sets throw on contains(null), a document without the field matches no value
+        IntPredicate matches = node -> column[node] != null && values.contains(column[node]);
+        yield expression.type() == Filter.ExpressionType.NE || expression.type() == Filter.ExpressionType.NIN
+            ? matches.negate() : matches;
+      }
+      default -> null;
+    };
+  }
+
+  private void evictOverflow() {
+    if (maxDocuments <= 0) {
+      return;
+    }
+    while (index.liveCount() > maxDocuments && oldestLive < index.size()) {
+      if (!index.isDeleted(oldestLive)) {
+        nodesById.remove(documents[oldestLive].id());
+        index.markDeleted(oldestLive);
+      }
+      oldestLive++;
+    }
+  }
+
+  /**
+   * Start rebuilding the graph from the live nodes once deleted nodes outnumber them, so that evicted
+   * documents do not keep consuming memory and search time. Called under the write lock.
+   */
+  private void compactIfNeeded() {
+    if (compacting || index == null || index.deletedCount() < MIN_DELETED_BEFORE_COMPACTION || index.deletedCount() < index.liveCount()) {
+      return;
+    }
+    compacting = true;
+    Thread.ofVirtual().name("hnsw-compaction").start(this::compact);
+  }
+
+  /**
+   * Build the new graph from a copy of the live nodes without holding the lock, then replay the deletes and
+   * adds made in the meantime and swap it in under the write lock
+   */
+  private void compact() {
+    HnswIndex source;
+    int copied;
+    List<Integer> nodes = new ArrayList<>();
+    List<float[]> vectors = new ArrayList<>();
+    lock.readLock().lock();
+    try {
+      source = index;
+      copied = source == null ? 0 : source.size();
+      for (int node = 0; node < copied; node++) {
+        if (!source.isDeleted(node)) {
+          nodes.add(node);
+          vectors.add(source.vector(node));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (source == null) {
+      finishCompaction();
+      return;
+    }
+
+    HnswIndex compacted = null;
+    try {
+      compacted = newIndex(source.dimensions());
+      for (float[] vector : vectors) {
+        compacted.add(vector);
+      }
+      vectors.clear();
+      swapIn(source, compacted, nodes, copied);
+    } catch (RuntimeException e) {
+      // The old graph stays in use, the next write tries again
+      logger.error("❌ Compacting the HNSW graph failed: {}", e.getMessage(), e);
+      if (compacted != null) {
+        compacted.close();
+      }
+      finishCompaction();
+    }
+  }
+
+  /**
+   * @param nodes node of the source graph for every node of the compacted graph
+   * @param copied nodes of the source graph when the copy was taken, later ones are replayed
+   */
+  private void swapIn(HnswIndex source, HnswIndex compacted, List<Integer> nodes, int copied) {
+    lock.writeLock().lock();
+    try {
+      if (index != source) {
+        // Closed while compacting
+        compacted.close();
+        return;
+      }
+      for (int node = copied; node < source.size(); node++) {
+        if (!source.isDeleted(node)) {
+          nodes.add(node);
+          compacted.add(source.vector(node));
+        }
+      }
+      StoredDocument[] newDocuments = new StoredDocument[Math.max(16, nodes.size())];
+      Map<String, Object[]> newColumns = new HashMap<>();
+      scalarColumns.keySet().forEach(field -> newColumns.put(field, new Object[newDocuments.length]));
+      nodesById.clear();
+      for (int newNode = 0; newNode < nodes.size(); newNode++) {
+        int node = nodes.get(newNode);
+        newDocuments[newNode] = documents[node];
+        for (Map.Entry<String, Object[]> column : newColumns.entrySet()) {
+          column.getValue()[newNode] = scalarColumns.get(column.getKey())[node];
+        }
+        if (source.isDeleted(node)) {
+          compacted.markDeleted(newNode);
+        } else {
+          nodesById.put(documents[node].id(), newNode);
+        }
+      }
+
+      source.close();
+      index = compacted;
+      documents = newDocuments;
+      scalarColumns.putAll(newColumns);
+      oldestLive = 0;
+    } finally {
+      compacting = false;
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void finishCompaction() {
+    lock.writeLock().lock();
+    try {
+      compacting = false;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private HnswIndex newIndex(int dimensions) {
+    return new HnswIndex(dimensions, m, efConstruction, 42, quantization, rerankFactor, vectorDirectory);
+  }
+
+  /**
+   * Release the full-precision vector file of a quantized index
+   */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      if (index != null) {
+        index.close();
+        index = null;
+        nodesById.clear();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void ensureCapacity(int nodes) {
+    if (nodes <= documents.length) {
+      return;
+    }
+    int capacity = Math.max(nodes, documents.length * 2);
+    documents = Arrays.copyOf(documents, capacity);
+    scalarColumns.replaceAll((field, column) -> Arrays.copyOf(column, capacity));
+  }
+
+  private record StoredDocument(String id, String text, Map<String, Object> metadata) {
+  }
+
+  public static class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+    private int m = 16;
+    private int efConstruction = 100;
+    private int efSearch = 64;
+    private int maxDocuments;
+    private VectorQuantization quantization = VectorQuantization.NONE;
+    private int rerankFactor = 4;
+    private Path vectorDirectory;
+    private List<String> scalarFields = List.of();
+
+    private Builder(EmbeddingModel embeddingModel) {
+      super(embeddingModel);
+    }
+
+    /**
+     * Maximum number of links per node on the upper layers, twice as many are kept on the bottom layer
+     */
+    public Builder m(int m) {
+      this.m = m;
+      return this;
+    }
+
+    public Builder efConstruction(int efConstruction) {
+      this.efConstruction = efConstruction;
+      return this;
+    }
+
+    public Builder efSearch(int efSearch) {
+      this.efSearch = efSearch;
+      return this;
+    }
+
+    /**
+     * Maximum number of documents kept, the oldest are evicted first. Zero means unbounded.
+     */
+    public Builder maxDocuments(int maxDocuments) {
+      this.maxDocuments = maxDocuments;
+      return this;
+    }
+
+    /**
+     * Representation scanned during searches, {@code NONE} keeps full-precision vectors on the heap
+     */
+    public Builder quantization(VectorQuantization quantization) {
+      this.quantization = quantization;
+      return this;
+    }
+
+    /**
+     * With quantization, candidates re-ranked by exact similarity per requested result
+     */
+    public Builder rerankFactor(int rerankFactor) {
+      this.rerankFactor = rerankFactor;
+      return this;
+    }
+
+    /**
+     * With quantization, directory of the memory-mapped full-precision vectors, {@code null} for the temporary directory
+     */
+    public Builder vectorDirectory(Path vectorDirectory) {
+      this.vectorDirectory = vectorDirectory;
+      return this;
+    }
+
+    /**
+     * Metadata keys kept in columns, so that filters testing them do not go through the metadata maps
+     */
+    public Builder scalarFields(List<String> scalarFields) {
+      this.scalarFields = scalarFields;
+      return this;
+    }
+
+    @Override
+    public HnswVectorStore build() {
+      return new HnswVectorStore(this);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * In-process HNSW vector store, either as the only store ({@code spring.ai.vectorstore.type=local},
+ * no Milvus needed) or as a hot tier in front of Milvus ({@code demo.vector-store.hot-tier.enabled=true}).
+ */
+@Configuration
+public class LocalVectorStoreConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "spring.ai.vectorstore.type", havingValue = "local")
+  public HnswVectorStore localVectorStore(EmbeddingModel embeddingModel,
+                                          ObjectProvider<ObservationRegistry> observationRegistry,
+                                          @Value("${demo.vector-store.hnsw.m:16}") int m,
+                                          @Value("${demo.vector-store.hnsw.ef-construction:100}") int efConstruction,
+                                          @Value("${demo.vector-store.hnsw.ef-search:64}") int efSearch,
+                                          @Value("${demo.vector-store.hnsw.quantization:NONE}") VectorQuantization quantization,
+                                          @Value("${demo.vector-store.hnsw.rerank-factor:4}") int rerankFactor,
+                                          @Value("${demo.vector-store.hnsw.vector-directory:}") String vectorDirectory,
+                                          @Value("${demo.vector-store.scalar-fields:type,topic}") List<String> scalarFields) {
+    return HnswVectorStore.builder(embeddingModel)
+        .m(m)
+        .efConstruction(efConstruction)
+        .efSearch(efSearch)
+        .quantization(quantization)
+        .rerankFactor(rerankFactor)
+        .vectorDirectory(directory(vectorDirectory))
+        .scalarFields(scalarFields)
+        .observationRegistry(observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+        .build();
+  }
+
+  @Configuration
+  @ConditionalOnProperty(name = "spring.ai.vectorstore.type", havingValue = "milvus", matchIfMissing = true)
+  static class HotTierConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "demo.vector-store.hot-tier.enabled", havingValue = "true")
+    public TieredVectorStore tieredVectorStore(MilvusVectorStore milvusVectorStore,
+                                               EmbeddingModel embeddingModel,
+                                               ObjectProvider<BatchingStrategy> batchingStrategy,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${demo.vector-store.hnsw.m:16}") int m,
+                                               @Value("${demo.vector-store.hnsw.ef-construction:100}") int efConstruction,
+                                               @Value("${demo.vector-store.hnsw.ef-search:64}") int efSearch,
+                                               @Value("${demo.vector-store.hnsw.quantization:NONE}") VectorQuantization quantization,
+                                               @Value("${demo.vector-store.hnsw.rerank-factor:4}") int rerankFactor,
+                                               @Value("${demo.vector-store.hnsw.vector-directory:}") String vectorDirectory,
+                                               @Value("${demo.vector-store.scalar-fields:type,topic}") List<String> scalarFields,
+                                               @Value("${demo.vector-store.hot-tier.max-documents:10000}") int maxDocuments,
+                                               @Value("${demo.vector-store.hot-tier.answer-score:0.95}") double answerScore) {
+      HnswVectorStore hotTier = HnswVectorStore.builder(embeddingModel)
+          .m(m)
+          .efConstruction(efConstruction)
+          .efSearch(efSearch)
+          .quantization(quantization)
+          .rerankFactor(rerankFactor)
+          .vectorDirectory(directory(vectorDirectory))
+          .scalarFields(scalarFields)
+          .maxDocuments(maxDocuments)
+          .build();
+      return new TieredVectorStore(hotTier, milvusVectorStore, embeddingModel,
+          batchingStrategy.getIfAvailable(TokenCountBatchingStrategy::new), answerScore, meterRegistry);
+    }
+  }
+
+  private static Path directory(String directory) {
+    return directory.isBlank() ? null : Path.of(directory);
+  }
+}
@@ -0,0 +1,99 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full-precision vectors in a memory-mapped temporary file, mapped in fixed-size chunks as it grows.
+ * Only the pages of the vectors that are actually read stay resident, the operating system can
+ * drop the others. The file is deleted when closed or when the JVM exits.
+ */
+final class MappedVectors implements AutoCloseable {
+
+  private static final int VECTORS_PER_CHUNK = 4096;
+
+  private final int dimensions;
+  private final FileChannel channel;
+  private final List<FloatBuffer> chunks = new ArrayList<>();
+
+  /**
+   * @param directory directory for the temporary file, {@code null} for the default temporary directory
+   */
+  MappedVectors(int dimensions, Path directory) {
+    this.dimensions = dimensions;
+    try {
+      Path file = directory != null
+          ? Files.createTempFile(Files.createDirectories(directory), "hnsw-", ".vectors")
+          : Files.createTempFile("hnsw-", ".vectors");
+      file.toFile().deleteOnExit();
+      this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not create vector file", e);
+    }
+  }
+
+  void set(int node, float[] vector) {
+    FloatBuffer chunk = chunk(node);
+    chunk.put((node % VECTORS_PER_CHUNK) * dimensions, vector, 0, dimensions);
+  }
+
+  float[] get(int node) {
+    float[] vector = new float[dimensions];
+    chunk(node).get((node % VECTORS_PER_CHUNK) * dimensions, vector, 0, dimensions);
+    return vector;
+  }
+
+  float dot(float[] query, int node) {
+    FloatBuffer chunk = chunks.get(node / VECTORS_PER_CHUNK);
+    int offset = (node % VECTORS_PER_CHUNK) * dimensions;
+    float sum = 0;
+    for (int i = 0; i < dimensions; i++) {
+      sum += query[i] * chunk.get(offset + i);
+    }
+    return sum;
+  }
+
+  float dot(int a, int b) {
+    FloatBuffer chunkA = chunks.get(a / VECTORS_PER_CHUNK);
+    FloatBuffer chunkB = chunks.get(b / VECTORS_PER_CHUNK);
+    int offsetA = (a % VECTORS_PER_CHUNK) * dimensions;
+    int offsetB = (b % VECTORS_PER_CHUNK) * dimensions;
+    float sum = 0;
+    for (int i = 0; i < dimensions; i++) {
+      sum += chunkA.get(offsetA + i) * chunkB.get(offsetB + i);
+    }
+    return sum;
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not close vector file", e);
+    }
+  }
+
+  private FloatBuffer chunk(int node) {
+    int index = node / VECTORS_PER_CHUNK;
+    while (chunks.size() <= index) {
+      long bytes = (long) VECTORS_PER_CHUNK * dimensions * Float.BYTES;
+      try {
+        chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * bytes, bytes)
+            .order(ByteOrder.nativeOrder())
+            .asFloatBuffer());
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not map vector file", e);
+      }
+    }
+    return chunks.get(index);
+  }
+}
@@ -0,0 +1,104 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Milvus store with scalar {@code type} and {@code topic} fields ({@code demo.vector-store.milvus.scalar-fields.enabled=true}),
+ * replacing the auto-configured Spring AI store that keeps all metadata in a JSON field. With
+ * {@code demo.vector-store.shards.count} above one the documents are spread over that many collections.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.ai.vectorstore.type", havingValue = "milvus", matchIfMissing = true)
+public class MilvusVectorStoreConfiguration {
+
+  private static final Logger logger = LoggerFactory.getLogger(MilvusVectorStoreConfiguration.class);
+
+  @Bean
+  @ConditionalOnProperty(name = "demo.vector-store.milvus.scalar-fields.enabled", havingValue = "true", matchIfMissing = true)
+  public MilvusVectorStore scalarFieldMilvusVectorStore(MilvusServiceClient milvusClient,
+                                                        EmbeddingModel embeddingModel,
+                                                        ObjectProvider<ObservationRegistry> observationRegistry,
+                                                        ObjectProvider<BatchingStrategy> batchingStrategy,
+                                                        MeterRegistry meterRegistry,
+                                                        @Value("${spring.ai.vectorstore.milvus.databaseName:default}") String databaseName,
+                                                        @Value("${spring.ai.vectorstore.milvus.embeddingDimension:1536}") int embeddingDimension,
+                                                        @Value("${spring.ai.vectorstore.milvus.indexType:IVF_FLAT}") IndexType indexType,
+                                                        @Value("${spring.ai.vectorstore.milvus.metricType:COSINE}") MetricType metricType,
+                                                        @Value("${spring.ai.vectorstore.milvus.indexParameters:{\"nlist\":1024}}") String indexParameters,
+                                                        @Value("${spring.ai.vectorstore.milvus.initialize-schema:true}") boolean initializeSchema,
+                                                        @Value("${demo.vector-store.milvus.scalar-fields.collection-name:jokes}") String collectionName,
+                                                        @Value("${demo.vector-store.scalar-fields:type,topic}") List<String> scalarFields,
+                                                        @Value("${demo.vector-store.milvus.scalar-fields.partition-key:type}") String partitionKey,
+                                                        @Value("${demo.vector-store.milvus.scalar-fields.migrate-from:vector_store}") String migrateFrom,
+                                                        @Value("${demo.vector-store.shards.count:1}") int shardCount,
+                                                        @Value("${demo.vector-store.shards.routing:TOPIC_HASH}") ShardRouter.Routing routing,
+                                                        @Value("${demo.vector-store.shards.time-bucket:7d}") Duration timeBucket,
+                                                        @Value("${demo.vector-store.shards.timeout:2s}") Duration shardTimeout) {
+    ObservationRegistry observations = observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP);
+    List<ScalarFieldMilvusVectorStore> shards = new ArrayList<>();
+    for (int shard = 0; shard < Math.max(1, shardCount); shard++) {
+      // The first shard keeps the unsharded collection, so existing documents stay searchable until rebalanced
+      shards.add(ScalarFieldMilvusVectorStore.scalarFieldBuilder(milvusClient, embeddingModel)
+          .databaseName(databaseName)
+          .collectionName(shard == 0 ? collectionName : collectionName + "_" + shard)
+          .embeddingDimension(embeddingDimension)
+          .indexType(indexType)
+          .metricType(metricType)
+          .indexParameters(indexParameters)
+          .initializeSchema(initializeSchema)
+          .scalarFields(scalarFields)
+          .partitionKey(partitionKey.isBlank() ? null : partitionKey)
+          .migrateFrom(shard > 0 || migrateFrom.isBlank() ? null : migrateFrom)
+          .observationRegistry(observations)
+          .batchingStrategy(batchingStrategy.getIfAvailable(TokenCountBatchingStrategy::new))
+          .build());
+    }
+    if (shards.size() == 1) {
+      return shards.get(0);
+    }
+    return new ShardedMilvusVectorStore(milvusClient, embeddingModel, observations, shards,
+        new ShardRouter(routing, shards.size(), timeBucket), shardTimeout, meterRegistry);
+  }
+
+  /**
+   * Move documents to the shards their router picks once the application has started, e.g. after changing the shard count
+   */
+  @Bean
+  @ConditionalOnProperty(name = "demo.vector-store.shards.rebalance-on-startup", havingValue = "true")
+  public ApplicationRunner shardRebalancer(MilvusVectorStore milvusVectorStore) {
+    return arguments -> {
+      if (milvusVectorStore instanceof ShardedMilvusVectorStore sharded) {
+        // Documents still being migrated into the first shard are moved once the migration has ended
+        sharded.migration().whenComplete((copied, failure) -> {
+          try {
+            sharded.rebalance();
+          } catch (Exception e) {
+            logger.error("❌ Rebalancing the vector store shards failed: {}", e.getMessage(), e);
+          }
+        });
+      } else {
+        logger.warn("Rebalancing requested but the vector store is not sharded");
+      }
+    };
+  }
+}
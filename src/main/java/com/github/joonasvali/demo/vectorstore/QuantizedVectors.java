@@ -0,0 +1,132 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quantized codes of unit-length vectors, used for the first-pass scoring of an {@link HnswIndex}.
+ * Scores approximate the inner product: int8 codes are multiplied back by their scales, binary codes
+ * map the Hamming distance to {@code 1 - 2 * distance / dimensions}. Codes are held in fixed-size chunks
+ * like {@link MappedVectors}, so that offsets stay within an int however many vectors are added and
+ * growing does not copy the codes added before.
+ */
+final class QuantizedVectors {
+
+  private static final int VECTORS_PER_CHUNK = 4096;
+
+  private final VectorQuantization quantization;
+  private final int dimensions;
+  private final int words;
+
+  private final List<byte[]> codes = new ArrayList<>();
+  private final List<long[]> bits = new ArrayList<>();
+  private float[] scales = new float[0];
+
+  QuantizedVectors(VectorQuantization quantization, int dimensions) {
+    if (quantization == VectorQuantization.NONE) {
+      throw new IllegalArgumentException("No codes are needed without quantization");
+    }
+    this.quantization = quantization;
+    this.dimensions = dimensions;
+    this.words = (dimensions + 63) >>> 6;
+  }
+
+  /**
+   * Encoded query, computed once per search
+   */
+  record Query(byte[] codes, float scale, long[] bits) {
+  }
+
+  Query encode(float[] vector) {
+    if (quantization == VectorQuantization.BINARY) {
+      long[] queryBits = new long[words];
+      encodeBits(vector, queryBits, 0);
+      return new Query(null, 0, queryBits);
+    }
+    byte[] queryCodes = new byte[dimensions];
+    float scale = encodeBytes(vector, queryCodes, 0);
+    return new Query(queryCodes, scale, null);
+  }
+
+  void set(int node, float[] vector) {
+    ensureCapacity(node);
+    int slot = node % VECTORS_PER_CHUNK;
+    if (quantization == VectorQuantization.BINARY) {
+      long[] chunk = bits.get(node / VECTORS_PER_CHUNK);
+      Arrays.fill(chunk, slot * words, (slot + 1) * words, 0L);
+      encodeBits(vector, chunk, slot * words);
+    } else {
+      scales[node] = encodeBytes(vector, codes.get(node / VECTORS_PER_CHUNK), slot * dimensions);
+    }
+  }
+
+  float score(Query query, int node) {
+    int slot = node % VECTORS_PER_CHUNK;
+    if (quantization == VectorQuantization.BINARY) {
+      long[] chunk = bits.get(node / VECTORS_PER_CHUNK);
+      int offset = slot * words;
+      int distance = 0;
+      for (int i = 0; i < words; i++) {
+        distance += Long.bitCount(query.bits()[i] ^ chunk[offset + i]);
+      }
+      return 1 - 2f * distance / dimensions;
+    }
+    byte[] chunk = codes.get(node / VECTORS_PER_CHUNK);
+    int offset = slot * dimensions;
+    byte[] q = query.codes();
+    int sum = 0;
+    for (int i = 0; i < dimensions; i++) {
+      sum += q[i] * chunk[offset + i];
+    }
+    return sum * query.scale() * scales[node];
+  }
+
+  /**
+   * @return bytes held per vector, including the int8 scale
+   */
+  int bytesPerVector() {
+    return quantization == VectorQuantization.BINARY ? words * Long.BYTES : dimensions + Float.BYTES;
+  }
+
+  /**
+   * Symmetric int8 quantization scaled to the largest component
+   * @return the scale that maps a code back to the original value
+   */
+  private float encodeBytes(float[] vector, byte[] target, int offset) {
+    float max = 0;
+    for (float v : vector) {
+      max = Math.max(max, Math.abs(v));
+    }
+    float scale = max > 0 ? max / 127 : 1;
+    for (int i = 0; i < dimensions; i++) {
+      target[offset + i] = (byte) Math.round(vector[i] / scale);
+    }
+    return scale;
+  }
+
+  private void encodeBits(float[] vector, long[] target, int offset) {
+    for (int i = 0; i < dimensions; i++) {
+      if (vector[i] > 0) {
+        target[offset + (i >>> 6)] |= 1L << (i & 63);
+      }
+    }
+  }
+
+  private void ensureCapacity(int node) {
+    int chunk = node / VECTORS_PER_CHUNK;
+    if (quantization == VectorQuantization.BINARY) {
+      while (bits.size() <= chunk) {
+        bits.add(new long[VECTORS_PER_CHUNK * words]);
+      }
+      return;
+    }
+    while (codes.size() <= chunk) {
+      codes.add(new byte[VECTORS_PER_CHUNK * dimensions]);
+    }
+    if (node >= scales.length) {
+      // Doubled in a long, the last node id fits an int but twice the length may not
+      scales = Arrays.copyOf(scales, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(node + 1L, scales.length * 2L + 16)));
+    }
+  }
+}
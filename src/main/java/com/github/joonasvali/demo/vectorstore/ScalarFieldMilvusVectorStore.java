@@ -0,0 +1,650 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.common.clientenum.ConsistencyLevelEnum;
+import io.milvus.grpc.DataType;
+import io.milvus.grpc.DescribeCollectionResponse;
+import io.milvus.grpc.GetCollectionStatisticsResponse;
+import io.milvus.grpc.SearchResults;
+import io.milvus.orm.iterator.QueryIterator;
+import io.milvus.param.IndexType;
+import io.milvus.param.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.collection.AlterCollectionParam;
+import io.milvus.param.collection.CollectionSchemaParam;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.DescribeCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.param.collection.HasCollectionParam;
+import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.QueryIteratorParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.dml.UpsertParam;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.response.DescCollResponseWrapper;
+import io.milvus.response.GetCollStatResponseWrapper;
+import io.milvus.response.QueryResultsWrapper;
+import io.milvus.response.SearchResultsWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.milvus.MilvusFilterExpressionConverter;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Milvus store whose collection carries selected metadata keys as typed VARCHAR fields next to the JSON
+ * metadata, each with an inverted index, and one of them as the partition key. Filters on those keys are
+ * evaluated against the scalar fields instead of parsing the JSON of every row, and filters on the
+ * partition key only search the matching partition.
+ *
+ * <p>Documents of a collection with the plain Spring AI schema can be copied over with their embeddings,
+ * see {@link Builder#migrateFrom(String)}. The copy runs in the background after startup and is upserted
+ * batch by batch, so an interrupted copy is simply repeated on the next start; once complete, the source is
+ * recorded in a property of this collection and the copy is not run again.
+ */
+public class ScalarFieldMilvusVectorStore extends MilvusVectorStore implements EmbeddedDocumentStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScalarFieldMilvusVectorStore.class);
+  private static final int SCALAR_MAX_LENGTH = 512;
+  static final String MIGRATED_FROM_PROPERTY = "demo.migrated.from";
+
+  private final MilvusServiceClient client;
+  private final String databaseName;
+  private final String collectionName;
+  private final int embeddingDimension;
+  private final IndexType indexType;
+  private final MetricType metricType;
+  private final String indexParameters;
+  private final List<String> scalarFields;
+  private final String partitionKey;
+  private final boolean initializeSchema;
+  private final String migrateFrom;
+  private final int migrationBatchSize;
+  private final MilvusFilterExpressionConverter scalarFilterConverter;
+  private final Gson gson = new Gson();
+
+  private volatile CompletableFuture<Long> migration = CompletableFuture.completedFuture(0L);
+
+  protected ScalarFieldMilvusVectorStore(Builder builder) {
+    super(builder.milvusBuilder());
+    this.client = builder.client;
+    this.databaseName = builder.databaseName;
+    this.collectionName = builder.collectionName;
+    this.embeddingDimension = builder.embeddingDimension;
+    this.indexType = builder.indexType;
+    this.metricType = builder.metricType;
+    this.indexParameters = builder.indexParameters;
+    this.scalarFields = List.copyOf(builder.scalarFields);
+    this.partitionKey = builder.partitionKey;
+    this.initializeSchema = builder.initializeSchema;
+    this.migrateFrom = builder.migrateFrom;
+    this.migrationBatchSize = builder.migrationBatchSize;
+    this.scalarFilterConverter = new ScalarFilterExpressionConverter();
+    if (partitionKey != null && !scalarFields.contains(partitionKey)) {
+      throw new IllegalArgumentException("Partition key '" + partitionKey + "' must be one of the scalar fields " + scalarFields);
+    }
+  }
+
+  public static Builder scalarFieldBuilder(MilvusServiceClient client, EmbeddingModel embeddingModel) {
+    return new Builder(client, embeddingModel);
+  }
+
+  public String getCollectionName() {
+    return collectionName;
+  }
+
+  /**
+   * Create the collection and its indexes if needed, load it and start copying over the documents of the
+   * collection to migrate from unless an earlier copy completed
+   */
+  @Override
+  public void afterPropertiesSet() {
+    if (!collectionExists(collectionName)) {
+      if (!initializeSchema) {
+        throw new IllegalStateException("Collection '" + collectionName + "' does not exist and schema initialization is disabled");
+      }
+      createScalarCollection();
+    } else {
+      verifySchema();
+    }
+    load(collectionName);
+    if (migrateFrom != null && !migrateFrom.isBlank() && !migrateFrom.equals(collectionName)) {
+      CompletableFuture<Long> started = new CompletableFuture<>();
+      migration = started;
+      Thread.ofVirtual().name("milvus-migration-" + collectionName).start(() -> {
+        try {
+          started.complete(migrate(migrateFrom));
+        } catch (Exception e) {
+          logger.error("❌ Migrating documents from collection '{}' to '{}' failed, it is retried on the next start: {}",
+              migrateFrom, collectionName, e.getMessage(), e);
+          started.completeExceptionally(e);
+        }
+      });
+    }
+  }
+
+  /**
+   * @return the background copy of the collection to migrate from, completed with the number of documents copied
+   */
+  public CompletableFuture<Long> migration() {
+    return migration;
+  }
+
+  @Override
+  public void doAdd(List<Document> documents) {
+    add(documents, embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy));
+  }
+
+  @Override
+  public void add(List<Document> documents, List<float[]> embeddings) {
+    Rows rows = new Rows(documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      Document document = documents.get(i);
+      rows.add(document.getId(), document.getText(), document.getMetadata(), toList(embeddings.get(i)));
+    }
+    insert(rows);
+  }
+
+  @Override
+  public void doDelete(List<String> idList) {
+    String ids = idList.stream().map(id -> "'" + id + "'").collect(Collectors.joining(","));
+    deleteWhere(DOC_ID_FIELD_NAME + " in [" + ids + "]");
+  }
+
+  @Override
+  protected void doDelete(Filter.Expression filterExpression) {
+    deleteWhere(scalarFilterConverter.convertExpression(filterExpression));
+  }
+
+  @Override
+  public List<Document> doSimilaritySearch(SearchRequest request) {
+    return similaritySearch(embeddingModel.embed(request.getQuery()), request);
+  }
+
+  /**
+   * Search with an already computed query embedding, the query text of the request is ignored
+   * @param query the query embedding
+   * @param request top-K, similarity threshold and filter
+   * @return matching documents ordered by descending similarity
+   */
+  @Override
+  public List<Document> similaritySearch(float[] query, SearchRequest request) {
+    SearchParam.Builder search = SearchParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withConsistencyLevel(ConsistencyLevelEnum.STRONG)
+        .withMetricType(metricType)
+        .withVectorFieldName(EMBEDDING_FIELD_NAME)
+        .withFloatVectors(List.of(toList(query)))
+        .withTopK(request.getTopK())
+        .withOutFields(List.of(DOC_ID_FIELD_NAME, CONTENT_FIELD_NAME, METADATA_FIELD_NAME));
+    if (request.hasFilterExpression()) {
+      search.withExpr(scalarFilterConverter.convertExpression(request.getFilterExpression()));
+    }
+    SearchResults results = require(client.search(search.build()), "search");
+
+    List<Document> documents = new ArrayList<>();
+    for (QueryResultsWrapper.RowRecord row : new SearchResultsWrapper(results.getResults()).getRowRecords(0)) {
+      float score = ((Number) row.get(SIMILARITY_FIELD_NAME)).floatValue();
+      float similarity = metricType == MetricType.IP || metricType == MetricType.COSINE ? score : 1 - score;
+      if (similarity < request.getSimilarityThreshold()) {
+        continue;
+      }
+      Map<String, Object> metadata = toMap((JsonElement) row.get(METADATA_FIELD_NAME));
+      metadata.put(DocumentMetadata.DISTANCE.value(), 1 - similarity);
+      documents.add(Document.builder()
+          .id((String) row.get(DOC_ID_FIELD_NAME))
+          .text((String) row.get(CONTENT_FIELD_NAME))
+          .metadata(metadata)
+          .score((double) similarity)
+          .build());
+    }
+    return documents;
+  }
+
+  @Override
+  public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+    return super.createObservationContextBuilder(operationName)
+        .collectionName(collectionName);
+  }
+
+  /**
+   * Copy every document of the source collection, metadata and embedding included, into this collection and
+   * mark the copy complete. Documents are upserted by id, so a copy that was interrupted is repeated without
+   * duplicating the documents it already copied. Skipped when the source does not exist or was copied before.
+   * @return number of documents copied
+   */
+  long migrate(String sourceCollection) {
+    if (!collectionExists(sourceCollection)) {
+      return 0;
+    }
+    if (sourceCollection.equals(properties().get(MIGRATED_FROM_PROPERTY))) {
+      logger.info("Documents of collection '{}' were already migrated to '{}'", sourceCollection, collectionName);
+      return 0;
+    }
+    long existing = rowCount(collectionName);
+    logger.info("Migrating documents from collection '{}' to '{}', which holds {} document(s)", sourceCollection, collectionName, existing);
+    long[] copied = new long[1];
+    forEachBatch(sourceCollection, rows -> {
+      upsert(rows);
+      copied[0] += rows.size();
+    });
+    require(client.alterCollection(AlterCollectionParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withProperty(MIGRATED_FROM_PROPERTY, sourceCollection)
+        .build()), "mark collection '" + collectionName + "' migrated");
+    logger.info("✅ Migrated {} document(s) from collection '{}' to '{}', the old collection can be dropped",
+        copied[0], sourceCollection, collectionName);
+    return copied[0];
+  }
+
+  /**
+   * Read every document of this collection, embeddings included, in batches
+   */
+  void forEachBatch(Consumer<Rows> consumer) {
+    forEachBatch(collectionName, consumer);
+  }
+
+  @Override
+  public void forEachEmbedded(BiConsumer<List<Document>, List<float[]>> consumer) {
+    forEachBatch(rows -> {
+      List<Document> documents = new ArrayList<>(rows.size());
+      List<float[]> embeddings = new ArrayList<>(rows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        documents.add(new Document(rows.ids().get(i), rows.contents().get(i), rows.metadata().get(i)));
+        embeddings.add(toArray(rows.vectors().get(i)));
+      }
+      consumer.accept(documents, embeddings);
+    });
+  }
+
+  private void forEachBatch(String collection, Consumer<Rows> consumer) {
+    load(collection);
+    QueryIterator iterator = require(client.queryIterator(QueryIteratorParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collection)
+        .withExpr(DOC_ID_FIELD_NAME + " != ''")
+        .withOutFields(List.of(DOC_ID_FIELD_NAME, CONTENT_FIELD_NAME, METADATA_FIELD_NAME, EMBEDDING_FIELD_NAME))
+        .withBatchSize((long) migrationBatchSize)
+        .build()), "read collection '" + collection + "'");
+    try {
+      List<QueryResultsWrapper.RowRecord> records;
+      while (!(records = iterator.next()).isEmpty()) {
+        Rows rows = new Rows(records.size());
+        for (QueryResultsWrapper.RowRecord record : records) {
+          @SuppressWarnings("unchecked")
+          List<Float> vector = (List<Float>) record.get(EMBEDDING_FIELD_NAME);
+          rows.add((String) record.get(DOC_ID_FIELD_NAME), (String) record.get(CONTENT_FIELD_NAME),
+              toMap((JsonElement) record.get(METADATA_FIELD_NAME)), vector);
+        }
+        consumer.accept(rows);
+      }
+    } finally {
+      iterator.close();
+    }
+  }
+
+  /**
+   * Documents as stored, column by column
+   */
+  record Rows(List<String> ids, List<String> contents, List<Map<String, Object>> metadata, List<List<Float>> vectors) {
+
+    Rows(int capacity) {
+      this(new ArrayList<>(capacity), new ArrayList<>(capacity), new ArrayList<>(capacity), new ArrayList<>(capacity));
+    }
+
+    void add(String id, String content, Map<String, Object> documentMetadata, List<Float> vector) {
+      ids.add(id);
+      contents.add(content);
+      metadata.add(documentMetadata);
+      vectors.add(vector);
+    }
+
+    int size() {
+      return ids.size();
+    }
+
+    boolean isEmpty() {
+      return ids.isEmpty();
+    }
+  }
+
+  void insert(Rows rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    require(client.insert(InsertParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withFields(fields(rows))
+        .build()), "insert " + rows.size() + " document(s)");
+  }
+
+  /**
+   * Insert the rows, replacing stored documents with the same ids
+   */
+  void upsert(Rows rows) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    require(client.upsert(UpsertParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withFields(fields(rows))
+        .build()), "upsert " + rows.size() + " document(s)");
+  }
+
+  private List<InsertParam.Field> fields(Rows rows) {
+    List<InsertParam.Field> fields = new ArrayList<>();
+    fields.add(new InsertParam.Field(DOC_ID_FIELD_NAME, rows.ids()));
+    fields.add(new InsertParam.Field(CONTENT_FIELD_NAME, rows.contents()));
+    fields.add(new InsertParam.Field(METADATA_FIELD_NAME, rows.metadata().stream().map(this::toJson).toList()));
+    fields.add(new InsertParam.Field(EMBEDDING_FIELD_NAME, rows.vectors()));
+    for (String field : scalarFields) {
+      fields.add(new InsertParam.Field(field, rows.metadata().stream().map(values -> scalarValue(values.get(field))).toList()));
+    }
+    return fields;
+  }
+
+  private void deleteWhere(String expression) {
+    require(client.delete(DeleteParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withExpr(expression)
+        .build()), "delete documents");
+  }
+
+  private void createScalarCollection() {
+    CollectionSchemaParam.Builder schema = CollectionSchemaParam.newBuilder()
+        .addFieldType(FieldType.newBuilder()
+            .withName(DOC_ID_FIELD_NAME)
+            .withDataType(DataType.VarChar)
+            .withMaxLength(36)
+            .withPrimaryKey(true)
+            .withAutoID(false)
+            .build())
+        .addFieldType(FieldType.newBuilder()
+            .withName(CONTENT_FIELD_NAME)
+            .withDataType(DataType.VarChar)
+            .withMaxLength(65535)
+            .build())
+        .addFieldType(FieldType.newBuilder()
+            .withName(METADATA_FIELD_NAME)
+            .withDataType(DataType.JSON)
+            .build())
+        .addFieldType(FieldType.newBuilder()
+            .withName(EMBEDDING_FIELD_NAME)
+            .withDataType(DataType.FloatVector)
+            .withDimension(embeddingDimension)
+            .build());
+    for (String field : scalarFields) {
+      schema.addFieldType(FieldType.newBuilder()
+          .withName(field)
+          .withDataType(DataType.VarChar)
+          .withMaxLength(SCALAR_MAX_LENGTH)
+          .withPartitionKey(field.equals(partitionKey))
+          .build());
+    }
+    require(client.createCollection(CreateCollectionParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withDescription("Spring AI documents with scalar fields " + scalarFields)
+        .withSchema(schema.build())
+        .build()), "create collection '" + collectionName + "'");
+
+    require(client.createIndex(CreateIndexParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .withFieldName(EMBEDDING_FIELD_NAME)
+        .withIndexType(indexType)
+        .withMetricType(metricType)
+        .withExtraParam(indexParameters)
+        .withSyncMode(false)
+        .build()), "index field '" + EMBEDDING_FIELD_NAME + "'");
+    for (String field : scalarFields) {
+      require(client.createIndex(CreateIndexParam.newBuilder()
+          .withDatabaseName(databaseName)
+          .withCollectionName(collectionName)
+          .withFieldName(field)
+          .withIndexType(IndexType.INVERTED)
+          .withSyncMode(false)
+          .build()), "index field '" + field + "'");
+    }
+    logger.info("✅ Created collection '{}' with scalar fields {} and partition key '{}'", collectionName, scalarFields, partitionKey);
+  }
+
+  /**
+   * An existing collection must already have the scalar fields, a collection with the plain Spring AI schema
+   * has to be migrated into a new one
+   */
+  private void verifySchema() {
+    DescCollResponseWrapper schema = describe();
+    for (String field : scalarFields) {
+      if (schema.getFieldByName(field) == null) {
+        throw new IllegalStateException("Collection '" + collectionName + "' has no scalar field '" + field
+            + "', configure a new collection name and migrate the existing documents into it");
+      }
+    }
+  }
+
+  private Map<String, String> properties() {
+    return describe().getProperties();
+  }
+
+  private DescCollResponseWrapper describe() {
+    DescribeCollectionResponse description = require(client.describeCollection(DescribeCollectionParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collectionName)
+        .build()), "describe collection '" + collectionName + "'");
+    return new DescCollResponseWrapper(description);
+  }
+
+  private boolean collectionExists(String collection) {
+    return Boolean.TRUE.equals(require(client.hasCollection(HasCollectionParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collection)
+        .build()), "look up collection '" + collection + "'"));
+  }
+
+  private long rowCount(String collection) {
+    GetCollectionStatisticsResponse statistics = require(client.getCollectionStatistics(GetCollectionStatisticsParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collection)
+        .withFlush(true)
+        .build()), "read statistics of collection '" + collection + "'");
+    return new GetCollStatResponseWrapper(statistics).getRowCount();
+  }
+
+  private void load(String collection) {
+    require(client.loadCollection(LoadCollectionParam.newBuilder()
+        .withDatabaseName(databaseName)
+        .withCollectionName(collection)
+        .build()), "load collection '" + collection + "'");
+  }
+
+  private JsonObject toJson(Map<String, Object> metadata) {
+    return gson.toJsonTree(metadata).getAsJsonObject();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> toMap(JsonElement metadata) {
+    return metadata == null || metadata.isJsonNull() ? new HashMap<>() : gson.fromJson(metadata, HashMap.class);
+  }
+
+  private static String scalarValue(Object value) {
+    String text = value == null ? "" : String.valueOf(value);
+    return text.length() > SCALAR_MAX_LENGTH ? text.substring(0, SCALAR_MAX_LENGTH) : text;
+  }
+
+  private static List<Float> toList(float[] vector) {
+    List<Float> list = new ArrayList<>(vector.length);
+    for (float value : vector) {
+      list.add(value);
+    }
+    return list;
+  }
+
+  private static float[] toArray(List<Float> vector) {
+    float[] array = new float[vector.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = vector.get(i);
+    }
+    return array;
+  }
+
+  private static <T> T require(R<T> response, String action) {
+    if (response.getStatus() != R.Status.Success.getCode()) {
+      throw new IllegalStateException("Could not " + action + ": " + response.getMessage(), response.getException());
+    }
+    return response.getData();
+  }
+
+  /**
+   * Refers to the scalar fields directly, other keys through the JSON metadata like the Spring AI converter
+   */
+  private class ScalarFilterExpressionConverter extends MilvusFilterExpressionConverter {
+
+    @Override
+    protected void doKey(Filter.Key key, StringBuilder context) {
+      String name = key.key().replaceAll("^[\"']|[\"']$", "");
+      if (scalarFields.contains(name)) {
+        context.append(name);
+      } else {
+        super.doKey(key, context);
+      }
+    }
+  }
+
+  public static class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+    private final MilvusServiceClient client;
+    private String databaseName = DEFAULT_DATABASE_NAME;
+    private String collectionName = DEFAULT_COLLECTION_NAME;
+    private int embeddingDimension = OPENAI_EMBEDDING_DIMENSION_SIZE;
+    private IndexType indexType = IndexType.IVF_FLAT;
+    private MetricType metricType = MetricType.COSINE;
+    private String indexParameters = "{\"nlist\":1024}";
+    private List<String> scalarFields = List.of();
+    private String partitionKey;
+    private boolean initializeSchema;
+    private String migrateFrom;
+    private int migrationBatchSize = 500;
+
+    private Builder(MilvusServiceClient client, EmbeddingModel embeddingModel) {
+      super(embeddingModel);
+      this.client = client;
+    }
+
+    public Builder databaseName(String databaseName) {
+      this.databaseName = databaseName;
+      return this;
+    }
+
+    public Builder collectionName(String collectionName) {
+      this.collectionName = collectionName;
+      return this;
+    }
+
+    public Builder embeddingDimension(int embeddingDimension) {
+      this.embeddingDimension = embeddingDimension;
+      return this;
+    }
+
+    public Builder indexType(IndexType indexType) {
+      this.indexType = indexType;
+      return this;
+    }
+
+    public Builder metricType(MetricType metricType) {
+      this.metricType = metricType;
+      return this;
+    }
+
+    public Builder indexParameters(String indexParameters) {
+      this.indexParameters = indexParameters;
+      return this;
+    }
+
+    /**
+     * Metadata keys stored as VARCHAR fields with an inverted index
+     */
+    public Builder scalarFields(List<String> scalarFields) {
+      this.scalarFields = scalarFields;
+      return this;
+    }
+
+    /**
+     * Scalar field that Milvus hashes documents into partitions by, {@code null} for none
+     */
+    public Builder partitionKey(String partitionKey) {
+      this.partitionKey = partitionKey;
+      return this;
+    }
+
+    public Builder initializeSchema(boolean initializeSchema) {
+      this.initializeSchema = initializeSchema;
+      return this;
+    }
+
+    /**
+     * Collection with the plain Spring AI schema whose documents are copied over in the background after
+     * startup until a copy has completed, {@code null} to disable
+     */
+    public Builder migrateFrom(String migrateFrom) {
+      this.migrateFrom = migrateFrom;
+      return this;
+    }
+
+    public Builder migrationBatchSize(int migrationBatchSize) {
+      this.migrationBatchSize = migrationBatchSize;
+      return this;
+    }
+
+    /**
+     * The Spring AI store underneath only provides the native client and observations, its schema initialization is disabled
+     */
+    private MilvusVectorStore.Builder milvusBuilder() {
+      MilvusVectorStore.Builder builder = MilvusVectorStore.builder(client, embeddingModel)
+          .databaseName(databaseName)
+          .collectionName(collectionName)
+          .embeddingDimension(embeddingDimension)
+          .indexType(indexType)
+          .metricType(metricType)
+          .initializeSchema(false)
+          .observationRegistry(observationRegistry)
+          .batchingStrategy(batchingStrategy);
+      if (customObservationConvention != null) {
+        builder.customObservationConvention(customObservationConvention);
+      }
+      return builder;
+    }
+
+    @Override
+    public ScalarFieldMilvusVectorStore build() {
+      return new ScalarFieldMilvusVectorStore(this);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Picks the shard of a document from its metadata, either by the hash of its topic or by the time bucket
+ * of its creation time, so that a document always lands on the same shard.
+ */
+public class ShardRouter {
+
+  public enum Routing { TOPIC_HASH, TIME_BUCKET }
+
+  static final String TOPIC_KEY = "topic";
+  static final String CREATED_KEY = "created";
+
+  private final Routing routing;
+  private final int shards;
+  private final long bucketMillis;
+
+  /**
+   * @param timeBucket width of a time bucket, consecutive buckets go to consecutive shards
+   */
+  public ShardRouter(Routing routing, int shards, Duration timeBucket) {
+    if (shards < 1) {
+      throw new IllegalArgumentException("At least one shard is needed");
+    }
+    this.routing = routing;
+    this.shards = shards;
+    this.bucketMillis = Math.max(1, timeBucket.toMillis());
+  }
+
+  public int shards() {
+    return shards;
+  }
+
+  /**
+   * @return the shard of a document, documents without the routing key go by the current time or an empty topic
+   */
+  public int shardOf(Map<String, Object> metadata) {
+    return switch (routing) {
+      case TOPIC_HASH -> topicShard(String.valueOf(metadata.getOrDefault(TOPIC_KEY, "")));
+      case TIME_BUCKET -> {
+        Object created = metadata.get(CREATED_KEY);
+        long millis = created instanceof Number number ? number.longValue() : System.currentTimeMillis();
+        yield (int) Math.floorMod(millis / bucketMillis, (long) shards);
+      }
+    };
+  }
+
+  /**
+   * @return the shard a stored document belongs on, empty when it has no creation time under time bucket routing:
+   *     such a document was placed by the time it was written, which a later rebalance cannot recompute
+   */
+  public OptionalInt homeOf(Map<String, Object> metadata) {
+    if (routing == Routing.TIME_BUCKET && !(metadata.get(CREATED_KEY) instanceof Number)) {
+      return OptionalInt.empty();
+    }
+    return OptionalInt.of(shardOf(metadata));
+  }
+
+  /**
+   * @return the only shard that can hold matches of a filter requiring one topic, empty when all shards must be searched
+   */
+  public OptionalInt shardOf(Filter.Expression filter) {
+    if (routing != Routing.TOPIC_HASH || filter == null) {
+      return OptionalInt.empty();
+    }
+    String topic = requiredTopic(filter);
+    return topic == null ? OptionalInt.empty() : OptionalInt.of(topicShard(topic));
+  }
+
+  private int topicShard(String topic) {
+    return Math.floorMod(topic.hashCode(), shards);
+  }
+
+  /**
+   * A topic equality that every match must satisfy: the expression itself or a term of a conjunction
+   */
+  private static String requiredTopic(Filter.Operand operand) {
+    if (operand instanceof Filter.Group group) {
+      return requiredTopic(group.content());
+    }
+    if (!(operand instanceof Filter.Expression expression)) {
+      return null;
+    }
+    if (expression.type() == Filter.ExpressionType.AND) {
+      String left = requiredTopic(expression.left());
+      return left != null ? left : requiredTopic(expression.right());
+    }
+    if (expression.type() == Filter.ExpressionType.EQ
+        && expression.left() instanceof Filter.Key key && TOPIC_KEY.equals(key.key())
+        && expression.right() instanceof Filter.Value value && value.value() != null) {
+      return String.valueOf(value.value());
+    }
+    return null;
+  }
+}
@@ -0,0 +1,266 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.milvus.client.MilvusServiceClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * Spreads documents over several {@link ScalarFieldMilvusVectorStore} collections by a {@link ShardRouter}.
+ * A search embeds the query once, fans out to the shards that can hold matches in parallel and merges the
+ * per-shard top-K with a heap. Shards that do not answer within the shard timeout, or fail, are left out
+ * and the search returns the results of the others, each marked with {@value #PARTIAL_RESULTS_KEY} in its
+ * metadata so that callers do not cache them; it only fails when no shard answers.
+ */
+public class ShardedMilvusVectorStore extends MilvusVectorStore implements EmbeddedDocumentStore, DisposableBean {
+
+  private static final Logger logger = LoggerFactory.getLogger(ShardedMilvusVectorStore.class);
+
+  /**
+   * Metadata key set to true on the results of a search that some shard did not answer
+   */
+  public static final String PARTIAL_RESULTS_KEY = "partialResults";
+
+  private final List<ScalarFieldMilvusVectorStore> shards;
+  private final ShardRouter router;
+  private final long shardTimeoutNanos;
+  private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-search-", 0).factory());
+  private final List<Counter> answered = new ArrayList<>();
+  private final List<Counter> timedOut = new ArrayList<>();
+  private final List<Counter> failed = new ArrayList<>();
+  private final Counter partialResults;
+
+  public ShardedMilvusVectorStore(MilvusServiceClient client, EmbeddingModel embeddingModel, ObservationRegistry observationRegistry,
+                                  List<ScalarFieldMilvusVectorStore> shards, ShardRouter router, Duration shardTimeout,
+                                  MeterRegistry meterRegistry) {
+    super(MilvusVectorStore.builder(client, embeddingModel)
+        .collectionName(shards.get(0).getCollectionName())
+        .initializeSchema(false)
+        .observationRegistry(observationRegistry));
+    if (shards.size() != router.shards()) {
+      throw new IllegalArgumentException("Got " + shards.size() + " shards but the router spreads over " + router.shards());
+    }
+    this.shards = List.copyOf(shards);
+    this.router = router;
+    this.shardTimeoutNanos = shardTimeout.toNanos();
+    for (ScalarFieldMilvusVectorStore shard : shards) {
+      String collection = shard.getCollectionName();
+      answered.add(Counter.builder("vector.shard.search").tag("collection", collection).tag("outcome", "success").register(meterRegistry));
+      timedOut.add(Counter.builder("vector.shard.search").tag("collection", collection).tag("outcome", "timeout").register(meterRegistry));
+      failed.add(Counter.builder("vector.shard.search").tag("collection", collection).tag("outcome", "error").register(meterRegistry));
+    }
+    this.partialResults = Counter.builder("vector.shard.search.partial").register(meterRegistry);
+  }
+
+  public List<ScalarFieldMilvusVectorStore> getShards() {
+    return shards;
+  }
+
+  /**
+   * @return the background migration into the first shard, which keeps the unsharded collection
+   */
+  public CompletableFuture<Long> migration() {
+    return shards.get(0).migration();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    shards.forEach(ScalarFieldMilvusVectorStore::afterPropertiesSet);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Embed the documents once and write every shard's share with a single insert
+   */
+  @Override
+  public void doAdd(List<Document> documents) {
+    add(documents, embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy));
+  }
+
+  @Override
+  public void add(List<Document> documents, List<float[]> embeddings) {
+    Map<Integer, List<Integer>> byShard = new HashMap<>();
+    for (int i = 0; i < documents.size(); i++) {
+      byShard.computeIfAbsent(router.shardOf(documents.get(i).getMetadata()), shard -> new ArrayList<>()).add(i);
+    }
+    byShard.forEach((shard, positions) -> shards.get(shard).add(
+        positions.stream().map(documents::get).toList(),
+        positions.stream().map(embeddings::get).toList()));
+  }
+
+  /**
+   * Read the shards one after the other
+   */
+  @Override
+  public void forEachEmbedded(BiConsumer<List<Document>, List<float[]>> consumer) {
+    shards.forEach(shard -> shard.forEachEmbedded(consumer));
+  }
+
+  @Override
+  public void doDelete(List<String> idList) {
+    shards.forEach(shard -> shard.delete(idList));
+  }
+
+  @Override
+  protected void doDelete(Filter.Expression filterExpression) {
+    shards.forEach(shard -> shard.delete(filterExpression));
+  }
+
+  @Override
+  public List<Document> doSimilaritySearch(SearchRequest request) {
+    return similaritySearch(embeddingModel.embed(request.getQuery()), request);
+  }
+
+  /**
+   * Search the shards with an already computed query embedding, the query text of the request is ignored
+   */
+  @Override
+  public List<Document> similaritySearch(float[] query, SearchRequest request) {
+    OptionalInt only = router.shardOf(request.getFilterExpression());
+    List<Integer> targets = new ArrayList<>();
+    if (only.isPresent()) {
+      targets.add(only.getAsInt());
+    } else {
+      for (int shard = 0; shard < shards.size(); shard++) {
+        targets.add(shard);
+      }
+    }
+
+    List<Future<List<Document>>> searches = new ArrayList<>(targets.size());
+    for (int shard : targets) {
+      searches.add(executor.submit(() -> shards.get(shard).similaritySearch(query, request)));
+    }
+
+    // Min-heap on score keeping the best top-K seen so far
+    PriorityQueue<Document> best = new PriorityQueue<>(Comparator.comparingDouble(ShardedMilvusVectorStore::score));
+    Map<String, Document> bestById = new HashMap<>();
+    long deadline = System.nanoTime() + shardTimeoutNanos;
+    int missing = 0;
+    Exception lastFailure = null;
+    for (int i = 0; i < searches.size(); i++) {
+      int shard = targets.get(i);
+      Future<List<Document>> search = searches.get(i);
+      try {
+        for (Document document : search.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+          offer(best, bestById, document, request.getTopK());
+        }
+        answered.get(shard).increment();
+      } catch (TimeoutException e) {
+        search.cancel(true);
+        timedOut.get(shard).increment();
+        missing++;
+        lastFailure = e;
+        logger.warn("Shard '{}' did not answer within the shard timeout, searching without it", shards.get(shard).getCollectionName());
+      } catch (ExecutionException e) {
+        failed.get(shard).increment();
+        missing++;
+        lastFailure = e;
+        logger.warn("Shard '{}' failed, searching without it: {}", shards.get(shard).getCollectionName(), e.getCause().getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        searches.forEach(pending -> pending.cancel(true));
+        throw new IllegalStateException("Interrupted while waiting for shard searches", e);
+      }
+    }
+    if (missing == targets.size()) {
+      throw new IllegalStateException("No shard answered the search", lastFailure);
+    }
+    if (missing > 0) {
+      partialResults.increment();
+    }
+
+    List<Document> results = new ArrayList<>(best);
+    results.sort(Comparator.comparingDouble(ShardedMilvusVectorStore::score).reversed());
+    if (missing > 0) {
+      results.forEach(document -> document.getMetadata().put(PARTIAL_RESULTS_KEY, true));
+    }
+    return results;
+  }
+
+  /**
+   * Keep a document among the best K, a document found on two shards (mid rebalance) only counts once
+   */
+  private static void offer(PriorityQueue<Document> best, Map<String, Document> bestById, Document document, int topK) {
+    Document previous = bestById.get(document.getId());
+    if (previous != null) {
+      if (score(previous) >= score(document)) {
+        return;
+      }
+      best.remove(previous);
+    }
+    best.add(document);
+    bestById.put(document.getId(), document);
+    if (best.size() > topK) {
+      bestById.remove(best.poll().getId());
+    }
+  }
+
+  private static double score(Document document) {
+    return document.getScore() == null ? 0 : document.getScore();
+  }
+
+  /**
+   * Move every document that is not on the shard its router picks, e.g. after the shard count changed.
+   * A moved document is written to its new shard before it is deleted from the old one. Documents the router
+   * cannot place again, see {@link ShardRouter#homeOf(Map)}, stay where they are.
+   * @return number of documents moved
+   */
+  public long rebalance() {
+    long moved = 0;
+    for (int source = 0; source < shards.size(); source++) {
+      ScalarFieldMilvusVectorStore from = shards.get(source);
+      long[] movedFromShard = new long[1];
+      int sourceShard = source;
+      from.forEachBatch(rows -> {
+        Map<Integer, ScalarFieldMilvusVectorStore.Rows> byTarget = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+          OptionalInt home = router.homeOf(rows.metadata().get(i));
+          int target = home.orElse(sourceShard);
+          if (target != sourceShard) {
+            byTarget.computeIfAbsent(target, shard -> new ScalarFieldMilvusVectorStore.Rows(rows.size()))
+                .add(rows.ids().get(i), rows.contents().get(i), rows.metadata().get(i), rows.vectors().get(i));
+          }
+        }
+        byTarget.forEach((target, moving) -> {
+          shards.get(target).insert(moving);
+          from.delete(moving.ids());
+          movedFromShard[0] += moving.size();
+        });
+      });
+      logger.info("Moved {} document(s) off shard '{}'", movedFromShard[0], from.getCollectionName());
+      moved += movedFromShard[0];
+    }
+    logger.info("✅ Rebalanced {} shard(s), moved {} document(s)", shards.size(), moved);
+    return moved;
+  }
+}
@@ -0,0 +1,203 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Vector store that keeps recently written documents in an in-process {@link HnswVectorStore}
+ * in front of a remote store. Writes embed the documents once and go to both tiers with the same embeddings.
+ * A search embeds the query once and asks the hot tier first. When the hot tier returns a full top-K that
+ * all score at least the answer score, those near-duplicates are taken as the answer and the remote store
+ * is not queried; otherwise the remote store is searched with the same embedding and both results are merged,
+ * since a partial or weaker hot answer does not mean that no older document in the remote store is closer.
+ */
+public class TieredVectorStore implements VectorStore, EmbeddedDocumentStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(TieredVectorStore.class);
+
+  private final HnswVectorStore hotTier;
+  private final VectorStore remote;
+  private final EmbeddingModel embeddingModel;
+  private final BatchingStrategy batchingStrategy;
+  private final double hotAnswerScore;
+  private final Counter hotOnly;
+  private final Counter hotBest;
+  private final Counter remoteBest;
+
+  /**
+   * @param hotAnswerScore lowest score of a full hot top-K that answers a search without the remote store,
+   *                       above 1 to always query the remote store
+   */
+  public TieredVectorStore(HnswVectorStore hotTier, VectorStore remote, EmbeddingModel embeddingModel,
+                           BatchingStrategy batchingStrategy, double hotAnswerScore, MeterRegistry meterRegistry) {
+    this.hotTier = hotTier;
+    this.remote = remote;
+    this.embeddingModel = embeddingModel;
+    this.batchingStrategy = batchingStrategy;
+    this.hotAnswerScore = hotAnswerScore;
+    // Counted by the tier that supplied the best result of a search, hot-only when the remote store was skipped
+    this.hotOnly = Counter.builder("vector.tier.search").tag("tier", "hot-only").register(meterRegistry);
+    this.hotBest = Counter.builder("vector.tier.search").tag("tier", "hot").register(meterRegistry);
+    this.remoteBest = Counter.builder("vector.tier.search").tag("tier", "remote").register(meterRegistry);
+    Gauge.builder("vector.tier.hot.size", hotTier, HnswVectorStore::size).register(meterRegistry);
+  }
+
+  @Override
+  public String getName() {
+    return "tiered(" + remote.getName() + ")";
+  }
+
+  /**
+   * Embed the documents once and write them to both tiers with the same embeddings
+   */
+  @Override
+  public void add(List<Document> documents) {
+    if (!(remote instanceof EmbeddedDocumentStore)) {
+      remote.add(documents);
+      addHot(documents, null);
+      return;
+    }
+    add(documents, embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(), batchingStrategy));
+  }
+
+  /**
+   * Write documents with known embeddings to both tiers, the remote store must support it
+   */
+  @Override
+  public void add(List<Document> documents, List<float[]> embeddings) {
+    embeddedRemote().add(documents, embeddings);
+    addHot(documents, embeddings);
+  }
+
+  private void addHot(List<Document> documents, List<float[]> embeddings) {
+    try {
+      if (embeddings == null) {
+        hotTier.add(documents);
+      } else {
+        hotTier.add(documents, embeddings);
+      }
+    } catch (Exception e) {
+      // The remote store is the source of truth, a missing hot entry only costs a remote search
+      logger.warn("Could not add {} document(s) to the hot tier: {}", documents.size(), e.getMessage());
+    }
+  }
+
+  /**
+   * Read the remote store, which holds every document, the hot tier only holds recent ones
+   */
+  @Override
+  public void forEachEmbedded(BiConsumer<List<Document>, List<float[]>> consumer) {
+    embeddedRemote().forEachEmbedded(consumer);
+  }
+
+  private EmbeddedDocumentStore embeddedRemote() {
+    if (!(remote instanceof EmbeddedDocumentStore embedded)) {
+      throw new UnsupportedOperationException(remote.getName() + " does not expose document embeddings");
+    }
+    return embedded;
+  }
+
+  @Override
+  public void delete(List<String> idList) {
+    remote.delete(idList);
+    hotTier.delete(idList);
+  }
+
+  @Override
+  public void delete(Filter.Expression filterExpression) {
+    remote.delete(filterExpression);
+    hotTier.delete(filterExpression);
+  }
+
+  @Override
+  public List<Document> similaritySearch(SearchRequest request) {
+    return similaritySearch(embeddingModel.embed(request.getQuery()), request);
+  }
+
+  /**
+   * Search both tiers with an already computed query embedding, the query text of the request is ignored
+   */
+  @Override
+  public List<Document> similaritySearch(float[] query, SearchRequest request) {
+    List<Document> hot;
+    try {
+      hot = hotTier.similaritySearch(query, request);
+    } catch (Exception e) {
+      logger.warn("Could not search the hot tier: {}", e.getMessage());
+      hot = List.of();
+    }
+    if (answersAlone(hot, request.getTopK())) {
+      hotOnly.increment();
+      return hot;
+    }
+    List<Document> remoteResults = remote instanceof EmbeddedDocumentStore embedded
+        ? embedded.similaritySearch(query, request)
+        : remote.similaritySearch(request);
+    List<Document> results = merge(hot, remoteResults, request.getTopK());
+    if (!results.isEmpty()) {
+      (remoteResults.contains(results.get(0)) ? remoteBest : hotBest).increment();
+    }
+    return results;
+  }
+
+  /**
+   * @return true when the hot results fill the top-K and the weakest of them still scores the answer score
+   */
+  private boolean answersAlone(List<Document> hot, int topK) {
+    if (hot.isEmpty() || hot.size() < topK) {
+      return false;
+    }
+    Double weakest = hot.get(hot.size() - 1).getScore();
+    return weakest != null && weakest >= hotAnswerScore;
+  }
+
+  /**
+   * @return the documents of both tiers by descending score, remote ones first on equal ids, at most {@code topK}
+   */
+  static List<Document> merge(List<Document> hot, List<Document> remoteResults, int topK) {
+    if (hot.isEmpty()) {
+      return remoteResults;
+    }
+    Map<String, Document> merged = new LinkedHashMap<>();
+    for (Document document : remoteResults) {
+      merged.put(document.getId(), document);
+    }
+    for (Document document : hot) {
+      merged.putIfAbsent(document.getId(), document);
+    }
+    List<Document> results = new ArrayList<>(merged.values());
+    results.sort(Comparator.comparing(Document::getScore, Comparator.nullsLast(Comparator.reverseOrder())));
+    return results.size() > topK ? results.subList(0, topK) : results;
+  }
+
+  public HnswVectorStore getHotTier() {
+    return hotTier;
+  }
+
+  public VectorStore getRemote() {
+    return remote;
+  }
+
+  @Override
+  public <T> Optional<T> getNativeClient() {
+    return remote.getNativeClient();
+  }
+}
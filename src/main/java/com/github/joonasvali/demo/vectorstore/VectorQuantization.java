@@ -0,0 +1,15 @@
+package com.github.joonasvali.demo.vectorstore;
+
+/**
+ * Representation of the vectors an {@link HnswIndex} scans while searching. With quantization the
+ * candidates are re-ranked by exact cosine similarity against full-precision vectors that are kept
+ * in a memory-mapped file instead of the heap.
+ */
+public enum VectorQuantization {
+  /** Full-precision floats, 4 bytes per dimension */
+  NONE,
+  /** One signed byte per dimension with a per-vector scale, 4x smaller than floats */
+  INT8,
+  /** One sign bit per dimension scored by Hamming distance, 32x smaller than floats */
+  BINARY
+}
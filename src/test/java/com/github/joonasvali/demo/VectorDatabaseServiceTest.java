@@ -0,0 +1,103 @@
+package com.github.joonasvali.demo;
+
+import com.github.joonasvali.demo.cache.SearchResultCache;
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import com.github.joonasvali.demo.concurrency.SingleFlight;
+import com.github.joonasvali.demo.dedup.JokeDeduplicator;
+import com.github.joonasvali.demo.ingest.StoreOutcome;
+import com.github.joonasvali.demo.ingest.WriteBehindIngester;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.search.JokeKeywordIndex;
+import com.github.joonasvali.demo.search.SearchMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VectorDatabaseServiceTest {
+
+  private static final Document OLD = joke("old", "A penguin walks into a bar");
+  private static final Joke JOKE = new Joke("Penguins", "A penguin walks into a bar", "animals");
+  private static final Document NEW = joke("new", "A penguin orders a drink");
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final VectorStore vectorStore = mock(VectorStore.class);
+  private final WriteBehindIngester ingester = mock(WriteBehindIngester.class);
+  private final JokeDeduplicator deduplicator = mock(JokeDeduplicator.class);
+
+  @Test
+  void searchAfterAWriteDoesNotReuseResultsSharedBeforeIt() {
+    SearchResultCache searchResultCache = new SearchResultCache(meterRegistry, true, 100);
+    VectorDatabaseService service = service(searchResultCache);
+    when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(OLD), List.of(NEW, OLD));
+
+    List<Document> before = service.searchJokes("penguin", 5, 0.5, SearchMode.VECTOR);
+    searchResultCache.bumpVersion();
+    List<Document> after = service.searchJokes("penguin", 5, 0.5, SearchMode.VECTOR);
+
+    assertThat(before).extracting(Document::getId).containsExactly("old");
+    assertThat(after).extracting(Document::getId).containsExactly("new", "old");
+    verify(vectorStore, times(2)).similaritySearch(any(SearchRequest.class));
+  }
+
+  @Test
+  void identicalSearchesAtTheSameVersionShareOneStoreQuery() {
+    VectorDatabaseService service = service(new SearchResultCache(meterRegistry, false, 0));
+    when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(OLD), List.of(NEW));
+
+    service.searchJokes("penguin", 5, 0.5, SearchMode.VECTOR);
+    List<Document> shared = service.searchJokes("Penguin ", 5, 0.5, SearchMode.VECTOR);
+
+    assertThat(shared).extracting(Document::getId).containsExactly("old");
+    verify(vectorStore, times(1)).similaritySearch(any(SearchRequest.class));
+  }
+
+  @Test
+  void reportsAFullQueueAndAFailureToQueueApart() {
+    VectorDatabaseService service = service(new SearchResultCache(meterRegistry, true, 100));
+    when(deduplicator.accept(any())).thenReturn(true);
+    when(ingester.submit(any())).thenReturn(true, false).thenThrow(new IllegalStateException("ingester stopped"));
+
+    assertThat(service.addJoke(JOKE)).isEqualTo(StoreOutcome.QUEUED);
+    assertThat(service.addJoke(JOKE)).isEqualTo(StoreOutcome.REJECTED);
+    assertThat(service.addJoke(JOKE)).isEqualTo(StoreOutcome.FAILED);
+    // A joke that was not queued may be submitted again
+    verify(deduplicator, times(2)).forget(JOKE.content());
+  }
+
+  @Test
+  void skipsADuplicateWithoutQueuingIt() {
+    VectorDatabaseService service = service(new SearchResultCache(meterRegistry, true, 100));
+    when(deduplicator.accept(any())).thenReturn(false);
+
+    assertThat(service.addJoke(JOKE)).isEqualTo(StoreOutcome.DUPLICATE);
+    verify(ingester, never()).submit(any());
+  }
+
+  private VectorDatabaseService service(SearchResultCache searchResultCache) {
+    // A long window makes a completed search shareable for the whole test
+    SingleFlight<List<Document>> searchSingleFlight = new SingleFlight<>("search", true, Duration.ofMinutes(1), meterRegistry);
+    return new VectorDatabaseService(vectorStore, ingester,
+        new Bulkhead("vector-store", 16, Duration.ofSeconds(1), meterRegistry), searchSingleFlight, searchResultCache,
+        deduplicator, new JokeKeywordIndex(meterRegistry, 0, 3, 1.0), SearchMode.VECTOR,
+        Schedulers.immediate(), meterRegistry);
+  }
+
+  private static Document joke(String id, String text) {
+    return Document.builder().id(id).text(text).metadata(Map.of("type", "joke")).score(0.9).build();
+  }
+}
@@ -0,0 +1,93 @@
+package com.github.joonasvali.demo.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private static final long MILLIS = 1_000_000;
+  private static final int WINDOW = 10;
+
+  @Test
+  void growsWhileLatencyHolds() {
+    AdaptiveConcurrencyLimit limit = limit(10, 100);
+
+    window(limit, MILLIS, limit.get(), false);
+
+    // 10 + sqrt(10)
+    assertThat(limit.get()).isEqualTo(13);
+    window(limit, MILLIS, limit.get(), false);
+    assertThat(limit.get()).isGreaterThan(13);
+  }
+
+  @Test
+  void shrinksWhenRequestsQueueDownstream() {
+    AdaptiveConcurrencyLimit limit = limit(50, 50);
+    for (int i = 0; i < 30; i++) {
+      window(limit, MILLIS, limit.get(), false);
+    }
+    assertThat(limit.get()).isEqualTo(50);
+
+    window(limit, 10 * MILLIS, limit.get(), false);
+
+    assertThat(limit.get()).isLessThan(50);
+  }
+
+  @Test
+  void backsOffOnDroppedRequests() {
+    AdaptiveConcurrencyLimit limit = limit(20, 100);
+
+    for (int i = 0; i < WINDOW - 1; i++) {
+      limit.onSample(MILLIS, 20, false);
+    }
+    limit.onSample(MILLIS, 20, true);
+
+    assertThat(limit.get()).isEqualTo(18);
+  }
+
+  @Test
+  void keepsALimitThatWasNotApproached() {
+    AdaptiveConcurrencyLimit limit = limit(20, 100);
+
+    window(limit, MILLIS, 2, false);
+
+    assertThat(limit.get()).isEqualTo(20);
+  }
+
+  @Test
+  void staysWithinItsBounds() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 8, 12, 1.5, 0.5, WINDOW, 1.0);
+
+    window(limit, MILLIS, 10, false);
+    assertThat(limit.get()).isEqualTo(12);
+
+    window(limit, MILLIS, 12, true);
+    window(limit, MILLIS, 12, true);
+    assertThat(limit.get()).isEqualTo(8);
+  }
+
+  @Test
+  void waitsForAFullWindow() {
+    AdaptiveConcurrencyLimit limit = limit(10, 100);
+
+    for (int i = 0; i < WINDOW - 1; i++) {
+      limit.onSample(MILLIS, 10, true);
+    }
+
+    assertThat(limit.get()).isEqualTo(10);
+  }
+
+  /**
+   * A limit that applies increases in full, so that a single window shows its effect
+   */
+  private static AdaptiveConcurrencyLimit limit(int initial, int max) {
+    return new AdaptiveConcurrencyLimit(initial, 1, max, 1.5, 0.9, WINDOW, 1.0);
+  }
+
+  private static void window(AdaptiveConcurrencyLimit limit, long latencyNanos, int inFlight, boolean dropped) {
+    for (int i = 0; i < WINDOW; i++) {
+      limit.onSample(latencyNanos, inFlight, dropped && i == 0);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.github.joonasvali.demo.admission;
+
+import com.github.joonasvali.demo.resilience.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+  private static final String CLIENT = "127.0.0.1";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Lane search = new Lane("search", 0, List.of("/search-jokes"), 2, Duration.ofSeconds(5), 1);
+  private final Lane batch = new Lane("batch", 2, List.of("/jokes/batch"), 2, Duration.ofSeconds(5), 1);
+
+  @Test
+  void routesRequestsByPath() {
+    AdmissionController controller = controller(4, 4);
+
+    assertThat(controller.laneFor("/search-jokes")).contains(search);
+    assertThat(controller.laneFor("/jokes/batch")).contains(batch);
+    assertThat(controller.laneFor("/vector-health")).isEmpty();
+  }
+
+  @Test
+  void queuesBeyondTheLaneLimitAndAdmitsOnRelease() throws Exception {
+    AdmissionController controller = controller(4, 1);
+    AdmissionController.Permit first = controller.acquire(search, CLIENT);
+
+    CompletableFuture<AdmissionController.Permit> waiting = controller.acquireReactive(search, CLIENT).toFuture();
+    assertThat(waiting).isNotDone();
+    assertThat(queued("search")).isEqualTo(1);
+
+    first.release(200);
+
+    waiting.get(1, TimeUnit.SECONDS).release(200);
+    assertThat(controller.inFlight()).isZero();
+  }
+
+  @Test
+  void servesWaitingLanesByPriority() throws Exception {
+    AdmissionController controller = controller(1, 4);
+    AdmissionController.Permit running = controller.acquire(batch, CLIENT);
+    CompletableFuture<AdmissionController.Permit> batchWaiting = controller.acquireReactive(batch, CLIENT).toFuture();
+    CompletableFuture<AdmissionController.Permit> searchWaiting = controller.acquireReactive(search, CLIENT).toFuture();
+
+    running.release(200);
+
+    AdmissionController.Permit searchPermit = searchWaiting.get(1, TimeUnit.SECONDS);
+    assertThat(batchWaiting).isNotDone();
+    searchPermit.release(200);
+    batchWaiting.get(1, TimeUnit.SECONDS).release(200);
+    assertThat(controller.inFlight()).isZero();
+  }
+
+  @Test
+  void rejectsRightAwayWhenTheQueueIsFull() {
+    AdmissionController controller = controller(4, 1);
+    controller.acquire(search, CLIENT);
+    controller.acquireReactive(search, CLIENT).subscribe();
+    controller.acquireReactive(search, CLIENT).subscribe();
+
+    assertThatThrownBy(() -> controller.acquire(search, CLIENT))
+        .isInstanceOfSatisfying(AdmissionRejectedException.class,
+            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    assertThat(outcome("search", "queue-full")).isEqualTo(1);
+  }
+
+  @Test
+  void expiresAWaitThatOutlastsTheLaneMaximum() {
+    Lane quick = new Lane("search", 0, List.of("/search-jokes"), 2, Duration.ofMillis(50), 1);
+    AdmissionController controller = controller(List.of(quick), 4, 1);
+    controller.acquire(quick, CLIENT);
+
+    assertThatThrownBy(() -> controller.acquire(quick, CLIENT))
+        .isInstanceOfSatisfying(AdmissionRejectedException.class,
+            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    assertThat(outcome("search", "timed-out")).isEqualTo(1);
+    assertThat(queued("search")).isZero();
+  }
+
+  @Test
+  void waitsNoLongerThanTheRequestDeadline() {
+    AdmissionController controller = controller(4, 1);
+    controller.acquire(search, CLIENT);
+
+    long start = System.nanoTime();
+    try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(50)).bind()) {
+      assertThatThrownBy(() -> controller.acquire(search, CLIENT)).isInstanceOf(AdmissionRejectedException.class);
+    }
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+  }
+
+  @Test
+  void aCancelledWaiterGivesUpItsPlace() {
+    AdmissionController controller = controller(4, 1);
+    AdmissionController.Permit running = controller.acquire(search, CLIENT);
+    Disposable waiting = controller.acquireReactive(search, CLIENT).subscribe();
+
+    waiting.dispose();
+    running.release(200);
+
+    assertThat(queued("search")).isZero();
+    assertThat(controller.inFlight()).isZero();
+    assertThat(outcome("search", "cancelled")).isEqualTo(1);
+  }
+
+  @Test
+  void releasingTwiceFreesOneSlot() {
+    AdmissionController controller = controller(4, 4);
+    AdmissionController.Permit first = controller.acquire(search, CLIENT);
+    controller.acquire(search, CLIENT);
+
+    first.release(200);
+    first.release(200);
+
+    assertThat(controller.inFlight()).isEqualTo(1);
+  }
+
+  @Test
+  void rateLimitsEachClient() {
+    AdmissionController controller = new AdmissionController(true, List.of(search, batch), () -> fixed(4), 4,
+        new ClientRateLimiter(true, 1, 1, 100), meterRegistry);
+    controller.acquire(search, CLIENT).release(200);
+
+    assertThatThrownBy(() -> controller.acquire(search, CLIENT))
+        .isInstanceOfSatisfying(AdmissionRejectedException.class,
+            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+    controller.acquire(search, "10.0.0.2").release(200);
+  }
+
+  @Test
+  void admitsEverythingWhenDisabled() {
+    AdmissionController controller = new AdmissionController(false, List.of(search, batch), () -> fixed(1), 1,
+        new ClientRateLimiter(false, 1, 1, 100), meterRegistry);
+
+    assertThat(controller.laneFor("/search-jokes")).isEmpty();
+  }
+
+  private AdmissionController controller(int maxConcurrent, int laneLimit) {
+    return controller(List.of(search, batch), maxConcurrent, laneLimit);
+  }
+
+  private AdmissionController controller(List<Lane> lanes, int maxConcurrent, int laneLimit) {
+    return new AdmissionController(true, lanes, () -> fixed(laneLimit), maxConcurrent,
+        new ClientRateLimiter(false, 1, 1, 100), meterRegistry);
+  }
+
+  private static AdaptiveConcurrencyLimit fixed(int limit) {
+    return new AdaptiveConcurrencyLimit(limit, limit, limit, 1.5, 0.9, 20, 0.2);
+  }
+
+  private double queued(String lane) {
+    return meterRegistry.get("admission.queue.size").tag("lane", lane).gauge().value();
+  }
+
+  private double outcome(String lane, String outcome) {
+    return meterRegistry.get("admission.requests").tag("lane", lane).tag("outcome", outcome).counter().count();
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.joonasvali.demo.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+  private static final List<Document> RESULTS = List.of(new Document("1", "A penguin walks into a bar", Map.of()));
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void returnsResultsCachedAtTheCurrentVersion() {
+    SearchResultCache cache = new SearchResultCache(meterRegistry, true, 10);
+
+    cache.put("penguin", cache.version(), RESULTS);
+
+    assertThat(cache.get("penguin")).contains(RESULTS);
+    assertThat(cache.get("horse")).isEmpty();
+    assertThat(meterRegistry.counter("vector.search.cache", "result", "hit").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("vector.search.cache", "result", "miss").count()).isEqualTo(1);
+  }
+
+  @Test
+  void bumpingTheVersionMakesEntriesStale() {
+    SearchResultCache cache = new SearchResultCache(meterRegistry, true, 10);
+    cache.put("penguin", cache.version(), RESULTS);
+
+    cache.bumpVersion();
+
+    assertThat(cache.get("penguin")).isEmpty();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void dropsResultsReadBeforeAWrite() {
+    SearchResultCache cache = new SearchResultCache(meterRegistry, true, 10);
+    long readVersion = cache.version();
+
+    cache.bumpVersion();
+    cache.put("penguin", readVersion, RESULTS);
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void evictsTheLeastRecentlyUsedEntry() {
+    SearchResultCache cache = new SearchResultCache(meterRegistry, true, 2);
+    cache.put("a", cache.version(), RESULTS);
+    cache.put("b", cache.version(), RESULTS);
+    cache.get("a");
+
+    cache.put("c", cache.version(), RESULTS);
+
+    assertThat(cache.get("b")).isEmpty();
+    assertThat(cache.get("a")).isPresent();
+    assertThat(cache.get("c")).isPresent();
+    assertThat(meterRegistry.counter("vector.search.cache.evictions").count()).isEqualTo(1);
+  }
+
+  @Test
+  void disabledCacheKeepsNothing() {
+    SearchResultCache cache = new SearchResultCache(meterRegistry, false, 10);
+
+    cache.put("penguin", cache.version(), RESULTS);
+
+    assertThat(cache.get("penguin")).isEmpty();
+    assertThat(cache.size()).isZero();
+  }
+}
@@ -0,0 +1,139 @@
+package com.github.joonasvali.demo.cache;
+
+import com.github.joonasvali.demo.model.Joke;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticJokeCacheTest {
+
+  // cats and kittens score 0.96, cats and dogs 0.6
+  private static final Map<String, float[]> SUBJECTS = Map.of(
+      "cats", new float[]{1, 0, 0},
+      "kittens", new float[]{0.96f, 0.28f, 0},
+      "dogs", new float[]{0.6f, 0, 0.8f},
+      "birds", new float[]{0, 1, 0});
+
+  private static final Joke CAT_JOKE = new Joke("Cats", "A cat walks into a bar", "cats");
+  private static final Joke KITTEN_JOKE = new Joke("Kittens", "A kitten walks into a bar", "kittens");
+  private static final Joke THIRD_JOKE = new Joke("More cats", "Another cat walks into a bar", "cats");
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void servesAnExactSubjectOnceItsQuotaIsFull() {
+    SemanticJokeCache cache = cache(2, Duration.ofMinutes(1), 10);
+    cache.put("cats", CAT_JOKE);
+
+    assertThat(cache.lookup("cats")).isEmpty();
+
+    cache.put("The Cats!", THIRD_JOKE);
+    assertThat(cache.lookup("cats").orElseThrow()).isIn(CAT_JOKE, THIRD_JOKE);
+    assertThat(meterRegistry.counter("joke.cache.semantic", "result", "miss").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("joke.cache.semantic", "result", "hit").count()).isEqualTo(1);
+  }
+
+  @Test
+  void servesASubjectWithinTheSimilarityThreshold() {
+    SemanticJokeCache cache = cache(1, Duration.ofMinutes(1), 10);
+    cache.put("cats", CAT_JOKE);
+
+    assertThat(cache.lookup("kittens")).contains(CAT_JOKE);
+    assertThat(cache.lookup("dogs")).isEmpty();
+  }
+
+  @Test
+  void jokesForAMatchedSubjectFillTheQuotaOfTheMatch() {
+    SemanticJokeCache cache = cache(2, Duration.ofMinutes(1), 10);
+    cache.put("cats", CAT_JOKE);
+    assertThat(cache.lookup("kittens")).isEmpty();
+
+    cache.put("kittens", KITTEN_JOKE);
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.lookup("kittens").orElseThrow()).isIn(CAT_JOKE, KITTEN_JOKE);
+    assertThat(cache.lookup("cats").orElseThrow()).isIn(CAT_JOKE, KITTEN_JOKE);
+  }
+
+  @Test
+  void keepsNoMoreJokesThanTheQuota() {
+    SemanticJokeCache cache = cache(2, Duration.ofMinutes(1), 10);
+    cache.put("cats", CAT_JOKE);
+    cache.put("kittens", KITTEN_JOKE);
+    cache.put("cats", THIRD_JOKE);
+
+    Set<Joke> served = new HashSet<>();
+    IntStream.range(0, 200).forEach(i -> cache.lookup("cats").ifPresent(served::add));
+
+    assertThat(served).containsExactlyInAnyOrder(CAT_JOKE, KITTEN_JOKE);
+  }
+
+  @Test
+  void dropsExpiredSubjects() throws InterruptedException {
+    SemanticJokeCache cache = cache(1, Duration.ofMillis(50), 10);
+    cache.put("cats", CAT_JOKE);
+
+    Thread.sleep(100);
+
+    assertThat(cache.lookup("cats")).isEmpty();
+    assertThat(cache.size()).isZero();
+    assertThat(meterRegistry.counter("joke.cache.semantic.evictions").count()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsTheLeastRecentlyUsedSubject() {
+    SemanticJokeCache cache = cache(1, Duration.ofMinutes(1), 2);
+    cache.put("cats", CAT_JOKE);
+    cache.put("birds", KITTEN_JOKE);
+    cache.lookup("cats");
+
+    cache.put("dogs", THIRD_JOKE);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.lookup("birds")).isEmpty();
+    assertThat(cache.lookup("cats")).contains(CAT_JOKE);
+  }
+
+  @Test
+  void normalizesSubjects() {
+    assertThat(SemanticJokeCache.normalize("  The   Cats! ")).isEqualTo("cats");
+    assertThat(SemanticJokeCache.normalize("an Apple-Pie")).isEqualTo("apple pie");
+    assertThat(SemanticJokeCache.normalize(null)).isEmpty();
+  }
+
+  private SemanticJokeCache cache(int variety, Duration ttl, int maxEntries) {
+    return new SemanticJokeCache(new SubjectEmbeddingModel(), meterRegistry, true, 0.9, ttl, maxEntries, variety);
+  }
+
+  /**
+   * Embeds the known subjects as fixed vectors, returning a fresh copy since the cache normalizes it in place
+   */
+  private static class SubjectEmbeddingModel implements EmbeddingModel {
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+      List<String> texts = request.getInstructions();
+      return new EmbeddingResponse(IntStream.range(0, texts.size())
+          .mapToObj(i -> new Embedding(SUBJECTS.get(texts.get(i)).clone(), i))
+          .toList());
+    }
+
+    @Override
+    public float[] embed(Document document) {
+      return SUBJECTS.get(document.getText()).clone();
+    }
+  }
+}
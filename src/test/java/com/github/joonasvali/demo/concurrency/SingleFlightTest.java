@@ -0,0 +1,155 @@
+package com.github.joonasvali.demo.concurrency;
+
+import com.github.joonasvali.demo.resilience.Deadline;
+import com.github.joonasvali.demo.resilience.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  @AfterEach
+  void close() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void collapsesConcurrentCallsWithTheSameKey() throws Exception {
+    SingleFlight<String> singleFlight = singleFlight(Duration.ZERO);
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+      calls.incrementAndGet();
+      await(release);
+      return "joke";
+    }));
+    awaitInFlight(1);
+    List<Future<String>> waiters = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      waiters.add(executor.submit(() -> singleFlight.execute("key", () -> {
+        calls.incrementAndGet();
+        return "other joke";
+      })));
+    }
+    awaitCollapsed(5);
+    release.countDown();
+
+    assertThat(leader.get(1, TimeUnit.SECONDS)).isEqualTo("joke");
+    for (Future<String> waiter : waiters) {
+      assertThat(waiter.get(1, TimeUnit.SECONDS)).isEqualTo("joke");
+    }
+    assertThat(calls).hasValue(1);
+  }
+
+  @Test
+  void runsCallsWithDifferentKeysSeparately() {
+    SingleFlight<String> singleFlight = singleFlight(Duration.ofMinutes(1));
+
+    assertThat(singleFlight.execute("cats", () -> "cat joke")).isEqualTo("cat joke");
+    assertThat(singleFlight.execute("dogs", () -> "dog joke")).isEqualTo("dog joke");
+  }
+
+  @Test
+  void sharesAResultForTheWindow() throws InterruptedException {
+    SingleFlight<String> singleFlight = singleFlight(Duration.ofMillis(100));
+
+    singleFlight.execute("key", () -> "first");
+    assertThat(singleFlight.execute("key", () -> "second")).isEqualTo("first");
+
+    Thread.sleep(300);
+    assertThat(singleFlight.execute("key", () -> "third")).isEqualTo("third");
+  }
+
+  @Test
+  void sharesAFailureWithWaitersAndForgetsIt() throws Exception {
+    SingleFlight<String> singleFlight = singleFlight(Duration.ofMinutes(1));
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+      await(release);
+      throw new IllegalStateException("model failed");
+    }));
+    awaitInFlight(1);
+    Future<String> waiter = executor.submit(() -> singleFlight.execute("key", () -> "never"));
+    awaitCollapsed(1);
+    release.countDown();
+
+    assertThatThrownBy(() -> leader.get(1, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> waiter.get(1, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(IllegalStateException.class)
+        .hasRootCauseMessage("model failed");
+    assertThat(singleFlight.execute("key", () -> "retried")).isEqualTo("retried");
+  }
+
+  @Test
+  void aWaiterGivesUpAtItsOwnDeadline() throws Exception {
+    SingleFlight<String> singleFlight = singleFlight(Duration.ZERO);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> leader = executor.submit(() -> singleFlight.execute("key", () -> {
+      await(release);
+      return "joke";
+    }));
+    awaitInFlight(1);
+    try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(50)).bind()) {
+      assertThatThrownBy(() -> singleFlight.execute("key", () -> "never")).isInstanceOf(DeadlineExceededException.class);
+    }
+    release.countDown();
+
+    assertThat(leader.get(1, TimeUnit.SECONDS)).isEqualTo("joke");
+    assertThat(meterRegistry.get("deadline.exceeded").tag("name", "singleflight-test").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void runsEveryCallWhenDisabled() {
+    SingleFlight<String> singleFlight = new SingleFlight<>("test", false, Duration.ofMinutes(1), meterRegistry);
+    AtomicInteger calls = new AtomicInteger();
+
+    singleFlight.execute("key", () -> "joke " + calls.incrementAndGet());
+    singleFlight.execute("key", () -> "joke " + calls.incrementAndGet());
+
+    assertThat(calls).hasValue(2);
+  }
+
+  private SingleFlight<String> singleFlight(Duration window) {
+    return new SingleFlight<>("test", true, window, meterRegistry);
+  }
+
+  private void awaitInFlight(int flights) throws InterruptedException {
+    while (meterRegistry.get("singleflight.in.flight").tag("name", "test").gauge().value() < flights) {
+      Thread.sleep(1);
+    }
+  }
+
+  private void awaitCollapsed(int waiters) throws InterruptedException {
+    while (meterRegistry.get("singleflight.collapsed").tag("name", "test").counter().count() < waiters) {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.github.joonasvali.demo.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FingerprintIndexTest {
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, 3, 6, 10, FingerprintIndex.MAX_DISTANCE})
+  void findsTheClosestFingerprintUpToTheMaximumDistance(int maxDistance) {
+    Random random = new Random(maxDistance);
+    long[] stored = new long[500];
+    FingerprintIndex index = new FingerprintIndex(stored.length, maxDistance);
+    for (int i = 0; i < stored.length; i++) {
+      stored[i] = random.nextLong();
+      index.add(stored[i], "joke " + i);
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      long query = flip(random, stored[random.nextInt(stored.length)], random.nextInt(maxDistance + 1));
+      int slot = index.nearest(query, maxDistance);
+
+      assertThat(slot).isNotNegative();
+      assertThat(SimHash.distance(query, index.fingerprint(slot))).isEqualTo(closestDistance(stored, query));
+    }
+  }
+
+  @Test
+  void findsNothingBeyondTheRequestedDistance() {
+    Random random = new Random(1);
+    long fingerprint = random.nextLong();
+    FingerprintIndex index = new FingerprintIndex(10, 10);
+    index.add(fingerprint, "joke");
+
+    assertThat(index.nearest(flip(random, fingerprint, 6), 5)).isEqualTo(-1);
+    assertThat(index.nearest(flip(random, fingerprint, 11), 10)).isEqualTo(-1);
+  }
+
+  @Test
+  void prefersTheCloserOfTwoCandidates() {
+    FingerprintIndex index = new FingerprintIndex(10, 10);
+    index.add(0b1111L, "far");
+    index.add(0b0001L, "near");
+
+    assertThat(index.text(index.nearest(0L, 10))).isEqualTo("near");
+  }
+
+  @Test
+  void removesAnEntry() {
+    FingerprintIndex index = new FingerprintIndex(10, 10);
+    index.add(42L, "joke");
+    index.add(43L, "other joke");
+
+    assertThat(index.remove(42L, "not this joke")).isFalse();
+    assertThat(index.remove(42L, "joke")).isTrue();
+    assertThat(index.remove(42L, "joke")).isFalse();
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.text(index.nearest(42L, 10))).isEqualTo("other joke");
+    assertThat(index.nearest(42L, 0)).isEqualTo(-1);
+  }
+
+  @Test
+  void removesTheLatestOfIdenticalEntries() {
+    FingerprintIndex index = new FingerprintIndex(10, 4);
+    index.add(42L, "joke");
+    index.add(42L, "joke");
+
+    index.remove(42L, "joke");
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.nearest(42L, 0)).isZero();
+  }
+
+  @Test
+  void reusesTheOldestSlotWhenFull() {
+    FingerprintIndex index = new FingerprintIndex(2, 4);
+    index.add(1L << 40, "first");
+    index.add(1L << 50, "second");
+    index.add(1L << 60, "third");
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.nearest(1L << 40, 0)).isEqualTo(-1);
+    assertThat(index.text(index.nearest(1L << 50, 0))).isEqualTo("second");
+    assertThat(index.text(index.nearest(1L << 60, 0))).isEqualTo("third");
+  }
+
+  @Test
+  void fillsARemovedSlotWhenItsTurnComes() {
+    FingerprintIndex index = new FingerprintIndex(2, 4);
+    index.add(1L << 40, "first");
+    index.add(1L << 50, "second");
+    index.remove(1L << 40, "first");
+    assertThat(index.size()).isEqualTo(1);
+
+    index.add(1L << 60, "third");
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.text(index.nearest(1L << 50, 0))).isEqualTo("second");
+    assertThat(index.text(index.nearest(1L << 60, 0))).isEqualTo("third");
+  }
+
+  @Test
+  void rejectsDistancesItWasNotBuiltFor() {
+    FingerprintIndex index = new FingerprintIndex(10, 5);
+
+    assertThatThrownBy(() -> index.nearest(0L, 6)).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new FingerprintIndex(10, FingerprintIndex.MAX_DISTANCE + 1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static long flip(Random random, long fingerprint, int bits) {
+    long flipped = fingerprint;
+    while (SimHash.distance(flipped, fingerprint) < bits) {
+      flipped ^= 1L << random.nextInt(Long.SIZE);
+    }
+    return flipped;
+  }
+
+  private static int closestDistance(long[] stored, long query) {
+    int closest = Long.SIZE;
+    for (long fingerprint : stored) {
+      closest = Math.min(closest, SimHash.distance(query, fingerprint));
+    }
+    return closest;
+  }
+}
@@ -0,0 +1,50 @@
+package com.github.joonasvali.demo.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimHashTest {
+
+  private static final String JOKE = "Why did the scarecrow win an award? Because he was outstanding in his field.";
+
+  @Test
+  void ignoresCaseAndPunctuation() {
+    assertThat(SimHash.fingerprint("WHY did the scarecrow win an award -- because he was outstanding in his field"))
+        .isEqualTo(SimHash.fingerprint(JOKE));
+  }
+
+  @Test
+  void keepsNearDuplicatesClose() {
+    long original = SimHash.fingerprint(JOKE);
+    long reworded = SimHash.fingerprint("Why did the scarecrow get an award? Because he was outstanding in his field!");
+
+    assertThat(SimHash.distance(original, reworded)).isLessThanOrEqualTo(10);
+  }
+
+  @Test
+  void keepsUnrelatedTextsApart() {
+    long original = SimHash.fingerprint(JOKE);
+    long unrelated = SimHash.fingerprint("I told my computer I needed a break, and it said it would go to sleep.");
+
+    assertThat(SimHash.distance(original, unrelated)).isGreaterThan(FingerprintIndex.MAX_DISTANCE);
+  }
+
+  @Test
+  void fingerprintsAnEmptyTextAsZero() {
+    assertThat(SimHash.fingerprint("")).isZero();
+    assertThat(SimHash.fingerprint(null)).isZero();
+    assertThat(SimHash.fingerprint(" ?! ")).isZero();
+  }
+
+  @Test
+  void countsDifferingBits() {
+    assertThat(SimHash.distance(0b1011L, 0b0110L)).isEqualTo(3);
+    assertThat(SimHash.distance(-1L, 0L)).isEqualTo(64);
+  }
+
+  @Test
+  void normalizesToLowerCaseWords() {
+    assertThat(SimHash.normalize("  Knock, knock!  Who's there? ")).containsExactly("knock", "knock", "who", "s", "there");
+  }
+}
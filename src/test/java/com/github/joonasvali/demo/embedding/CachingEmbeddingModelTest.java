@@ -0,0 +1,110 @@
+package com.github.joonasvali.demo.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingEmbeddingModelTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RecordingEmbeddingModel delegate = new RecordingEmbeddingModel();
+  private final EmbeddingCacheStore store;
+  private final CachingEmbeddingModel model;
+
+  CachingEmbeddingModelTest() throws IOException {
+    store = new EmbeddingCacheStore(2, 16, null);
+    model = new CachingEmbeddingModel(delegate, store, "test-model", meterRegistry);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    store.close();
+  }
+
+  @Test
+  void sendsOnlyTheMissingTextsInOneRequest() {
+    model.embed("a");
+
+    List<float[]> vectors = model.embed(List.of("b", "a", "c"));
+
+    assertThat(delegate.requests).containsExactly(List.of("a"), List.of("b", "c"));
+    assertThat(vectors).containsExactly(vectorOf("b"), vectorOf("a"), vectorOf("c"));
+    assertThat(meterRegistry.counter("embedding.cache", "result", "hit").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("embedding.cache", "result", "miss").count()).isEqualTo(3);
+  }
+
+  @Test
+  void answersRepeatedTextsWithoutTheDelegate() {
+    model.embed(List.of("a", "b"));
+
+    List<float[]> vectors = model.embed(List.of("b", "a"));
+
+    assertThat(delegate.requests).hasSize(1);
+    assertThat(vectors).containsExactly(vectorOf("b"), vectorOf("a"));
+  }
+
+  @Test
+  void placesDelegateResultsByTheirIndex() {
+    delegate.reversed = true;
+
+    List<float[]> vectors = model.embed(List.of("a", "b", "c"));
+
+    assertThat(vectors).containsExactly(vectorOf("a"), vectorOf("b"), vectorOf("c"));
+    assertThat(store.size()).isEqualTo(3);
+  }
+
+  @Test
+  void keysEntriesByModel() {
+    model.call(new EmbeddingRequest(List.of("a"), EmbeddingOptionsBuilder.builder().withModel("other-model").build()));
+
+    model.embed("a");
+
+    assertThat(delegate.requests).containsExactly(List.of("a"), List.of("a"));
+  }
+
+  private static float[] vectorOf(String text) {
+    return new float[]{text.charAt(0), text.length()};
+  }
+
+  /**
+   * Embeds a text as its first character and length, recording the texts of every request
+   */
+  private static class RecordingEmbeddingModel implements EmbeddingModel {
+
+    final List<List<String>> requests = new ArrayList<>();
+    boolean reversed;
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+      List<String> texts = request.getInstructions();
+      requests.add(List.copyOf(texts));
+      List<Embedding> embeddings = new ArrayList<>();
+      for (int i = 0; i < texts.size(); i++) {
+        embeddings.add(new Embedding(vectorOf(texts.get(i)), i));
+      }
+      return new EmbeddingResponse(reversed ? embeddings.reversed() : embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+      return vectorOf(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+      return 2;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.github.joonasvali.demo.embedding;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddingCacheStoreTest {
+
+  private static final int DIMENSIONS = 4;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void returnsACopyOfAStoredVector() throws IOException {
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 8, null)) {
+      store.put(1, 2, vector(1));
+
+      float[] found = store.get(1, 2);
+      found[0] = 99;
+
+      assertThat(store.get(1, 2)).containsExactly(vector(1));
+      assertThat(store.get(2, 1)).isNull();
+    }
+  }
+
+  @Test
+  void ignoresVectorsOfAnotherLength() throws IOException {
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 8, null)) {
+      store.put(1, 2, new float[DIMENSIONS + 1]);
+
+      assertThat(store.get(1, 2)).isNull();
+      assertThat(store.size()).isZero();
+    }
+  }
+
+  @Test
+  void evictsTheLeastRecentlyUsedEntry() throws IOException {
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 3, null)) {
+      store.put(0, 1, vector(1));
+      store.put(0, 2, vector(2));
+      store.put(0, 3, vector(3));
+      store.get(0, 1);
+
+      store.put(0, 4, vector(4));
+
+      assertThat(store.size()).isEqualTo(3);
+      assertThat(store.get(0, 2)).isNull();
+      assertThat(store.get(0, 1)).containsExactly(vector(1));
+      assertThat(store.get(0, 3)).containsExactly(vector(3));
+      assertThat(store.get(0, 4)).containsExactly(vector(4));
+    }
+  }
+
+  @Test
+  void findsCollidingKeysAfterOneOfThemIsEvicted() throws IOException {
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 4, null)) {
+      // The same low half lands in the same bucket, the keys only differ in their high half
+      for (int i = 0; i < 4; i++) {
+        store.put(i, 42, vector(i));
+      }
+
+      store.put(4, 42, vector(4));
+
+      assertThat(store.get(0, 42)).isNull();
+      for (int i = 1; i <= 4; i++) {
+        assertThat(store.get(i, 42)).containsExactly(vector(i));
+      }
+    }
+  }
+
+  @Test
+  void behavesLikeAnAccessOrderedMapUnderRandomUse() throws IOException {
+    int capacity = 64;
+    Map<Long, float[]> expected = new LinkedHashMap<>(16, 0.75f, true);
+    Random random = new Random(7);
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, capacity, null)) {
+      for (int i = 0; i < 20_000; i++) {
+        long key = random.nextInt(200);
+        if (random.nextBoolean()) {
+          float[] vector = vector(i);
+          store.put(key >>> 3, key, vector);
+          expected.put(key, vector);
+          if (expected.size() > capacity) {
+            expected.remove(expected.keySet().iterator().next());
+          }
+        } else {
+          float[] found = store.get(key >>> 3, key);
+          float[] wanted = expected.get(key);
+          if (wanted == null) {
+            assertThat(found).isNull();
+          } else {
+            assertThat(found).containsExactly(wanted);
+          }
+        }
+      }
+      assertThat(store.size()).isEqualTo(expected.size());
+    }
+  }
+
+  @Test
+  void keepsEntriesAcrossARestart() throws IOException {
+    Path file = directory.resolve("embeddings.bin");
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 8, file)) {
+      store.put(0, 1, vector(1));
+      store.put(0, 2, vector(2));
+    }
+
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 8, file)) {
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.get(0, 1)).containsExactly(vector(1));
+      assertThat(store.get(0, 2)).containsExactly(vector(2));
+    }
+  }
+
+  @Test
+  void dropsEntriesWithABadChecksumOnRestart() throws IOException {
+    Path file = directory.resolve("embeddings.bin");
+    int capacity = 8;
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, capacity, file)) {
+      store.put(0, 1, vector(1));
+      store.put(0, 2, vector(2));
+      store.put(0, 3, vector(3));
+    }
+    // Flip a byte of the second vector, as if its page had not been written back
+    long vectorsOffset = 32 + (long) capacity * (Long.BYTES * 2 + Integer.BYTES);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), vectorsOffset + DIMENSIONS * Float.BYTES + 1);
+    }
+
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, capacity, file)) {
+      assertThat(store.size()).isEqualTo(2);
+      assertThat(store.get(0, 2)).isNull();
+      assertThat(store.get(0, 1)).containsExactly(vector(1));
+      assertThat(store.get(0, 3)).containsExactly(vector(3));
+
+      store.put(0, 4, vector(4));
+      assertThat(store.get(0, 4)).containsExactly(vector(4));
+    }
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, capacity, file)) {
+      assertThat(store.size()).isEqualTo(3);
+      assertThat(store.get(0, 3)).containsExactly(vector(3));
+      assertThat(store.get(0, 4)).containsExactly(vector(4));
+    }
+  }
+
+  @Test
+  void startsEmptyWhenTheFileHasOtherDimensions() throws IOException {
+    Path file = directory.resolve("embeddings.bin");
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS, 8, file)) {
+      store.put(0, 1, vector(1));
+    }
+
+    try (EmbeddingCacheStore store = new EmbeddingCacheStore(DIMENSIONS * 2, 8, file)) {
+      assertThat(store.size()).isZero();
+      assertThat(store.get(0, 1)).isNull();
+    }
+  }
+
+  private static float[] vector(int seed) {
+    float[] vector = new float[DIMENSIONS];
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] = seed + i / 10f;
+    }
+    return vector;
+  }
+}
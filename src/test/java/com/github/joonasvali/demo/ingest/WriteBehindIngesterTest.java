@@ -0,0 +1,193 @@
+package com.github.joonasvali.demo.ingest;
+
+import com.github.joonasvali.demo.concurrency.Bulkhead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindIngesterTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final StubVectorStore vectorStore = new StubVectorStore();
+  private WriteBehindIngester ingester;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    vectorStore.release.countDown();
+    if (ingester != null) {
+      ingester.stop();
+    }
+  }
+
+  @Test
+  void storesQueuedDocumentsInBatches() throws InterruptedException {
+    ingester = ingester(100, 3, Duration.ofMillis(50), 1, Duration.ZERO);
+    List<List<Document>> flushed = new CopyOnWriteArrayList<>();
+    CountDownLatch allFlushed = new CountDownLatch(7);
+    ingester.addFlushListener(batch -> {
+      flushed.add(batch);
+      batch.forEach(document -> allFlushed.countDown());
+    });
+
+    assertThat(ingester.submitAll(documents(7))).isEqualTo(7);
+
+    assertThat(allFlushed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(flushed).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(3));
+    assertThat(vectorStore.stored).hasSize(7);
+    assertThat(meterRegistry.counter("vector.ingest.documents", "outcome", "stored").count()).isEqualTo(7);
+  }
+
+  @Test
+  void rejectsDocumentsWhenTheQueueStaysFull() throws InterruptedException {
+    vectorStore.blocking = true;
+    ingester = ingester(2, 1, Duration.ofMillis(10), 1, Duration.ZERO);
+    ingester.submit(document(0));
+    assertThat(vectorStore.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+    int accepted = ingester.submitAll(documents(3));
+
+    assertThat(accepted).isEqualTo(2);
+    assertThat(ingester.queueDepth()).isEqualTo(2);
+    assertThat(meterRegistry.counter("vector.ingest.documents", "outcome", "rejected").count()).isEqualTo(1);
+  }
+
+  @Test
+  void retriesAFailedBatchWithGrowingBackoff() throws InterruptedException {
+    vectorStore.failures.set(2);
+    ingester = ingester(100, 10, Duration.ofMillis(10), 3, Duration.ofMillis(50));
+    CountDownLatch flushed = new CountDownLatch(1);
+    ingester.addFlushListener(batch -> flushed.countDown());
+
+    long started = System.nanoTime();
+    ingester.submit(document(0));
+
+    assertThat(flushed.await(5, TimeUnit.SECONDS)).isTrue();
+    // 50ms after the first failure, 100ms after the second
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+    assertThat(vectorStore.attempts.get()).isEqualTo(3);
+    assertThat(meterRegistry.counter("vector.ingest.retries").count()).isEqualTo(2);
+  }
+
+  @Test
+  void givesUpAfterTheLastAttemptAndTellsTheFailureListeners() throws InterruptedException {
+    vectorStore.failures.set(5);
+    ingester = ingester(100, 10, Duration.ofMillis(10), 2, Duration.ofMillis(10));
+    List<Document> failed = new CopyOnWriteArrayList<>();
+    CountDownLatch gaveUp = new CountDownLatch(1);
+    ingester.addFlushListener(batch -> {
+      throw new AssertionError("nothing was stored");
+    });
+    ingester.addFailureListener(batch -> {
+      failed.addAll(batch);
+      gaveUp.countDown();
+    });
+
+    ingester.submit(document(0));
+
+    assertThat(gaveUp.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(failed).extracting(Document::getId).containsExactly("0");
+    assertThat(vectorStore.attempts.get()).isEqualTo(2);
+    assertThat(meterRegistry.counter("vector.ingest.documents", "outcome", "failed").count()).isEqualTo(1);
+  }
+
+  @Test
+  void aFailingListenerDoesNotKeepOthersFromBeingTold() throws InterruptedException {
+    ingester = ingester(100, 10, Duration.ofMillis(10), 1, Duration.ZERO);
+    CountDownLatch told = new CountDownLatch(1);
+    ingester.addFlushListener(batch -> {
+      throw new IllegalStateException("listener failed");
+    });
+    ingester.addFlushListener(batch -> told.countDown());
+
+    ingester.submit(document(0));
+
+    assertThat(told.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void drainsTheQueueOnShutdown() throws InterruptedException {
+    // Batches wait for more documents for a second, shutdown must still store them all before returning
+    ingester = ingester(100, 10, Duration.ofSeconds(1), 1, Duration.ZERO);
+    ingester.submitAll(documents(5));
+
+    ingester.stop();
+
+    assertThat(vectorStore.stored).hasSize(5);
+    assertThat(ingester.submit(document(5))).isFalse();
+    ingester = null;
+  }
+
+  private WriteBehindIngester ingester(int queueCapacity, int batchSize, Duration maxDelay, int maxAttempts, Duration retryBackoff) {
+    WriteBehindIngester ingester = new WriteBehindIngester(vectorStore, new Bulkhead("vector-store", 16, Duration.ofSeconds(1), meterRegistry),
+        meterRegistry, queueCapacity, batchSize, maxDelay, Duration.ofMillis(50), Duration.ofSeconds(5), maxAttempts, retryBackoff);
+    ingester.start();
+    return ingester;
+  }
+
+  private static List<Document> documents(int count) {
+    return IntStream.range(0, count).mapToObj(WriteBehindIngesterTest::document).toList();
+  }
+
+  private static Document document(int id) {
+    return new Document(String.valueOf(id), "joke " + id, Map.of("type", "joke"));
+  }
+
+  /**
+   * Fails the first {@code failures} adds, or blocks every add until released
+   */
+  private static class StubVectorStore implements VectorStore {
+
+    final List<Document> stored = new CopyOnWriteArrayList<>();
+    final AtomicInteger failures = new AtomicInteger();
+    final AtomicInteger attempts = new AtomicInteger();
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    volatile boolean blocking;
+
+    @Override
+    public void add(List<Document> documents) {
+      attempts.incrementAndGet();
+      if (blocking) {
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+      if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+        throw new IllegalStateException("vector store unavailable");
+      }
+      stored.addAll(documents);
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+      return List.of();
+    }
+  }
+}
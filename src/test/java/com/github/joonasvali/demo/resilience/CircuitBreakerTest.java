@@ -0,0 +1,126 @@
+package com.github.joonasvali.demo.resilience;
+
+import com.github.joonasvali.demo.concurrency.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+  private static final Duration OPEN = Duration.ofMillis(200);
+
+  @Test
+  void opensOnceTheFailureRateIsReached() {
+    CircuitBreaker breaker = breaker();
+
+    fail(breaker, 2);
+    succeed(breaker, 1);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+    fail(breaker, 1);
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    assertThatThrownBy(() -> breaker.execute(() -> "never")).isInstanceOf(CircuitOpenException.class);
+  }
+
+  @Test
+  void staysClosedBelowTheMinimumNumberOfCalls() {
+    CircuitBreaker breaker = breaker();
+
+    fail(breaker, 3);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.failureRate()).isEqualTo(1.0);
+  }
+
+  @Test
+  void closesAfterSuccessfulTrialCalls() throws InterruptedException {
+    CircuitBreaker breaker = opened();
+    Thread.sleep(OPEN.toMillis() + 10);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+    succeed(breaker, 2);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.failureRate()).isZero();
+  }
+
+  @Test
+  void reopensOnAFailedTrialCall() throws InterruptedException {
+    CircuitBreaker breaker = opened();
+    Thread.sleep(OPEN.toMillis() + 10);
+
+    succeed(breaker, 1);
+    fail(breaker, 1);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+  }
+
+  @Test
+  void limitsConcurrentTrialCalls() throws InterruptedException {
+    CircuitBreaker breaker = opened();
+    Thread.sleep(OPEN.toMillis() + 10);
+
+    breaker.acquirePermission();
+    breaker.acquirePermission();
+
+    assertThatThrownBy(breaker::acquirePermission).isInstanceOf(CircuitOpenException.class);
+  }
+
+  @Test
+  void doesNotRecordLocalRejectionsOrPassedDeadlines() {
+    CircuitBreaker breaker = breaker();
+
+    for (int i = 0; i < 10; i++) {
+      assertThatThrownBy(() -> breaker.execute(() -> {
+        throw new BulkheadFullException("llm");
+      })).isInstanceOf(BulkheadFullException.class);
+      assertThatThrownBy(() -> breaker.execute(() -> {
+        throw new DeadlineExceededException("llm");
+      })).isInstanceOf(DeadlineExceededException.class);
+    }
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.failureRate()).isZero();
+  }
+
+  @Test
+  void neverOpensWhenDisabled() {
+    CircuitBreaker breaker = new CircuitBreaker("test", false, 4, 4, 0.5, OPEN, 2, new SimpleMeterRegistry());
+
+    fail(breaker, 10);
+
+    assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+  }
+
+  /**
+   * Window of 4 calls, opening at half of them failed, with 2 trial calls
+   */
+  private static CircuitBreaker breaker() {
+    return new CircuitBreaker("test", true, 4, 4, 0.5, OPEN, 2, new SimpleMeterRegistry());
+  }
+
+  private static CircuitBreaker opened() {
+    CircuitBreaker breaker = breaker();
+    fail(breaker, 4);
+    return breaker;
+  }
+
+  private static void succeed(CircuitBreaker breaker, int calls) {
+    for (int i = 0; i < calls; i++) {
+      breaker.execute(() -> "ok");
+    }
+  }
+
+  private static void fail(CircuitBreaker breaker, int calls) {
+    for (int i = 0; i < calls; i++) {
+      assertThatThrownBy(() -> breaker.execute(() -> {
+        throw new IllegalStateException("upstream failed");
+      })).isInstanceOf(IllegalStateException.class);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.github.joonasvali.demo.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgeTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private Hedge hedge;
+
+  @AfterEach
+  void close() {
+    hedge.close();
+  }
+
+  @Test
+  void hedgesASlowCallAndTakesTheFirstAnswer() {
+    hedge = hedge(1.0);
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result = hedge.execute(() -> attempts.incrementAndGet() == 1 ? sleep(5_000, "first") : "second");
+
+    assertThat(result).isEqualTo("second");
+    assertThat(attempts).hasValue(2);
+    assertThat(count("hedged")).isEqualTo(1);
+    assertThat(count("hedge-won")).isEqualTo(1);
+  }
+
+  @Test
+  void doesNotHedgeBeyondTheBudget() {
+    // The initial budget allows one hedge, a ratio of zero never earns another
+    hedge = hedge(0.0);
+    AtomicInteger attempts = new AtomicInteger();
+
+    hedge.execute(() -> attempts.incrementAndGet() == 1 ? sleep(5_000, "first") : "second");
+    attempts.set(0);
+    String result = hedge.execute(() -> {
+      attempts.incrementAndGet();
+      return sleep(100, "slow");
+    });
+
+    assertThat(result).isEqualTo("slow");
+    assertThat(attempts).hasValue(1);
+    assertThat(count("over-budget")).isEqualTo(1);
+  }
+
+  @Test
+  void retriesAFailedCallOnce() {
+    hedge = hedge(1.0);
+    AtomicInteger attempts = new AtomicInteger();
+
+    String result = hedge.execute(() -> {
+      if (attempts.incrementAndGet() == 1) {
+        throw new IllegalStateException("upstream failed");
+      }
+      return "retried";
+    });
+
+    assertThat(result).isEqualTo("retried");
+    assertThat(count("retried")).isEqualTo(1);
+  }
+
+  @Test
+  void givesUpWhenTheRetryFailsToo() {
+    hedge = hedge(1.0);
+    AtomicInteger attempts = new AtomicInteger();
+
+    assertThatThrownBy(() -> hedge.execute(() -> {
+      attempts.incrementAndGet();
+      throw new IllegalStateException("upstream failed");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void stopsWaitingAtTheDeadline() {
+    hedge = hedge(1.0);
+
+    long start = System.nanoTime();
+    try (Deadline.Scope scope = Deadline.after(Duration.ofMillis(100)).bind()) {
+      assertThatThrownBy(() -> hedge.execute(() -> sleep(5_000, "late"))).isInstanceOf(DeadlineExceededException.class);
+    }
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+    assertThat(meterRegistry.get("deadline.exceeded").tag("name", "test").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void bindsTheDeadlineInEveryAttempt() {
+    hedge = hedge(1.0);
+    Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+
+    try (Deadline.Scope scope = deadline.bind()) {
+      assertThat(hedge.execute(Deadline::current)).contains(deadline);
+    }
+  }
+
+  /**
+   * Hedge delay fixed at 20 ms
+   */
+  private Hedge hedge(double maxRatio) {
+    Duration delay = Duration.ofMillis(20);
+    return new Hedge("test", true, delay, delay, delay, 0.95, maxRatio, meterRegistry);
+  }
+
+  private double count(String outcome) {
+    return meterRegistry.get("hedge.calls").tag("name", "test").tag("outcome", outcome).counter().count();
+  }
+
+  private static <T> T sleep(long millis, T result) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Cancelled", e);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,137 @@
+package com.github.joonasvali.demo.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class Bm25IndexTest {
+
+  @Test
+  void ranksDocumentsMatchingMoreTermsFirst() {
+    Bm25Index index = new Bm25Index(0);
+    index.add(joke("1", "A penguin walks into a bar"));
+    index.add(joke("2", "A penguin orders a drink at the bar"));
+    index.add(joke("3", "A horse walks into a library"));
+
+    List<Bm25Index.Hit> hits = index.search("penguin drink bar", 10);
+
+    assertThat(hits).extracting(hit -> hit.document().getId()).containsExactly("2", "1");
+    assertThat(hits.get(0).coverage()).isEqualTo(1.0);
+    assertThat(hits.get(1).coverage()).isCloseTo(2.0 / 3, within(1e-9));
+  }
+
+  @Test
+  void searchesTitleAndTopic() {
+    Bm25Index index = new Bm25Index(0);
+    index.add(new Document("1", "Why was the math book sad?", Map.of("title", "Problems", "topic", "school")));
+
+    assertThat(index.search("school", 10)).hasSize(1);
+    assertThat(index.search("problems", 10)).hasSize(1);
+  }
+
+  @Test
+  void ignoresStopWordsAndEmptyQueries() {
+    Bm25Index index = new Bm25Index(0);
+    index.add(joke("1", "The cat and the hat"));
+
+    assertThat(index.search("the and", 10)).isEmpty();
+    assertThat(index.search("", 10)).isEmpty();
+    assertThat(index.search("cat", 0)).isEmpty();
+  }
+
+  @Test
+  void replacesADocumentWithTheSameId() {
+    Bm25Index index = new Bm25Index(0);
+    index.add(joke("1", "A penguin walks into a bar"));
+    index.add(joke("1", "A horse walks into a library"));
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.search("penguin", 10)).isEmpty();
+    assertThat(index.search("horse", 10)).hasSize(1);
+  }
+
+  @Test
+  void removesADocument() {
+    Bm25Index index = new Bm25Index(0);
+    index.add(joke("1", "A penguin walks into a bar"));
+    index.add(joke("2", "A penguin orders a drink"));
+
+    index.remove("1");
+    index.remove("unknown");
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.search("penguin", 10)).extracting(hit -> hit.document().getId()).containsExactly("2");
+  }
+
+  @Test
+  void evictsTheOldestDocumentsWhenBounded() {
+    Bm25Index index = new Bm25Index(3);
+    for (int i = 0; i < 5; i++) {
+      index.add(joke(String.valueOf(i), "penguin number" + i));
+    }
+
+    assertThat(index.size()).isEqualTo(3);
+    assertThat(index.search("penguin", 10)).extracting(hit -> hit.document().getId()).containsExactlyInAnyOrder("2", "3", "4");
+  }
+
+  @Test
+  void keepsEvictingAcrossCompactions() {
+    Bm25Index index = new Bm25Index(10);
+    for (int i = 0; i < 500; i++) {
+      index.add(joke(String.valueOf(i), "penguin joke" + i));
+    }
+
+    assertThat(index.size()).isEqualTo(10);
+    assertThat(index.search("joke499", 10)).hasSize(1);
+    assertThat(index.search("joke489", 10)).isEmpty();
+    assertThat(index.search("penguin", 100)).hasSize(10);
+  }
+
+  @Test
+  void scoresTheSameAfterCompaction() {
+    Bm25Index compacted = new Bm25Index(0);
+    Bm25Index fresh = new Bm25Index(0);
+    for (int i = 0; i < 200; i++) {
+      compacted.add(joke(String.valueOf(i), text(i)));
+    }
+    // Removing 150 of 200 documents lets deleted ones outnumber live ones, which rebuilds the postings
+    for (int i = 0; i < 150; i++) {
+      compacted.remove(String.valueOf(i));
+    }
+    for (int i = 150; i < 200; i++) {
+      fresh.add(joke(String.valueOf(i), text(i)));
+    }
+
+    List<Bm25Index.Hit> expected = fresh.search("penguin bar drink", 20);
+    List<Bm25Index.Hit> actual = compacted.search("penguin bar drink", 20);
+
+    assertThat(compacted.size()).isEqualTo(50);
+    assertThat(actual).hasSameSizeAs(expected);
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).document().getId()).isEqualTo(expected.get(i).document().getId());
+      assertThat(actual.get(i).score()).isCloseTo(expected.get(i).score(), within(1e-9));
+    }
+
+    compacted.add(joke("new", "penguin"));
+    assertThat(compacted.search("penguin", 100)).extracting(hit -> hit.document().getId()).contains("new");
+  }
+
+  @Test
+  void tokenizesIntoLowerCaseWordsWithoutStopWords() {
+    assertThat(Bm25Index.tokenize("Why did the Penguin cross-the road?")).containsExactly("did", "penguin", "cross", "road");
+    assertThat(Bm25Index.queryTerms("penguin Penguin bar")).containsExactly("penguin", "bar");
+  }
+
+  private static String text(int i) {
+    return (i % 2 == 0 ? "penguin " : "horse ") + (i % 3 == 0 ? "bar " : "library ") + (i % 5 == 0 ? "drink" : "book") + " story" + i;
+  }
+
+  private static Document joke(String id, String text) {
+    return new Document(id, text, Map.of("type", "joke"));
+  }
+}
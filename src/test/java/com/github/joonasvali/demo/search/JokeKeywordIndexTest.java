@@ -0,0 +1,56 @@
+package com.github.joonasvali.demo.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JokeKeywordIndexTest {
+
+  private final JokeKeywordIndex index = new JokeKeywordIndex(new SimpleMeterRegistry(), 0, 3, 1.0);
+
+  @Test
+  void indexesJokesOnly() {
+    index.add(new Document("joke", "A penguin walks into a bar", Map.of("type", "joke")));
+    index.add(new Document("note", "Penguin bar opening hours", Map.of("type", "document")));
+    index.add(new Document("untyped", "The penguin bar menu", Map.of()));
+
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(index.search("penguin bar", 10)).extracting(hit -> hit.document().getId()).containsExactly("joke");
+  }
+
+  @Test
+  void otherDocumentsCannotMakeAKeywordAnswerConclusive() {
+    index.add(new Document("joke", "A penguin walks into a bar", Map.of("type", "joke")));
+    index.add(new Document("note", "Penguin opening hours", Map.of("type", "document")));
+
+    List<Bm25Index.Hit> hits = index.search("penguin opening hours", 10);
+
+    assertThat(hits).extracting(hit -> hit.document().getId()).containsExactly("joke");
+    assertThat(index.isConclusive("penguin opening hours", hits)).isFalse();
+  }
+
+  @Test
+  void shortQueryMatchingEveryTermIsConclusive() {
+    index.add(new Document("joke", "A penguin walks into a bar", Map.of("type", "joke")));
+
+    assertThat(index.isConclusive("penguin bar", index.search("penguin bar", 10))).isTrue();
+    assertThat(index.isConclusive("penguin horse", index.search("penguin horse", 10))).isFalse();
+  }
+
+  @Test
+  void scoresDocumentsRelativeToTheBestHit() {
+    index.add(new Document("1", "A penguin walks into a bar", Map.of("type", "joke")));
+    index.add(new Document("2", "A penguin orders a drink at the bar", Map.of("type", "joke")));
+
+    List<Document> documents = JokeKeywordIndex.toDocuments(index.search("penguin drink", 10));
+
+    assertThat(documents.get(0).getScore()).isEqualTo(1.0);
+    assertThat(documents.get(1).getScore()).isBetween(0.0, 1.0);
+    assertThat(documents).allSatisfy(document -> assertThat(document.getMetadata()).containsEntry("match", "keyword"));
+  }
+}
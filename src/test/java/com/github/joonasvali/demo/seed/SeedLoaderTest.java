@@ -0,0 +1,202 @@
+package com.github.joonasvali.demo.seed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.joonasvali.demo.VectorDatabaseService;
+import com.github.joonasvali.demo.health.VectorStoreHealthProbe;
+import com.github.joonasvali.demo.model.Joke;
+import com.github.joonasvali.demo.snapshot.VectorSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeedLoaderTest {
+
+  private static final int LINES = 10;
+  private static final int BATCH_SIZE = 3;
+
+  @TempDir
+  Path directory;
+
+  private final VectorDatabaseService vectorDatabaseService = mock(VectorDatabaseService.class);
+  private final VectorStoreHealthProbe vectorStoreHealthProbe = mock(VectorStoreHealthProbe.class);
+  private final List<String> stored = new ArrayList<>();
+  private Path seedFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    seedFile = directory.resolve("jokes.jsonl");
+    Files.write(seedFile, IntStream.range(0, LINES)
+        .mapToObj(i -> "{\"title\": \"Joke " + i + "\", \"content\": \"Content " + i + "\", \"topic\": \"Tests\"}")
+        .toList());
+    when(vectorStoreHealthProbe.migration()).thenReturn(CompletableFuture.completedFuture(0L));
+    when(vectorDatabaseService.storeJokes(anyList())).thenAnswer(invocation -> store(invocation.getArgument(0)));
+  }
+
+  @Test
+  void seedsAnEmptyStoreInBatches() {
+    SeedLoader loader = loader(false);
+
+    loader.load();
+
+    assertThat(stored).hasSize(LINES);
+    assertThat(loader.progress().state()).isEqualTo("COMPLETED");
+    assertThat(loader.progress().stored()).isEqualTo(LINES);
+    verify(vectorDatabaseService, never()).indexStoredDocuments();
+  }
+
+  @Test
+  void resumesAfterTheLastStoredBatch() {
+    when(vectorDatabaseService.storeJokes(anyList()))
+        .thenAnswer(invocation -> store(invocation.getArgument(0)))
+        .thenAnswer(invocation -> store(invocation.getArgument(0)))
+        .thenThrow(new RuntimeException("Vector store is down"));
+    SeedLoader interrupted = loader(false);
+
+    interrupted.load();
+
+    assertThat(interrupted.progress().state()).isEqualTo("FAILED");
+    assertThat(stored).hasSize(2 * BATCH_SIZE);
+
+    doAnswer(invocation -> store(invocation.getArgument(0))).when(vectorDatabaseService).storeJokes(anyList());
+    when(vectorStoreHealthProbe.documentCount()).thenReturn((long) stored.size());
+    SeedLoader resumed = loader(false);
+
+    resumed.load();
+
+    assertThat(resumed.progress().state()).isEqualTo("COMPLETED");
+    assertThat(stored).containsExactlyElementsOf(IntStream.range(0, LINES).mapToObj(i -> "Joke " + i).toList());
+    // The jokes stored by the first run are known to keyword search and deduplication again
+    verify(vectorDatabaseService).indexStoredDocuments();
+  }
+
+  @Test
+  void skipsASeedFileThatWasLoaded() {
+    loader(false).load();
+    stored.clear();
+    when(vectorStoreHealthProbe.documentCount()).thenReturn((long) LINES);
+    SeedLoader loader = loader(false);
+
+    loader.load();
+
+    assertThat(stored).isEmpty();
+    assertThat(loader.progress().state()).isEqualTo("SKIPPED");
+  }
+
+  @Test
+  void skipsAStoreThatHoldsDocumentsWithoutACheckpoint() {
+    when(vectorStoreHealthProbe.documentCount()).thenReturn(42L);
+    SeedLoader loader = loader(false);
+
+    loader.load();
+
+    assertThat(stored).isEmpty();
+    assertThat(loader.progress().state()).isEqualTo("SKIPPED");
+    verify(vectorDatabaseService).indexStoredDocuments();
+  }
+
+  @Test
+  void ignoresTheCheckpointOfAnotherSeedFile() throws IOException {
+    loader(false).load();
+    stored.clear();
+    Path otherFile = directory.resolve("other.jsonl");
+    Files.copy(seedFile, otherFile);
+    seedFile = otherFile;
+
+    SeedLoader loader = loader(false);
+    loader.load();
+
+    assertThat(stored).hasSize(LINES);
+  }
+
+  @Test
+  void resumesAnInterruptedSnapshotRestore() throws IOException {
+    Files.write(snapshotFile(), new byte[64]);
+    when(vectorDatabaseService.importSnapshot(eq(snapshotFile()), anyInt(), anyLong(), any())).thenAnswer(invocation -> {
+      LongConsumer onBatch = invocation.getArgument(3);
+      onBatch.accept(2000);
+      throw new RuntimeException("Vector store is down");
+    });
+    SeedLoader interrupted = loader(true);
+
+    interrupted.load();
+
+    assertThat(interrupted.progress().state()).isEqualTo("FAILED");
+    assertThat(stored).as("a partly restored store is not seeded on top").isEmpty();
+
+    when(vectorStoreHealthProbe.documentCount()).thenReturn(2000L);
+    doReturn(new VectorSnapshot.Summary(5000, 8, 64))
+        .when(vectorDatabaseService).importSnapshot(eq(snapshotFile()), anyInt(), eq(2000L), any());
+    SeedLoader resumed = loader(true);
+
+    resumed.load();
+
+    assertThat(resumed.progress().state()).isEqualTo("RESTORED");
+    assertThat(resumed.progress().stored()).isEqualTo(5000);
+    assertThat(stored).isEmpty();
+    verify(vectorDatabaseService).indexStoredDocuments();
+  }
+
+  @Test
+  void seedsWhenARestoreStoredNothing() throws IOException {
+    Files.write(snapshotFile(), new byte[64]);
+    when(vectorDatabaseService.importSnapshot(eq(snapshotFile()), anyInt(), anyLong(), any()))
+        .thenThrow(new RuntimeException("Snapshot is corrupt"));
+    SeedLoader loader = loader(true);
+
+    loader.load();
+
+    assertThat(loader.progress().state()).isEqualTo("COMPLETED");
+    assertThat(stored).hasSize(LINES);
+  }
+
+  @Test
+  void doesNotRestoreIntoAStoreThatHoldsDocuments() throws IOException {
+    Files.write(snapshotFile(), new byte[64]);
+    when(vectorStoreHealthProbe.documentCount()).thenReturn(42L);
+    SeedLoader loader = loader(true);
+
+    loader.load();
+
+    verify(vectorDatabaseService, never()).importSnapshot(any(), anyInt(), anyLong(), any());
+    assertThat(loader.progress().state()).isEqualTo("SKIPPED");
+  }
+
+  private SeedLoader loader(boolean restoreSnapshot) {
+    return new SeedLoader(vectorDatabaseService, vectorStoreHealthProbe, new ObjectMapper(), new SimpleMeterRegistry(),
+        true, new FileSystemResource(seedFile), directory.resolve("seed.checkpoint"), BATCH_SIZE,
+        snapshotFile(), directory.resolve("snapshot.checkpoint"), restoreSnapshot, 1000);
+  }
+
+  private Path snapshotFile() {
+    return directory.resolve("jokes.snapshot");
+  }
+
+  private int store(List<Joke> jokes) {
+    jokes.forEach(joke -> stored.add(joke.title()));
+    return jokes.size();
+  }
+}
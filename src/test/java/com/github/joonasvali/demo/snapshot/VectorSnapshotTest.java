@@ -0,0 +1,193 @@
+package com.github.joonasvali.demo.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class VectorSnapshotTest {
+
+  private static final int DIMENSIONS = 8;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void readsBackWhatWasWritten() throws IOException {
+    Path file = write(25);
+    List<Document> documents = new ArrayList<>();
+    List<float[]> embeddings = new ArrayList<>();
+    List<Integer> batches = new ArrayList<>();
+
+    VectorSnapshot.Summary summary = VectorSnapshot.read(file, 10, (batch, vectors) -> {
+      batches.add(batch.size());
+      documents.addAll(batch);
+      embeddings.addAll(vectors);
+    });
+
+    assertThat(summary.documents()).isEqualTo(25);
+    assertThat(summary.dimensions()).isEqualTo(DIMENSIONS);
+    assertThat(summary.bytes()).isEqualTo(Files.size(file));
+    assertThat(batches).containsExactly(10, 10, 5);
+    for (int i = 0; i < 25; i++) {
+      assertThat(documents.get(i).getId()).isEqualTo("id-" + i);
+      assertThat(documents.get(i).getText()).isEqualTo("Joke number " + i + " ✅");
+      assertThat(documents.get(i).getMetadata()).containsEntry("topic", "topic-" + i % 3).containsEntry("rank", i);
+      assertThat(embeddings.get(i)).containsExactly(embedding(i));
+    }
+  }
+
+  @Test
+  void skipsTheDocumentsAlreadyRestored() throws IOException {
+    Path file = write(25);
+    List<Document> documents = new ArrayList<>();
+    List<Integer> batches = new ArrayList<>();
+
+    VectorSnapshot.read(file, 10, 12, (batch, vectors) -> {
+      batches.add(batch.size());
+      documents.addAll(batch);
+      assertThat(vectors.get(0)).containsExactly(embedding(Integer.parseInt(batch.get(0).getId().substring(3))));
+    });
+
+    assertThat(batches).containsExactly(10, 3);
+    assertThat(documents).extracting(Document::getId).first().isEqualTo("id-12");
+    assertThat(documents).extracting(Document::getId).last().isEqualTo("id-24");
+  }
+
+  @Test
+  void handsOutNothingWhenEverythingWasSkipped() throws IOException {
+    Path file = write(5);
+    List<Document> documents = new ArrayList<>();
+
+    VectorSnapshot.Summary summary = VectorSnapshot.read(file, 10, 5, (batch, vectors) -> documents.addAll(batch));
+
+    assertThat(documents).isEmpty();
+    assertThat(summary.documents()).isEqualTo(5);
+  }
+
+  @Test
+  void writesAnEmptySnapshot() throws IOException {
+    Path file = directory.resolve("empty.snapshot");
+
+    VectorSnapshot.Summary summary = VectorSnapshot.write(file, sink -> { });
+
+    assertThat(summary.documents()).isZero();
+    VectorSnapshot.read(file, 10, (batch, vectors) -> {
+      throw new AssertionError("An empty snapshot has no batches");
+    });
+  }
+
+  @Test
+  void rejectsATruncatedSnapshot() throws IOException {
+    Path file = write(25);
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.setLength(raf.length() - Float.BYTES);
+    }
+
+    assertRejected(file, "truncated");
+  }
+
+  @Test
+  void rejectsAFileShorterThanTheHeader() throws IOException {
+    Path file = directory.resolve("short.snapshot");
+    Files.write(file, new byte[10]);
+
+    assertRejected(file, "truncated");
+  }
+
+  @Test
+  void rejectsAFileThatIsNotASnapshot() throws IOException {
+    Path file = directory.resolve("other.snapshot");
+    Files.write(file, new byte[1024]);
+
+    assertRejected(file, "not a vector snapshot");
+  }
+
+  @Test
+  void rejectsACorruptDocumentSection() throws IOException {
+    Path file = write(25);
+    // The first record starts after the 48 byte header with the length of its id
+    flipByte(file, 48 + Integer.BYTES + 1);
+
+    assertRejected(file, "document section");
+  }
+
+  @Test
+  void rejectsACorruptEmbeddingSection() throws IOException {
+    Path file = write(25);
+    flipByte(file, Files.size(file) - 3);
+
+    assertRejected(file, "embedding section");
+  }
+
+  @Test
+  void replacesAnExistingSnapshotOnlyOnceComplete() throws IOException {
+    Path file = write(5);
+    byte[] before = Files.readAllBytes(file);
+
+    assertThatThrownBy(() -> VectorSnapshot.write(file, sink -> sink.accept(
+        List.of(document(0), document(1)), List.of(embedding(0), new float[DIMENSIONS + 1]))))
+        .isInstanceOf(IllegalArgumentException.class);
+
+    assertThat(Files.readAllBytes(file)).isEqualTo(before);
+    try (var files = Files.list(directory)) {
+      assertThat(files).containsExactly(file);
+    }
+  }
+
+  private Path write(int count) throws IOException {
+    Path file = directory.resolve("jokes.snapshot");
+    VectorSnapshot.write(file, sink -> {
+      // Batches of another size than the ones read back
+      for (int first = 0; first < count; first += 7) {
+        List<Document> documents = new ArrayList<>();
+        List<float[]> embeddings = new ArrayList<>();
+        for (int i = first; i < Math.min(count, first + 7); i++) {
+          documents.add(document(i));
+          embeddings.add(embedding(i));
+        }
+        sink.accept(documents, embeddings);
+      }
+    });
+    return file;
+  }
+
+  private static void assertRejected(Path file, String reason) {
+    List<Document> documents = new ArrayList<>();
+    assertThatThrownBy(() -> VectorSnapshot.read(file, 10, (batch, vectors) -> documents.addAll(batch)))
+        .isInstanceOf(SnapshotException.class)
+        .hasMessageContaining(reason);
+    assertThat(documents).as("nothing is handed out before the file is verified").isEmpty();
+  }
+
+  private static void flipByte(Path file, long position) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+      raf.seek(position);
+      int value = raf.read();
+      raf.seek(position);
+      raf.write(value ^ 0xFF);
+    }
+  }
+
+  private static Document document(int i) {
+    return new Document("id-" + i, "Joke number " + i + " ✅", Map.of("topic", "topic-" + i % 3, "rank", i));
+  }
+
+  private static float[] embedding(int i) {
+    float[] embedding = new float[DIMENSIONS];
+    for (int d = 0; d < DIMENSIONS; d++) {
+      embedding[d] = i + d / 10f;
+    }
+    return embedding;
+  }
+}
@@ -0,0 +1,75 @@
+package com.github.joonasvali.demo.streaming;
+
+import com.github.joonasvali.demo.model.JokeStreamEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingJokeParserTest {
+
+  private static final String JOKE = """
+      {"title": "The Programmer's Life", "content": "Why do programmers prefer dark mode?\\nBecause light attracts bugs!", "topic": "Programming"}""";
+
+  @Test
+  void emitsTheTextOfEveryField() {
+    assertThat(fields(JOKE)).containsExactly(
+        Map.entry("title", "The Programmer's Life"),
+        Map.entry("content", "Why do programmers prefer dark mode?\nBecause light attracts bugs!"),
+        Map.entry("topic", "Programming"));
+  }
+
+  @Test
+  void emitsTheSameTextWhenEveryCharacterIsAChunk() {
+    assertThat(fields(JOKE.split(""))).isEqualTo(fields(JOKE));
+  }
+
+  @Test
+  void decodesEscapesSplitAcrossChunks() {
+    assertThat(fields("{\"content\": \"a\\", "nb\\u00", "e9\\", "\"c\"}"))
+        .containsExactly(Map.entry("content", "a\nbé\"c"));
+  }
+
+  @Test
+  void keepsEscapedQuotesInsideValues() {
+    assertThat(fields("{\"content\": \"He said \\\"knock knock\\\", \\\"who's there?\\\"\"}"))
+        .containsExactly(Map.entry("content", "He said \"knock knock\", \"who's there?\""));
+  }
+
+  @Test
+  void keepsAMalformedUnicodeEscapeLiterally() {
+    assertThat(fields("{\"title\": \"bad \\u12x4 escape\", \"content\": \"cut \\u1", "2\"}"))
+        .containsExactly(Map.entry("title", "bad \\u12x4 escape"), Map.entry("content", "cut \\u12"));
+  }
+
+  @Test
+  void attributesFieldsInAnyOrder() {
+    assertThat(fields("{\"topic\": \"Cats\", \"content\": \"Meow\", \"title\": \"Purr\"}"))
+        .containsExactly(Map.entry("topic", "Cats"), Map.entry("content", "Meow"), Map.entry("title", "Purr"));
+  }
+
+  @Test
+  void skipsNestedValuesWithBracesAndQuotesInTheirStrings() {
+    assertThat(fields("{\"meta\": {\"note\": \"a } \\\" {\"}, \"tags\": [\"x\"], \"title\": \"T\"}"))
+        .containsExactly(Map.entry("title", "T"));
+  }
+
+  @Test
+  void ignoresTextAroundTheObject() {
+    assertThat(fields("Here you go [1]:\n```json\n{\"title\": \"T\"}\n```"))
+        .containsExactly(Map.entry("title", "T"));
+  }
+
+  private static Map<String, String> fields(String... chunks) {
+    StreamingJokeParser parser = new StreamingJokeParser();
+    Map<String, String> fields = new LinkedHashMap<>();
+    for (String chunk : chunks) {
+      List<JokeStreamEvent> events = parser.accept(chunk);
+      events.forEach(event -> fields.merge(event.field(), event.text(), String::concat));
+    }
+    return fields;
+  }
+}
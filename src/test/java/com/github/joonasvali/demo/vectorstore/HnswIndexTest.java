@@ -0,0 +1,163 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+  private static final int DIMENSIONS = 32;
+  private static final int VECTORS = 2000;
+  private static final int QUERIES = 50;
+  private static final int K = 10;
+
+  /**
+   * Vectors and graph are seeded, so recall is the same on every run. One bit per dimension keeps little of a
+   * 32 dimensional random vector, binary codes depend on re-ranking many more candidates.
+   */
+  @ParameterizedTest
+  @CsvSource({"NONE, 4, 0.95", "INT8, 4, 0.95", "BINARY, 10, 0.55"})
+  void findsMostOfTheExactNearestNeighbours(VectorQuantization quantization, int rerankFactor, double minRecall) {
+    Random random = new Random(42);
+    float[][] vectors = randomVectors(random, VECTORS);
+    try (HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 1, quantization, rerankFactor, null)) {
+      Arrays.stream(vectors).forEach(index::add);
+
+      int found = 0;
+      for (int i = 0; i < QUERIES; i++) {
+        float[] query = randomVector(random);
+        Set<Integer> exact = exactNearest(vectors, query, K);
+        found += (int) Arrays.stream(index.search(query, K, 64, null)).filter(match -> exact.contains(match.node())).count();
+      }
+
+      assertThat((double) found / (QUERIES * K)).isGreaterThanOrEqualTo(minRecall);
+    }
+  }
+
+  @Test
+  void ordersMatchesByDescendingSimilarity() {
+    HnswIndex index = index(randomVectors(new Random(1), 500));
+
+    HnswIndex.Match[] matches = index.search(randomVector(new Random(2)), K, 64, null);
+
+    assertThat(matches).hasSize(K);
+    assertThat(matches).isSortedAccordingTo(Comparator.comparingDouble(HnswIndex.Match::score).reversed());
+  }
+
+  @Test
+  void findsAStoredVectorItself() {
+    float[][] vectors = randomVectors(new Random(3), 500);
+    HnswIndex index = index(vectors);
+
+    HnswIndex.Match best = index.search(vectors[123], 1, 64, null)[0];
+
+    assertThat(best.node()).isEqualTo(123);
+    assertThat(best.score()).isCloseTo(1f, within(1e-5f));
+  }
+
+  @Test
+  void neverReturnsDeletedNodes() {
+    float[][] vectors = randomVectors(new Random(4), 500);
+    HnswIndex index = index(vectors);
+    for (int node = 0; node < 500; node += 2) {
+      index.markDeleted(node);
+    }
+
+    for (int i = 0; i < 20; i++) {
+      HnswIndex.Match[] matches = index.search(vectors[i], K, 64, null);
+      assertThat(matches).hasSize(K).allSatisfy(match -> assertThat(match.node() % 2).isEqualTo(1));
+    }
+    assertThat(index.liveCount()).isEqualTo(250);
+    assertThat(index.deletedCount()).isEqualTo(250);
+  }
+
+  @Test
+  void deletingTwiceCountsOnce() {
+    HnswIndex index = index(randomVectors(new Random(5), 10));
+
+    index.markDeleted(3);
+    index.markDeleted(3);
+    index.markDeleted(42);
+
+    assertThat(index.isDeleted(3)).isTrue();
+    assertThat(index.deletedCount()).isEqualTo(1);
+    assertThat(index.size()).isEqualTo(10);
+  }
+
+  @Test
+  void returnsOnlyAcceptedNodes() {
+    HnswIndex index = index(randomVectors(new Random(6), 500));
+
+    HnswIndex.Match[] matches = index.search(randomVector(new Random(7)), K, 64, node -> node < 100);
+
+    assertThat(matches).hasSize(K).allSatisfy(match -> assertThat(match.node()).isLessThan(100));
+  }
+
+  @Test
+  void answersAnEmptyIndexWithNoMatches() {
+    HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 1);
+
+    assertThat(index.search(randomVector(new Random(8)), K, 64, null)).isEmpty();
+  }
+
+  @Test
+  void rejectsVectorsOfAnotherDimension() {
+    HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 1);
+
+    assertThatThrownBy(() -> index.add(new float[DIMENSIONS + 1])).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static HnswIndex index(float[][] vectors) {
+    HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100, 1);
+    Arrays.stream(vectors).forEach(index::add);
+    return index;
+  }
+
+  private static Set<Integer> exactNearest(float[][] vectors, float[] query, int k) {
+    Set<Integer> nearest = new HashSet<>();
+    IntStream.range(0, vectors.length).boxed()
+        .sorted(Comparator.comparingDouble((Integer node) -> cosine(vectors[node], query)).reversed())
+        .limit(k)
+        .forEach(nearest::add);
+    return nearest;
+  }
+
+  private static double cosine(float[] a, float[] b) {
+    double dot = 0;
+    double normA = 0;
+    double normB = 0;
+    for (int i = 0; i < a.length; i++) {
+      dot += a[i] * b[i];
+      normA += a[i] * a[i];
+      normB += b[i] * b[i];
+    }
+    return dot / Math.sqrt(normA * normB);
+  }
+
+  private static float[][] randomVectors(Random random, int count) {
+    float[][] vectors = new float[count][];
+    for (int i = 0; i < count; i++) {
+      vectors[i] = randomVector(random);
+    }
+    return vectors;
+  }
+
+  private static float[] randomVector(Random random) {
+    float[] vector = new float[DIMENSIONS];
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] = (float) random.nextGaussian();
+    }
+    return vector;
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class HnswVectorStoreTest {
+
+  private static final float[] QUERY = {1, 0, 0};
+
+  private final FilterExpressionBuilder filter = new FilterExpressionBuilder();
+  private HnswVectorStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = HnswVectorStore.builder(mock(EmbeddingModel.class)).scalarFields(List.of("type", "topic")).build();
+    store.add(List.of(
+            new Document("animals", "A penguin walks into a bar", Map.of("type", "joke", "topic", "animals")),
+            new Document("school", "Why was the math book sad?", Map.of("type", "joke", "topic", "school")),
+            new Document("no-topic", "A joke without a topic", Map.of("type", "joke")),
+            new Document("no-fields", "A document without scalar fields", Map.of())),
+        List.of(new float[]{1, 0, 0}, new float[]{0.9f, 0.1f, 0}, new float[]{0.8f, 0.2f, 0}, new float[]{0.7f, 0.3f, 0}));
+  }
+
+  @Test
+  void equalityFilterSkipsDocumentsWithoutTheField() {
+    assertThat(ids(filter.eq("topic", "animals").build())).containsExactly("animals");
+  }
+
+  @Test
+  void inequalityFilterMatchesDocumentsWithoutTheField() {
+    assertThat(ids(filter.ne("topic", "animals").build())).containsExactly("school", "no-topic", "no-fields");
+  }
+
+  @Test
+  void inAndNotInFiltersHandleDocumentsWithoutTheField() {
+    assertThat(ids(filter.in("topic", "animals", "school").build())).containsExactly("animals", "school");
+    assertThat(ids(filter.nin("topic", "animals", "school").build())).containsExactly("no-topic", "no-fields");
+  }
+
+  @Test
+  void combinedScalarFiltersMatchLikeTheMetadata() {
+    Filter.Expression jokesAboutSchool = filter.and(filter.eq("type", "joke"), filter.eq("topic", "school")).build();
+    Filter.Expression notJokes = filter.not(filter.eq("type", "joke")).build();
+
+    assertThat(ids(jokesAboutSchool)).containsExactly("school");
+    assertThat(ids(notJokes)).containsExactly("no-fields");
+  }
+
+  @Test
+  void filtersOnOtherKeysGoThroughTheMetadata() {
+    HnswVectorStore unindexed = HnswVectorStore.builder(mock(EmbeddingModel.class)).build();
+    unindexed.add(List.of(
+            new Document("animals", "A penguin walks into a bar", Map.of("topic", "animals")),
+            new Document("no-topic", "A joke without a topic", Map.of())),
+        List.of(new float[]{1, 0, 0}, new float[]{0.9f, 0.1f, 0}));
+
+    List<Document> results = unindexed.similaritySearch(QUERY, SearchRequest.builder().topK(10)
+        .filterExpression(filter.eq("topic", "animals").build()).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("animals");
+  }
+
+  private List<String> ids(Filter.Expression expression) {
+    return store.similaritySearch(QUERY, SearchRequest.builder().topK(10).filterExpression(expression).build())
+        .stream().map(Document::getId).toList();
+  }
+}
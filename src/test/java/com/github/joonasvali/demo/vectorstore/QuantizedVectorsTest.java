@@ -0,0 +1,104 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorsTest {
+
+  // Two longs per binary code, so that word offsets within a chunk are exercised too
+  private static final int DIMENSIONS = 70;
+  private static final int CHUNK = 4096;
+  private static final int[] AROUND_BOUNDARIES = {0, CHUNK - 2, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK - 1, 2 * CHUNK, 2 * CHUNK + 9};
+
+  @ParameterizedTest
+  @EnumSource(value = VectorQuantization.class, names = {"INT8", "BINARY"})
+  void scoresVectorsOnBothSidesOfAChunkBoundary(VectorQuantization quantization) {
+    float[][] vectors = randomVectors(new Random(11), 2 * CHUNK + 10);
+    QuantizedVectors quantized = new QuantizedVectors(quantization, DIMENSIONS);
+    for (int node = 0; node < vectors.length; node++) {
+      quantized.set(node, vectors[node]);
+    }
+
+    for (int node : AROUND_BOUNDARIES) {
+      QuantizedVectors.Query self = quantized.encode(vectors[node]);
+      assertThat(quantized.score(self, node)).as("node %d", node).isCloseTo(1f, within(quantization == VectorQuantization.BINARY ? 0f : 0.02f));
+      // A neighbouring node holds a different vector, its score must not be read from the wrong chunk
+      int other = node == 0 ? 1 : node - 1;
+      assertThat(quantized.score(self, other)).as("node %d", other).isLessThan(0.9f);
+    }
+  }
+
+  @Test
+  void int8ScoresApproximateTheInnerProductInEveryChunk() {
+    Random random = new Random(12);
+    float[][] vectors = randomVectors(random, 2 * CHUNK + 10);
+    QuantizedVectors quantized = new QuantizedVectors(VectorQuantization.INT8, DIMENSIONS);
+    for (int node = 0; node < vectors.length; node++) {
+      quantized.set(node, vectors[node]);
+    }
+    float[] query = randomVector(random);
+    QuantizedVectors.Query encoded = quantized.encode(query);
+
+    for (int node : AROUND_BOUNDARIES) {
+      assertThat(quantized.score(encoded, node)).as("node %d", node).isCloseTo(dot(query, vectors[node]), within(0.03f));
+    }
+  }
+
+  @Test
+  void overwritingABinaryCodeClearsTheOldBits() {
+    QuantizedVectors quantized = new QuantizedVectors(VectorQuantization.BINARY, DIMENSIONS);
+    float[] positive = new float[DIMENSIONS];
+    float[] negative = new float[DIMENSIONS];
+    Arrays.fill(positive, 1);
+    Arrays.fill(negative, -1);
+    quantized.set(CHUNK, positive);
+
+    quantized.set(CHUNK, negative);
+
+    assertThat(quantized.score(quantized.encode(negative), CHUNK)).isEqualTo(1f);
+    assertThat(quantized.score(quantized.encode(positive), CHUNK)).isEqualTo(-1f);
+  }
+
+  @Test
+  void needsAQuantization() {
+    assertThatThrownBy(() -> new QuantizedVectors(VectorQuantization.NONE, DIMENSIONS))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static float[][] randomVectors(Random random, int count) {
+    float[][] vectors = new float[count][];
+    for (int i = 0; i < count; i++) {
+      vectors[i] = randomVector(random);
+    }
+    return vectors;
+  }
+
+  private static float[] randomVector(Random random) {
+    float[] vector = new float[DIMENSIONS];
+    double norm = 0;
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] = (float) random.nextGaussian();
+      norm += vector[i] * vector[i];
+    }
+    for (int i = 0; i < DIMENSIONS; i++) {
+      vector[i] /= (float) Math.sqrt(norm);
+    }
+    return vector;
+  }
+
+  private static float dot(float[] a, float[] b) {
+    float sum = 0;
+    for (int i = 0; i < a.length; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+}
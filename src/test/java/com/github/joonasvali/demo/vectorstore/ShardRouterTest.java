@@ -0,0 +1,84 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRouterTest {
+
+  private static final long DAY = Duration.ofDays(1).toMillis();
+
+  private final FilterExpressionBuilder filter = new FilterExpressionBuilder();
+
+  @Test
+  void timeBucketsGoToConsecutiveShards() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TIME_BUCKET, 3, Duration.ofDays(1));
+
+    assertThat(router.shardOf(Map.of("created", 0L))).isZero();
+    assertThat(router.shardOf(Map.of("created", DAY))).isEqualTo(1);
+    assertThat(router.shardOf(Map.of("created", 2 * DAY + 1))).isEqualTo(2);
+    assertThat(router.shardOf(Map.of("created", 3 * DAY))).isZero();
+  }
+
+  @Test
+  void acceptsCreationTimesOfAnyNumberType() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TIME_BUCKET, 4, Duration.ofDays(1));
+    long created = 1_700_000_000_000L;
+
+    // Metadata read back from JSON carries numbers as doubles
+    assertThat(router.shardOf(Map.of("created", (double) created))).isEqualTo(router.shardOf(Map.of("created", created)));
+    assertThat(router.homeOf(Map.of("created", (double) created))).isEqualTo(OptionalInt.of(router.shardOf(Map.of("created", created))));
+    assertThat(router.homeOf(Map.of("created", (int) DAY))).isEqualTo(OptionalInt.of(1));
+  }
+
+  @Test
+  void documentWithoutCreationTimeHasNoHomeUnderTimeBuckets() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TIME_BUCKET, 4, Duration.ofDays(1));
+
+    assertThat(router.shardOf(Map.of())).isBetween(0, 3);
+    assertThat(router.homeOf(Map.of())).isEmpty();
+    assertThat(router.homeOf(Map.of("created", "yesterday"))).isEmpty();
+  }
+
+  @Test
+  void topicHashKeepsATopicOnOneShard() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TOPIC_HASH, 4, Duration.ofDays(1));
+
+    int shard = router.shardOf(Map.of("topic", "animals", "created", 0L));
+
+    assertThat(router.shardOf(Map.of("topic", "animals", "created", DAY))).isEqualTo(shard);
+    assertThat(router.homeOf(Map.of("topic", "animals"))).isEqualTo(OptionalInt.of(shard));
+    assertThat(router.homeOf(Map.of())).isEqualTo(OptionalInt.of(router.shardOf(Map.of("topic", ""))));
+  }
+
+  @Test
+  void searchRequiringOneTopicTargetsItsShard() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TOPIC_HASH, 4, Duration.ofDays(1));
+    int shard = router.shardOf(Map.of("topic", "animals"));
+
+    assertThat(router.shardOf(filter.eq("topic", "animals").build())).isEqualTo(OptionalInt.of(shard));
+    assertThat(router.shardOf(filter.and(filter.eq("type", "joke"), filter.eq("topic", "animals")).build()))
+        .isEqualTo(OptionalInt.of(shard));
+    assertThat(router.shardOf(filter.or(filter.eq("topic", "animals"), filter.eq("topic", "school")).build())).isEmpty();
+    assertThat(router.shardOf(filter.eq("type", "joke").build())).isEmpty();
+  }
+
+  @Test
+  void timeBucketSearchesTargetEveryShard() {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TIME_BUCKET, 4, Duration.ofDays(1));
+
+    assertThat(router.shardOf(filter.eq("topic", "animals").build())).isEmpty();
+  }
+
+  @Test
+  void needsAtLeastOneShard() {
+    assertThatThrownBy(() -> new ShardRouter(ShardRouter.Routing.TOPIC_HASH, 0, Duration.ofDays(1)))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
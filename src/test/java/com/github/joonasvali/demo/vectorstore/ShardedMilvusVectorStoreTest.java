@@ -0,0 +1,120 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.milvus.client.MilvusServiceClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardedMilvusVectorStoreTest {
+
+  private static final float[] QUERY = {1, 0, 0};
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private ShardedMilvusVectorStore store;
+
+  @AfterEach
+  void tearDown() {
+    if (store != null) {
+      store.destroy();
+    }
+  }
+
+  @Test
+  void mergesTheTopKOfEveryShard() {
+    store = store(
+        shard("jokes", document("a", 0.9), document("b", 0.5)),
+        shard("jokes_1", document("c", 0.8), document("d", 0.7)),
+        shard("jokes_2", document("e", 0.6)));
+
+    List<Document> results = store.similaritySearch(QUERY, SearchRequest.builder().topK(3).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("a", "c", "d");
+    assertThat(results).allSatisfy(document -> assertThat(document.getMetadata()).doesNotContainKey(ShardedMilvusVectorStore.PARTIAL_RESULTS_KEY));
+  }
+
+  @Test
+  void countsADocumentFoundOnTwoShardsOnce() {
+    store = store(
+        shard("jokes", document("a", 0.9)),
+        shard("jokes_1", document("a", 0.95), document("b", 0.5)));
+
+    List<Document> results = store.similaritySearch(QUERY, SearchRequest.builder().topK(5).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("a", "b");
+    assertThat(results.get(0).getScore()).isEqualTo(0.95);
+  }
+
+  @Test
+  void leavesOutAShardThatTimesOutAndMarksTheResultsPartial() {
+    ScalarFieldMilvusVectorStore slow = shard("jokes_1");
+    when(slow.similaritySearch(any(float[].class), any())).thenAnswer(invocation -> {
+      Thread.sleep(10_000);
+      return List.of(document("slow", 1.0));
+    });
+    store = store(shard("jokes", document("a", 0.9), document("b", 0.5)), slow);
+
+    long started = System.nanoTime();
+    List<Document> results = store.similaritySearch(QUERY, SearchRequest.builder().topK(5).build());
+
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    assertThat(results).extracting(Document::getId).containsExactly("a", "b");
+    assertThat(results).allSatisfy(document -> assertThat(document.getMetadata()).containsEntry(ShardedMilvusVectorStore.PARTIAL_RESULTS_KEY, true));
+    assertThat(meterRegistry.counter("vector.shard.search", "collection", "jokes_1", "outcome", "timeout").count()).isEqualTo(1);
+    assertThat(meterRegistry.counter("vector.shard.search.partial").count()).isEqualTo(1);
+  }
+
+  @Test
+  void leavesOutAShardThatFails() {
+    ScalarFieldMilvusVectorStore broken = shard("jokes_1");
+    when(broken.similaritySearch(any(float[].class), any())).thenThrow(new IllegalStateException("unavailable"));
+    store = store(shard("jokes", document("a", 0.9)), broken);
+
+    List<Document> results = store.similaritySearch(QUERY, SearchRequest.builder().topK(5).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("a");
+    assertThat(results.get(0).getMetadata()).containsEntry(ShardedMilvusVectorStore.PARTIAL_RESULTS_KEY, true);
+    assertThat(meterRegistry.counter("vector.shard.search", "collection", "jokes_1", "outcome", "error").count()).isEqualTo(1);
+  }
+
+  @Test
+  void failsWhenNoShardAnswers() {
+    ScalarFieldMilvusVectorStore broken = shard("jokes");
+    when(broken.similaritySearch(any(float[].class), any())).thenThrow(new IllegalStateException("unavailable"));
+    store = store(broken);
+
+    assertThatThrownBy(() -> store.similaritySearch(QUERY, SearchRequest.builder().topK(5).build()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("No shard answered");
+  }
+
+  private ShardedMilvusVectorStore store(ScalarFieldMilvusVectorStore... stores) {
+    ShardRouter router = new ShardRouter(ShardRouter.Routing.TOPIC_HASH, stores.length, Duration.ofDays(1));
+    return new ShardedMilvusVectorStore(mock(MilvusServiceClient.class), mock(EmbeddingModel.class), ObservationRegistry.NOOP,
+        List.of(stores), router, Duration.ofMillis(200), meterRegistry);
+  }
+
+  private ScalarFieldMilvusVectorStore shard(String collection, Document... results) {
+    ScalarFieldMilvusVectorStore shard = mock(ScalarFieldMilvusVectorStore.class);
+    when(shard.getCollectionName()).thenReturn(collection);
+    when(shard.similaritySearch(any(float[].class), any())).thenReturn(List.of(results));
+    return shard;
+  }
+
+  private static Document document(String id, double score) {
+    return Document.builder().id(id).text(id).metadata(Map.of("type", "joke")).score(score).build();
+  }
+}
@@ -0,0 +1,117 @@
+package com.github.joonasvali.demo.vectorstore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TieredVectorStoreTest {
+
+  private static final float[] STORED = {1, 0, 0};
+  private static final float[] UNRELATED = {0, 1, 0};
+
+  private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+  private final ScalarFieldMilvusVectorStore remote = mock(ScalarFieldMilvusVectorStore.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private HnswVectorStore hotTier;
+  private TieredVectorStore store;
+
+  @BeforeEach
+  void setUp() {
+    hotTier = HnswVectorStore.builder(embeddingModel).build();
+    store = new TieredVectorStore(hotTier, remote, embeddingModel, new TokenCountBatchingStrategy(), 0.95, meterRegistry);
+    hotTier.add(List.of(new Document("hot", "a fresh joke", Map.of())), List.of(STORED));
+  }
+
+  @Test
+  void fullHotTopKOfNearDuplicatesAnswersWithoutTheRemoteStore() {
+    when(embeddingModel.embed(anyString())).thenReturn(STORED);
+
+    List<Document> results = store.similaritySearch(SearchRequest.builder().query("a fresh joke").topK(1).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("hot");
+    verify(remote, never()).similaritySearch(any(float[].class), any());
+    verify(embeddingModel, times(1)).embed(anyString());
+    assertThat(meterRegistry.counter("vector.tier.search", "tier", "hot-only").count()).isEqualTo(1);
+  }
+
+  @Test
+  void weakHotResultsAskTheRemoteStoreWithTheSameEmbedding() {
+    float[] query = {0.6f, 0.8f, 0};
+    when(embeddingModel.embed(anyString())).thenReturn(query);
+    when(remote.similaritySearch(same(query), any())).thenReturn(List.of(document("remote", 0.9)));
+
+    List<Document> results = store.similaritySearch(SearchRequest.builder().query("another joke").topK(1).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("remote");
+    verify(embeddingModel, times(1)).embed(anyString());
+    assertThat(meterRegistry.counter("vector.tier.search", "tier", "remote").count()).isEqualTo(1);
+  }
+
+  @Test
+  void partialHotTopKAsksTheRemoteStore() {
+    when(embeddingModel.embed(anyString())).thenReturn(STORED);
+    when(remote.similaritySearch(any(float[].class), any())).thenReturn(List.of(document("remote", 0.5)));
+
+    List<Document> results = store.similaritySearch(SearchRequest.builder().query("a fresh joke").topK(2).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("hot", "remote");
+  }
+
+  @Test
+  void hotAnswerScoreAboveOneAlwaysAsksTheRemoteStore() {
+    TieredVectorStore alwaysRemote = new TieredVectorStore(hotTier, remote, embeddingModel, new TokenCountBatchingStrategy(), 1.1, meterRegistry);
+    when(embeddingModel.embed(anyString())).thenReturn(STORED);
+    when(remote.similaritySearch(any(float[].class), any())).thenReturn(List.of());
+
+    List<Document> results = alwaysRemote.similaritySearch(SearchRequest.builder().query("a fresh joke").topK(1).build());
+
+    assertThat(results).extracting(Document::getId).containsExactly("hot");
+    verify(remote).similaritySearch(same(STORED), any());
+  }
+
+  @Test
+  void mergePrefersTheRemoteCopyAndKeepsTheTopK() {
+    List<Document> hot = List.of(document("a", 0.9), document("b", 0.7));
+    List<Document> remoteResults = List.of(document("a", 0.8), document("c", 0.85));
+
+    List<Document> merged = TieredVectorStore.merge(hot, remoteResults, 2);
+
+    assertThat(merged).extracting(Document::getId).containsExactly("c", "a");
+    assertThat(merged.get(1).getScore()).isEqualTo(0.8);
+  }
+
+  @Test
+  void addEmbedsOnceAndWritesBothTiers() {
+    List<Document> documents = List.of(new Document("new", "a new joke", Map.of()));
+    List<float[]> embeddings = List.of(UNRELATED);
+    when(embeddingModel.embed(same(documents), any(), any())).thenReturn(embeddings);
+
+    store.add(documents);
+
+    verify(embeddingModel, times(1)).embed(same(documents), any(), any());
+    verify(remote).add(same(documents), same(embeddings));
+    assertThat(hotTier.similaritySearch(UNRELATED, SearchRequest.builder().topK(1).build()))
+        .extracting(Document::getId).containsExactly("new");
+  }
+
+  private static Document document(String id, double score) {
+    return Document.builder().id(id).text(id).score(score).build();
+  }
+}